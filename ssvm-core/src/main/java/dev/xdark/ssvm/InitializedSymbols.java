@@ -43,6 +43,7 @@ final class InitializedSymbols implements Symbols {
 	private final InstanceClass java_lang_ClassNotFoundException;
 	private final InstanceClass java_util_Vector;
 	private final InstanceClass java_lang_OutOfMemoryError;
+	private final InstanceClass java_lang_StackOverflowError;
 	private final InstanceClass java_lang_NegativeArraySizeException;
 	private final InstanceClass java_lang_IllegalArgumentException;
 	private final InstanceClass java_lang_AbstractMethodError;
@@ -139,6 +140,7 @@ final class InitializedSymbols implements Symbols {
 		java_lang_ClassNotFoundException = (InstanceClass) vm.findBootstrapClass("java/lang/ClassNotFoundException");
 		java_util_Vector = (InstanceClass) vm.findBootstrapClass("java/util/Vector");
 		java_lang_OutOfMemoryError = (InstanceClass) vm.findBootstrapClass("java/lang/OutOfMemoryError");
+		java_lang_StackOverflowError = (InstanceClass) vm.findBootstrapClass("java/lang/StackOverflowError");
 		java_lang_NegativeArraySizeException = (InstanceClass) vm.findBootstrapClass("java/lang/NegativeArraySizeException");
 		java_lang_IllegalArgumentException = (InstanceClass) vm.findBootstrapClass("java/lang/IllegalArgumentException");
 		java_lang_AbstractMethodError = (InstanceClass) vm.findBootstrapClass("java/lang/AbstractMethodError");
@@ -336,6 +338,11 @@ public InstanceClass java_lang_OutOfMemoryError() {
 		return java_lang_OutOfMemoryError;
 	}
 
+	@Override
+	public InstanceClass java_lang_StackOverflowError() {
+		return java_lang_StackOverflowError;
+	}
+
 	@Override
 	public InstanceClass java_lang_NegativeArraySizeException() {
 		return java_lang_NegativeArraySizeException;
@@ -120,6 +120,11 @@
 import dev.xdark.ssvm.execution.rewrite.array.DoubleArrayProcessor;
 import dev.xdark.ssvm.execution.rewrite.method.DynamicCallProcessor;
 import dev.xdark.ssvm.execution.rewrite.array.FloatArrayProcessor;
+import dev.xdark.ssvm.execution.rewrite.fused.IncrementJumpProcessor;
+import dev.xdark.ssvm.execution.rewrite.fused.LoadAddStoreProcessor;
+import dev.xdark.ssvm.execution.rewrite.fused.LoadArrayLengthProcessor;
+import dev.xdark.ssvm.execution.rewrite.fused.LoadCompareJumpProcessor;
+import dev.xdark.ssvm.execution.rewrite.fused.LoadGetFieldProcessor;
 import dev.xdark.ssvm.execution.rewrite.field.GetFieldByteProcessor;
 import dev.xdark.ssvm.execution.rewrite.field.GetFieldCharProcessor;
 import dev.xdark.ssvm.execution.rewrite.field.GetFieldDoubleProcessor;
@@ -183,6 +188,8 @@
 import java.util.Map;
 import java.util.function.Consumer;
 
+import static dev.xdark.ssvm.asm.VMOpcodes.VM_ALOAD_ARRAYLENGTH;
+import static dev.xdark.ssvm.asm.VMOpcodes.VM_ALOAD_GETFIELD;
 import static dev.xdark.ssvm.asm.VMOpcodes.VM_BOOLEAN_NEW_ARRAY;
 import static dev.xdark.ssvm.asm.VMOpcodes.VM_BYTE_NEW_ARRAY;
 import static dev.xdark.ssvm.asm.VMOpcodes.VM_CHAR_NEW_ARRAY;
@@ -195,6 +202,9 @@
 import static dev.xdark.ssvm.asm.VMOpcodes.VM_DOUBLE_NEW_ARRAY;
 import static dev.xdark.ssvm.asm.VMOpcodes.VM_DYNAMIC_CALL;
 import static dev.xdark.ssvm.asm.VMOpcodes.VM_FLOAT_NEW_ARRAY;
+import static dev.xdark.ssvm.asm.VMOpcodes.VM_IINC_GOTO;
+import static dev.xdark.ssvm.asm.VMOpcodes.VM_ILOAD_ILOAD_IADD_ISTORE;
+import static dev.xdark.ssvm.asm.VMOpcodes.VM_ILOAD_PUSH_IF_ICMP;
 import static dev.xdark.ssvm.asm.VMOpcodes.VM_GETFIELD_BOOLEAN;
 import static dev.xdark.ssvm.asm.VMOpcodes.VM_GETFIELD_BYTE;
 import static dev.xdark.ssvm.asm.VMOpcodes.VM_GETFIELD_CHAR;
@@ -864,6 +874,13 @@ static void setInstructions(VirtualMachine vm) {
 		vmi.setProcessor(VM_GETFIELD_LONG, new GetFieldLongProcessor());
 		vmi.setProcessor(VM_GETFIELD_DOUBLE, new GetFieldDoubleProcessor());
 		vmi.setProcessor(VM_GETFIELD_REFERENCE, new GetFieldReferenceProcessor());
+
+		vmi.setProcessor(VM_ALOAD_GETFIELD, new LoadGetFieldProcessor());
+		vmi.setProcessor(VM_ILOAD_ILOAD_IADD_ISTORE, new LoadAddStoreProcessor());
+		vmi.setProcessor(VM_IINC_GOTO, new IncrementJumpProcessor());
+		vmi.setProcessor(VM_ILOAD_PUSH_IF_ICMP, new LoadCompareJumpProcessor());
+		vmi.setProcessor(VM_ALOAD_ARRAYLENGTH, new LoadArrayLengthProcessor());
+		vmi.markDefaultProcessors();
 		//</editor-fold>
 	}
 }
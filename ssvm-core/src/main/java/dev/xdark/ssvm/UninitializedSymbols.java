@@ -145,6 +145,11 @@ public InstanceClass java_lang_OutOfMemoryError() {
 		return uninitialized();
 	}
 
+	@Override
+	public InstanceClass java_lang_StackOverflowError() {
+		return uninitialized();
+	}
+
 	@Override
 	public InstanceClass java_lang_NegativeArraySizeException() {
 		return uninitialized();
@@ -25,8 +25,8 @@
 import dev.xdark.ssvm.jvm.SimpleManagementInterface;
 import dev.xdark.ssvm.jvmti.JVMTIEnv;
 import dev.xdark.ssvm.jvmti.VMEventCollection;
+import dev.xdark.ssvm.memory.allocation.ArenaMemoryAllocator;
 import dev.xdark.ssvm.memory.allocation.MemoryAllocator;
-import dev.xdark.ssvm.memory.allocation.NavigableMemoryAllocator;
 import dev.xdark.ssvm.memory.management.MemoryManager;
 import dev.xdark.ssvm.memory.management.SimpleMemoryManager;
 import dev.xdark.ssvm.memory.management.SimpleStringPool;
@@ -46,6 +46,7 @@
 import dev.xdark.ssvm.thread.OSThread;
 import dev.xdark.ssvm.thread.ThreadManager;
 import dev.xdark.ssvm.thread.ThreadStorage;
+import dev.xdark.ssvm.thread.virtual.VirtualObjectSynchronizer;
 import dev.xdark.ssvm.thread.virtual.VirtualThreadManager;
 import dev.xdark.ssvm.timezone.SimpleTimeManager;
 import dev.xdark.ssvm.timezone.TimeManager;
@@ -125,10 +126,11 @@ public <V extends VirtualMachine> VirtualMachine(Consumer<V> consumer) {
 		delegatingPrimitives.setPrimitives(new UninitializedPrimitives());
 		primitives = delegatingPrimitives;
 		memoryAllocator = createMemoryAllocator();
-		objectSynchronizer = createObjectSynchronizer();
 		memoryManager = createMemoryManager();
 		classDefiner = createClassDefiner();
 		threadManager = createThreadManager();
+		// Synchronizer depends on the thread manager
+		objectSynchronizer = createObjectSynchronizer();
 		fileManager = createFileManager();
 		nativeLibraryManager = createNativeLibraryManager();
 		timeManager = createTimeManager();
@@ -151,10 +153,15 @@ protected VMInterface createVMInterface() {
 	}
 
 	protected MemoryAllocator createMemoryAllocator() {
-		return new NavigableMemoryAllocator();
+		return new ArenaMemoryAllocator();
 	}
 
+	@SuppressWarnings("deprecation")
 	protected ObjectSynchronizer createObjectSynchronizer() {
+		if (threadManager instanceof VirtualThreadManager) {
+			return new VirtualObjectSynchronizer(this);
+		}
+		// Other thread managers block host threads
 		return new LockObjectSynchronizer();
 	}
 
@@ -39,6 +39,16 @@ public void setProcessor(int opcode, InstructionProcessor<?> processor) {
 		delegate.setProcessor(opcode, processor);
 	}
 
+	@Override
+	public void markDefaultProcessors() {
+		delegate.markDefaultProcessors();
+	}
+
+	@Override
+	public boolean isProcessorOverridden(int opcode) {
+		return delegate.isProcessorOverridden(opcode);
+	}
+
 	@Override
 	public MethodInvoker getInvoker(JavaMethod method) {
 		return delegate.getInvoker(method);
@@ -109,6 +119,11 @@ public List<MethodExitListener> getMethodExitListeners() {
 		return delegate.getMethodExitListeners();
 	}
 
+	@Override
+	public boolean hasMethodListeners() {
+		return delegate.hasMethodListeners();
+	}
+
 	@Override
 	public void setLinkageErrorHandler(Consumer<ExecutionContext<?>> linkageErrorHandler) {
 		delegate.setLinkageErrorHandler(linkageErrorHandler);
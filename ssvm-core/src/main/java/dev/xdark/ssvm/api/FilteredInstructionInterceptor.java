@@ -0,0 +1,57 @@
+package dev.xdark.ssvm.api;
+
+import dev.xdark.ssvm.execution.ExecutionContext;
+import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import org.objectweb.asm.tree.AbstractInsnNode;
+
+import java.util.BitSet;
+import java.util.function.Predicate;
+
+/**
+ * Instruction interceptor that is only called
+ * for selected methods and opcodes.
+ *
+ * @author xDark
+ */
+public final class FilteredInstructionInterceptor implements InstructionInterceptor {
+	private final InstructionInterceptor delegate;
+	private final Predicate<JavaMethod> methodFilter;
+	private final BitSet opcodes;
+
+	/**
+	 * @param delegate     Interceptor to call.
+	 * @param methodFilter Methods to intercept.
+	 * @param opcodes      Opcodes to intercept,
+	 *                     all opcodes are intercepted if none are given.
+	 */
+	public FilteredInstructionInterceptor(InstructionInterceptor delegate, Predicate<JavaMethod> methodFilter, int... opcodes) {
+		this.delegate = delegate;
+		this.methodFilter = methodFilter;
+		if (opcodes.length == 0) {
+			this.opcodes = null;
+		} else {
+			BitSet set = new BitSet();
+			for (int opcode : opcodes) {
+				set.set(opcode);
+			}
+			this.opcodes = set;
+		}
+	}
+
+	@Override
+	public Result intercept(ExecutionContext<?> ctx, AbstractInsnNode insn) {
+		return delegate.intercept(ctx, insn);
+	}
+
+	@Override
+	public boolean interceptsMethod(JavaMethod method) {
+		return methodFilter.test(method) && delegate.interceptsMethod(method);
+	}
+
+	@Override
+	public boolean interceptsOpcode(int opcode) {
+		BitSet opcodes = this.opcodes;
+		return (opcodes == null || opcodes.get(opcode)) && delegate.interceptsOpcode(opcode);
+	}
+}
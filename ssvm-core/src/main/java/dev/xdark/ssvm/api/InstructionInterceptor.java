@@ -2,11 +2,16 @@
 
 import dev.xdark.ssvm.execution.ExecutionContext;
 import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
 import org.objectweb.asm.tree.AbstractInsnNode;
 
 /**
  * Instruction interceptor.
  * Does not work if code is JITted.
+ * Pseudo instructions, such as labels, frames
+ * and line numbers, are not intercepted.
+ * Superinstructions are executed one instruction
+ * at a time, while interceptors are present.
  *
  * @author xDark
  */
@@ -17,4 +22,28 @@ public interface InstructionInterceptor {
 	 * @param insn Instruction to intercept.
 	 */
 	Result intercept(ExecutionContext<?> ctx, AbstractInsnNode insn);
+
+	/**
+	 * Called once per method invocation,
+	 * before the method is interpreted.
+	 *
+	 * @param method Method to check.
+	 * @return {@code true} if instructions of the method
+	 * should be intercepted.
+	 */
+	default boolean interceptsMethod(JavaMethod method) {
+		return true;
+	}
+
+	/**
+	 * Rewritten instructions are checked against both
+	 * their VM opcode and the opcode of the original instruction.
+	 *
+	 * @param opcode Opcode to check.
+	 * @return {@code true} if instructions with the opcode
+	 * should be intercepted.
+	 */
+	default boolean interceptsOpcode(int opcode) {
+		return true;
+	}
 }
@@ -7,6 +7,7 @@
 import org.objectweb.asm.tree.AbstractInsnNode;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 
 /**
@@ -16,14 +17,15 @@
  */
 public class SimpleVMInterface implements VMInterface {
 	private static final int MAX_INSNS = 1024;
-	private final InstructionProcessor[] processors = new InstructionProcessor[MAX_INSNS];
-	private final Map<JavaMethod, MethodInvoker> invokerMap = new HashMap<>();
-	private final List<MethodEnterListener> methodEnters = new ArrayList<>();
-	private final List<MethodExitListener> methodExits = new ArrayList<>();
+	private final InstructionProcessor<?>[] processors = new InstructionProcessor<?>[MAX_INSNS];
+	private final InstructionProcessor<?>[] defaultProcessors = new InstructionProcessor<?>[MAX_INSNS];
+	private final List<MethodEnterListener> methodEnters = new CopyOnWriteArrayList<>();
+	private final List<MethodExitListener> methodExits = new CopyOnWriteArrayList<>();
 	private final List<MethodEnterListener> methodEntersView = Collections.unmodifiableList(methodEnters);
 	private final List<MethodExitListener> methodExitsView = Collections.unmodifiableList(methodExits);
-	private final List<InstructionInterceptor> instructionInterceptors = new ArrayList<>();
+	private final List<InstructionInterceptor> instructionInterceptors = new CopyOnWriteArrayList<>();
 	private final List<InstructionInterceptor> instructionInterceptorsView = Collections.unmodifiableList(instructionInterceptors);
+	private volatile boolean methodListeners;
 	private Consumer<ExecutionContext<?>> linkageErrorHandler = SimpleVMInterface::handleLinkageError0;
 	private Consumer<ExecutionContext<?>> abstractMethodHandler = SimpleVMInterface::handleAbstractMethodError0;
 	private Consumer<ExecutionContext<?>> maxIterationsHandler = SimpleVMInterface::handleMaxIterations0;
@@ -34,12 +36,14 @@ public SimpleVMInterface() {
 
 	@Override
 	public <I extends AbstractInsnNode> InstructionProcessor<I> getProcessor(I insn) {
-		return processors[insn.getOpcode()];
+		return getProcessor(insn.getOpcode());
 	}
 
+	@SuppressWarnings("unchecked")
 	@Override
 	public <I extends AbstractInsnNode> InstructionProcessor<I> getProcessor(int opcode) {
-		return processors[opcode];
+		// Processors are registered by opcode, the caller picks the instruction type
+		return (InstructionProcessor<I>) processors[opcode];
 	}
 
 	@Override
@@ -47,14 +51,24 @@ public void setProcessor(int opcode, InstructionProcessor<?> processor) {
 		processors[opcode] = processor;
 	}
 
+	@Override
+	public void markDefaultProcessors() {
+		System.arraycopy(processors, 0, defaultProcessors, 0, MAX_INSNS);
+	}
+
+	@Override
+	public boolean isProcessorOverridden(int opcode) {
+		return processors[opcode] != defaultProcessors[opcode];
+	}
+
 	@Override
 	public MethodInvoker getInvoker(JavaMethod method) {
-		return invokerMap.get(method);
+		return method.getInvoker();
 	}
 
 	@Override
 	public void setInvoker(JavaMethod method, MethodInvoker invoker) {
-		invokerMap.put(method, invoker);
+		method.setInvoker(invoker);
 	}
 
 	@Override
@@ -94,21 +108,25 @@ public void removeInstructionInterceptor(InstructionInterceptor interceptor) {
 	@Override
 	public void registerMethodEnterListener(MethodEnterListener listener) {
 		methodEnters.add(listener);
+		updateMethodListeners();
 	}
 
 	@Override
 	public void registerMethodExitListener(MethodExitListener listener) {
 		methodExits.add(listener);
+		updateMethodListeners();
 	}
 
 	@Override
 	public void removeMethodEnterListener(MethodEnterListener listener) {
 		methodEnters.remove(listener);
+		updateMethodListeners();
 	}
 
 	@Override
 	public void removeMethodExitListener(MethodExitListener listener) {
 		methodExits.remove(listener);
+		updateMethodListeners();
 	}
 
 	@Override
@@ -126,6 +144,11 @@ public List<MethodExitListener> getMethodExitListeners() {
 		return methodExitsView;
 	}
 
+	@Override
+	public boolean hasMethodListeners() {
+		return methodListeners;
+	}
+
 	@Override
 	public void setLinkageErrorHandler(Consumer<ExecutionContext<?>> linkageErrorHandler) {
 		this.linkageErrorHandler = linkageErrorHandler;
@@ -156,6 +179,10 @@ public void handleMaxInterations(ExecutionContext<?> ctx) {
 		maxIterationsHandler.accept(ctx);
 	}
 
+	private synchronized void updateMethodListeners() {
+		methodListeners = !methodEnters.isEmpty() || !methodExits.isEmpty();
+	}
+
 	// Default impl for handling linkage errors is to throw UnsatisfiedLinkError
 	private static void handleLinkageError0(ExecutionContext<?> ctx) {
 		ctx.getOperations().throwException(ctx.getSymbols().java_lang_UnsatisfiedLinkError(), ctx.getMethod().toString());
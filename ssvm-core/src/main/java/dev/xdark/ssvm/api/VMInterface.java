@@ -10,6 +10,7 @@
 
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Interface to configure/adjust VM.
@@ -43,6 +44,23 @@ public interface VMInterface {
 	 */
 	void setProcessor(int opcode, InstructionProcessor<?> processor);
 
+	/**
+	 * Marks all currently set instruction processors as default ones.
+	 * Called by the VM once built-in processors are installed.
+	 */
+	void markDefaultProcessors();
+
+	/**
+	 * Checks whether instruction processor was replaced
+	 * since default processors were installed.
+	 * Execution engines may process instructions
+	 * without looking up the processor, if it was not.
+	 *
+	 * @param opcode Instruction opcode.
+	 * @return {@code true} if processor is not the default one.
+	 */
+	boolean isProcessorOverridden(int opcode);
+
 	/**
 	 * Returns method invoker based off a method.
 	 *
@@ -93,6 +111,22 @@ public interface VMInterface {
 	 */
 	void registerInstructionInterceptor(InstructionInterceptor interceptor);
 
+	/**
+	 * Registers instruction interceptor that is only called
+	 * for instructions of matching methods with matching opcodes.
+	 *
+	 * @param interceptor  Interceptor to register.
+	 * @param methodFilter Methods to intercept.
+	 * @param opcodes      Opcodes to intercept,
+	 *                     all opcodes are intercepted if none are given.
+	 * @return registered interceptor, to be passed to {@link #removeInstructionInterceptor(InstructionInterceptor)}.
+	 */
+	default InstructionInterceptor registerInstructionInterceptor(InstructionInterceptor interceptor, Predicate<JavaMethod> methodFilter, int... opcodes) {
+		InstructionInterceptor filtered = new FilteredInstructionInterceptor(interceptor, methodFilter, opcodes);
+		registerInstructionInterceptor(filtered);
+		return filtered;
+	}
+
 	/**
 	 * Removes instruction interceptor.
 	 *
@@ -143,6 +177,14 @@ public interface VMInterface {
 	 */
 	List<MethodExitListener> getMethodExitListeners();
 
+	/**
+	 * @return {@code true} if there are any
+	 * method enter or method exit listeners.
+	 */
+	default boolean hasMethodListeners() {
+		return !getMethodEnterListeners().isEmpty() || !getMethodExitListeners().isEmpty();
+	}
+
 	/**
 	 * @param linkageErrorHandler Handler of linkage errors.
 	 *                            Consumes an execution context of the method that is unlinked.
@@ -0,0 +1,106 @@
+package dev.xdark.ssvm.asm;
+
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.JavaClass;
+
+/**
+ * Call site cache of resolved methods,
+ * keyed by receiver type.
+ * <p>
+ * Cache remembers up to two receiver types, after
+ * that it becomes megamorphic and stops caching.
+ *
+ * @author xDark
+ */
+public final class InlineCache {
+
+	private static final int MAX_TYPES = 2;
+	private Entry first;
+	private Entry second;
+	private boolean megamorphic;
+	private long hits;
+	private long misses;
+
+	/**
+	 * Looks up cached method.
+	 *
+	 * @param type Receiver type.
+	 * @return cached method or {@code null},
+	 * if there is no method for the receiver type.
+	 */
+	public JavaMethod get(JavaClass type) {
+		Entry entry = first;
+		if (entry != null && entry.type == type) {
+			hits++;
+			return entry.method;
+		}
+		entry = second;
+		if (entry != null && entry.type == type) {
+			hits++;
+			return entry.method;
+		}
+		misses++;
+		return null;
+	}
+
+	/**
+	 * Caches resolved method.
+	 *
+	 * @param type   Receiver type.
+	 * @param method Resolved method.
+	 */
+	public void put(JavaClass type, JavaMethod method) {
+		if (megamorphic) {
+			return;
+		}
+		Entry entry = new Entry(type, method);
+		if (first == null) {
+			first = entry;
+		} else if (second == null) {
+			second = entry;
+		} else {
+			first = null;
+			second = null;
+			megamorphic = true;
+		}
+	}
+
+	/**
+	 * @return amount of receiver types cached.
+	 */
+	public int size() {
+		return first == null ? 0 : second == null ? 1 : MAX_TYPES;
+	}
+
+	/**
+	 * @return {@code true} if call site has seen
+	 * too many receiver types to be cached.
+	 */
+	public boolean isMegamorphic() {
+		return megamorphic;
+	}
+
+	/**
+	 * @return amount of lookups that found a method.
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return amount of lookups that did not find a method.
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	private static final class Entry {
+		final JavaClass type;
+		final JavaMethod method;
+
+		Entry(JavaClass type, JavaMethod method) {
+			this.type = type;
+			this.method = method;
+		}
+	}
+}
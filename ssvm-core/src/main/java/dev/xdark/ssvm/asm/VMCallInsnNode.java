@@ -1,5 +1,6 @@
 package dev.xdark.ssvm.asm;
 
+import dev.xdark.ssvm.mirror.type.InstanceClass;
 import dev.xdark.ssvm.mirror.type.JavaClass;
 import dev.xdark.ssvm.mirror.member.JavaMethod;
 import org.objectweb.asm.Type;
@@ -12,10 +13,21 @@
  */
 public final class VMCallInsnNode extends DelegatingInsnNode<MethodInsnNode> {
 
+	/**
+	 * Method table slot was not linked yet.
+	 */
+	public static final int SLOT_UNLINKED = -1;
+	/**
+	 * Call site cannot be dispatched through method tables.
+	 */
+	public static final int SLOT_NONE = -2;
 	private final Type[] args;
 	private JavaMethod resolved;
 	private int argCount = -1;
 	private JavaClass javaClass;
+	private InlineCache inlineCache;
+	private int tableSlot = SLOT_UNLINKED;
+	private InstanceClass tableOwner;
 
 	/**
 	 * @param delegate      Backing instruction.
@@ -63,6 +75,43 @@ public int getArgCount() {
 		return argCount;
 	}
 
+	/**
+	 * @return inline cache of the call site.
+	 */
+	public InlineCache getInlineCache() {
+		InlineCache inlineCache = this.inlineCache;
+		if (inlineCache == null) {
+			inlineCache = new InlineCache();
+			this.inlineCache = inlineCache;
+		}
+		return inlineCache;
+	}
+
+	/**
+	 * @return method table slot of the call site,
+	 * {@link #SLOT_UNLINKED} or {@link #SLOT_NONE}.
+	 */
+	public int getTableSlot() {
+		return tableSlot;
+	}
+
+	/**
+	 * @return class which method table
+	 * the slot belongs to.
+	 */
+	public InstanceClass getTableOwner() {
+		return tableOwner;
+	}
+
+	/**
+	 * @param tableOwner Class which method table the slot belongs to.
+	 * @param tableSlot  Method table slot.
+	 */
+	public void setTableSlot(InstanceClass tableOwner, int tableSlot) {
+		this.tableOwner = tableOwner;
+		this.tableSlot = tableSlot;
+	}
+
 	// For INVOKEINTERFACE
 	public JavaClass getJavaClass() {
 		return javaClass;
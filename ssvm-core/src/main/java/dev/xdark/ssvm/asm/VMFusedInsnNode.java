@@ -0,0 +1,144 @@
+package dev.xdark.ssvm.asm;
+
+import dev.xdark.ssvm.mirror.member.JavaField;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+
+/**
+ * VM superinstruction, which executes a sequence
+ * of adjacent instructions at once.
+ * <p>
+ * The node replaces only the first instruction of the sequence,
+ * which is also its delegate. The rest of the sequence
+ * stays in the instruction list, and is skipped
+ * by the processor of the superinstruction.
+ *
+ * @author xDark
+ */
+public final class VMFusedInsnNode extends DelegatingInsnNode<AbstractInsnNode> {
+
+	private final int length;
+	private final int var;
+	private final int secondOperand;
+	private final int thirdOperand;
+	private final JavaField field;
+	private final LabelNode label;
+
+	private VMFusedInsnNode(AbstractInsnNode delegate, int virtualOpcode, int length, int var, int secondOperand, int thirdOperand, JavaField field, LabelNode label) {
+		super(delegate, virtualOpcode);
+		this.length = length;
+		this.var = var;
+		this.secondOperand = secondOperand;
+		this.thirdOperand = thirdOperand;
+		this.field = field;
+		this.label = label;
+	}
+
+	/**
+	 * @return the amount of nodes in the instruction list,
+	 * covered by this instruction.
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @return local variable loaded or incremented
+	 * by the first instruction.
+	 */
+	public int getVar() {
+		return var;
+	}
+
+	/**
+	 * Returns second operand of the instruction.
+	 * For {@link VMOpcodes#VM_ILOAD_ILOAD_IADD_ISTORE} this is
+	 * the second loaded variable, for {@link VMOpcodes#VM_IINC_GOTO}
+	 * this is the increment, and for {@link VMOpcodes#VM_ILOAD_PUSH_IF_ICMP}
+	 * this is the pushed constant.
+	 *
+	 * @return second operand.
+	 */
+	public int getSecondOperand() {
+		return secondOperand;
+	}
+
+	/**
+	 * Returns third operand of the instruction.
+	 * For {@link VMOpcodes#VM_ILOAD_ILOAD_IADD_ISTORE} this is
+	 * the stored variable, and for {@link VMOpcodes#VM_ILOAD_PUSH_IF_ICMP}
+	 * this is the opcode of the jump.
+	 *
+	 * @return third operand.
+	 */
+	public int getThirdOperand() {
+		return thirdOperand;
+	}
+
+	/**
+	 * @return Resolved field, or {@code null}.
+	 */
+	public JavaField getField() {
+		return field;
+	}
+
+	/**
+	 * @return Jump target, or {@code null}.
+	 */
+	public LabelNode getLabel() {
+		return label;
+	}
+
+	/**
+	 * @param delegate First instruction.
+	 * @param var      Loaded variable.
+	 * @param field    Resolved field.
+	 * @return {@code ALOAD; GETFIELD} instruction.
+	 */
+	public static VMFusedInsnNode loadGetField(AbstractInsnNode delegate, int var, JavaField field) {
+		return new VMFusedInsnNode(delegate, VMOpcodes.VM_ALOAD_GETFIELD, 2, var, 0, 0, field, null);
+	}
+
+	/**
+	 * @param delegate First instruction.
+	 * @param left     First loaded variable.
+	 * @param right    Second loaded variable.
+	 * @param store    Stored variable.
+	 * @return {@code ILOAD; ILOAD; IADD; ISTORE} instruction.
+	 */
+	public static VMFusedInsnNode addStore(AbstractInsnNode delegate, int left, int right, int store) {
+		return new VMFusedInsnNode(delegate, VMOpcodes.VM_ILOAD_ILOAD_IADD_ISTORE, 4, left, right, store, null, null);
+	}
+
+	/**
+	 * @param delegate  First instruction.
+	 * @param var       Incremented variable.
+	 * @param increment Increment.
+	 * @param label     Jump target.
+	 * @return {@code IINC; GOTO} instruction.
+	 */
+	public static VMFusedInsnNode incrementJump(AbstractInsnNode delegate, int var, int increment, LabelNode label) {
+		return new VMFusedInsnNode(delegate, VMOpcodes.VM_IINC_GOTO, 2, var, increment, 0, null, label);
+	}
+
+	/**
+	 * @param delegate  First instruction.
+	 * @param var       Loaded variable.
+	 * @param constant  Pushed constant.
+	 * @param condition Jump opcode, one of {@code IF_ICMPxx}.
+	 * @param label     Jump target.
+	 * @return {@code ILOAD; BIPUSH/SIPUSH/ICONST; IF_ICMPxx} instruction.
+	 */
+	public static VMFusedInsnNode compareJump(AbstractInsnNode delegate, int var, int constant, int condition, LabelNode label) {
+		return new VMFusedInsnNode(delegate, VMOpcodes.VM_ILOAD_PUSH_IF_ICMP, 3, var, constant, condition, null, label);
+	}
+
+	/**
+	 * @param delegate First instruction.
+	 * @param var      Loaded variable.
+	 * @return {@code ALOAD; ARRAYLENGTH} instruction.
+	 */
+	public static VMFusedInsnNode arrayLength(AbstractInsnNode delegate, int var) {
+		return new VMFusedInsnNode(delegate, VMOpcodes.VM_ALOAD_ARRAYLENGTH, 2, var, 0, 0, null, null);
+	}
+}
@@ -64,4 +64,9 @@ public interface VMOpcodes {
 	int VM_GETFIELD_LONG = VM_GETFIELD_FLOAT + 1;
 	int VM_GETFIELD_DOUBLE = VM_GETFIELD_LONG + 1;
 	int VM_GETFIELD_REFERENCE = VM_GETFIELD_DOUBLE + 1;
+	int VM_ALOAD_GETFIELD = VM_GETFIELD_REFERENCE + 1;
+	int VM_ILOAD_ILOAD_IADD_ISTORE = VM_ALOAD_GETFIELD + 1;
+	int VM_IINC_GOTO = VM_ILOAD_ILOAD_IADD_ISTORE + 1;
+	int VM_ILOAD_PUSH_IF_ICMP = VM_IINC_GOTO + 1;
+	int VM_ALOAD_ARRAYLENGTH = VM_ILOAD_PUSH_IF_ICMP + 1;
 }
@@ -5,8 +5,8 @@
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -19,7 +19,8 @@
 public final class SimpleClassLoaderData implements ClassLoaderData {
 
 	private final ReadWriteLock lock = new ReentrantReadWriteLock();
-	private final Map<String, InstanceClass> table = new HashMap<>();
+	// Lookups do not take a lock
+	private final Map<String, InstanceClass> table = new ConcurrentHashMap<>();
 	private final Collection<InstanceClass> classesView = Collections.unmodifiableCollection(table.values());
 	private final CloseableLock unlocker;
 
@@ -32,13 +33,7 @@ public SimpleClassLoaderData() {
 
 	@Override
 	public InstanceClass getClass(String name) {
-		Lock lock = this.lock.readLock();
-		lock.lock();
-		try {
-			return table.get(name);
-		} finally {
-			lock.unlock();
-		}
+		return table.get(name);
 	}
 
 	@Override
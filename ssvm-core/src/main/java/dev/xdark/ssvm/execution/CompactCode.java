@@ -0,0 +1,282 @@
+package dev.xdark.ssvm.execution;
+
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.IntInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Pre-decoded form of method instructions.
+ * <p>
+ * Labels, frames and line numbers are stripped,
+ * leaving only real instructions, which are addressed
+ * by their <i>code index</i>.
+ * Instruction positions, as seen by {@link ExecutionContext#getInsnPosition()},
+ * remain indices in the backing {@link InsnList}, and can be
+ * translated with {@link #codeIndex(int)} and {@link #position(int)}.
+ * <p>
+ * Backing instruction list is not modified after decoding.
+ * Instead, rewritten instructions are published atomically
+ * into instruction slots, which are shared between threads,
+ * and opcode must be taken from the instruction
+ * that was read from the slot.
+ *
+ * @author xDark
+ */
+public final class CompactCode {
+	private static final int[] NO_HANDLERS = new int[0];
+
+	private final InsnList instructions;
+	private final int listSize;
+	private final AtomicReferenceArray<AbstractInsnNode> insns;
+	private final int[] operands;
+	private final int[] targets;
+	private final int[] positions;
+	private final int[] lines;
+	private final int[] codeIndices;
+	private final int[][] handlers;
+	private final int[] handlerPositions;
+
+	private CompactCode(InsnList instructions, int listSize, AtomicReferenceArray<AbstractInsnNode> insns, int[] operands, int[] targets, int[] positions, int[] lines, int[] codeIndices, int[][] handlers, int[] handlerPositions) {
+		this.instructions = instructions;
+		this.listSize = listSize;
+		this.insns = insns;
+		this.operands = operands;
+		this.targets = targets;
+		this.positions = positions;
+		this.lines = lines;
+		this.codeIndices = codeIndices;
+		this.handlers = handlers;
+		this.handlerPositions = handlerPositions;
+	}
+
+	/**
+	 * @return the amount of real instructions.
+	 */
+	public int length() {
+		return insns.length();
+	}
+
+	/**
+	 * @param index Code index.
+	 * @return instruction at the code index.
+	 */
+	public AbstractInsnNode insn(int index) {
+		return insns.get(index);
+	}
+
+	/**
+	 * Instruction may be rewritten concurrently,
+	 * use {@link AbstractInsnNode#getOpcode()} of the
+	 * instruction, if it is also needed.
+	 *
+	 * @param index Code index.
+	 * @return opcode of the instruction at the code index.
+	 */
+	public int opcode(int index) {
+		return insns.get(index).getOpcode();
+	}
+
+	/**
+	 * Returns instruction operand.
+	 * For local variable instructions, this is the variable index,
+	 * for {@code BIPUSH}/{@code SIPUSH} this is the pushed value.
+	 * {@code IINC} packs the variable index into the lower 16 bits,
+	 * and the increment into the upper 16 bits.
+	 *
+	 * @param index Code index.
+	 * @return instruction operand.
+	 */
+	public int operand(int index) {
+		return operands[index];
+	}
+
+	/**
+	 * @param index Code index.
+	 * @return code index of the jump target,
+	 * or {@literal -1}, if instruction is not a jump.
+	 */
+	public int target(int index) {
+		return targets[index];
+	}
+
+	/**
+	 * @param index Code index.
+	 * @return position of the instruction in the backing instruction list.
+	 */
+	public int position(int index) {
+		return positions[index];
+	}
+
+	/**
+	 * @param index Code index.
+	 * @return line number of the instruction, or {@literal -1}, if unknown.
+	 */
+	public int line(int index) {
+		return lines[index];
+	}
+
+	/**
+	 * @param position Position in the backing instruction list.
+	 * @return code index of the first real instruction
+	 * at, or after the position.
+	 */
+	public int codeIndex(int position) {
+		return codeIndices[position];
+	}
+
+	/**
+	 * Returns exception handlers covering the instruction.
+	 * Handlers are identified by their index in
+	 * {@link MethodNode#tryCatchBlocks}, and are in the same order.
+	 *
+	 * @param index Code index.
+	 * @return exception handlers covering the instruction.
+	 */
+	public int[] handlers(int index) {
+		return handlers[index];
+	}
+
+	/**
+	 * @param handler Exception handler index.
+	 * @return position of the exception handler in the backing instruction list.
+	 */
+	public int handlerPosition(int handler) {
+		return handlerPositions[handler];
+	}
+
+	/**
+	 * Publishes rewritten instruction.
+	 *
+	 * @param index       Code index.
+	 * @param insn        Instruction that was read from the slot.
+	 * @param replacement New instruction.
+	 * @return {@code true} if the instruction was replaced,
+	 * {@code false} if it was already replaced by another thread.
+	 */
+	public boolean replace(int index, AbstractInsnNode insn, AbstractInsnNode replacement) {
+		return insns.compareAndSet(index, insn, replacement);
+	}
+
+	/**
+	 * @return instructions of the backing list, with
+	 * real instructions taken from their slots.
+	 */
+	public AbstractInsnNode[] toArray() {
+		AbstractInsnNode[] list = instructions.toArray();
+		AtomicReferenceArray<AbstractInsnNode> insns = this.insns;
+		int[] positions = this.positions;
+		for (int i = 0, j = insns.length(); i < j; i++) {
+			list[positions[i]] = insns.get(i);
+		}
+		return list;
+	}
+
+	/**
+	 * @param instructions Instruction list to check.
+	 * @return {@code true} if this code still matches the instruction list.
+	 */
+	public boolean isCurrent(InsnList instructions) {
+		return this.instructions == instructions && listSize == instructions.size();
+	}
+
+	/**
+	 * Decodes method instructions.
+	 *
+	 * @param mn Method to decode.
+	 * @return decoded code.
+	 */
+	public static CompactCode decode(MethodNode mn) {
+		InsnList instructions = mn.instructions;
+		AbstractInsnNode[] list = instructions.toArray();
+		int listSize = list.length;
+		int length = 0;
+		for (AbstractInsnNode insn : list) {
+			if (insn.getOpcode() != -1) {
+				length++;
+			}
+		}
+		AbstractInsnNode[] insns = new AbstractInsnNode[length];
+		int[] operands = new int[length];
+		int[] targets = new int[length];
+		int[] positions = new int[length];
+		int[] lines = new int[length];
+		int[] codeIndices = new int[listSize + 1];
+		int line = -1;
+		for (int position = 0, index = 0; position < listSize; position++) {
+			codeIndices[position] = index;
+			AbstractInsnNode insn = list[position];
+			int opcode = insn.getOpcode();
+			if (opcode == -1) {
+				if (insn instanceof LineNumberNode) {
+					line = ((LineNumberNode) insn).line;
+				}
+				continue;
+			}
+			insns[index] = insn;
+			operands[index] = decodeOperand(insn);
+			positions[index] = position;
+			lines[index] = line;
+			index++;
+		}
+		codeIndices[listSize] = length;
+		for (int i = 0; i < length; i++) {
+			AbstractInsnNode insn = insns[i];
+			targets[i] = insn instanceof JumpInsnNode ? codeIndices[instructions.indexOf(((JumpInsnNode) insn).label)] : -1;
+		}
+		List<TryCatchBlockNode> tryCatchBlocks = mn.tryCatchBlocks;
+		int handlerCount = tryCatchBlocks == null ? 0 : tryCatchBlocks.size();
+		int[] handlerPositions = new int[handlerCount];
+		int[][] handlers = new int[length + 1][];
+		if (handlerCount == 0) {
+			Arrays.fill(handlers, NO_HANDLERS);
+		} else {
+			int[] starts = new int[handlerCount];
+			int[] ends = new int[handlerCount];
+			int[] counts = new int[length + 1];
+			for (int i = 0; i < handlerCount; i++) {
+				TryCatchBlockNode block = tryCatchBlocks.get(i);
+				starts[i] = codeIndices[instructions.indexOf(block.start)];
+				ends[i] = codeIndices[instructions.indexOf(block.end)];
+				handlerPositions[i] = instructions.indexOf(block.handler);
+				for (int j = starts[i]; j < ends[i]; j++) {
+					counts[j]++;
+				}
+			}
+			for (int i = 0; i <= length; i++) {
+				int count = counts[i];
+				handlers[i] = count == 0 ? NO_HANDLERS : new int[count];
+				counts[i] = 0;
+			}
+			for (int i = 0; i < handlerCount; i++) {
+				for (int j = starts[i]; j < ends[i]; j++) {
+					handlers[j][counts[j]++] = i;
+				}
+			}
+		}
+		return new CompactCode(instructions, listSize, new AtomicReferenceArray<>(insns), operands, targets, positions, lines, codeIndices, handlers, handlerPositions);
+	}
+
+	private static int decodeOperand(AbstractInsnNode insn) {
+		if (insn instanceof VarInsnNode) {
+			return ((VarInsnNode) insn).var;
+		}
+		if (insn instanceof IntInsnNode) {
+			return ((IntInsnNode) insn).operand;
+		}
+		if (insn instanceof IincInsnNode) {
+			IincInsnNode iinc = (IincInsnNode) insn;
+			return (iinc.incr << 16) | (iinc.var & 0xFFFF);
+		}
+		return 0;
+	}
+}
@@ -5,6 +5,8 @@
 import dev.xdark.ssvm.mirror.member.JavaMethod;
 import org.objectweb.asm.Opcodes;
 
+import java.util.function.Consumer;
+
 /**
  * Invoker that passes the control to
  * the interpreter to run a method.
@@ -12,11 +14,27 @@
  * @author xDark
  */
 public final class InterpretedInvoker implements MethodInvoker {
+	private final Consumer<ExecutionContext<?>> interpreter;
+
+	/**
+	 * @param interpreter Interpreter to run methods with.
+	 */
+	public InterpretedInvoker(Consumer<ExecutionContext<?>> interpreter) {
+		this.interpreter = interpreter;
+	}
+
+	public InterpretedInvoker() {
+		this(Interpreter::execute);
+	}
 
 	@Override
 	public Result intercept(ExecutionContext<?> ctx) {
 		JavaMethod method = ctx.getMethod();
 		int access = method.getModifiers();
+		if ((access & (Opcodes.ACC_NATIVE | Opcodes.ACC_ABSTRACT)) == 0) {
+			interpreter.accept(ctx);
+			return Result.ABORT;
+		}
 		VMInterface vmi = ctx.getVM().getInterface();
 		if ((access & Opcodes.ACC_NATIVE) != 0) {
 			vmi.handleLinkageError(ctx);
@@ -25,15 +43,10 @@ public Result intercept(ExecutionContext<?> ctx) {
 			// In that case we still want to abort.
 			return Result.ABORT;
 		}
-		if ((access & Opcodes.ACC_ABSTRACT) != 0) {
-			vmi.handleAbstractMethodError(ctx);
-
-			// The abstract method error handling should throw before we get here, unless it is overridden by a user.
-			// In that case we still want to abort.
-			return Result.ABORT;
-		}
+		vmi.handleAbstractMethodError(ctx);
 
-		Interpreter.execute(ctx);
+		// The abstract method error handling should throw before we get here, unless it is overridden by a user.
+		// In that case we still want to abort.
 		return Result.ABORT;
 	}
 }
@@ -2,13 +2,15 @@
 
 import dev.xdark.ssvm.api.InstructionInterceptor;
 import dev.xdark.ssvm.api.VMInterface;
+import dev.xdark.ssvm.asm.DelegatingInsnNode;
+import dev.xdark.ssvm.asm.VMFusedInsnNode;
 import dev.xdark.ssvm.mirror.type.InstanceClass;
 import dev.xdark.ssvm.mirror.member.JavaMethod;
-import dev.xdark.ssvm.util.AsmUtil;
 import dev.xdark.ssvm.value.InstanceValue;
 import lombok.experimental.UtilityClass;
 import org.objectweb.asm.tree.*;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -19,46 +21,71 @@
 @UtilityClass
 public class Interpreter {
 	private static int maxIterations = Integer.MAX_VALUE - 1;
+	private static int yieldInterval = 1024;
 
 	/**
 	 * Processes {@link ExecutionContext}.
+	 * Instructions are fetched from the {@link CompactCode pre-decoded}
+	 * form of the method.
+	 * If no instruction interceptor accepts the method,
+	 * interceptors are not looked up for each instruction.
 	 *
 	 * @param ctx Context to process.
 	 */
 	public void execute(ExecutionContext<?> ctx) {
 		JavaMethod jm = ctx.getMethod();
 		VMInterface vmi = ctx.getVM().getInterface();
-		MethodNode mn = jm.getNode();
-		InsnList instructions = mn.instructions;
-		List<InstructionInterceptor> interceptors = vmi.getInstructionInterceptors();
+		execute(ctx, jm.getCompactCode(), vmi, interceptors(vmi, jm));
+	}
+
+	private void execute(ExecutionContext<?> ctx, CompactCode code, VMInterface vmi, InstructionInterceptor[] interceptors) {
+		int index = code.codeIndex(ctx.getInsnPosition());
+		int line = ctx.getLineNumber();
 		int iter = 0;
-		exec:
+		int backEdges = yieldInterval;
 		while (true) {
 			try {
 				if (iter++ >= maxIterations) {
 					handleMaxIterations(ctx);
 					break;
 				}
-				int pos = ctx.getInsnPosition();
-				ctx.setInsnPosition(pos + 1);
-				AbstractInsnNode insn = instructions.get(pos);
-				if (insn instanceof LineNumberNode) {
-					ctx.setLineNumber(((LineNumberNode) insn).line);
+				int pos = code.position(index) + 1;
+				ctx.setInsnPosition(pos);
+				int insnLine = code.line(index);
+				if (insnLine != line) {
+					ctx.setLineNumber(line = insnLine);
 				}
-				for (int i = 0, j = interceptors.size(); i < j; i++) {
-					if (interceptors.get(i).intercept(ctx, insn) == Result.ABORT) {
-						break exec;
+				AbstractInsnNode insn = code.insn(index);
+				// Interceptors are resolved once per call, so that
+				// this check is the only cost when there are none
+				if (interceptors != null) {
+					if (insn instanceof VMFusedInsnNode) {
+						// Intercepted instructions are executed one by one
+						insn = ((VMFusedInsnNode) insn).getDelegate();
+					}
+					if (intercept(ctx, insn, interceptors) == Result.ABORT) {
+						break;
 					}
 				}
-				if (insn.getOpcode() == -1 || !AsmUtil.isValid(insn)) {
-					continue;
-				}
-				InstructionProcessor<AbstractInsnNode> processor = vmi.getProcessor(insn);
+				InstructionProcessor<AbstractInsnNode> processor = vmi.getProcessor(insn.getOpcode());
 				if (processor.execute(insn, ctx) == Result.ABORT) {
 					break;
 				}
+				// Rewritten instructions are executed again
+				int next = ctx.getInsnPosition();
+				if (next == pos) {
+					index++;
+				} else if (next != pos - 1) {
+					if (next < pos && --backEdges == 0) {
+						// Let other threads run
+						backEdges = yieldInterval;
+						ctx.getVM().getThreadManager().yield();
+					}
+					index = code.codeIndex(next);
+				}
 			} catch (VMException ex) {
 				handleExceptionCaught(ctx, ex);
+				index = code.codeIndex(ctx.getInsnPosition());
 			}
 		}
 	}
@@ -77,44 +104,108 @@ public static int getMaxIterations() {
 		return maxIterations;
 	}
 
-	private static void handleMaxIterations(ExecutionContext<?> ctx) {
+	/**
+	 * @param yieldInterval Number of backward jumps in a method after which
+	 *                      current thread yields to other threads.
+	 */
+	public static void setYieldInterval(int yieldInterval) {
+		Interpreter.yieldInterval = yieldInterval;
+	}
+
+	/**
+	 * @return Number of backward jumps in a method after which
+	 * current thread yields to other threads.
+	 */
+	public static int getYieldInterval() {
+		return yieldInterval;
+	}
+
+	/**
+	 * @param vmi    VM interface.
+	 * @param method Method to be interpreted.
+	 * @return Interceptors that accept the method,
+	 * or {@code null}, if there are none.
+	 */
+	public static InstructionInterceptor[] interceptors(VMInterface vmi, JavaMethod method) {
+		List<InstructionInterceptor> interceptors = vmi.getInstructionInterceptors();
+		if (interceptors.isEmpty()) {
+			return null;
+		}
+		InstructionInterceptor[] accepted = interceptors.toArray(new InstructionInterceptor[0]);
+		int count = 0;
+		for (InstructionInterceptor interceptor : accepted) {
+			if (interceptor.interceptsMethod(method)) {
+				accepted[count++] = interceptor;
+			}
+		}
+		if (count == 0) {
+			return null;
+		}
+		return count == accepted.length ? accepted : Arrays.copyOf(accepted, count);
+	}
+
+	/**
+	 * Used by invokers that run methods outside of the interpreter,
+	 * and must pass the call back to it if instructions are intercepted.
+	 *
+	 * @param vmi    VM interface.
+	 * @param method Method to check.
+	 * @return {@code true} if any instruction interceptor
+	 * accepts the method.
+	 */
+	public static boolean isIntercepted(VMInterface vmi, JavaMethod method) {
+		return !vmi.getInstructionInterceptors().isEmpty() && interceptors(vmi, method) != null;
+	}
+
+	static Result intercept(ExecutionContext<?> ctx, AbstractInsnNode insn, InstructionInterceptor[] interceptors) {
+		int opcode = insn.getOpcode();
+		int original = insn instanceof DelegatingInsnNode ? ((DelegatingInsnNode<?>) insn).getDelegate().getOpcode() : opcode;
+		for (InstructionInterceptor interceptor : interceptors) {
+			if ((interceptor.interceptsOpcode(opcode) || original != opcode && interceptor.interceptsOpcode(original))
+				&& interceptor.intercept(ctx, insn) == Result.ABORT) {
+				return Result.ABORT;
+			}
+		}
+		return Result.CONTINUE;
+	}
+
+	static void handleMaxIterations(ExecutionContext<?> ctx) {
 		ctx.getVM().getInterface().handleMaxInterations(ctx);
 	}
 
-	private static void handleExceptionCaught(ExecutionContext<?> ctx, VMException ex) {
+	static void handleExceptionCaught(ExecutionContext<?> ctx, VMException ex) {
 		Stack stack = ctx.getStack();
 		stack.clear();
+		JavaMethod method = ctx.getMethod();
+		List<VMTryCatchBlock> tryCatchBlocks = method.getTryCatchBlocks();
+		int position = ctx.getInsnPosition() - 1;
+		if (tryCatchBlocks.isEmpty() || position < 0) {
+			throw ex;
+		}
 		InstanceValue oop = ex.getOop();
 		InstanceClass exceptionType = oop.getJavaClass();
-		List<VMTryCatchBlock> tryCatchBlocks = ctx.getMethod().getTryCatchBlocks();
-		int index = ctx.getInsnPosition() - 1;
-		boolean shouldRepeat;
+		CompactCode code = method.getCompactCode();
 		search:
-		do {
-			shouldRepeat = false;
-			for (int i = 0, j = tryCatchBlocks.size(); i < j; i++) {
-				VMTryCatchBlock block = tryCatchBlocks.get(i);
-				if (index < AsmUtil.getIndex(block.getStart()) || index > AsmUtil.getIndex(block.getEnd())) {
-					continue;
-				}
+		while (true) {
+			for (int handler : code.handlers(code.codeIndex(position))) {
+				VMTryCatchBlock block = tryCatchBlocks.get(handler);
 				InstanceClass candidate = block.getType();
 				boolean handle = candidate == null;
 				if (!handle) {
 					try {
 						handle = candidate.isAssignableFrom(exceptionType);
 					} catch (VMException hex) {
-						index = AsmUtil.getIndex(block.getHandler());
-						shouldRepeat = true;
+						position = code.handlerPosition(handler);
 						continue search;
 					}
 				}
 				if (handle) {
 					stack.pushReference(oop);
-					ctx.setInsnPosition(AsmUtil.getIndex(block.getHandler()));
+					ctx.setInsnPosition(code.handlerPosition(handler));
 					return;
 				}
 			}
-		} while (shouldRepeat);
-		throw ex;
+			throw ex;
+		}
 	}
 }
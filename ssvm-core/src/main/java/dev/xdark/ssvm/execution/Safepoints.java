@@ -0,0 +1,77 @@
+package dev.xdark.ssvm.execution;
+
+import dev.xdark.ssvm.InitializationState;
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.api.VMInterface;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.thread.JavaThread;
+import dev.xdark.ssvm.thread.ThreadManager;
+import dev.xdark.ssvm.thread.backtrace.Backtrace;
+import lombok.experimental.UtilityClass;
+import org.objectweb.asm.tree.AbstractInsnNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Safepoint checks.
+ * <p>
+ * VM is at a safepoint when no host code, that may hold
+ * references to VM objects, is running: every frame
+ * of every thread is interpreted and is in the middle
+ * of a method call.
+ *
+ * @author xDark
+ */
+@UtilityClass
+class Safepoints {
+
+	/**
+	 * @param vm VM instance.
+	 * @return {@code true} if VM is at a safepoint.
+	 */
+	boolean isReached(VirtualMachine vm) {
+		if (vm.getState() != InitializationState.BOOTED) {
+			return false;
+		}
+		ThreadManager threadManager = vm.getThreadManager();
+		List<JavaThread> threads = new ArrayList<>(threadManager.snapshot());
+		JavaThread current = threadManager.currentJavaThread();
+		if (threadManager.isParallel() && (threads.size() > 1 || !threads.isEmpty() && threads.get(0) != current)) {
+			// Other threads keep running, frames
+			// cannot be inspected
+			return false;
+		}
+		if (current != null && !threads.contains(current)) {
+			threads.add(current);
+		}
+		VMInterface vmi = vm.getInterface();
+		for (JavaThread thread : threads) {
+			Backtrace backtrace = thread.getOsThread().getBacktrace();
+			if (backtrace == null) {
+				continue;
+			}
+			for (ExecutionContext<?> frame : backtrace) {
+				if (!isSafe(vmi, frame)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static boolean isSafe(VMInterface vmi, ExecutionContext<?> frame) {
+		JavaMethod method = frame.getMethod();
+		if (vmi.getInvoker(method) != null) {
+			return false;
+		}
+		// Instruction position is one past the instruction being executed
+		int position = frame.getInsnPosition() - 1;
+		CompactCode code = method.getCompactCode();
+		if (position < 0) {
+			return false;
+		}
+		int index = code.codeIndex(position);
+		return index < code.length() && code.position(index) == position && code.insn(index).getType() == AbstractInsnNode.METHOD_INSN;
+	}
+}
@@ -3,9 +3,11 @@
 import dev.xdark.ssvm.VirtualMachine;
 import dev.xdark.ssvm.api.MethodInvoker;
 import dev.xdark.ssvm.api.VMInterface;
+import dev.xdark.ssvm.memory.management.MemoryManager;
 import dev.xdark.ssvm.mirror.member.JavaMethod;
 import dev.xdark.ssvm.thread.ThreadManager;
 import dev.xdark.ssvm.thread.backtrace.Backtrace;
+import dev.xdark.ssvm.value.InstanceValue;
 import dev.xdark.ssvm.value.ObjectValue;
 import dev.xdark.ssvm.value.sink.ValueSink;
 import org.objectweb.asm.Opcodes;
@@ -16,55 +18,120 @@
  * @author xDark
  */
 public class SimpleExecutionEngine implements ExecutionEngine {
+	private static final int UNWIND_FRAMES = 16;
 
-	private static final MethodInvoker FALLBACK = new InterpretedInvoker();
 	private final VirtualMachine vm;
+	private final MethodInvoker fallback;
 
-	public SimpleExecutionEngine(VirtualMachine vm) {
+	/**
+	 * @param vm       VM instance.
+	 * @param fallback Invoker to use for methods
+	 *                 that have no invoker set.
+	 */
+	public SimpleExecutionEngine(VirtualMachine vm, MethodInvoker fallback) {
 		this.vm = vm;
+		this.fallback = fallback;
+	}
+
+	public SimpleExecutionEngine(VirtualMachine vm) {
+		this(vm, new InterpretedInvoker());
 	}
 
 	@Override
 	public <R extends ValueSink> ExecutionContext<R> execute(ExecutionRequest<R> request) {
 		VirtualMachine vm = this.vm;
+		MemoryManager memoryManager = vm.getMemoryManager();
+		if (memoryManager.isCollectionRequested() && Safepoints.isReached(vm)) {
+			memoryManager.collect();
+		}
 		ThreadManager threadManager = vm.getThreadManager();
 		Backtrace backtrace = threadManager.currentOsThread().getBacktrace();
 		ExecutionContext<R> ctx = backtrace.push(request);
 		JavaMethod jm = ctx.getMethod();
 		int access = jm.getModifiers();
-		boolean isNative = (access & Opcodes.ACC_NATIVE) != 0;
-		if (isNative) {
+		if ((access & Opcodes.ACC_NATIVE) != 0) {
 			ctx.setLineNumber(-2);
 		}
-		VMInterface vmi = vm.getInterface();
 		jm.increaseInvocation();
+		VMInterface vmi = vm.getInterface();
+		// Listeners are checked once, so that
+		// enter and exit events are always paired
+		try {
+			if (vmi.hasMethodListeners() || vm.hasMethodEvents()) {
+				executeObserved(ctx, backtrace, vmi, access);
+			} else {
+				execute(ctx, backtrace, vmi, access);
+			}
+		} catch (VMException ex) {
+			if (backtrace.depth() == 0) {
+				// Control returns to host code, and the next top-level
+				// call is a safepoint, create host exception now.
+				// Nested frames keep the conversion lazy, see VMException
+				toJavaException(ex, memoryManager);
+			}
+			throw ex;
+		}
+		return ctx;
+	}
+
+	private void execute(ExecutionContext<?> ctx, Backtrace backtrace, VMInterface vmi, int access) {
 		ObjectValue lock = null;
 		if ((access & Opcodes.ACC_SYNCHRONIZED) != 0) {
-			if (((access & Opcodes.ACC_STATIC)) == 0) {
-				lock = ctx.getLocals().loadReference(0);
-			} else {
-				lock = jm.getOwner().getOop();
+			lock = monitorEnter(ctx, access);
+		}
+		boolean doCleanup = true;
+		HostStackOverflow overflow = null;
+		try {
+			invoke(ctx, vmi);
+		} catch (VMException ex) {
+			throw ex;
+		} catch (HostStackOverflow ex) {
+			overflow = ex;
+		} catch (StackOverflowError ex) {
+			overflow = new HostStackOverflow(backtrace.depth());
+		} catch (Exception ex) {
+			doCleanup = false;
+			throw new PanicException("Uncaught VM error at: " + ctx.getMethod(), ex);
+		} catch (Throwable t) {
+			doCleanup = false;
+			throw t;
+		} finally {
+			if (doCleanup) {
+				try {
+					if (lock != null) {
+						vm.getOperations().monitorExit(lock);
+					}
+				} finally {
+					backtrace.pop();
+				}
 			}
-			vm.getOperations().monitorEnter(lock);
+		}
+		if (overflow != null) {
+			hostStackOverflow(overflow, backtrace);
+		}
+	}
+
+	private void executeObserved(ExecutionContext<?> ctx, Backtrace backtrace, VMInterface vmi, int access) {
+		VirtualMachine vm = this.vm;
+		ObjectValue lock = null;
+		if ((access & Opcodes.ACC_SYNCHRONIZED) != 0) {
+			lock = monitorEnter(ctx, access);
 		}
 		vmi.onMethodEnter(ctx);
 		vm.getMethodEnter().invoke(ctx);
 		boolean doCleanup = true;
+		HostStackOverflow overflow = null;
 		try {
-			MethodInvoker invoker = vmi.getInvoker(jm);
-			if (invoker == null) {
-				invoker = FALLBACK;
-			}
-			Result result = invoker.intercept(ctx);
-			if (result == Result.ABORT) {
-				return ctx;
-			}
-			vm.getOperations().throwException(vm.getSymbols().java_lang_UnsatisfiedLinkError(), jm.toString());
+			invoke(ctx, vmi);
 		} catch (VMException ex) {
 			throw ex;
+		} catch (HostStackOverflow ex) {
+			overflow = ex;
+		} catch (StackOverflowError ex) {
+			overflow = new HostStackOverflow(backtrace.depth());
 		} catch (Exception ex) {
 			doCleanup = false;
-			throw new PanicException("Uncaught VM error at: " + jm, ex);
+			throw new PanicException("Uncaught VM error at: " + ctx.getMethod(), ex);
 		} catch (Throwable t) {
 			doCleanup = false;
 			throw t;
@@ -84,6 +151,63 @@ public <R extends ValueSink> ExecutionContext<R> execute(ExecutionRequest<R> req
 				}
 			}
 		}
-		throw new PanicException("unreachable code");
+		if (overflow != null) {
+			hostStackOverflow(overflow, backtrace);
+		}
+	}
+
+	private ObjectValue monitorEnter(ExecutionContext<?> ctx, int access) {
+		ObjectValue lock;
+		if ((access & Opcodes.ACC_STATIC) == 0) {
+			lock = ctx.getLocals().loadReference(0);
+		} else {
+			lock = ctx.getMethod().getOwner().getOop();
+		}
+		vm.getOperations().monitorEnter(lock);
+		return lock;
+	}
+
+	private void hostStackOverflow(HostStackOverflow overflow, Backtrace backtrace) {
+		int depth = backtrace.depth();
+		// Unwind some frames first, so that
+		// there is enough host stack to report the error
+		if (depth == 0 || overflow.depth - depth >= UNWIND_FRAMES) {
+			vm.getOperations().throwException(vm.getSymbols().java_lang_StackOverflowError());
+		}
+		throw overflow;
+	}
+
+	private static void toJavaException(VMException ex, MemoryManager memoryManager) {
+		InstanceValue oop = ex.getOop();
+		// Conversion may call into the VM
+		memoryManager.pin(oop);
+		try {
+			ex.getCause();
+		} finally {
+			memoryManager.unpin(oop);
+		}
+	}
+
+	private void invoke(ExecutionContext<?> ctx, VMInterface vmi) {
+		JavaMethod jm = ctx.getMethod();
+		MethodInvoker invoker = vmi.getInvoker(jm);
+		if (invoker == null) {
+			invoker = fallback;
+		}
+		if (invoker.intercept(ctx) != Result.ABORT) {
+			vm.getOperations().throwException(vm.getSymbols().java_lang_UnsatisfiedLinkError(), jm.toString());
+		}
+	}
+
+	/**
+	 * Host thread ran out of stack before the VM did.
+	 */
+	private static final class HostStackOverflow extends RuntimeException {
+		final int depth;
+
+		HostStackOverflow(int depth) {
+			super(null, null, false, false);
+			this.depth = depth;
+		}
 	}
 }
@@ -0,0 +1,16 @@
+package dev.xdark.ssvm.execution;
+
+import dev.xdark.ssvm.VirtualMachine;
+
+/**
+ * Execution engine that interprets methods
+ * with {@link SwitchInterpreter}.
+ *
+ * @author xDark
+ */
+public class SwitchExecutionEngine extends SimpleExecutionEngine {
+
+	public SwitchExecutionEngine(VirtualMachine vm) {
+		super(vm, new InterpretedInvoker(SwitchInterpreter::execute));
+	}
+}
@@ -0,0 +1,554 @@
+package dev.xdark.ssvm.execution;
+
+import dev.xdark.ssvm.api.InstructionInterceptor;
+import dev.xdark.ssvm.api.VMInterface;
+import dev.xdark.ssvm.asm.VMFusedInsnNode;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.util.MathUtil;
+import dev.xdark.ssvm.value.ObjectValue;
+import lombok.experimental.UtilityClass;
+import org.objectweb.asm.tree.AbstractInsnNode;
+
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * {@link ExecutionContext} processor that
+ * dispatches instructions with a single switch.
+ * <p>
+ * Frequently used instructions that only operate on the stack
+ * and locals are processed inline, unless their processor
+ * was overridden with {@link VMInterface#setProcessor(int, InstructionProcessor)}.
+ * Everything else goes through the processor table, the same
+ * way {@link Interpreter} does.
+ *
+ * @author xDark
+ */
+@UtilityClass
+public class SwitchInterpreter {
+
+	/**
+	 * Processes {@link ExecutionContext}.
+	 *
+	 * @param ctx Context to process.
+	 */
+	public void execute(ExecutionContext<?> ctx) {
+		JavaMethod jm = ctx.getMethod();
+		VMInterface vmi = ctx.getVM().getInterface();
+		ObjectValue nullValue = ctx.getVM().getMemoryManager().nullValue();
+		Stack stack = ctx.getStack();
+		Locals locals = ctx.getLocals();
+		CompactCode code = jm.getCompactCode();
+		InstructionInterceptor[] interceptors = Interpreter.interceptors(vmi, jm);
+		int maxIterations = Interpreter.getMaxIterations();
+		int yieldInterval = Interpreter.getYieldInterval();
+		int index = code.codeIndex(ctx.getInsnPosition());
+		int line = ctx.getLineNumber();
+		int iter = 0;
+		int backEdges = yieldInterval;
+		exec:
+		while (true) {
+			try {
+				if (iter++ >= maxIterations) {
+					Interpreter.handleMaxIterations(ctx);
+					break;
+				}
+				int pos = code.position(index) + 1;
+				ctx.setInsnPosition(pos);
+				int insnLine = code.line(index);
+				if (insnLine != line) {
+					ctx.setLineNumber(line = insnLine);
+				}
+				AbstractInsnNode insn = code.insn(index);
+				if (interceptors != null) {
+					if (insn instanceof VMFusedInsnNode) {
+						// Intercepted instructions are executed one by one
+						insn = ((VMFusedInsnNode) insn).getDelegate();
+					}
+					if (Interpreter.intercept(ctx, insn, interceptors) == Result.ABORT) {
+						break;
+					}
+				}
+				int opcode = insn.getOpcode();
+				inline:
+				if (!vmi.isProcessorOverridden(opcode)) {
+					int target;
+					switch (opcode) {
+						case NOP:
+							index++;
+							continue;
+						case ACONST_NULL:
+							stack.pushReference(nullValue);
+							index++;
+							continue;
+						case ICONST_M1:
+						case ICONST_0:
+						case ICONST_1:
+						case ICONST_2:
+						case ICONST_3:
+						case ICONST_4:
+						case ICONST_5:
+							stack.pushInt(opcode - ICONST_0);
+							index++;
+							continue;
+						case LCONST_0:
+						case LCONST_1:
+							stack.pushLong(opcode - LCONST_0);
+							index++;
+							continue;
+						case FCONST_0:
+						case FCONST_1:
+						case FCONST_2:
+							stack.pushFloat(opcode - FCONST_0);
+							index++;
+							continue;
+						case DCONST_0:
+						case DCONST_1:
+							stack.pushDouble(opcode - DCONST_0);
+							index++;
+							continue;
+						case BIPUSH:
+						case SIPUSH:
+							stack.pushInt(code.operand(index));
+							index++;
+							continue;
+						case ILOAD:
+							stack.pushInt(locals.loadInt(code.operand(index)));
+							index++;
+							continue;
+						case LLOAD:
+							stack.pushLong(locals.loadLong(code.operand(index)));
+							index++;
+							continue;
+						case FLOAD:
+							stack.pushFloat(locals.loadFloat(code.operand(index)));
+							index++;
+							continue;
+						case DLOAD:
+							stack.pushDouble(locals.loadDouble(code.operand(index)));
+							index++;
+							continue;
+						case ALOAD:
+							stack.pushReference(locals.loadReference(code.operand(index)));
+							index++;
+							continue;
+						case ISTORE:
+							locals.setInt(code.operand(index), stack.popInt());
+							index++;
+							continue;
+						case LSTORE:
+							locals.setLong(code.operand(index), stack.popLong());
+							index++;
+							continue;
+						case FSTORE:
+							locals.setFloat(code.operand(index), stack.popFloat());
+							index++;
+							continue;
+						case DSTORE:
+							locals.setDouble(code.operand(index), stack.popDouble());
+							index++;
+							continue;
+						case ASTORE:
+							locals.setReference(code.operand(index), stack.popReference());
+							index++;
+							continue;
+						case POP:
+							stack.pop();
+							index++;
+							continue;
+						case POP2:
+							stack.pop();
+							stack.pop();
+							index++;
+							continue;
+						case DUP:
+							stack.dup();
+							index++;
+							continue;
+						case DUP_X1:
+							stack.dupx1();
+							index++;
+							continue;
+						case DUP_X2:
+							stack.dupx2();
+							index++;
+							continue;
+						case DUP2:
+							stack.dup2();
+							index++;
+							continue;
+						case DUP2_X1:
+							stack.dup2x1();
+							index++;
+							continue;
+						case DUP2_X2:
+							stack.dup2x2();
+							index++;
+							continue;
+						case SWAP:
+							stack.swap();
+							index++;
+							continue;
+						case IADD: {
+							int v2 = stack.popInt();
+							stack.pushInt(stack.popInt() + v2);
+							index++;
+							continue;
+						}
+						case LADD: {
+							long v2 = stack.popLong();
+							stack.pushLong(stack.popLong() + v2);
+							index++;
+							continue;
+						}
+						case FADD: {
+							float v2 = stack.popFloat();
+							stack.pushFloat(stack.popFloat() + v2);
+							index++;
+							continue;
+						}
+						case DADD: {
+							double v2 = stack.popDouble();
+							stack.pushDouble(stack.popDouble() + v2);
+							index++;
+							continue;
+						}
+						case ISUB: {
+							int v2 = stack.popInt();
+							stack.pushInt(stack.popInt() - v2);
+							index++;
+							continue;
+						}
+						case LSUB: {
+							long v2 = stack.popLong();
+							stack.pushLong(stack.popLong() - v2);
+							index++;
+							continue;
+						}
+						case FSUB: {
+							float v2 = stack.popFloat();
+							stack.pushFloat(stack.popFloat() - v2);
+							index++;
+							continue;
+						}
+						case DSUB: {
+							double v2 = stack.popDouble();
+							stack.pushDouble(stack.popDouble() - v2);
+							index++;
+							continue;
+						}
+						case IMUL: {
+							int v2 = stack.popInt();
+							stack.pushInt(stack.popInt() * v2);
+							index++;
+							continue;
+						}
+						case LMUL: {
+							long v2 = stack.popLong();
+							stack.pushLong(stack.popLong() * v2);
+							index++;
+							continue;
+						}
+						case FMUL: {
+							float v2 = stack.popFloat();
+							stack.pushFloat(stack.popFloat() * v2);
+							index++;
+							continue;
+						}
+						case DMUL: {
+							double v2 = stack.popDouble();
+							stack.pushDouble(stack.popDouble() * v2);
+							index++;
+							continue;
+						}
+						case FDIV: {
+							float v2 = stack.popFloat();
+							stack.pushFloat(stack.popFloat() / v2);
+							index++;
+							continue;
+						}
+						case DDIV: {
+							double v2 = stack.popDouble();
+							stack.pushDouble(stack.popDouble() / v2);
+							index++;
+							continue;
+						}
+						case INEG:
+							stack.pushInt(-stack.popInt());
+							index++;
+							continue;
+						case LNEG:
+							stack.pushLong(-stack.popLong());
+							index++;
+							continue;
+						case FNEG:
+							stack.pushFloat(-stack.popFloat());
+							index++;
+							continue;
+						case DNEG:
+							stack.pushDouble(-stack.popDouble());
+							index++;
+							continue;
+						case ISHL: {
+							int v2 = stack.popInt();
+							stack.pushInt(stack.popInt() << v2);
+							index++;
+							continue;
+						}
+						case LSHL: {
+							int v2 = stack.popInt();
+							stack.pushLong(stack.popLong() << v2);
+							index++;
+							continue;
+						}
+						case ISHR: {
+							int v2 = stack.popInt();
+							stack.pushInt(stack.popInt() >> v2);
+							index++;
+							continue;
+						}
+						case LSHR: {
+							int v2 = stack.popInt();
+							stack.pushLong(stack.popLong() >> v2);
+							index++;
+							continue;
+						}
+						case IUSHR: {
+							int v2 = stack.popInt();
+							stack.pushInt(stack.popInt() >>> v2);
+							index++;
+							continue;
+						}
+						case LUSHR: {
+							int v2 = stack.popInt();
+							stack.pushLong(stack.popLong() >>> v2);
+							index++;
+							continue;
+						}
+						case IAND:
+							stack.pushInt(stack.popInt() & stack.popInt());
+							index++;
+							continue;
+						case LAND:
+							stack.pushLong(stack.popLong() & stack.popLong());
+							index++;
+							continue;
+						case IOR:
+							stack.pushInt(stack.popInt() | stack.popInt());
+							index++;
+							continue;
+						case LOR:
+							stack.pushLong(stack.popLong() | stack.popLong());
+							index++;
+							continue;
+						case IXOR:
+							stack.pushInt(stack.popInt() ^ stack.popInt());
+							index++;
+							continue;
+						case LXOR:
+							stack.pushLong(stack.popLong() ^ stack.popLong());
+							index++;
+							continue;
+						case IINC: {
+							int operand = code.operand(index);
+							int var = operand & 0xFFFF;
+							locals.setInt(var, locals.loadInt(var) + (operand >> 16));
+							index++;
+							continue;
+						}
+						case I2L:
+							stack.pushLong(stack.popInt());
+							index++;
+							continue;
+						case I2F:
+							stack.pushFloat(stack.popInt());
+							index++;
+							continue;
+						case I2D:
+							stack.pushDouble(stack.popInt());
+							index++;
+							continue;
+						case L2I:
+							stack.pushInt((int) stack.popLong());
+							index++;
+							continue;
+						case L2F:
+							stack.pushFloat(stack.popLong());
+							index++;
+							continue;
+						case L2D:
+							stack.pushDouble(stack.popLong());
+							index++;
+							continue;
+						case F2I:
+							stack.pushInt((int) stack.popFloat());
+							index++;
+							continue;
+						case F2L:
+							stack.pushLong((long) stack.popFloat());
+							index++;
+							continue;
+						case F2D:
+							stack.pushDouble(stack.popFloat());
+							index++;
+							continue;
+						case D2I:
+							stack.pushInt((int) stack.popDouble());
+							index++;
+							continue;
+						case D2L:
+							stack.pushLong((long) stack.popDouble());
+							index++;
+							continue;
+						case D2F:
+							stack.pushFloat((float) stack.popDouble());
+							index++;
+							continue;
+						case I2B:
+							stack.pushInt((byte) stack.popInt());
+							index++;
+							continue;
+						case I2C:
+							stack.pushInt((char) stack.popInt());
+							index++;
+							continue;
+						case I2S:
+							stack.pushInt((short) stack.popInt());
+							index++;
+							continue;
+						case LCMP: {
+							long v2 = stack.popLong();
+							stack.pushInt(Long.compare(stack.popLong(), v2));
+							index++;
+							continue;
+						}
+						case FCMPL:
+						case FCMPG: {
+							float v2 = stack.popFloat();
+							stack.pushInt(MathUtil.compareFloat(stack.popFloat(), v2, opcode == FCMPL ? -1 : 1));
+							index++;
+							continue;
+						}
+						case DCMPL:
+						case DCMPG: {
+							double v2 = stack.popDouble();
+							stack.pushInt(MathUtil.compareDouble(stack.popDouble(), v2, opcode == DCMPL ? -1 : 1));
+							index++;
+							continue;
+						}
+						case IFEQ:
+							target = stack.popInt() == 0 ? code.target(index) : index + 1;
+							break;
+						case IFNE:
+							target = stack.popInt() != 0 ? code.target(index) : index + 1;
+							break;
+						case IFLT:
+							target = stack.popInt() < 0 ? code.target(index) : index + 1;
+							break;
+						case IFGE:
+							target = stack.popInt() >= 0 ? code.target(index) : index + 1;
+							break;
+						case IFGT:
+							target = stack.popInt() > 0 ? code.target(index) : index + 1;
+							break;
+						case IFLE:
+							target = stack.popInt() <= 0 ? code.target(index) : index + 1;
+							break;
+						case IF_ICMPEQ: {
+							int v2 = stack.popInt();
+							target = stack.popInt() == v2 ? code.target(index) : index + 1;
+							break;
+						}
+						case IF_ICMPNE: {
+							int v2 = stack.popInt();
+							target = stack.popInt() != v2 ? code.target(index) : index + 1;
+							break;
+						}
+						case IF_ICMPLT: {
+							int v2 = stack.popInt();
+							target = stack.popInt() < v2 ? code.target(index) : index + 1;
+							break;
+						}
+						case IF_ICMPGE: {
+							int v2 = stack.popInt();
+							target = stack.popInt() >= v2 ? code.target(index) : index + 1;
+							break;
+						}
+						case IF_ICMPGT: {
+							int v2 = stack.popInt();
+							target = stack.popInt() > v2 ? code.target(index) : index + 1;
+							break;
+						}
+						case IF_ICMPLE: {
+							int v2 = stack.popInt();
+							target = stack.popInt() <= v2 ? code.target(index) : index + 1;
+							break;
+						}
+						case IF_ACMPEQ:
+							target = stack.popReference() == stack.popReference() ? code.target(index) : index + 1;
+							break;
+						case IF_ACMPNE:
+							target = stack.popReference() != stack.popReference() ? code.target(index) : index + 1;
+							break;
+						case IFNULL:
+							target = stack.popReference().isNull() ? code.target(index) : index + 1;
+							break;
+						case IFNONNULL:
+							target = !stack.popReference().isNull() ? code.target(index) : index + 1;
+							break;
+						case GOTO:
+							target = code.target(index);
+							break;
+						case IRETURN:
+							ctx.setResult(stack.popInt());
+							break exec;
+						case LRETURN:
+							ctx.setResult(stack.popLong());
+							break exec;
+						case FRETURN:
+							ctx.setResult(stack.popFloat());
+							break exec;
+						case DRETURN:
+							ctx.setResult(stack.popDouble());
+							break exec;
+						case ARETURN:
+							ctx.setResult(stack.<ObjectValue>popReference());
+							break exec;
+						case RETURN:
+							break exec;
+						default:
+							// Not handled inline, use the processor
+							break inline;
+					}
+					// Jump instructions end up here
+					if (target <= index && --backEdges == 0) {
+						// Let other threads run
+						backEdges = yieldInterval;
+						ctx.getVM().getThreadManager().yield();
+					}
+					index = target;
+					continue;
+				}
+				InstructionProcessor<AbstractInsnNode> processor = vmi.getProcessor(opcode);
+				if (processor.execute(insn, ctx) == Result.ABORT) {
+					break;
+				}
+				// Rewritten instructions are executed again
+				int next = ctx.getInsnPosition();
+				if (next == pos) {
+					index++;
+				} else if (next != pos - 1) {
+					if (next < pos && --backEdges == 0) {
+						// Let other threads run
+						backEdges = yieldInterval;
+						ctx.getVM().getThreadManager().yield();
+					}
+					index = code.codeIndex(next);
+				}
+			} catch (VMException ex) {
+				Interpreter.handleExceptionCaught(ctx, ex);
+				index = code.codeIndex(ctx.getInsnPosition());
+			}
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package dev.xdark.ssvm.execution;
+
+import dev.xdark.ssvm.api.MethodInvoker;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+
+/**
+ * Invoker that interprets methods until they are
+ * invoked often enough to be optimized.
+ * Optimized invoker is installed as an invoker of the method.
+ *
+ * @author xDark
+ */
+public abstract class ThresholdInvoker implements MethodInvoker {
+	protected final MethodInvoker interpreter;
+	private final int threshold;
+	private final boolean repeat;
+
+	/**
+	 * @param interpreter Invoker to run methods with
+	 *                    until they are optimized.
+	 * @param threshold   Number of invocations after which
+	 *                    method is optimized.
+	 * @param repeat      Whether optimization is attempted again
+	 *                    every time the threshold is reached.
+	 */
+	protected ThresholdInvoker(MethodInvoker interpreter, int threshold, boolean repeat) {
+		if (threshold <= 0) {
+			throw new IllegalArgumentException("Threshold must be positive");
+		}
+		this.interpreter = interpreter;
+		this.threshold = threshold;
+		this.repeat = repeat;
+	}
+
+	@Override
+	public final Result intercept(ExecutionContext<?> ctx) {
+		JavaMethod method = ctx.getMethod();
+		int count = method.getInvocationCount();
+		if (repeat ? count % threshold == 0 : count == threshold) {
+			MethodInvoker optimized = optimize(method);
+			if (optimized != null) {
+				ctx.getVM().getInterface().setInvoker(method, optimized);
+				return optimized.intercept(ctx);
+			}
+		}
+		return interpreter.intercept(ctx);
+	}
+
+	/**
+	 * Called once the method reaches the threshold.
+	 *
+	 * @param method Method to optimize.
+	 * @return Invoker to install or {@code null},
+	 * if the method keeps being interpreted.
+	 */
+	protected abstract MethodInvoker optimize(JavaMethod method);
+}
@@ -5,27 +5,60 @@
 /**
  * Thrown when error
  * occurs in interpreted code.
+ * <p>
+ * This exception does not capture host stack trace,
+ * and the host representation of the throwable
+ * is only created once {@link #getCause()} or {@link #getMessage()}
+ * is called, or when the exception leaves the outermost VM frame.
+ * Exceptions that are thrown and caught within the VM,
+ * or thrown directly by host code, are never converted.
+ * <p>
+ * The oop is not pinned, host code that keeps it
+ * across VM calls must {@link dev.xdark.ssvm.memory.management.MemoryManager#pin(dev.xdark.ssvm.value.ObjectValue) pin} it.
+ * For the same reason the exception is converted when it leaves
+ * the outermost VM frame: the next top-level call is a safepoint
+ * that may collect the oop, after which {@link #getCause()}
+ * could not be answered any more.
  *
  * @author xDark
  */
 public final class VMException extends RuntimeException {
 
 	private final InstanceValue oop;
+	private Throwable cause;
 
 	/**
 	 * @param oop Throwable oop.
 	 */
 	public VMException(InstanceValue oop) {
-		super(oop.getJavaClass().getVM().getOperations().toJavaException(oop));
+		super(null, null, false, false);
 		this.oop = oop;
 	}
 
 	/**
 	 * Returns throwable oop.
+	 * Once the exception reaches host code, the oop
+	 * may be collected on the next VM call, unless pinned.
 	 *
 	 * @return throwable oop.
 	 */
 	public InstanceValue getOop() {
 		return oop;
 	}
+
+	@Override
+	public Throwable getCause() {
+		Throwable cause = this.cause;
+		if (cause == null) {
+			InstanceValue oop = this.oop;
+			cause = oop.getJavaClass().getVM().getOperations().toJavaException(oop);
+			this.cause = cause;
+		}
+		return cause;
+	}
+
+	@Override
+	public String getMessage() {
+		return getCause().toString();
+	}
 }
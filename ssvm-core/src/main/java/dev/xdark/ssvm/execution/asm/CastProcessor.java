@@ -8,7 +8,6 @@
 import dev.xdark.ssvm.mirror.type.JavaClass;
 import dev.xdark.ssvm.util.AsmUtil;
 import org.objectweb.asm.Type;
-import org.objectweb.asm.tree.InsnList;
 import org.objectweb.asm.tree.TypeInsnNode;
 
 /**
@@ -21,8 +20,7 @@ public final class CastProcessor implements InstructionProcessor<TypeInsnNode> {
 	@Override
 	public Result execute(TypeInsnNode insn, ExecutionContext<?> ctx) {
 		JavaClass type = ctx.getOperations().findClass(ctx.getOwner(), Type.getObjectType(insn.desc), true);
-		InsnList list = ctx.getMethod().getNode().instructions;
-		list.set(insn, new VMTypeInsnNode(insn, VMOpcodes.VM_CHECKCAST, type));
+		AsmUtil.replace(ctx, insn, new VMTypeInsnNode(insn, VMOpcodes.VM_CHECKCAST, type));
 		ctx.setInsnPosition(ctx.getInsnPosition() - 1);
 		return Result.CONTINUE;
 	}
@@ -10,7 +10,6 @@
 import dev.xdark.ssvm.util.AsmUtil;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.FieldInsnNode;
-import org.objectweb.asm.tree.InsnList;
 
 import static dev.xdark.ssvm.asm.VMOpcodes.VM_GETFIELD_BOOLEAN;
 import static dev.xdark.ssvm.asm.VMOpcodes.VM_GETFIELD_REFERENCE;
@@ -25,7 +24,7 @@ public final class GetFieldProcessor implements InstructionProcessor<FieldInsnNo
 
 	@Override
 	public Result execute(FieldInsnNode insn, ExecutionContext<?> ctx) {
-		if (AsmUtil.isValid(insn)) {
+		if (AsmUtil.isCurrent(ctx, insn)) {
 			InstanceClass klass = (InstanceClass) ctx.getOperations().findClass(ctx.getOwner(), insn.owner, true);
 			JavaField field = ctx.getLinkResolver().resolveVirtualField(klass, insn.name, insn.desc);
 			int sort = field.getType().getSort();
@@ -35,8 +34,7 @@ public Result execute(FieldInsnNode insn, ExecutionContext<?> ctx) {
 			} else {
 				opcode = VM_GETFIELD_BOOLEAN + (sort - 1);
 			}
-			InsnList list = ctx.getMethod().getNode().instructions;
-			list.set(insn, new VMFieldInsnNode(insn, opcode, field));
+			AsmUtil.replace(ctx, insn, new VMFieldInsnNode(insn, opcode, field));
 			ctx.getOperations().initialize(field.getOwner());
 		}
 		ctx.setInsnPosition(ctx.getInsnPosition() - 1);
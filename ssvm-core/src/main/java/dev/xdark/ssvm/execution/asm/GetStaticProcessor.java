@@ -9,7 +9,6 @@
 import dev.xdark.ssvm.operation.VMOperations;
 import dev.xdark.ssvm.util.AsmUtil;
 import org.objectweb.asm.tree.FieldInsnNode;
-import org.objectweb.asm.tree.InsnList;
 
 import static org.objectweb.asm.Type.*;
 import static dev.xdark.ssvm.asm.VMOpcodes.*;
@@ -23,11 +22,11 @@ public final class GetStaticProcessor implements InstructionProcessor<FieldInsnN
 
 	@Override
 	public Result execute(FieldInsnNode insn, ExecutionContext<?> ctx) {
-		if (AsmUtil.isValid(insn)) {
+		if (AsmUtil.isCurrent(ctx, insn)) {
 			VMOperations ops = ctx.getOperations();
 			InstanceClass klass = (InstanceClass) ops.findClass(ctx.getOwner(), insn.owner, true);
 			JavaField field = ctx.getLinkResolver().resolveStaticField(klass, insn.name, insn.desc);
-			if (AsmUtil.isValid(insn)) {
+			if (AsmUtil.isCurrent(ctx, insn)) {
 				// We double-check because the method may be called on class initialization.
 				int sort = field.getType().getSort();
 				int opcode;
@@ -36,9 +35,16 @@ public Result execute(FieldInsnNode insn, ExecutionContext<?> ctx) {
 				} else {
 					opcode = VM_GETSTATIC_BOOLEAN + (sort - 1);
 				}
-				InsnList list = ctx.getMethod().getNode().instructions;
-				list.set(insn, new VMFieldInsnNode(insn, opcode, field));
-				ops.initialize(field.getOwner());
+				InstanceClass owner = field.getOwner();
+				ops.initialize(owner);
+				VMFieldInsnNode replacement = new VMFieldInsnNode(insn, opcode, field);
+				if (!owner.state().is(InstanceClass.State.COMPLETE)) {
+					// Current thread is initializing the class.
+					// Other threads must not see rewritten instruction
+					// until initialization is finished.
+					return ctx.getVM().getInterface().getProcessor(replacement).execute(replacement, ctx);
+				}
+				AsmUtil.replace(ctx, insn, replacement);
 			}
 		}
 		ctx.setInsnPosition(ctx.getInsnPosition() - 1);
@@ -4,8 +4,8 @@
 import dev.xdark.ssvm.execution.ExecutionContext;
 import dev.xdark.ssvm.execution.InstructionProcessor;
 import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.util.AsmUtil;
 import dev.xdark.ssvm.value.InstanceValue;
-import org.objectweb.asm.tree.InsnList;
 import org.objectweb.asm.tree.InvokeDynamicInsnNode;
 
 /**
@@ -18,9 +18,10 @@ public final class InvokeDynamicLinkerProcessor implements InstructionProcessor<
 	@Override
 	public Result execute(InvokeDynamicInsnNode insn, ExecutionContext<?> ctx) {
 		InstanceValue linked = ctx.getOperations().linkCall(insn, ctx.getOwner());
+		// Call site is only referenced by the instruction now
+		ctx.getVM().getMemoryManager().pin(linked);
 		// Rewrite instruction
-		InsnList list = ctx.getMethod().getNode().instructions;
-		list.set(insn, new LinkedDynamicCallNode(insn, linked));
+		AsmUtil.replace(ctx, insn, new LinkedDynamicCallNode(insn, linked));
 		// Move insn position backwards so that VM visits
 		// us yet again.
 		ctx.setInsnPosition(ctx.getInsnPosition() - 1);
@@ -11,7 +11,6 @@
 import dev.xdark.ssvm.util.AsmUtil;
 import dev.xdark.ssvm.value.ObjectValue;
 import dev.xdark.ssvm.value.Value;
-import org.objectweb.asm.tree.InsnList;
 import org.objectweb.asm.tree.LdcInsnNode;
 
 /**
@@ -25,29 +24,34 @@ public final class LdcProcessor implements InstructionProcessor<LdcInsnNode> {
 
 	@Override
 	public Result execute(LdcInsnNode insn, ExecutionContext<?> ctx) {
-		if (AsmUtil.isValid(insn)) {
-			InsnList list = ctx.getMethod().getNode().instructions;
+		if (AsmUtil.isCurrent(ctx, insn)) {
 			Object cst = insn.cst;
 			if (cst instanceof ObjectValue) {
-				list.set(insn, new ConstantReferenceInsnNode(insn, (ObjectValue) cst));
+				AsmUtil.replace(ctx, insn, newConstant(insn, (ObjectValue) cst, ctx));
 			} else if (cst instanceof Long) {
-				list.set(insn, new ConstantLongInsnNode(insn, (long) cst));
+				AsmUtil.replace(ctx, insn, new ConstantLongInsnNode(insn, (long) cst));
 			} else if (cst instanceof Double) {
-				list.set(insn, new ConstantDoubleInsnNode(insn, (double) cst));
+				AsmUtil.replace(ctx, insn, new ConstantDoubleInsnNode(insn, (double) cst));
 			} else if (cst instanceof Integer || cst instanceof Short || cst instanceof Byte) {
-				list.set(insn, new ConstantIntInsnNode(insn, (int) (Number) cst));
+				AsmUtil.replace(ctx, insn, new ConstantIntInsnNode(insn, (int) (Number) cst));
 			} else if (cst instanceof Float) {
-				list.set(insn, new ConstantFloatInsnNode(insn, (float) cst));
+				AsmUtil.replace(ctx, insn, new ConstantFloatInsnNode(insn, (float) cst));
 			} else if (cst instanceof Character) {
-				list.set(insn, new ConstantIntInsnNode(insn, (char) cst));
+				AsmUtil.replace(ctx, insn, new ConstantIntInsnNode(insn, (char) cst));
 			} else if (cst instanceof String) {
-				list.set(insn, new ConstantReferenceInsnNode(insn, ctx.getVM().getStringPool().intern((String) cst)));
+				AsmUtil.replace(ctx, insn, newConstant(insn, ctx.getVM().getStringPool().intern((String) cst), ctx));
 			} else {
 				ObjectValue ref = ctx.getOperations().referenceValue(cst);
-				list.set(insn, new ConstantReferenceInsnNode(insn, ref));
+				AsmUtil.replace(ctx, insn, newConstant(insn, ref, ctx));
 			}
-			ctx.setInsnPosition(ctx.getInsnPosition() - 1);
 		}
+		ctx.setInsnPosition(ctx.getInsnPosition() - 1);
 		return Result.CONTINUE;
 	}
+
+	private static ConstantReferenceInsnNode newConstant(LdcInsnNode insn, ObjectValue value, ExecutionContext<?> ctx) {
+		// Constant is only referenced by the instruction now
+		ctx.getVM().getMemoryManager().pin(value);
+		return new ConstantReferenceInsnNode(insn, value);
+	}
 }
@@ -6,7 +6,7 @@
 import dev.xdark.ssvm.execution.InstructionProcessor;
 import dev.xdark.ssvm.execution.Result;
 import dev.xdark.ssvm.mirror.type.InstanceClass;
-import org.objectweb.asm.tree.InsnList;
+import dev.xdark.ssvm.util.AsmUtil;
 import org.objectweb.asm.tree.TypeInsnNode;
 
 /**
@@ -20,8 +20,7 @@ public final class NewProcessor implements InstructionProcessor<TypeInsnNode> {
 	public Result execute(TypeInsnNode insn, ExecutionContext<?> ctx) {
 		String desc = insn.desc;
 		InstanceClass klass = (InstanceClass) ctx.getOperations().findClass(ctx.getOwner(), desc, true);
-		InsnList list = ctx.getMethod().getNode().instructions;
-		list.set(insn, new VMTypeInsnNode(insn, VMOpcodes.VM_NEW, klass));
+		AsmUtil.replace(ctx, insn, new VMTypeInsnNode(insn, VMOpcodes.VM_NEW, klass));
 		ctx.setInsnPosition(ctx.getInsnPosition() - 1);
 		return Result.CONTINUE;
 	}
@@ -6,7 +6,7 @@
 import dev.xdark.ssvm.execution.InstructionProcessor;
 import dev.xdark.ssvm.execution.Result;
 import dev.xdark.ssvm.mirror.type.JavaClass;
-import org.objectweb.asm.tree.InsnList;
+import dev.xdark.ssvm.util.AsmUtil;
 import org.objectweb.asm.tree.TypeInsnNode;
 
 /**
@@ -20,8 +20,7 @@ public final class ObjectArrayProcessor implements InstructionProcessor<TypeInsn
 	public Result execute(TypeInsnNode insn, ExecutionContext<?> ctx) {
 		JavaClass type = ctx.getOperations().findClass(ctx.getOwner(), insn.desc, false);
 		VMTypeInsnNode wrapper = new VMTypeInsnNode(insn, VMOpcodes.VM_REFERENCE_NEW_ARRAY, type);
-		InsnList list = ctx.getMethod().getNode().instructions;
-		list.set(insn, wrapper);
+		AsmUtil.replace(ctx, insn, wrapper);
 		ctx.setInsnPosition(ctx.getInsnPosition() - 1);
 		return Result.CONTINUE;
 	}
@@ -5,8 +5,8 @@
 import dev.xdark.ssvm.execution.ExecutionContext;
 import dev.xdark.ssvm.execution.InstructionProcessor;
 import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.util.AsmUtil;
 import org.objectweb.asm.Opcodes;
-import org.objectweb.asm.tree.InsnList;
 import org.objectweb.asm.tree.IntInsnNode;
 
 /**
@@ -21,8 +21,7 @@ public Result execute(IntInsnNode insn, ExecutionContext<?> ctx) {
 		int operand = insn.operand;
 		int virtualOpcode = VMOpcodes.VM_BOOLEAN_NEW_ARRAY + (operand - Opcodes.T_BOOLEAN);
 		DelegatingInsnNode<IntInsnNode> wrapper = new DelegatingInsnNode<>(insn, virtualOpcode);
-		InsnList list = ctx.getMethod().getNode().instructions;
-		list.set(insn, wrapper);
+		AsmUtil.replace(ctx, insn, wrapper);
 		ctx.setInsnPosition(ctx.getInsnPosition() - 1);
 		return Result.CONTINUE;
 	}
@@ -11,7 +11,6 @@
 import dev.xdark.ssvm.util.AsmUtil;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.FieldInsnNode;
-import org.objectweb.asm.tree.InsnList;
 
 import static dev.xdark.ssvm.asm.VMOpcodes.VM_PUTFIELD_BOOLEAN;
 import static dev.xdark.ssvm.asm.VMOpcodes.VM_PUTFIELD_REFERENCE;
@@ -26,7 +25,7 @@ public final class PutFieldProcessor implements InstructionProcessor<FieldInsnNo
 
 	@Override
 	public Result execute(FieldInsnNode insn, ExecutionContext<?> ctx) {
-		if (AsmUtil.isValid(insn)) {
+		if (AsmUtil.isCurrent(ctx, insn)) {
 			VMOperations ops = ctx.getOperations();
 			InstanceClass klass = (InstanceClass) ops.findClass(ctx.getOwner(), insn.owner, true);
 			JavaField field = ctx.getLinkResolver().resolveVirtualField(klass, insn.name, insn.desc);
@@ -37,8 +36,7 @@ public Result execute(FieldInsnNode insn, ExecutionContext<?> ctx) {
 			} else {
 				opcode = VM_PUTFIELD_BOOLEAN + (sort - 1);
 			}
-			InsnList list = ctx.getMethod().getNode().instructions;
-			list.set(insn, new VMFieldInsnNode(insn, opcode, field));
+			AsmUtil.replace(ctx, insn, new VMFieldInsnNode(insn, opcode, field));
 			ops.initialize(field.getOwner());
 		}
 		ctx.setInsnPosition(ctx.getInsnPosition() - 1);
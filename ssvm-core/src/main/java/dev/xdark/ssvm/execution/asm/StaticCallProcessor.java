@@ -5,7 +5,6 @@
 import dev.xdark.ssvm.execution.ExecutionContext;
 import dev.xdark.ssvm.execution.Result;
 import dev.xdark.ssvm.util.AsmUtil;
-import org.objectweb.asm.tree.InsnList;
 import org.objectweb.asm.tree.MethodInsnNode;
 
 /**
@@ -17,9 +16,8 @@ public final class StaticCallProcessor extends CallProcessor {
 
 	@Override
 	public Result execute(MethodInsnNode insn, ExecutionContext<?> ctx) {
-		if (AsmUtil.isValid(insn)) {
-			InsnList list = ctx.getMethod().getNode().instructions;
-			list.set(insn, new VMCallInsnNode(insn, VMOpcodes.VM_INVOKESTATIC));
+		if (AsmUtil.isCurrent(ctx, insn)) {
+			AsmUtil.replace(ctx, insn, new VMCallInsnNode(insn, VMOpcodes.VM_INVOKESTATIC));
 		}
 		ctx.setInsnPosition(ctx.getInsnPosition() - 1);
 		return Result.CONTINUE;
@@ -4,7 +4,7 @@
 import dev.xdark.ssvm.asm.VMOpcodes;
 import dev.xdark.ssvm.execution.ExecutionContext;
 import dev.xdark.ssvm.execution.Result;
-import org.objectweb.asm.tree.InsnList;
+import dev.xdark.ssvm.util.AsmUtil;
 import org.objectweb.asm.tree.MethodInsnNode;
 
 /**
@@ -16,8 +16,7 @@ public final class VirtualCallProcessor extends CallProcessor {
 
 	@Override
 	public Result execute(MethodInsnNode insn, ExecutionContext<?> ctx) {
-		InsnList list = ctx.getMethod().getNode().instructions;
-		list.set(insn, new VMCallInsnNode(insn, VMOpcodes.VM_INVOKEVIRTUAL));
+		AsmUtil.replace(ctx, insn, new VMCallInsnNode(insn, VMOpcodes.VM_INVOKEVIRTUAL));
 		ctx.setInsnPosition(ctx.getInsnPosition() - 1);
 		return Result.CONTINUE;
 	}
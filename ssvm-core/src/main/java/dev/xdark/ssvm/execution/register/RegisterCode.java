@@ -0,0 +1,55 @@
+package dev.xdark.ssvm.execution.register;
+
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+
+/**
+ * Method code, translated into the register form.
+ * <p>
+ * Every instruction takes four slots: the opcode,
+ * and up to three operands. Operand stack slots and
+ * local variables are both addressed as registers,
+ * local variable {@code n} is register {@code n},
+ * and stack slot {@code n} is register {@code maxLocals + n}.
+ * Instructions that only move values between the stack and
+ * local variables become register moves, or disappear.
+ *
+ * @author xDark
+ * @see RegisterTranslator
+ * @see RegisterInterpreter
+ */
+public final class RegisterCode {
+	final JavaMethod method;
+	final int[] code;
+	final long[] constants;
+	final int registerCount;
+	final int[] argumentSorts;
+
+	RegisterCode(JavaMethod method, int[] code, long[] constants, int registerCount, int[] argumentSorts) {
+		this.method = method;
+		this.code = code;
+		this.constants = constants;
+		this.registerCount = registerCount;
+		this.argumentSorts = argumentSorts;
+	}
+
+	/**
+	 * @return Translated method.
+	 */
+	public JavaMethod getMethod() {
+		return method;
+	}
+
+	/**
+	 * @return the amount of instructions.
+	 */
+	public int length() {
+		return code.length >> 2;
+	}
+
+	/**
+	 * @return the amount of registers.
+	 */
+	public int registerCount() {
+		return registerCount;
+	}
+}
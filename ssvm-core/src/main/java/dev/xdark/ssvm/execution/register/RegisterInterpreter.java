@@ -0,0 +1,446 @@
+package dev.xdark.ssvm.execution.register;
+
+import dev.xdark.ssvm.execution.ExecutionContext;
+import dev.xdark.ssvm.execution.Interpreter;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.util.MathUtil;
+import dev.xdark.ssvm.value.ObjectValue;
+import lombok.experimental.UtilityClass;
+import org.objectweb.asm.Type;
+
+import static dev.xdark.ssvm.execution.register.RegisterOpcodes.*;
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Interpreter of the {@link RegisterCode register form}.
+ * <p>
+ * Registers are host arrays, so values never go
+ * through the operand stack of the execution context.
+ * Primitive values are kept as raw bits in one array,
+ * references are kept in another one.
+ *
+ * @author xDark
+ */
+@UtilityClass
+public class RegisterInterpreter {
+
+	/**
+	 * Executes translated code.
+	 * Result of the method is set to the context.
+	 *
+	 * @param ctx  Execution context.
+	 * @param code Code to execute.
+	 */
+	public void execute(ExecutionContext<?> ctx, RegisterCode code) {
+		int registerCount = code.registerCount;
+		long[] p = new long[registerCount];
+		ObjectValue[] r = new ObjectValue[registerCount];
+		loadArguments(ctx.getLocals(), code.argumentSorts, p, r);
+		int[] insns = code.code;
+		long[] constants = code.constants;
+		VMOperations ops = ctx.getOperations();
+		ObjectValue nullValue = ctx.getMemoryManager().nullValue();
+		int backEdges = Interpreter.getYieldInterval();
+		int pc = 0;
+		while (true) {
+			int opcode = insns[pc];
+			int a = insns[pc + 1];
+			int b = insns[pc + 2];
+			int c = insns[pc + 3];
+			pc += 4;
+			switch (opcode) {
+				case MOVE:
+					p[a] = p[b];
+					break;
+				case MOVE_REFERENCE:
+					r[a] = r[b];
+					break;
+				case CONSTANT_INT:
+					p[a] = b;
+					break;
+				case CONSTANT_WIDE:
+					p[a] = constants[b];
+					break;
+				case CONSTANT_NULL:
+					r[a] = nullValue;
+					break;
+				case IINC:
+					p[a] = (int) p[a] + b;
+					break;
+				case IALOAD:
+					p[a] = ops.arrayLoadInt(r[b], (int) p[c]);
+					break;
+				case LALOAD:
+					p[a] = ops.arrayLoadLong(r[b], (int) p[c]);
+					break;
+				case FALOAD:
+					p[a] = Float.floatToRawIntBits(ops.arrayLoadFloat(r[b], (int) p[c]));
+					break;
+				case DALOAD:
+					p[a] = Double.doubleToRawLongBits(ops.arrayLoadDouble(r[b], (int) p[c]));
+					break;
+				case AALOAD:
+					r[a] = ops.arrayLoadReference(r[b], (int) p[c]);
+					break;
+				case BALOAD:
+					p[a] = ops.arrayLoadByte(r[b], (int) p[c]);
+					break;
+				case CALOAD:
+					p[a] = ops.arrayLoadChar(r[b], (int) p[c]);
+					break;
+				case SALOAD:
+					p[a] = ops.arrayLoadShort(r[b], (int) p[c]);
+					break;
+				case IASTORE:
+					ops.arrayStoreInt(r[a], (int) p[b], (int) p[c]);
+					break;
+				case LASTORE:
+					ops.arrayStoreLong(r[a], (int) p[b], p[c]);
+					break;
+				case FASTORE:
+					ops.arrayStoreFloat(r[a], (int) p[b], Float.intBitsToFloat((int) p[c]));
+					break;
+				case DASTORE:
+					ops.arrayStoreDouble(r[a], (int) p[b], Double.longBitsToDouble(p[c]));
+					break;
+				case AASTORE:
+					ops.arrayStoreReference(r[a], (int) p[b], r[c]);
+					break;
+				case BASTORE:
+					ops.arrayStoreByte(r[a], (int) p[b], (byte) p[c]);
+					break;
+				case CASTORE:
+					ops.arrayStoreChar(r[a], (int) p[b], (char) p[c]);
+					break;
+				case SASTORE:
+					ops.arrayStoreShort(r[a], (int) p[b], (short) p[c]);
+					break;
+				case ARRAYLENGTH:
+					p[a] = ops.getArrayLength(r[b]);
+					break;
+				case IADD:
+					p[a] = (int) p[b] + (int) p[c];
+					break;
+				case LADD:
+					p[a] = p[b] + p[c];
+					break;
+				case FADD:
+					p[a] = floatBits(f(p[b]) + f(p[c]));
+					break;
+				case DADD:
+					p[a] = doubleBits(d(p[b]) + d(p[c]));
+					break;
+				case ISUB:
+					p[a] = (int) p[b] - (int) p[c];
+					break;
+				case LSUB:
+					p[a] = p[b] - p[c];
+					break;
+				case FSUB:
+					p[a] = floatBits(f(p[b]) - f(p[c]));
+					break;
+				case DSUB:
+					p[a] = doubleBits(d(p[b]) - d(p[c]));
+					break;
+				case IMUL:
+					p[a] = (int) p[b] * (int) p[c];
+					break;
+				case LMUL:
+					p[a] = p[b] * p[c];
+					break;
+				case FMUL:
+					p[a] = floatBits(f(p[b]) * f(p[c]));
+					break;
+				case DMUL:
+					p[a] = doubleBits(d(p[b]) * d(p[c]));
+					break;
+				case IDIV: {
+					int divisor = (int) p[c];
+					if (divisor == 0) {
+						divisionByZero(ctx);
+					}
+					p[a] = (int) p[b] / divisor;
+					break;
+				}
+				case LDIV: {
+					long divisor = p[c];
+					if (divisor == 0L) {
+						divisionByZero(ctx);
+					}
+					p[a] = p[b] / divisor;
+					break;
+				}
+				case FDIV:
+					p[a] = floatBits(f(p[b]) / f(p[c]));
+					break;
+				case DDIV:
+					p[a] = doubleBits(d(p[b]) / d(p[c]));
+					break;
+				case IREM: {
+					int divisor = (int) p[c];
+					if (divisor == 0) {
+						divisionByZero(ctx);
+					}
+					p[a] = (int) p[b] % divisor;
+					break;
+				}
+				case LREM: {
+					long divisor = p[c];
+					if (divisor == 0L) {
+						divisionByZero(ctx);
+					}
+					p[a] = p[b] % divisor;
+					break;
+				}
+				case FREM:
+					p[a] = floatBits(f(p[b]) % f(p[c]));
+					break;
+				case DREM:
+					p[a] = doubleBits(d(p[b]) % d(p[c]));
+					break;
+				case INEG:
+					p[a] = -(int) p[b];
+					break;
+				case LNEG:
+					p[a] = -p[b];
+					break;
+				case FNEG:
+					p[a] = floatBits(-f(p[b]));
+					break;
+				case DNEG:
+					p[a] = doubleBits(-d(p[b]));
+					break;
+				case ISHL:
+					p[a] = (int) p[b] << (int) p[c];
+					break;
+				case LSHL:
+					p[a] = p[b] << (int) p[c];
+					break;
+				case ISHR:
+					p[a] = (int) p[b] >> (int) p[c];
+					break;
+				case LSHR:
+					p[a] = p[b] >> (int) p[c];
+					break;
+				case IUSHR:
+					p[a] = (int) p[b] >>> (int) p[c];
+					break;
+				case LUSHR:
+					p[a] = p[b] >>> (int) p[c];
+					break;
+				case IAND:
+					p[a] = (int) p[b] & (int) p[c];
+					break;
+				case LAND:
+					p[a] = p[b] & p[c];
+					break;
+				case IOR:
+					p[a] = (int) p[b] | (int) p[c];
+					break;
+				case LOR:
+					p[a] = p[b] | p[c];
+					break;
+				case IXOR:
+					p[a] = (int) p[b] ^ (int) p[c];
+					break;
+				case LXOR:
+					p[a] = p[b] ^ p[c];
+					break;
+				case I2L:
+					p[a] = (int) p[b];
+					break;
+				case I2F:
+					p[a] = floatBits((int) p[b]);
+					break;
+				case I2D:
+					p[a] = doubleBits((int) p[b]);
+					break;
+				case L2I:
+					p[a] = (int) p[b];
+					break;
+				case L2F:
+					p[a] = floatBits(p[b]);
+					break;
+				case L2D:
+					p[a] = doubleBits(p[b]);
+					break;
+				case F2I:
+					p[a] = (int) f(p[b]);
+					break;
+				case F2L:
+					p[a] = (long) f(p[b]);
+					break;
+				case F2D:
+					p[a] = doubleBits(f(p[b]));
+					break;
+				case D2I:
+					p[a] = (int) d(p[b]);
+					break;
+				case D2L:
+					p[a] = (long) d(p[b]);
+					break;
+				case D2F:
+					p[a] = floatBits((float) d(p[b]));
+					break;
+				case I2B:
+					p[a] = (byte) p[b];
+					break;
+				case I2C:
+					p[a] = (char) p[b];
+					break;
+				case I2S:
+					p[a] = (short) p[b];
+					break;
+				case LCMP:
+					p[a] = Long.compare(p[b], p[c]);
+					break;
+				case FCMPL:
+					p[a] = MathUtil.compareFloat(f(p[b]), f(p[c]), -1);
+					break;
+				case FCMPG:
+					p[a] = MathUtil.compareFloat(f(p[b]), f(p[c]), 1);
+					break;
+				case DCMPL:
+					p[a] = MathUtil.compareDouble(d(p[b]), d(p[c]), -1);
+					break;
+				case DCMPG:
+					p[a] = MathUtil.compareDouble(d(p[b]), d(p[c]), 1);
+					break;
+				case IFEQ:
+				case IFNE:
+				case IFLT:
+				case IFGE:
+				case IFGT:
+				case IFLE:
+				case IF_ICMPEQ:
+				case IF_ICMPNE:
+				case IF_ICMPLT:
+				case IF_ICMPGE:
+				case IF_ICMPGT:
+				case IF_ICMPLE:
+				case IF_ACMPEQ:
+				case IF_ACMPNE:
+				case IFNULL:
+				case IFNONNULL:
+				case GOTO:
+					if (!test(opcode, p, r, a, b)) {
+						break;
+					}
+					if (c < pc && --backEdges == 0) {
+						// Let other threads run
+						backEdges = Interpreter.getYieldInterval();
+						ctx.getVM().getThreadManager().yield();
+					}
+					pc = c;
+					break;
+				case IRETURN:
+					ctx.setResult((int) p[a]);
+					return;
+				case LRETURN:
+					ctx.setResult(p[a]);
+					return;
+				case FRETURN:
+					ctx.setResult(f(p[a]));
+					return;
+				case DRETURN:
+					ctx.setResult(d(p[a]));
+					return;
+				case ARETURN:
+					ctx.setResult(r[a]);
+					return;
+				case RETURN:
+					return;
+				default:
+					throw new IllegalStateException("Unknown register opcode " + opcode);
+			}
+		}
+	}
+
+	private static boolean test(int opcode, long[] p, ObjectValue[] r, int a, int b) {
+		switch (opcode) {
+			case IFEQ:
+				return (int) p[a] == 0;
+			case IFNE:
+				return (int) p[a] != 0;
+			case IFLT:
+				return (int) p[a] < 0;
+			case IFGE:
+				return (int) p[a] >= 0;
+			case IFGT:
+				return (int) p[a] > 0;
+			case IFLE:
+				return (int) p[a] <= 0;
+			case IF_ICMPEQ:
+				return (int) p[a] == (int) p[b];
+			case IF_ICMPNE:
+				return (int) p[a] != (int) p[b];
+			case IF_ICMPLT:
+				return (int) p[a] < (int) p[b];
+			case IF_ICMPGE:
+				return (int) p[a] >= (int) p[b];
+			case IF_ICMPGT:
+				return (int) p[a] > (int) p[b];
+			case IF_ICMPLE:
+				return (int) p[a] <= (int) p[b];
+			case IF_ACMPEQ:
+				return r[a] == r[b];
+			case IF_ACMPNE:
+				return r[a] != r[b];
+			case IFNULL:
+				return r[a].isNull();
+			case IFNONNULL:
+				return !r[a].isNull();
+			default:
+				return true;
+		}
+	}
+
+	private static void loadArguments(Locals locals, int[] sorts, long[] p, ObjectValue[] r) {
+		int slot = 0;
+		for (int sort : sorts) {
+			switch (sort) {
+				case Type.LONG:
+					p[slot] = locals.loadLong(slot);
+					slot += 2;
+					break;
+				case Type.DOUBLE:
+					p[slot] = doubleBits(locals.loadDouble(slot));
+					slot += 2;
+					break;
+				case Type.FLOAT:
+					p[slot] = floatBits(locals.loadFloat(slot));
+					slot++;
+					break;
+				case Type.OBJECT:
+				case Type.ARRAY:
+					r[slot] = locals.loadReference(slot);
+					slot++;
+					break;
+				default:
+					p[slot] = locals.loadInt(slot);
+					slot++;
+			}
+		}
+	}
+
+	private static void divisionByZero(ExecutionContext<?> ctx) {
+		ctx.getOperations().throwException(ctx.getSymbols().java_lang_ArithmeticException(), "/ by zero");
+	}
+
+	private static float f(long bits) {
+		return Float.intBitsToFloat((int) bits);
+	}
+
+	private static double d(long bits) {
+		return Double.longBitsToDouble(bits);
+	}
+
+	private static long floatBits(float value) {
+		return Float.floatToRawIntBits(value);
+	}
+
+	private static long doubleBits(double value) {
+		return Double.doubleToRawLongBits(value);
+	}
+}
@@ -0,0 +1,33 @@
+package dev.xdark.ssvm.execution.register;
+
+import dev.xdark.ssvm.api.MethodInvoker;
+import dev.xdark.ssvm.execution.ThresholdInvoker;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+
+/**
+ * Invoker that interprets methods until they are
+ * invoked often enough to be translated into the register form.
+ * Translated method is installed as an invoker of the method.
+ *
+ * @author xDark
+ */
+public final class RegisterInvoker extends ThresholdInvoker {
+
+	/**
+	 * @param interpreter Invoker to run methods with
+	 *                    until they are translated.
+	 * @param threshold   Number of invocations after which
+	 *                    method is translated.
+	 */
+	public RegisterInvoker(MethodInvoker interpreter, int threshold) {
+		// Translation does not depend on the state of the VM,
+		// so it is only attempted once
+		super(interpreter, threshold, false);
+	}
+
+	@Override
+	protected MethodInvoker optimize(JavaMethod method) {
+		RegisterCode code = RegisterTranslator.translate(method);
+		return code == null ? null : new RegisterMethod(code, interpreter);
+	}
+}
@@ -0,0 +1,44 @@
+package dev.xdark.ssvm.execution.register;
+
+import dev.xdark.ssvm.api.MethodInvoker;
+import dev.xdark.ssvm.execution.ExecutionContext;
+import dev.xdark.ssvm.execution.Interpreter;
+import dev.xdark.ssvm.execution.Result;
+
+/**
+ * Invoker that runs a method in the {@link RegisterCode register form}.
+ * If an instruction interceptor wants to see instructions
+ * of the method, the call is passed back to the interpreter.
+ *
+ * @author xDark
+ */
+public final class RegisterMethod implements MethodInvoker {
+	private final RegisterCode code;
+	private final MethodInvoker fallback;
+
+	/**
+	 * @param code     Translated code.
+	 * @param fallback Invoker to pass control to,
+	 *                 if translated code cannot be used.
+	 */
+	public RegisterMethod(RegisterCode code, MethodInvoker fallback) {
+		this.code = code;
+		this.fallback = fallback;
+	}
+
+	@Override
+	public Result intercept(ExecutionContext<?> ctx) {
+		if (Interpreter.isIntercepted(ctx.getVM().getInterface(), code.method)) {
+			return fallback.intercept(ctx);
+		}
+		RegisterInterpreter.execute(ctx, code);
+		return Result.ABORT;
+	}
+
+	/**
+	 * @return Translated code.
+	 */
+	public RegisterCode getCode() {
+		return code;
+	}
+}
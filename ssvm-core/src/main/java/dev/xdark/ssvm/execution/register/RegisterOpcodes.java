@@ -0,0 +1,16 @@
+package dev.xdark.ssvm.execution.register;
+
+/**
+ * Opcodes of the register code,
+ * in addition to the bytecode opcodes it reuses.
+ *
+ * @author xDark
+ */
+interface RegisterOpcodes {
+
+	int MOVE = 256;
+	int MOVE_REFERENCE = MOVE + 1;
+	int CONSTANT_INT = MOVE_REFERENCE + 1;
+	int CONSTANT_WIDE = CONSTANT_INT + 1;
+	int CONSTANT_NULL = CONSTANT_WIDE + 1;
+}
@@ -0,0 +1,439 @@
+package dev.xdark.ssvm.execution.register;
+
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import lombok.experimental.UtilityClass;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.IntInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.BasicInterpreter;
+import org.objectweb.asm.tree.analysis.BasicValue;
+import org.objectweb.asm.tree.analysis.Frame;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static dev.xdark.ssvm.execution.register.RegisterOpcodes.*;
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Translates method code into the {@link RegisterCode register form}.
+ * <p>
+ * Stack depth and types of the values at every instruction
+ * are taken from frames computed by ASM {@link Analyzer},
+ * so the translation does not depend on frames stored in the class file.
+ * Only methods that do not call other methods, allocate objects,
+ * access fields, synchronize or handle exceptions are translated.
+ *
+ * @author xDark
+ */
+@UtilityClass
+public class RegisterTranslator {
+
+	/**
+	 * @param method Method to translate.
+	 * @return translated code, or {@code null},
+	 * if the method cannot be translated.
+	 */
+	public RegisterCode translate(JavaMethod method) {
+		MethodNode node = method.getNode();
+		if ((node.access & (ACC_NATIVE | ACC_ABSTRACT)) != 0) {
+			return null;
+		}
+		if (node.tryCatchBlocks != null && !node.tryCatchBlocks.isEmpty()) {
+			return null;
+		}
+		MethodNode copy = copy(node);
+		if (copy.instructions.size() == 0) {
+			return null;
+		}
+		Frame<BasicValue>[] frames;
+		try {
+			frames = new Analyzer<>(new BasicInterpreter()).analyze(method.getOwner().getInternalName(), copy);
+		} catch (AnalyzerException ex) {
+			return null;
+		}
+		return new Translation(method, copy, frames).translate();
+	}
+
+	// Analyzer caches instruction indices in the list,
+	// which is shared between threads, so it gets a copy
+	private static MethodNode copy(MethodNode node) {
+		MethodNode copy = new MethodNode(node.access, node.name, node.desc, null, null);
+		copy.maxLocals = node.maxLocals;
+		copy.maxStack = node.maxStack;
+		InsnList instructions = node.instructions;
+		InsnList target = copy.instructions;
+		Map<LabelNode, LabelNode> labels = new HashMap<>();
+		for (AbstractInsnNode insn : instructions) {
+			if (insn instanceof LabelNode) {
+				labels.put((LabelNode) insn, new LabelNode());
+			}
+		}
+		for (AbstractInsnNode insn : instructions) {
+			target.add(insn.clone(labels));
+		}
+		return copy;
+	}
+
+	private static final class Translation {
+		private final JavaMethod method;
+		private final MethodNode node;
+		private final Frame<BasicValue>[] frames;
+		private final int base;
+		private final int[] pcs;
+		private int[] code = new int[64];
+		private int length;
+		private long[] constants = new long[4];
+		private int constantCount;
+		private int[] jumps = new int[8];
+		private int jumpCount;
+
+		Translation(JavaMethod method, MethodNode node, Frame<BasicValue>[] frames) {
+			this.method = method;
+			this.node = node;
+			this.frames = frames;
+			base = node.maxLocals;
+			pcs = new int[frames.length];
+		}
+
+		RegisterCode translate() {
+			InsnList instructions = node.instructions;
+			Frame<BasicValue>[] frames = this.frames;
+			for (int i = 0; i < frames.length; i++) {
+				pcs[i] = length;
+				AbstractInsnNode insn = instructions.get(i);
+				Frame<BasicValue> frame = frames[i];
+				if (insn.getOpcode() == -1 || frame == null) {
+					// Pseudo instruction, or unreachable code
+					continue;
+				}
+				if (!translate(insn, frame)) {
+					return null;
+				}
+			}
+			int[] code = this.code;
+			int[] pcs = this.pcs;
+			for (int i = 0; i < jumpCount; i++) {
+				int slot = jumps[i];
+				code[slot] = pcs[code[slot]];
+			}
+			int[] argumentSorts = argumentSorts();
+			return new RegisterCode(method, Arrays.copyOf(code, length), Arrays.copyOf(constants, constantCount), base + node.maxStack + 1, argumentSorts);
+		}
+
+		private boolean translate(AbstractInsnNode insn, Frame<BasicValue> frame) {
+			int opcode = insn.getOpcode();
+			int top = base + frame.getStackSize() - 1;
+			switch (opcode) {
+				case NOP:
+				case POP:
+				case POP2:
+					return true;
+				case ACONST_NULL:
+					emit(CONSTANT_NULL, top + 1, 0, 0);
+					return true;
+				case ICONST_M1:
+				case ICONST_0:
+				case ICONST_1:
+				case ICONST_2:
+				case ICONST_3:
+				case ICONST_4:
+				case ICONST_5:
+					emit(CONSTANT_INT, top + 1, opcode - ICONST_0, 0);
+					return true;
+				case LCONST_0:
+				case LCONST_1:
+					emit(CONSTANT_INT, top + 1, opcode - LCONST_0, 0);
+					return true;
+				case FCONST_0:
+				case FCONST_1:
+				case FCONST_2:
+					emit(CONSTANT_INT, top + 1, Float.floatToRawIntBits(opcode - FCONST_0), 0);
+					return true;
+				case DCONST_0:
+				case DCONST_1:
+					emit(CONSTANT_WIDE, top + 1, constant(Double.doubleToRawLongBits(opcode - DCONST_0)), 0);
+					return true;
+				case BIPUSH:
+				case SIPUSH:
+					emit(CONSTANT_INT, top + 1, ((IntInsnNode) insn).operand, 0);
+					return true;
+				case LDC:
+					return translateConstant(((LdcInsnNode) insn).cst, top + 1);
+				case ILOAD:
+				case LLOAD:
+				case FLOAD:
+				case DLOAD:
+					emit(MOVE, top + 1, ((VarInsnNode) insn).var, 0);
+					return true;
+				case ALOAD:
+					emit(MOVE_REFERENCE, top + 1, ((VarInsnNode) insn).var, 0);
+					return true;
+				case ISTORE:
+				case LSTORE:
+				case FSTORE:
+				case DSTORE:
+					emit(MOVE, ((VarInsnNode) insn).var, top, 0);
+					return true;
+				case ASTORE:
+					if (!frame.getStack(frame.getStackSize() - 1).isReference()) {
+						// Return address
+						return false;
+					}
+					emit(MOVE_REFERENCE, ((VarInsnNode) insn).var, top, 0);
+					return true;
+				case IINC: {
+					IincInsnNode iinc = (IincInsnNode) insn;
+					emit(IINC, iinc.var, iinc.incr, 0);
+					return true;
+				}
+				case IALOAD:
+				case LALOAD:
+				case FALOAD:
+				case DALOAD:
+				case AALOAD:
+				case BALOAD:
+				case CALOAD:
+				case SALOAD:
+					emit(opcode, top - 1, top - 1, top);
+					return true;
+				case IASTORE:
+				case LASTORE:
+				case FASTORE:
+				case DASTORE:
+				case AASTORE:
+				case BASTORE:
+				case CASTORE:
+				case SASTORE:
+					emit(opcode, top - 2, top - 1, top);
+					return true;
+				case DUP:
+					move(frame, 0, top + 1, top);
+					return true;
+				case DUP_X1:
+					move(frame, 0, top + 1, top);
+					move(frame, 1, top, top - 1);
+					move(frame, 0, top - 1, top + 1);
+					return true;
+				case DUP_X2:
+					if (value(frame, 1).getSize() == 2) {
+						// Same as DUP_X1
+						move(frame, 0, top + 1, top);
+						move(frame, 1, top, top - 1);
+						move(frame, 0, top - 1, top + 1);
+					} else {
+						move(frame, 0, top + 1, top);
+						move(frame, 1, top, top - 1);
+						move(frame, 2, top - 1, top - 2);
+						move(frame, 0, top - 2, top + 1);
+					}
+					return true;
+				case DUP2:
+					if (value(frame, 0).getSize() == 2) {
+						move(frame, 0, top + 1, top);
+					} else {
+						move(frame, 1, top + 1, top - 1);
+						move(frame, 0, top + 2, top);
+					}
+					return true;
+				case DUP2_X1:
+					if (value(frame, 0).getSize() == 2) {
+						// Same as DUP_X1
+						move(frame, 0, top + 1, top);
+						move(frame, 1, top, top - 1);
+						move(frame, 0, top - 1, top + 1);
+					} else {
+						move(frame, 0, top + 2, top);
+						move(frame, 1, top + 1, top - 1);
+						move(frame, 2, top, top - 2);
+						move(frame, 0, top - 1, top + 2);
+						move(frame, 1, top - 2, top + 1);
+					}
+					return true;
+				case SWAP:
+					// Register past the top is always free
+					move(frame, 0, top + 1, top);
+					move(frame, 1, top, top - 1);
+					move(frame, 0, top - 1, top + 1);
+					return true;
+				case IADD:
+				case LADD:
+				case FADD:
+				case DADD:
+				case ISUB:
+				case LSUB:
+				case FSUB:
+				case DSUB:
+				case IMUL:
+				case LMUL:
+				case FMUL:
+				case DMUL:
+				case IDIV:
+				case LDIV:
+				case FDIV:
+				case DDIV:
+				case IREM:
+				case LREM:
+				case FREM:
+				case DREM:
+				case ISHL:
+				case LSHL:
+				case ISHR:
+				case LSHR:
+				case IUSHR:
+				case LUSHR:
+				case IAND:
+				case LAND:
+				case IOR:
+				case LOR:
+				case IXOR:
+				case LXOR:
+				case LCMP:
+				case FCMPL:
+				case FCMPG:
+				case DCMPL:
+				case DCMPG:
+					emit(opcode, top - 1, top - 1, top);
+					return true;
+				case INEG:
+				case LNEG:
+				case FNEG:
+				case DNEG:
+				case I2L:
+				case I2F:
+				case I2D:
+				case L2I:
+				case L2F:
+				case L2D:
+				case F2I:
+				case F2L:
+				case F2D:
+				case D2I:
+				case D2L:
+				case D2F:
+				case I2B:
+				case I2C:
+				case I2S:
+				case ARRAYLENGTH:
+					emit(opcode, top, top, 0);
+					return true;
+				case IFEQ:
+				case IFNE:
+				case IFLT:
+				case IFGE:
+				case IFGT:
+				case IFLE:
+				case IFNULL:
+				case IFNONNULL:
+					jump(opcode, top, 0, ((JumpInsnNode) insn).label);
+					return true;
+				case IF_ICMPEQ:
+				case IF_ICMPNE:
+				case IF_ICMPLT:
+				case IF_ICMPGE:
+				case IF_ICMPGT:
+				case IF_ICMPLE:
+				case IF_ACMPEQ:
+				case IF_ACMPNE:
+					jump(opcode, top - 1, top, ((JumpInsnNode) insn).label);
+					return true;
+				case GOTO:
+					jump(opcode, 0, 0, ((JumpInsnNode) insn).label);
+					return true;
+				case IRETURN:
+				case LRETURN:
+				case FRETURN:
+				case DRETURN:
+				case ARETURN:
+					emit(opcode, top, 0, 0);
+					return true;
+				case RETURN:
+					emit(opcode, 0, 0, 0);
+					return true;
+				default:
+					return false;
+			}
+		}
+
+		private boolean translateConstant(Object cst, int register) {
+			if (cst instanceof Integer) {
+				emit(CONSTANT_INT, register, (Integer) cst, 0);
+			} else if (cst instanceof Float) {
+				emit(CONSTANT_INT, register, Float.floatToRawIntBits((Float) cst), 0);
+			} else if (cst instanceof Long) {
+				emit(CONSTANT_WIDE, register, constant((Long) cst), 0);
+			} else if (cst instanceof Double) {
+				emit(CONSTANT_WIDE, register, constant(Double.doubleToRawLongBits((Double) cst)), 0);
+			} else {
+				return false;
+			}
+			return true;
+		}
+
+		private int[] argumentSorts() {
+			Type[] args = Type.getArgumentTypes(node.desc);
+			boolean isStatic = (node.access & ACC_STATIC) != 0;
+			int offset = isStatic ? 0 : 1;
+			int[] sorts = new int[args.length + offset];
+			if (!isStatic) {
+				sorts[0] = Type.OBJECT;
+			}
+			for (int i = 0; i < args.length; i++) {
+				sorts[i + offset] = args[i].getSort();
+			}
+			return sorts;
+		}
+
+		private BasicValue value(Frame<BasicValue> frame, int depth) {
+			return frame.getStack(frame.getStackSize() - 1 - depth);
+		}
+
+		private void move(Frame<BasicValue> frame, int depth, int to, int from) {
+			emit(value(frame, depth).isReference() ? MOVE_REFERENCE : MOVE, to, from, 0);
+		}
+
+		private void jump(int opcode, int a, int b, LabelNode label) {
+			int[] jumps = this.jumps;
+			if (jumpCount == jumps.length) {
+				this.jumps = jumps = Arrays.copyOf(jumps, jumpCount * 2);
+			}
+			jumps[jumpCount++] = length + 3;
+			// Fixed up once all instructions are translated
+			emit(opcode, a, b, node.instructions.indexOf(label));
+		}
+
+		private int constant(long value) {
+			long[] constants = this.constants;
+			int count = constantCount;
+			if (count == constants.length) {
+				this.constants = constants = Arrays.copyOf(constants, count * 2);
+			}
+			constants[count] = value;
+			constantCount = count + 1;
+			return count;
+		}
+
+		private void emit(int opcode, int a, int b, int c) {
+			int[] code = this.code;
+			int length = this.length;
+			if (length + 4 > code.length) {
+				this.code = code = Arrays.copyOf(code, code.length * 2);
+			}
+			code[length] = opcode;
+			code[length + 1] = a;
+			code[length + 2] = b;
+			code[length + 3] = c;
+			this.length = length + 4;
+		}
+	}
+}
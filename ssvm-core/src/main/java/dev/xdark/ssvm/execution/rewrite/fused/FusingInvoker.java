@@ -0,0 +1,33 @@
+package dev.xdark.ssvm.execution.rewrite.fused;
+
+import dev.xdark.ssvm.api.MethodInvoker;
+import dev.xdark.ssvm.execution.ThresholdInvoker;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+
+/**
+ * Invoker that fuses instruction sequences of
+ * methods that are invoked often enough.
+ *
+ * @author xDark
+ * @see Superinstructions
+ */
+public final class FusingInvoker extends ThresholdInvoker {
+
+	/**
+	 * @param interpreter Invoker to run methods with.
+	 * @param threshold   Number of invocations after which
+	 *                    method is rewritten. Rewrite is repeated
+	 *                    every time the threshold is reached again,
+	 *                    to pick up instructions quickened in the meantime.
+	 */
+	public FusingInvoker(MethodInvoker interpreter, int threshold) {
+		super(interpreter, threshold, true);
+	}
+
+	@Override
+	protected MethodInvoker optimize(JavaMethod method) {
+		// Code is rewritten in place, the method stays interpreted
+		Superinstructions.fuse(method);
+		return null;
+	}
+}
@@ -0,0 +1,25 @@
+package dev.xdark.ssvm.execution.rewrite.fused;
+
+import dev.xdark.ssvm.asm.VMFusedInsnNode;
+import dev.xdark.ssvm.execution.ExecutionContext;
+import dev.xdark.ssvm.execution.InstructionProcessor;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.util.AsmUtil;
+
+/**
+ * Fast path processor for IINC; GOTO.
+ *
+ * @author xDark
+ */
+public final class IncrementJumpProcessor implements InstructionProcessor<VMFusedInsnNode> {
+
+	@Override
+	public Result execute(VMFusedInsnNode insn, ExecutionContext<?> ctx) {
+		Locals locals = ctx.getLocals();
+		int var = insn.getVar();
+		locals.setInt(var, locals.loadInt(var) + insn.getSecondOperand());
+		ctx.setInsnPosition(AsmUtil.getIndex(insn.getLabel()));
+		return Result.CONTINUE;
+	}
+}
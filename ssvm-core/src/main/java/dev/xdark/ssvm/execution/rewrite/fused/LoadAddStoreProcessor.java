@@ -0,0 +1,23 @@
+package dev.xdark.ssvm.execution.rewrite.fused;
+
+import dev.xdark.ssvm.asm.VMFusedInsnNode;
+import dev.xdark.ssvm.execution.ExecutionContext;
+import dev.xdark.ssvm.execution.InstructionProcessor;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.Result;
+
+/**
+ * Fast path processor for ILOAD; ILOAD; IADD; ISTORE.
+ *
+ * @author xDark
+ */
+public final class LoadAddStoreProcessor implements InstructionProcessor<VMFusedInsnNode> {
+
+	@Override
+	public Result execute(VMFusedInsnNode insn, ExecutionContext<?> ctx) {
+		Locals locals = ctx.getLocals();
+		locals.setInt(insn.getThirdOperand(), locals.loadInt(insn.getVar()) + locals.loadInt(insn.getSecondOperand()));
+		ctx.setInsnPosition(ctx.getInsnPosition() + insn.getLength() - 1);
+		return Result.CONTINUE;
+	}
+}
@@ -0,0 +1,21 @@
+package dev.xdark.ssvm.execution.rewrite.fused;
+
+import dev.xdark.ssvm.asm.VMFusedInsnNode;
+import dev.xdark.ssvm.execution.ExecutionContext;
+import dev.xdark.ssvm.execution.InstructionProcessor;
+import dev.xdark.ssvm.execution.Result;
+
+/**
+ * Fast path processor for ALOAD; ARRAYLENGTH.
+ *
+ * @author xDark
+ */
+public final class LoadArrayLengthProcessor implements InstructionProcessor<VMFusedInsnNode> {
+
+	@Override
+	public Result execute(VMFusedInsnNode insn, ExecutionContext<?> ctx) {
+		ctx.getStack().pushInt(ctx.getOperations().getArrayLength(ctx.getLocals().loadReference(insn.getVar())));
+		ctx.setInsnPosition(ctx.getInsnPosition() + insn.getLength() - 1);
+		return Result.CONTINUE;
+	}
+}
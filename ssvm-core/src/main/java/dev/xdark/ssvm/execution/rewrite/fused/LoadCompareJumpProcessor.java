@@ -0,0 +1,52 @@
+package dev.xdark.ssvm.execution.rewrite.fused;
+
+import dev.xdark.ssvm.asm.VMFusedInsnNode;
+import dev.xdark.ssvm.execution.ExecutionContext;
+import dev.xdark.ssvm.execution.InstructionProcessor;
+import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.util.AsmUtil;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Fast path processor for ILOAD; BIPUSH/SIPUSH/ICONST; IF_ICMPxx.
+ *
+ * @author xDark
+ */
+public final class LoadCompareJumpProcessor implements InstructionProcessor<VMFusedInsnNode> {
+
+	@Override
+	public Result execute(VMFusedInsnNode insn, ExecutionContext<?> ctx) {
+		int value = ctx.getLocals().loadInt(insn.getVar());
+		int constant = insn.getSecondOperand();
+		boolean jump;
+		switch (insn.getThirdOperand()) {
+			case IF_ICMPEQ:
+				jump = value == constant;
+				break;
+			case IF_ICMPNE:
+				jump = value != constant;
+				break;
+			case IF_ICMPLT:
+				jump = value < constant;
+				break;
+			case IF_ICMPGE:
+				jump = value >= constant;
+				break;
+			case IF_ICMPGT:
+				jump = value > constant;
+				break;
+			case IF_ICMPLE:
+				jump = value <= constant;
+				break;
+			default:
+				throw new IllegalStateException("Unexpected condition " + insn.getThirdOperand());
+		}
+		if (jump) {
+			ctx.setInsnPosition(AsmUtil.getIndex(insn.getLabel()));
+		} else {
+			ctx.setInsnPosition(ctx.getInsnPosition() + insn.getLength() - 1);
+		}
+		return Result.CONTINUE;
+	}
+}
@@ -0,0 +1,55 @@
+package dev.xdark.ssvm.execution.rewrite.fused;
+
+import dev.xdark.ssvm.asm.VMFusedInsnNode;
+import dev.xdark.ssvm.execution.ExecutionContext;
+import dev.xdark.ssvm.execution.InstructionProcessor;
+import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.execution.Stack;
+import dev.xdark.ssvm.memory.allocation.MemoryData;
+import dev.xdark.ssvm.mirror.member.JavaField;
+import dev.xdark.ssvm.value.InstanceValue;
+
+/**
+ * Fast path processor for ALOAD; GETFIELD.
+ *
+ * @author xDark
+ */
+public final class LoadGetFieldProcessor implements InstructionProcessor<VMFusedInsnNode> {
+
+	@Override
+	public Result execute(VMFusedInsnNode insn, ExecutionContext<?> ctx) {
+		InstanceValue instance = ctx.getOperations().checkNotNull(ctx.getLocals().loadReference(insn.getVar()));
+		JavaField field = insn.getField();
+		long offset = field.getOffset();
+		Stack stack = ctx.getStack();
+		MemoryData data = instance.getMemory().getData();
+		switch (field.getDesc().charAt(0)) {
+			case 'Z':
+			case 'B':
+				stack.pushInt(data.readByte(offset));
+				break;
+			case 'C':
+				stack.pushInt(data.readChar(offset));
+				break;
+			case 'S':
+				stack.pushInt(data.readShort(offset));
+				break;
+			case 'I':
+				stack.pushInt(data.readInt(offset));
+				break;
+			case 'F':
+				stack.pushFloat(Float.intBitsToFloat(data.readInt(offset)));
+				break;
+			case 'J':
+				stack.pushLong(data.readLong(offset));
+				break;
+			case 'D':
+				stack.pushDouble(Double.longBitsToDouble(data.readLong(offset)));
+				break;
+			default:
+				stack.pushReference(ctx.getMemoryManager().readReference(instance, offset));
+		}
+		ctx.setInsnPosition(ctx.getInsnPosition() + insn.getLength() - 1);
+		return Result.CONTINUE;
+	}
+}
@@ -0,0 +1,143 @@
+package dev.xdark.ssvm.execution.rewrite.fused;
+
+import dev.xdark.ssvm.api.InstructionInterceptor;
+import dev.xdark.ssvm.asm.DelegatingInsnNode;
+import dev.xdark.ssvm.execution.ExecutionContext;
+import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.util.AsmUtil;
+import org.objectweb.asm.tree.AbstractInsnNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instruction interceptor that counts sequences
+ * of adjacent instructions, to find candidates
+ * for {@link Superinstructions}.
+ * <p>
+ * Sequences are counted by the opcodes of the original instructions,
+ * and never span labels, taken jumps or method calls,
+ * matching what can be fused.
+ *
+ * @author xDark
+ */
+public final class SequenceProfiler implements InstructionInterceptor {
+	private final Map<Long, LongAdder> counts = new ConcurrentHashMap<>();
+	private final ThreadLocal<Window> windows = ThreadLocal.withInitial(Window::new);
+	private final int maxLength;
+
+	/**
+	 * @param maxLength Max length of counted sequences,
+	 *                  from {@literal 2} to {@literal 4}.
+	 */
+	public SequenceProfiler(int maxLength) {
+		if (maxLength < 2 || maxLength > 4) {
+			throw new IllegalArgumentException("Sequence length must be between 2 and 4");
+		}
+		this.maxLength = maxLength;
+	}
+
+	public SequenceProfiler() {
+		this(4);
+	}
+
+	@Override
+	public Result intercept(ExecutionContext<?> ctx, AbstractInsnNode insn) {
+		if (insn instanceof DelegatingInsnNode) {
+			insn = ((DelegatingInsnNode<?>) insn).getDelegate();
+		}
+		int opcode = insn.getOpcode();
+		int position = ctx.getInsnPosition() - 1;
+		Window window = windows.get();
+		int[] opcodes = window.opcodes;
+		int length = window.length;
+		if (window.ctx != ctx || window.position + 1 != position) {
+			length = 0;
+		}
+		long packed = opcode;
+		for (int i = 1; i <= length; i++) {
+			packed |= (long) opcodes[length - i] << (i << 3);
+			counts.computeIfAbsent(((long) (i + 1) << 32) | packed, k -> new LongAdder()).increment();
+		}
+		if (length == maxLength - 1) {
+			System.arraycopy(opcodes, 1, opcodes, 0, --length);
+		}
+		opcodes[length++] = opcode;
+		window.length = length;
+		window.ctx = ctx;
+		window.position = position;
+		return Result.CONTINUE;
+	}
+
+	/**
+	 * @param count Max amount of sequences to return.
+	 * @return most frequent sequences, most frequent first.
+	 */
+	public List<Sequence> getTopSequences(int count) {
+		List<Sequence> sequences = new ArrayList<>(counts.size());
+		for (Map.Entry<Long, LongAdder> entry : counts.entrySet()) {
+			long key = entry.getKey();
+			int length = (int) (key >>> 32);
+			int[] opcodes = new int[length];
+			for (int i = 0; i < length; i++) {
+				opcodes[length - 1 - i] = (int) (key >>> (i << 3)) & 0xFF;
+			}
+			sequences.add(new Sequence(opcodes, entry.getValue().sum()));
+		}
+		sequences.sort((a, b) -> Long.compare(b.count, a.count));
+		return sequences.size() > count ? new ArrayList<>(sequences.subList(0, count)) : sequences;
+	}
+
+	/**
+	 * Clears collected counts.
+	 */
+	public void reset() {
+		counts.clear();
+	}
+
+	/**
+	 * Instruction sequence.
+	 */
+	public static final class Sequence {
+		private final int[] opcodes;
+		private final long count;
+
+		Sequence(int[] opcodes, long count) {
+			this.opcodes = opcodes;
+			this.count = count;
+		}
+
+		/**
+		 * @return opcodes of the sequence.
+		 */
+		public int[] getOpcodes() {
+			return opcodes.clone();
+		}
+
+		/**
+		 * @return how many times the sequence was executed.
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			for (int opcode : opcodes) {
+				builder.append(AsmUtil.getName(opcode)).append(' ');
+			}
+			return builder.append(count).toString();
+		}
+	}
+
+	private static final class Window {
+		final int[] opcodes = new int[3];
+		ExecutionContext<?> ctx;
+		int position;
+		int length;
+	}
+}
@@ -0,0 +1,124 @@
+package dev.xdark.ssvm.execution.rewrite.fused;
+
+import dev.xdark.ssvm.asm.VMFieldInsnNode;
+import dev.xdark.ssvm.asm.VMFusedInsnNode;
+import dev.xdark.ssvm.execution.CompactCode;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import lombok.experimental.UtilityClass;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.IntInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import static dev.xdark.ssvm.asm.VMOpcodes.VM_GETFIELD_BOOLEAN;
+import static dev.xdark.ssvm.asm.VMOpcodes.VM_GETFIELD_REFERENCE;
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Fuses frequent instruction sequences
+ * into {@link VMFusedInsnNode superinstructions}.
+ * <p>
+ * Only sequences of adjacent instructions,
+ * with no labels between them, are fused, so that no jump
+ * or exception handler can land in the middle of a sequence.
+ * {@code GETFIELD} is only fused after it was quickened,
+ * so the pass should be repeated as the method runs.
+ *
+ * @author xDark
+ * @see SequenceProfiler
+ */
+@UtilityClass
+public class Superinstructions {
+
+	/**
+	 * Fuses instruction sequences of the method.
+	 *
+	 * @param method Method to rewrite.
+	 * @return the amount of fused sequences.
+	 */
+	public int fuse(JavaMethod method) {
+		CompactCode code = method.getCompactCode();
+		if (code.length() == 0) {
+			return 0;
+		}
+		int fused = 0;
+		AbstractInsnNode[] nodes = code.toArray();
+		for (int i = 0; i < nodes.length; i++) {
+			VMFusedInsnNode replacement = match(nodes, i);
+			if (replacement == null) {
+				continue;
+			}
+			if (code.replace(code.codeIndex(i), nodes[i], replacement)) {
+				fused++;
+			}
+			i += replacement.getLength() - 1;
+		}
+		return fused;
+	}
+
+	private static VMFusedInsnNode match(AbstractInsnNode[] nodes, int i) {
+		AbstractInsnNode insn = nodes[i];
+		switch (insn.getOpcode()) {
+			case ALOAD: {
+				int var = ((VarInsnNode) insn).var;
+				AbstractInsnNode next = at(nodes, i + 1);
+				int opcode = next == null ? -1 : next.getOpcode();
+				if (opcode == ARRAYLENGTH) {
+					return VMFusedInsnNode.arrayLength(insn, var);
+				}
+				if (opcode >= VM_GETFIELD_BOOLEAN && opcode <= VM_GETFIELD_REFERENCE && next instanceof VMFieldInsnNode) {
+					return VMFusedInsnNode.loadGetField(insn, var, ((VMFieldInsnNode) next).getResolved());
+				}
+				return null;
+			}
+			case ILOAD: {
+				int var = ((VarInsnNode) insn).var;
+				AbstractInsnNode next = at(nodes, i + 1);
+				if (next == null) {
+					return null;
+				}
+				if (next.getOpcode() == ILOAD) {
+					AbstractInsnNode add = at(nodes, i + 2);
+					AbstractInsnNode store = at(nodes, i + 3);
+					if (add != null && add.getOpcode() == IADD && store != null && store.getOpcode() == ISTORE) {
+						return VMFusedInsnNode.addStore(insn, var, ((VarInsnNode) next).var, ((VarInsnNode) store).var);
+					}
+					return null;
+				}
+				AbstractInsnNode jump = at(nodes, i + 2);
+				if (jump == null) {
+					return null;
+				}
+				int opcode = jump.getOpcode();
+				if (opcode < IF_ICMPEQ || opcode > IF_ICMPLE) {
+					return null;
+				}
+				int constant;
+				int push = next.getOpcode();
+				if (push == BIPUSH || push == SIPUSH) {
+					constant = ((IntInsnNode) next).operand;
+				} else if (push >= ICONST_M1 && push <= ICONST_5) {
+					constant = push - ICONST_0;
+				} else {
+					return null;
+				}
+				return VMFusedInsnNode.compareJump(insn, var, constant, opcode, ((JumpInsnNode) jump).label);
+			}
+			case IINC: {
+				AbstractInsnNode next = at(nodes, i + 1);
+				if (next != null && next.getOpcode() == GOTO) {
+					IincInsnNode iinc = (IincInsnNode) insn;
+					return VMFusedInsnNode.incrementJump(insn, iinc.var, iinc.incr, ((JumpInsnNode) next).label);
+				}
+				return null;
+			}
+			default:
+				return null;
+		}
+	}
+
+	private static AbstractInsnNode at(AbstractInsnNode[] nodes, int index) {
+		return index < nodes.length ? nodes[index] : null;
+	}
+}
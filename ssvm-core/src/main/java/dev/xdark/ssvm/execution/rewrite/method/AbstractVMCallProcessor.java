@@ -29,9 +29,7 @@ public final Result execute(VMCallInsnNode insn, ExecutionContext<?> ctx) {
 		VirtualMachine vm = ctx.getVM();
 		Stack callerStack = ctx.getStack();
 		ThreadStorage storage = vm.getThreadStorage();
-		int maxArgs = method.getMaxArgs();
-		Locals locals = storage.newLocals(method);
-		callerStack.sinkInto(locals, maxArgs);
+		Locals locals = storage.newLocals(method, callerStack);
 		vm.getOperations().invoke(method, locals, callerStack);
 		return Result.CONTINUE;
 	}
@@ -0,0 +1,118 @@
+package dev.xdark.ssvm.execution.rewrite.method;
+
+import dev.xdark.ssvm.LinkResolver;
+import dev.xdark.ssvm.asm.VMCallInsnNode;
+import dev.xdark.ssvm.execution.ExecutionContext;
+import dev.xdark.ssvm.execution.VMException;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.mirror.type.JavaClass;
+import lombok.experimental.UtilityClass;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.MethodInsnNode;
+
+/**
+ * Dispatches calls through virtual and interface method tables.
+ * Call sites are linked to a table slot once, dispatch
+ * then loads the method from the table of the receiver class.
+ * If method cannot be dispatched through the tables, {@code null}
+ * is returned and the caller must fall back to the runtime resolver.
+ *
+ * @author xDark
+ */
+@UtilityClass
+class MethodTables {
+
+	/**
+	 * @param insn     Call site.
+	 * @param ctx      Execution context.
+	 * @param receiver Receiver type.
+	 * @return selected method or {@code null}.
+	 */
+	JavaMethod dispatchVirtual(VMCallInsnNode insn, ExecutionContext<?> ctx, JavaClass receiver) {
+		int slot = insn.getTableSlot();
+		if (slot == VMCallInsnNode.SLOT_UNLINKED) {
+			slot = linkVirtual(insn, ctx);
+		}
+		if (slot < 0 || !(receiver instanceof InstanceClass)) {
+			return null;
+		}
+		JavaMethod[] table = ((InstanceClass) receiver).getVirtualTable();
+		return slot < table.length ? concrete(table[slot]) : null;
+	}
+
+	/**
+	 * @param insn     Call site.
+	 * @param ctx      Execution context.
+	 * @param receiver Receiver type.
+	 * @return selected method or {@code null}.
+	 */
+	JavaMethod dispatchInterface(VMCallInsnNode insn, ExecutionContext<?> ctx, JavaClass receiver) {
+		int slot = insn.getTableSlot();
+		if (slot == VMCallInsnNode.SLOT_UNLINKED) {
+			slot = linkInterface(insn, ctx);
+		}
+		InstanceClass owner = insn.getTableOwner();
+		if (slot < 0 || owner == null || !(receiver instanceof InstanceClass)) {
+			return null;
+		}
+		JavaMethod[] table = ((InstanceClass) receiver).getInterfaceTable().get(owner);
+		return table == null ? null : concrete(table[slot]);
+	}
+
+	private static int linkVirtual(VMCallInsnNode insn, ExecutionContext<?> ctx) {
+		MethodInsnNode callInfo = insn.getDelegate();
+		InstanceClass owner = null;
+		int slot = VMCallInsnNode.SLOT_NONE;
+		if (!insn.isInterface() && callInfo.owner.charAt(0) != '[') {
+			JavaMethod method = resolve(insn, ctx, false);
+			if (method != null && !method.getOwner().isInterface()) {
+				owner = method.getOwner();
+				slot = indexOf(owner.getVirtualTable(), method);
+			}
+		}
+		insn.setTableSlot(owner, slot);
+		return slot;
+	}
+
+	private static int linkInterface(VMCallInsnNode insn, ExecutionContext<?> ctx) {
+		InstanceClass owner = null;
+		int slot = VMCallInsnNode.SLOT_NONE;
+		JavaMethod method = resolve(insn, ctx, true);
+		// Methods of java/lang/Object are resolved through interfaces too
+		if (method != null && method.getOwner().isInterface()) {
+			owner = method.getOwner();
+			slot = indexOf(owner.getVirtualTable(), method);
+		}
+		insn.setTableSlot(owner, slot);
+		return slot;
+	}
+
+	private static JavaMethod resolve(VMCallInsnNode insn, ExecutionContext<?> ctx, boolean itf) {
+		MethodInsnNode callInfo = insn.getDelegate();
+		LinkResolver linkResolver = ctx.getVM().getLinkResolver();
+		try {
+			JavaClass owner = ctx.getOperations().findClass(ctx.getOwner(), callInfo.owner, false);
+			JavaMethod method = itf ? linkResolver.resolveInterfaceMethod(owner, callInfo.name, callInfo.desc) : linkResolver.resolveVirtualMethod(owner, callInfo.name, callInfo.desc);
+			return method.isPolymorphic() ? null : method;
+		} catch (VMException ignored) {
+			// Let the runtime resolver report the error
+			return null;
+		}
+	}
+
+	private static int indexOf(JavaMethod[] table, JavaMethod method) {
+		for (int i = 0; i < table.length; i++) {
+			if (table[i] == method) {
+				return i;
+			}
+		}
+		return VMCallInsnNode.SLOT_NONE;
+	}
+
+	private static JavaMethod concrete(JavaMethod method) {
+		// Abstract methods are left to the runtime resolver,
+		// which either finds the default method, or throws
+		return method == null || (method.getModifiers() & Opcodes.ACC_ABSTRACT) != 0 ? null : method;
+	}
+}
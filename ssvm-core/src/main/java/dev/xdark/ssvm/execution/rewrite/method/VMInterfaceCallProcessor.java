@@ -1,9 +1,11 @@
 package dev.xdark.ssvm.execution.rewrite.method;
 
 import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.asm.InlineCache;
 import dev.xdark.ssvm.asm.VMCallInsnNode;
 import dev.xdark.ssvm.execution.ExecutionContext;
 import dev.xdark.ssvm.execution.Stack;
+import dev.xdark.ssvm.memory.management.MemoryManager;
 import dev.xdark.ssvm.mirror.member.JavaMethod;
 import dev.xdark.ssvm.mirror.type.JavaClass;
 import dev.xdark.ssvm.operation.VMOperations;
@@ -29,6 +31,21 @@ protected JavaMethod resolveMethod(VMCallInsnNode insn, ExecutionContext<?> ctx)
 		int args = insn.getArgCount();
 		Stack stack = ctx.getStack();
 		ObjectValue instance = stack.getReferenceAt(stack.position() - args - 1);
-		return vm.getRuntimeResolver().resolveInterfaceMethod(instance, callInfo.name, callInfo.desc);
+		InlineCache cache = insn.getInlineCache();
+		MemoryManager memoryManager = vm.getMemoryManager();
+		JavaMethod method;
+		if (!instance.isNull()) {
+			JavaClass type = memoryManager.readClass(instance);
+			if ((method = cache.get(type)) != null) {
+				return method;
+			}
+			if ((method = MethodTables.dispatchInterface(insn, ctx, type)) != null) {
+				cache.put(type, method);
+				return method;
+			}
+		}
+		method = vm.getRuntimeResolver().resolveInterfaceMethod(instance, callInfo.name, callInfo.desc);
+		cache.put(memoryManager.readClass(instance), method);
+		return method;
 	}
 }
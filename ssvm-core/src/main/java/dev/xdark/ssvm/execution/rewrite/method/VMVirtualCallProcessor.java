@@ -1,10 +1,13 @@
 package dev.xdark.ssvm.execution.rewrite.method;
 
 import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.asm.InlineCache;
 import dev.xdark.ssvm.asm.VMCallInsnNode;
 import dev.xdark.ssvm.execution.ExecutionContext;
 import dev.xdark.ssvm.execution.Stack;
+import dev.xdark.ssvm.memory.management.MemoryManager;
 import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.JavaClass;
 import dev.xdark.ssvm.value.ObjectValue;
 import org.objectweb.asm.tree.MethodInsnNode;
 
@@ -21,7 +24,22 @@ protected JavaMethod resolveMethod(VMCallInsnNode insn, ExecutionContext<?> ctx)
 		VirtualMachine vm = ctx.getVM();
 		Stack stack = ctx.getStack();
 		ObjectValue instance = stack.getReferenceAt(stack.position() - args - 1);
-		return insn.isInterface() ? vm.getRuntimeResolver().resolveInterfaceMethod(instance, callInfo.name, callInfo.desc) :
+		InlineCache cache = insn.getInlineCache();
+		MemoryManager memoryManager = vm.getMemoryManager();
+		JavaMethod method;
+		if (!instance.isNull()) {
+			JavaClass type = memoryManager.readClass(instance);
+			if ((method = cache.get(type)) != null) {
+				return method;
+			}
+			if ((method = MethodTables.dispatchVirtual(insn, ctx, type)) != null) {
+				cache.put(type, method);
+				return method;
+			}
+		}
+		method = insn.isInterface() ? vm.getRuntimeResolver().resolveInterfaceMethod(instance, callInfo.name, callInfo.desc) :
 				vm.getRuntimeResolver().resolveVirtualMethod(instance, callInfo.name, callInfo.desc);
+		cache.put(memoryManager.readClass(instance), method);
+		return method;
 	}
 }
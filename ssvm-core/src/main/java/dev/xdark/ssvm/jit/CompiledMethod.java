@@ -0,0 +1,159 @@
+package dev.xdark.ssvm.jit;
+
+import dev.xdark.ssvm.api.MethodInvoker;
+import dev.xdark.ssvm.execution.CompactCode;
+import dev.xdark.ssvm.execution.ExecutionContext;
+import dev.xdark.ssvm.execution.Interpreter;
+import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.memory.allocation.MemoryData;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.util.TypeSafeMap;
+import dev.xdark.ssvm.value.ObjectValue;
+
+/**
+ * Base class of methods compiled by {@link JitCompiler}.
+ * <p>
+ * Compiled code relies on classes, that were initialized
+ * when the method was compiled. If any of them is no longer
+ * initialized, if an instruction interceptor wants to see
+ * instructions of the method, or if the method was invalidated,
+ * the call is passed back to the interpreter.
+ * Compiled method is invalidated once code of the method changes.
+ *
+ * @author xDark
+ */
+public abstract class CompiledMethod implements MethodInvoker {
+	private static final String INVALIDATED = "invalidated";
+	private static final String NOT_COMPILABLE = "notCompilable";
+	private final JavaMethod method;
+	private final MethodInvoker fallback;
+	private final CompactCode code;
+	private final InstanceClass[] dependencies;
+	protected final ObjectValue nullValue;
+	private volatile boolean valid = true;
+
+	/**
+	 * @param method       Compiled method.
+	 * @param fallback     Invoker to pass control to,
+	 *                     if compiled code cannot be used.
+	 * @param dependencies Classes that compiled code depends on.
+	 * @param nullValue    Null value.
+	 */
+	protected CompiledMethod(JavaMethod method, MethodInvoker fallback, InstanceClass[] dependencies, ObjectValue nullValue) {
+		this.method = method;
+		this.fallback = fallback;
+		code = method.getCompactCode();
+		this.dependencies = dependencies;
+		this.nullValue = nullValue;
+	}
+
+	@Override
+	public final Result intercept(ExecutionContext<?> ctx) {
+		if (!canExecute(ctx)) {
+			return fallback.intercept(ctx);
+		}
+		return execute(ctx);
+	}
+
+	/**
+	 * @return Compiled method.
+	 */
+	public JavaMethod getMethod() {
+		return method;
+	}
+
+	/**
+	 * @return {@code true} if compiled code was not invalidated.
+	 */
+	public boolean isValid() {
+		return valid;
+	}
+
+	/**
+	 * Permanently passes the method back to the interpreter.
+	 * The method is marked, so that it is never compiled again.
+	 * Called automatically once code of the method changes.
+	 */
+	public void invalidate() {
+		valid = false;
+		JavaMethod method = this.method;
+		mark(method, INVALIDATED);
+		if (method.getInvoker() == this) {
+			method.setInvoker(null);
+		}
+	}
+
+	/**
+	 * @param method Method to check.
+	 * @return {@code true} if compiled code of the method
+	 * was invalidated, and the method must not be compiled again.
+	 */
+	public static boolean isInvalidated(JavaMethod method) {
+		return isMarked(method, INVALIDATED);
+	}
+
+	/**
+	 * @param method Method to check.
+	 * @return {@code true} if the method was neither invalidated,
+	 * nor found to be unsupported by the compiler.
+	 */
+	public static boolean isCompilable(JavaMethod method) {
+		return !isMarked(method, INVALIDATED) && !isMarked(method, NOT_COMPILABLE);
+	}
+
+	/**
+	 * Marks the method, so that it is never compiled.
+	 *
+	 * @param method Method that cannot be compiled.
+	 */
+	static void markNotCompilable(JavaMethod method) {
+		mark(method, NOT_COMPILABLE);
+	}
+
+	/**
+	 * Executes compiled code.
+	 *
+	 * @param ctx Execution context.
+	 * @return Always {@link Result#ABORT}.
+	 */
+	protected abstract Result execute(ExecutionContext<?> ctx);
+
+	/**
+	 * @param index Index of the class.
+	 * @return Static data of the class.
+	 */
+	protected final MemoryData staticData(int index) {
+		return dependencies[index].getOop().getData();
+	}
+
+	private boolean canExecute(ExecutionContext<?> ctx) {
+		if (!valid) {
+			return false;
+		}
+		if (method.getCompactCode() != code) {
+			invalidate();
+			return false;
+		}
+		for (InstanceClass dependency : dependencies) {
+			if (!dependency.state().is(InstanceClass.State.COMPLETE)) {
+				return false;
+			}
+		}
+		return !Interpreter.isIntercepted(ctx.getVM().getInterface(), method);
+	}
+
+	private static void mark(JavaMethod method, String key) {
+		TypeSafeMap metadata = method.getMetadata();
+		synchronized (metadata) {
+			metadata.<String, Boolean>subMap(CompiledMethod.class).put(key, Boolean.TRUE);
+		}
+	}
+
+	private static boolean isMarked(JavaMethod method, String key) {
+		TypeSafeMap metadata = method.getMetadata();
+		synchronized (metadata) {
+			return metadata.<String, Boolean>subMap(CompiledMethod.class).containsKey(key);
+		}
+	}
+}
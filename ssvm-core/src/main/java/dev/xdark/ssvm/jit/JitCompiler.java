@@ -0,0 +1,554 @@
+package dev.xdark.ssvm.jit;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.api.MethodInvoker;
+import dev.xdark.ssvm.asm.DelegatingInsnNode;
+import dev.xdark.ssvm.asm.VMFieldInsnNode;
+import dev.xdark.ssvm.execution.ExecutionContext;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.memory.allocation.MemoryData;
+import dev.xdark.ssvm.mirror.member.JavaField;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.value.ObjectValue;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.IntInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Translates bytecode of VM methods into host classes.
+ * <p>
+ * Locals and operand stack of the method are mapped onto
+ * host locals and operand stack, so that the host JVM
+ * can compile the method further.
+ * Only methods that do not call other methods, allocate objects,
+ * access arrays or instance fields, or throw exceptions, are supported.
+ * Static fields are only supported once their instructions were
+ * linked by the interpreter.
+ *
+ * @author xDark
+ */
+public final class JitCompiler {
+	private static final String COMPILED_METHOD = Type.getInternalName(CompiledMethod.class);
+	private static final String JIT_RUNTIME = Type.getInternalName(JitRuntime.class);
+	private static final String EXECUTION_CONTEXT = Type.getInternalName(ExecutionContext.class);
+	private static final String LOCALS = Type.getInternalName(Locals.class);
+	private static final String MEMORY_DATA = Type.getInternalName(MemoryData.class);
+	private static final String OBJECT_VALUE = Type.getInternalName(ObjectValue.class);
+	private static final String RESULT = Type.getInternalName(Result.class);
+	private static final String CONSTRUCTOR_DESC = Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(JavaMethod.class), Type.getType(MethodInvoker.class), Type.getType(InstanceClass[].class), Type.getType(ObjectValue.class));
+	private static final String EXECUTE_DESC = Type.getMethodDescriptor(Type.getType(Result.class), Type.getType(ExecutionContext.class));
+	private static final int CTX = 1;
+	private static final int LOCALS_SLOT = 2;
+	private static final int BASE = 3;
+
+	private final AtomicInteger counter = new AtomicInteger();
+	private final JitClassLoader classLoader = new JitClassLoader(JitCompiler.class.getClassLoader());
+	private final VirtualMachine vm;
+
+	/**
+	 * @param vm VM instance.
+	 */
+	public JitCompiler(VirtualMachine vm) {
+		this.vm = vm;
+	}
+
+	/**
+	 * @param method   Method to compile.
+	 * @param fallback Invoker to pass control to,
+	 *                 if compiled code cannot be used.
+	 * @return Compiled method or {@code null},
+	 * if the method cannot be compiled.
+	 * Methods that will never be supported are marked,
+	 * see {@link CompiledMethod#isCompilable(JavaMethod)}.
+	 */
+	public CompiledMethod compile(JavaMethod method, MethodInvoker fallback) {
+		if ((method.getModifiers() & (ACC_NATIVE | ACC_ABSTRACT)) != 0 || !method.getTryCatchBlocks().isEmpty()) {
+			CompiledMethod.markNotCompilable(method);
+			return null;
+		}
+		String name = "dev/xdark/ssvm/jit/JitMethod$" + counter.incrementAndGet();
+		ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+			@Override
+			protected String getCommonSuperClass(String type1, String type2) {
+				return "java/lang/Object";
+			}
+		};
+		writer.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, name, null, COMPILED_METHOD, null);
+		MethodVisitor mv = writer.visitMethod(ACC_PUBLIC, "<init>", CONSTRUCTOR_DESC, null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitVarInsn(ALOAD, 2);
+		mv.visitVarInsn(ALOAD, 3);
+		mv.visitVarInsn(ALOAD, 4);
+		mv.visitMethodInsn(INVOKESPECIAL, COMPILED_METHOD, "<init>", CONSTRUCTOR_DESC, false);
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+		Translation translation = new Translation(method, writer.visitMethod(ACC_PROTECTED, "execute", EXECUTE_DESC, null, null));
+		if (!translation.translate()) {
+			if (!translation.retry) {
+				CompiledMethod.markNotCompilable(method);
+			}
+			return null;
+		}
+		writer.visitEnd();
+		// Generated code that does not pass verification is a bug in the compiler
+		Class<?> type = classLoader.define(name.replace('/', '.'), writer.toByteArray());
+		try {
+			return (CompiledMethod) type.getConstructor(JavaMethod.class, MethodInvoker.class, InstanceClass[].class, ObjectValue.class)
+				.newInstance(method, fallback, translation.dependencies.toArray(new InstanceClass[0]), vm.getMemoryManager().nullValue());
+		} catch (ReflectiveOperationException ex) {
+			throw new IllegalStateException("Cannot instantiate compiled method " + method, ex);
+		}
+	}
+
+	private static final class Translation {
+		final List<InstanceClass> dependencies = new ArrayList<>();
+		// Set if the method may be compiled later
+		boolean retry;
+		private final Map<LabelNode, Label> labels = new HashMap<>();
+		private final Set<LabelNode> loopHeaders = new HashSet<>();
+		private final JavaMethod method;
+		private final MethodVisitor mv;
+		private final int counterSlot;
+		private final int tempSlot;
+
+		Translation(JavaMethod method, MethodVisitor mv) {
+			this.method = method;
+			this.mv = mv;
+			counterSlot = BASE + Math.max(method.getNode().maxLocals, method.getMaxArgs());
+			tempSlot = counterSlot + 1;
+		}
+
+		boolean translate() {
+			// Linked instructions are only found in code slots
+			AbstractInsnNode[] insns = method.getCompactCode().toArray();
+			Map<LabelNode, Integer> positions = new HashMap<>();
+			for (int i = 0; i < insns.length; i++) {
+				AbstractInsnNode insn = insns[i];
+				if (insn instanceof LabelNode) {
+					positions.put((LabelNode) insn, i);
+				}
+			}
+			for (int i = 0; i < insns.length; i++) {
+				AbstractInsnNode insn = original(insns[i]);
+				if (insn instanceof JumpInsnNode) {
+					addLoopHeader(positions, ((JumpInsnNode) insn).label, i);
+				} else if (insn instanceof TableSwitchInsnNode) {
+					TableSwitchInsnNode sw = (TableSwitchInsnNode) insn;
+					addLoopHeader(positions, sw.dflt, i);
+					for (LabelNode label : sw.labels) {
+						addLoopHeader(positions, label, i);
+					}
+				} else if (insn instanceof LookupSwitchInsnNode) {
+					LookupSwitchInsnNode sw = (LookupSwitchInsnNode) insn;
+					addLoopHeader(positions, sw.dflt, i);
+					for (LabelNode label : sw.labels) {
+						addLoopHeader(positions, label, i);
+					}
+				}
+			}
+			MethodVisitor mv = this.mv;
+			mv.visitCode();
+			prologue();
+			for (AbstractInsnNode insn : insns) {
+				if (!translate(insn)) {
+					return false;
+				}
+			}
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+			return true;
+		}
+
+		private void addLoopHeader(Map<LabelNode, Integer> positions, LabelNode target, int position) {
+			if (positions.get(target) <= position) {
+				loopHeaders.add(target);
+			}
+		}
+
+		private void prologue() {
+			MethodVisitor mv = this.mv;
+			mv.visitVarInsn(ALOAD, CTX);
+			mv.visitMethodInsn(INVOKEINTERFACE, EXECUTION_CONTEXT, "getLocals", "()L" + LOCALS + ";", true);
+			mv.visitVarInsn(ASTORE, LOCALS_SLOT);
+			int slot = 0;
+			if ((method.getModifiers() & ACC_STATIC) == 0) {
+				loadArgument(Type.getObjectType(OBJECT_VALUE), slot++);
+			}
+			for (Type type : method.getType().getArgumentTypes()) {
+				loadArgument(type, slot);
+				slot += type.getSize();
+			}
+			mv.visitMethodInsn(INVOKESTATIC, JIT_RUNTIME, "yieldInterval", "()I", false);
+			mv.visitVarInsn(ISTORE, counterSlot);
+		}
+
+		private void loadArgument(Type type, int slot) {
+			MethodVisitor mv = this.mv;
+			mv.visitVarInsn(ALOAD, LOCALS_SLOT);
+			visitInt(slot);
+			switch (type.getSort()) {
+				case Type.LONG:
+					mv.visitMethodInsn(INVOKEINTERFACE, LOCALS, "loadLong", "(I)J", true);
+					break;
+				case Type.DOUBLE:
+					mv.visitMethodInsn(INVOKEINTERFACE, LOCALS, "loadDouble", "(I)D", true);
+					break;
+				case Type.FLOAT:
+					mv.visitMethodInsn(INVOKEINTERFACE, LOCALS, "loadFloat", "(I)F", true);
+					break;
+				case Type.OBJECT:
+				case Type.ARRAY:
+					mv.visitMethodInsn(INVOKEINTERFACE, LOCALS, "loadReference", "(I)L" + OBJECT_VALUE + ";", true);
+					break;
+				default:
+					mv.visitMethodInsn(INVOKEINTERFACE, LOCALS, "loadInt", "(I)I", true);
+			}
+			mv.visitVarInsn(storeOpcode(type), BASE + slot);
+		}
+
+		private boolean translate(AbstractInsnNode node) {
+			MethodVisitor mv = this.mv;
+			// Rewritten instructions are translated from their originals
+			AbstractInsnNode insn = original(node);
+			int opcode = insn.getOpcode();
+			switch (insn.getType()) {
+				case AbstractInsnNode.LABEL:
+					mv.visitLabel(label((LabelNode) insn));
+					if (loopHeaders.contains(insn)) {
+						poll();
+					}
+					return true;
+				case AbstractInsnNode.LINE:
+				case AbstractInsnNode.FRAME:
+					return true;
+				case AbstractInsnNode.INSN:
+					return translateInsn(opcode);
+				case AbstractInsnNode.INT_INSN:
+					if (opcode == NEWARRAY) {
+						return false;
+					}
+					mv.visitIntInsn(opcode, ((IntInsnNode) insn).operand);
+					return true;
+				case AbstractInsnNode.LDC_INSN: {
+					Object cst = ((LdcInsnNode) insn).cst;
+					if (!(cst instanceof Integer || cst instanceof Float || cst instanceof Long || cst instanceof Double)) {
+						return false;
+					}
+					mv.visitLdcInsn(cst);
+					return true;
+				}
+				case AbstractInsnNode.VAR_INSN:
+					if (opcode == RET) {
+						return false;
+					}
+					mv.visitVarInsn(opcode, BASE + ((VarInsnNode) insn).var);
+					return true;
+				case AbstractInsnNode.IINC_INSN: {
+					IincInsnNode iinc = (IincInsnNode) insn;
+					mv.visitIincInsn(BASE + iinc.var, iinc.incr);
+					return true;
+				}
+				case AbstractInsnNode.JUMP_INSN: {
+					Label label = label(((JumpInsnNode) insn).label);
+					switch (opcode) {
+						case JSR:
+							return false;
+						case IFNULL:
+						case IFNONNULL:
+							mv.visitMethodInsn(INVOKEINTERFACE, OBJECT_VALUE, "isNull", "()Z", true);
+							mv.visitJumpInsn(opcode == IFNULL ? IFNE : IFEQ, label);
+							return true;
+						default:
+							mv.visitJumpInsn(opcode, label);
+							return true;
+					}
+				}
+				case AbstractInsnNode.TABLESWITCH_INSN: {
+					TableSwitchInsnNode sw = (TableSwitchInsnNode) insn;
+					mv.visitTableSwitchInsn(sw.min, sw.max, label(sw.dflt), labels(sw.labels));
+					return true;
+				}
+				case AbstractInsnNode.LOOKUPSWITCH_INSN: {
+					LookupSwitchInsnNode sw = (LookupSwitchInsnNode) insn;
+					int[] keys = new int[sw.keys.size()];
+					for (int i = 0; i < keys.length; i++) {
+						keys[i] = sw.keys.get(i);
+					}
+					mv.visitLookupSwitchInsn(label(sw.dflt), keys, labels(sw.labels));
+					return true;
+				}
+				case AbstractInsnNode.FIELD_INSN:
+					// Fields are only known once the interpreter linked the instruction
+					if (!(node instanceof VMFieldInsnNode)) {
+						retry = true;
+						return false;
+					}
+					return translateField(opcode, ((VMFieldInsnNode) node).getResolved());
+				default:
+					return false;
+			}
+		}
+
+		private boolean translateInsn(int opcode) {
+			MethodVisitor mv = this.mv;
+			switch (opcode) {
+				case ACONST_NULL:
+					mv.visitVarInsn(ALOAD, 0);
+					mv.visitFieldInsn(GETFIELD, COMPILED_METHOD, "nullValue", "L" + OBJECT_VALUE + ";");
+					return true;
+				case IDIV:
+				case IREM: {
+					Label nonZero = new Label();
+					mv.visitInsn(DUP);
+					mv.visitJumpInsn(IFNE, nonZero);
+					divisionByZero();
+					mv.visitLabel(nonZero);
+					mv.visitInsn(opcode);
+					return true;
+				}
+				case LDIV:
+				case LREM: {
+					Label nonZero = new Label();
+					mv.visitInsn(DUP2);
+					mv.visitInsn(LCONST_0);
+					mv.visitInsn(LCMP);
+					mv.visitJumpInsn(IFNE, nonZero);
+					divisionByZero();
+					mv.visitLabel(nonZero);
+					mv.visitInsn(opcode);
+					return true;
+				}
+				case IRETURN:
+					setResult(Type.INT_TYPE);
+					return true;
+				case LRETURN:
+					setResult(Type.LONG_TYPE);
+					return true;
+				case FRETURN:
+					setResult(Type.FLOAT_TYPE);
+					return true;
+				case DRETURN:
+					setResult(Type.DOUBLE_TYPE);
+					return true;
+				case ARETURN:
+					setResult(Type.getObjectType(OBJECT_VALUE));
+					return true;
+				case RETURN:
+					mv.visitFieldInsn(GETSTATIC, RESULT, "ABORT", "L" + RESULT + ";");
+					mv.visitInsn(ARETURN);
+					return true;
+				case ARRAYLENGTH:
+				case ATHROW:
+				case MONITORENTER:
+				case MONITOREXIT:
+					return false;
+				default:
+					if (opcode >= IALOAD && opcode <= SALOAD || opcode >= IASTORE && opcode <= SASTORE) {
+						return false;
+					}
+					mv.visitInsn(opcode);
+					return true;
+			}
+		}
+
+		private boolean translateField(int opcode, JavaField field) {
+			if (opcode != GETSTATIC && opcode != PUTSTATIC) {
+				return false;
+			}
+			Type type = Type.getType(field.getDesc());
+			if (type.getSort() >= Type.ARRAY) {
+				return false;
+			}
+			InstanceClass owner = field.getOwner();
+			int index = dependencies.indexOf(owner);
+			if (index == -1) {
+				index = dependencies.size();
+				dependencies.add(owner);
+			}
+			MethodVisitor mv = this.mv;
+			if (opcode == PUTSTATIC) {
+				switch (type.getSort()) {
+					case Type.FLOAT:
+						mv.visitMethodInsn(INVOKESTATIC, "java/lang/Float", "floatToRawIntBits", "(F)I", false);
+						break;
+					case Type.DOUBLE:
+						mv.visitMethodInsn(INVOKESTATIC, "java/lang/Double", "doubleToRawLongBits", "(D)J", false);
+						break;
+				}
+				boolean wide = type.getSize() == 2;
+				mv.visitVarInsn(wide ? LSTORE : ISTORE, tempSlot);
+				staticData(index, field);
+				mv.visitVarInsn(wide ? LLOAD : ILOAD, tempSlot);
+				switch (type.getSort()) {
+					case Type.BOOLEAN:
+					case Type.BYTE:
+						mv.visitInsn(I2B);
+						mv.visitMethodInsn(INVOKEINTERFACE, MEMORY_DATA, "writeByte", "(JB)V", true);
+						break;
+					case Type.CHAR:
+						mv.visitInsn(I2C);
+						mv.visitMethodInsn(INVOKEINTERFACE, MEMORY_DATA, "writeChar", "(JC)V", true);
+						break;
+					case Type.SHORT:
+						mv.visitInsn(I2S);
+						mv.visitMethodInsn(INVOKEINTERFACE, MEMORY_DATA, "writeShort", "(JS)V", true);
+						break;
+					case Type.INT:
+					case Type.FLOAT:
+						mv.visitMethodInsn(INVOKEINTERFACE, MEMORY_DATA, "writeInt", "(JI)V", true);
+						break;
+					default:
+						mv.visitMethodInsn(INVOKEINTERFACE, MEMORY_DATA, "writeLong", "(JJ)V", true);
+				}
+			} else {
+				staticData(index, field);
+				switch (type.getSort()) {
+					case Type.BOOLEAN:
+					case Type.BYTE:
+						mv.visitMethodInsn(INVOKEINTERFACE, MEMORY_DATA, "readByte", "(J)B", true);
+						break;
+					case Type.CHAR:
+						mv.visitMethodInsn(INVOKEINTERFACE, MEMORY_DATA, "readChar", "(J)C", true);
+						break;
+					case Type.SHORT:
+						mv.visitMethodInsn(INVOKEINTERFACE, MEMORY_DATA, "readShort", "(J)S", true);
+						break;
+					case Type.INT:
+						mv.visitMethodInsn(INVOKEINTERFACE, MEMORY_DATA, "readInt", "(J)I", true);
+						break;
+					case Type.FLOAT:
+						mv.visitMethodInsn(INVOKEINTERFACE, MEMORY_DATA, "readInt", "(J)I", true);
+						mv.visitMethodInsn(INVOKESTATIC, "java/lang/Float", "intBitsToFloat", "(I)F", false);
+						break;
+					case Type.LONG:
+						mv.visitMethodInsn(INVOKEINTERFACE, MEMORY_DATA, "readLong", "(J)J", true);
+						break;
+					default:
+						mv.visitMethodInsn(INVOKEINTERFACE, MEMORY_DATA, "readLong", "(J)J", true);
+						mv.visitMethodInsn(INVOKESTATIC, "java/lang/Double", "longBitsToDouble", "(J)D", false);
+				}
+			}
+			return true;
+		}
+
+		private void staticData(int index, JavaField field) {
+			MethodVisitor mv = this.mv;
+			mv.visitVarInsn(ALOAD, 0);
+			visitInt(index);
+			mv.visitMethodInsn(INVOKEVIRTUAL, COMPILED_METHOD, "staticData", "(I)L" + MEMORY_DATA + ";", false);
+			mv.visitLdcInsn(field.getOffset());
+		}
+
+		private void setResult(Type type) {
+			MethodVisitor mv = this.mv;
+			mv.visitVarInsn(storeOpcode(type), tempSlot);
+			mv.visitVarInsn(ALOAD, CTX);
+			mv.visitVarInsn(type.getOpcode(ILOAD), tempSlot);
+			mv.visitMethodInsn(INVOKEINTERFACE, EXECUTION_CONTEXT, "setResult", Type.getMethodDescriptor(Type.VOID_TYPE, type), true);
+			mv.visitFieldInsn(GETSTATIC, RESULT, "ABORT", "L" + RESULT + ";");
+			mv.visitInsn(ARETURN);
+		}
+
+		private void divisionByZero() {
+			MethodVisitor mv = this.mv;
+			mv.visitVarInsn(ALOAD, CTX);
+			mv.visitMethodInsn(INVOKESTATIC, JIT_RUNTIME, "divisionByZero", "(L" + EXECUTION_CONTEXT + ";)V", false);
+		}
+
+		private void poll() {
+			MethodVisitor mv = this.mv;
+			Label skip = new Label();
+			mv.visitIincInsn(counterSlot, -1);
+			mv.visitVarInsn(ILOAD, counterSlot);
+			mv.visitJumpInsn(IFGT, skip);
+			mv.visitVarInsn(ALOAD, CTX);
+			mv.visitMethodInsn(INVOKESTATIC, JIT_RUNTIME, "poll", "(L" + EXECUTION_CONTEXT + ";)I", false);
+			mv.visitVarInsn(ISTORE, counterSlot);
+			mv.visitLabel(skip);
+		}
+
+		private void visitInt(int value) {
+			MethodVisitor mv = this.mv;
+			if (value >= -1 && value <= 5) {
+				mv.visitInsn(ICONST_0 + value);
+			} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+				mv.visitIntInsn(BIPUSH, value);
+			} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+				mv.visitIntInsn(SIPUSH, value);
+			} else {
+				mv.visitLdcInsn(value);
+			}
+		}
+
+		private Label label(LabelNode node) {
+			return labels.computeIfAbsent(node, __ -> new Label());
+		}
+
+		private Label[] labels(List<LabelNode> nodes) {
+			Label[] labels = new Label[nodes.size()];
+			for (int i = 0; i < labels.length; i++) {
+				labels[i] = label(nodes.get(i));
+			}
+			return labels;
+		}
+
+		private static int storeOpcode(Type type) {
+			switch (type.getSort()) {
+				case Type.LONG:
+					return LSTORE;
+				case Type.DOUBLE:
+					return DSTORE;
+				case Type.FLOAT:
+					return FSTORE;
+				case Type.OBJECT:
+				case Type.ARRAY:
+					return ASTORE;
+				default:
+					return ISTORE;
+			}
+		}
+
+		private static AbstractInsnNode original(AbstractInsnNode insn) {
+			if (insn instanceof DelegatingInsnNode) {
+				return ((DelegatingInsnNode<?>) insn).getDelegate();
+			}
+			return insn;
+		}
+	}
+
+	private static final class JitClassLoader extends ClassLoader {
+
+		JitClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		Class<?> define(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+}
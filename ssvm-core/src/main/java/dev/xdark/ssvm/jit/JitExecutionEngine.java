@@ -0,0 +1,27 @@
+package dev.xdark.ssvm.jit;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.execution.InterpretedInvoker;
+import dev.xdark.ssvm.execution.SimpleExecutionEngine;
+
+/**
+ * Execution engine that compiles frequently
+ * invoked methods with {@link JitCompiler}.
+ *
+ * @author xDark
+ */
+public class JitExecutionEngine extends SimpleExecutionEngine {
+
+	/**
+	 * @param vm        VM instance.
+	 * @param threshold Number of invocations after which
+	 *                  method is compiled.
+	 */
+	public JitExecutionEngine(VirtualMachine vm, int threshold) {
+		super(vm, new TieredInvoker(new JitCompiler(vm), new InterpretedInvoker(), threshold));
+	}
+
+	public JitExecutionEngine(VirtualMachine vm) {
+		this(vm, 1000);
+	}
+}
@@ -0,0 +1,43 @@
+package dev.xdark.ssvm.jit;
+
+import dev.xdark.ssvm.execution.ExecutionContext;
+import dev.xdark.ssvm.execution.Interpreter;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Routines called by compiled code.
+ *
+ * @author xDark
+ */
+@UtilityClass
+public class JitRuntime {
+
+	/**
+	 * Throws {@link ArithmeticException}.
+	 *
+	 * @param ctx Execution context.
+	 */
+	public void divisionByZero(ExecutionContext<?> ctx) {
+		ctx.getOperations().throwException(ctx.getSymbols().java_lang_ArithmeticException(), "/ by zero");
+	}
+
+	/**
+	 * Lets other threads run.
+	 * Called from loops of compiled code.
+	 *
+	 * @param ctx Execution context.
+	 * @return Number of backward jumps until the next call.
+	 */
+	public int poll(ExecutionContext<?> ctx) {
+		ctx.getVM().getThreadManager().yield();
+		return yieldInterval();
+	}
+
+	/**
+	 * @return Number of backward jumps until the first call
+	 * to {@link #poll(ExecutionContext)}.
+	 */
+	public int yieldInterval() {
+		return Interpreter.getYieldInterval();
+	}
+}
@@ -0,0 +1,39 @@
+package dev.xdark.ssvm.jit;
+
+import dev.xdark.ssvm.api.MethodInvoker;
+import dev.xdark.ssvm.execution.ThresholdInvoker;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+
+/**
+ * Invoker that interprets methods until they are
+ * invoked often enough to be compiled.
+ * Compiled method is installed as an invoker of the method.
+ *
+ * @author xDark
+ */
+public final class TieredInvoker extends ThresholdInvoker {
+	private final JitCompiler compiler;
+
+	/**
+	 * @param compiler    Compiler to use.
+	 * @param interpreter Invoker to run methods with
+	 *                    until they are compiled.
+	 * @param threshold   Number of invocations after which
+	 *                    method is compiled. Compilation is retried
+	 *                    every time the threshold is reached again,
+	 *                    unless compiled code of the method was invalidated,
+	 *                    or the method is not supported by the compiler.
+	 */
+	public TieredInvoker(JitCompiler compiler, MethodInvoker interpreter, int threshold) {
+		super(interpreter, threshold, true);
+		this.compiler = compiler;
+	}
+
+	@Override
+	protected MethodInvoker optimize(JavaMethod method) {
+		if (!CompiledMethod.isCompilable(method)) {
+			return null;
+		}
+		return compiler.compile(method, interpreter);
+	}
+}
@@ -31,4 +31,12 @@ public interface VMEventCollection {
 	 * @return Method exit hook.
 	 */
 	MethodExit getMethodExit();
+
+	/**
+	 * @return {@code true} if method enter or
+	 * method exit events are requested.
+	 */
+	default boolean hasMethodEvents() {
+		return getMethodEnter() != null || getMethodExit() != null;
+	}
 }
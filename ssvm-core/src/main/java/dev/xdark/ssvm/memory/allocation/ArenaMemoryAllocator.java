@@ -0,0 +1,410 @@
+package dev.xdark.ssvm.memory.allocation;
+
+import dev.xdark.ssvm.execution.PanicException;
+import dev.xdark.ssvm.threadlocal.ThreadLocalStorage;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Memory allocator that carves heap blocks out of
+ * large contiguous regions.
+ * <p>
+ * Each host thread owns a region, its allocation buffer,
+ * and bumps a pointer in it to allocate.
+ * Regions are placed at fixed slots of the address space,
+ * so address to region lookup is a single array access.
+ * Objects that do not fit into a region get their own one,
+ * spanning multiple slots.
+ * Region slot is released once the region is retired and
+ * all blocks allocated in it are freed. Regions are retired
+ * when they are full, or when their thread exits.
+ * <p>
+ * Allocator is thread-safe and does not need to be wrapped
+ * into {@link SynchronizedMemoryAllocator}.
+ *
+ * @author xDark
+ */
+public class ArenaMemoryAllocator extends AbstractMemoryAllocator {
+
+	private static final long HEAP_BASE = 1L << 40;
+	private static final long DIRECT_BASE = 1L << 48;
+	private static final int REGION_SHIFT = 18;
+	private static final int REGION_SIZE = 1 << REGION_SHIFT;
+	private static final int MAX_REGIONS = 1 << 24;
+	private static final int ALIGNMENT = 8;
+	private final ThreadLocal<Tlab> tlabs = ThreadLocal.withInitial(Tlab::new);
+	private final NavigableMap<MemoryAddress, MemoryBlock> directBlocks = new TreeMap<>();
+	private volatile Region[] regions = new Region[64];
+	private int[] freeSlots = new int[16];
+	private int freeSlotCount;
+	private int nextSlot;
+	private long nextDirect = DIRECT_BASE;
+
+	@Override
+	public MemoryBlock findHeapBlock(long address) {
+		Region region = regionAt(address);
+		return region == null ? null : region.find((int) (address - region.address));
+	}
+
+	@Override
+	public MemoryBlock findDirectBlock(long address) {
+		synchronized (directBlocks) {
+			Map.Entry<MemoryAddress, MemoryBlock> entry = findDirect(address);
+			return entry == null ? null : entry.getValue();
+		}
+	}
+
+	@Override
+	public MemoryBlock allocateHeap(long bytes) {
+		if (!canAllocate(bytes)) {
+			return null;
+		}
+		int size = align((int) bytes);
+		if (size > REGION_SIZE / 2) {
+			Region region = newRegion((size + REGION_SIZE - 1) >>> REGION_SHIFT, size);
+			if (region == null) {
+				return null;
+			}
+			region.retired = true;
+			region.top = size;
+			return region.add(0, (int) bytes);
+		}
+		Tlab tlab = tlabs.get();
+		Region region = tlab.region;
+		if (region == null || region.top + size > region.capacity) {
+			if ((region = refill(tlab)) == null) {
+				return null;
+			}
+		}
+		int offset = region.top;
+		region.top = offset + size;
+		return region.add(offset, (int) bytes);
+	}
+
+	@Override
+	public MemoryBlock allocateDirect(long bytes) {
+		if (!canAllocate(bytes)) {
+			return null;
+		}
+		synchronized (directBlocks) {
+			long address = nextDirect;
+			// Leave a gap so that blocks never touch
+			nextDirect = address + align((int) bytes) + ALIGNMENT;
+			MemoryBlock block = makeBlock(address, bytes, false);
+			directBlocks.put(MemoryAddress.of(address), block);
+			return block;
+		}
+	}
+
+	@Override
+	public MemoryBlock reallocateDirect(long address, long bytes) {
+		MemoryBlock block;
+		synchronized (directBlocks) {
+			block = directBlocks.remove(ThreadLocalStorage.get().memoryAddress(address));
+		}
+		if (block == null) {
+			throw new PanicException("Segfault");
+		}
+		if (bytes == 0L) {
+			return emptyDirectBlock();
+		}
+		MemoryBlock newBlock = allocateDirect(bytes);
+		if (newBlock == null) {
+			return null;
+		}
+		MemoryData buffer = block.getData();
+		buffer.write(0L, newBlock.getData(), 0L, Math.min(buffer.length(), bytes));
+		return newBlock;
+	}
+
+	@Override
+	public boolean freeHeap(long address) {
+		Region region = regionAt(address);
+		if (region == null) {
+			return false;
+		}
+		int result = region.free((int) (address - region.address));
+		if (result == Region.RELEASE) {
+			release(region);
+		}
+		return result != Region.NOT_FOUND;
+	}
+
+	@Override
+	public boolean freeDirect(long address) {
+		synchronized (directBlocks) {
+			Map.Entry<MemoryAddress, MemoryBlock> entry = findDirect(address);
+			return entry != null && directBlocks.remove(entry.getKey()) != null;
+		}
+	}
+
+	@Override
+	public void detachCurrentThread() {
+		Tlab tlab = tlabs.get();
+		tlabs.remove();
+		Region region = tlab.region;
+		if (region != null) {
+			tlab.region = null;
+			if (region.retire()) {
+				release(region);
+			}
+		}
+	}
+
+	@Override
+	public MemoryAllocatorStatistics dumpStatistics() {
+		long used = 0L;
+		long total = 0L;
+		Region[] regions = this.regions;
+		for (int i = 0; i < regions.length; i++) {
+			Region region = regions[i];
+			// Regions spanning multiple slots are only counted once
+			if (region != null && region.address == slotAddress(i)) {
+				synchronized (region) {
+					used += region.used;
+				}
+				total += region.capacity;
+			}
+		}
+		synchronized (directBlocks) {
+			for (MemoryBlock block : directBlocks.values()) {
+				long length = block.getData().length();
+				used += length;
+				total += length;
+			}
+		}
+		return new Statistics(total - used, used, (long) MAX_REGIONS << REGION_SHIFT, total);
+	}
+
+	@Override
+	public MemoryAllocatorStatistics liveStatistics() {
+		return new MemoryAllocatorStatistics() {
+			@Override
+			public long freeSpace() {
+				return dumpStatistics().freeSpace();
+			}
+
+			@Override
+			public long usedSpace() {
+				return dumpStatistics().usedSpace();
+			}
+
+			@Override
+			public long maxSpace() {
+				return dumpStatistics().maxSpace();
+			}
+
+			@Override
+			public long totalSpace() {
+				return dumpStatistics().totalSpace();
+			}
+		};
+	}
+
+	@Override
+	protected boolean canAllocate(long bytes) {
+		return bytes >= 0L && bytes < Integer.MAX_VALUE - 12;
+	}
+
+	@Override
+	protected MemoryBlock makeBlock(long address, long bytes, boolean heap) {
+		return new SimpleMemoryBlock(address, MemoryData.buffer(ByteBuffer.allocate((int) bytes).order(ORDER)), heap);
+	}
+
+	private Region regionAt(long address) {
+		long slot = (address - HEAP_BASE) >>> REGION_SHIFT;
+		Region[] regions = this.regions;
+		if (address < HEAP_BASE || slot >= regions.length) {
+			return null;
+		}
+		return regions[(int) slot];
+	}
+
+	private Map.Entry<MemoryAddress, MemoryBlock> findDirect(long address) {
+		Map.Entry<MemoryAddress, MemoryBlock> entry = directBlocks.floorEntry(ThreadLocalStorage.get().memoryAddress(address));
+		if (entry != null) {
+			MemoryBlock block = entry.getValue();
+			if (address - block.getAddress() < block.getData().length()) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	private Region refill(Tlab tlab) {
+		Region region = tlab.region;
+		if (region != null && region.retire()) {
+			release(region);
+		}
+		region = newRegion(1, REGION_SIZE);
+		tlab.region = region;
+		return region;
+	}
+
+	private synchronized Region newRegion(int span, int capacity) {
+		int slot;
+		if (span == 1 && freeSlotCount != 0) {
+			slot = freeSlots[--freeSlotCount];
+		} else {
+			slot = nextSlot;
+			if (slot + span > MAX_REGIONS) {
+				return null;
+			}
+			nextSlot = slot + span;
+		}
+		Region[] regions = this.regions;
+		if (slot + span > regions.length) {
+			regions = Arrays.copyOf(regions, Math.max(regions.length << 1, slot + span));
+		}
+		// Fresh buffer, so that new blocks are zeroed
+		Region region = new Region(slotAddress(slot), ByteBuffer.allocate(capacity).order(ORDER));
+		for (int i = 0; i < span; i++) {
+			regions[slot + i] = region;
+		}
+		this.regions = regions;
+		return region;
+	}
+
+	private synchronized void release(Region region) {
+		Region[] regions = this.regions;
+		int slot = (int) ((region.address - HEAP_BASE) >>> REGION_SHIFT);
+		int[] freeSlots = this.freeSlots;
+		while (slot < regions.length && regions[slot] == region) {
+			regions[slot] = null;
+			if (freeSlotCount == freeSlots.length) {
+				this.freeSlots = freeSlots = Arrays.copyOf(freeSlots, freeSlotCount << 1);
+			}
+			freeSlots[freeSlotCount++] = slot++;
+		}
+		this.regions = regions;
+	}
+
+	private static long slotAddress(int slot) {
+		return HEAP_BASE + ((long) slot << REGION_SHIFT);
+	}
+
+	private static int align(int bytes) {
+		return (Math.max(bytes, 1) + ALIGNMENT - 1) & -ALIGNMENT;
+	}
+
+	/**
+	 * Thread-local allocation buffer.
+	 */
+	private static final class Tlab {
+		Region region;
+	}
+
+	/**
+	 * Contiguous region of the heap.
+	 * Blocks are kept sorted by their offset,
+	 * as offsets only grow.
+	 */
+	private static final class Region {
+		static final int NOT_FOUND = 0;
+		static final int FREED = 1;
+		static final int RELEASE = 2;
+		final long address;
+		final ByteBuffer buffer;
+		final int capacity;
+		// Only touched by the owning thread
+		int top;
+		int[] offsets = new int[64];
+		MemoryBlock[] blocks = new MemoryBlock[64];
+		int count;
+		int live;
+		long used;
+		boolean retired;
+
+		Region(long address, ByteBuffer buffer) {
+			this.address = address;
+			this.buffer = buffer;
+			capacity = buffer.capacity();
+		}
+
+		synchronized MemoryBlock add(int offset, int bytes) {
+			ByteBuffer slice = buffer.duplicate();
+			slice.limit(offset + bytes).position(offset);
+			MemoryBlock block = new SimpleMemoryBlock(address + offset, MemoryData.buffer(slice.slice().order(ORDER)), true);
+			int count = this.count;
+			if (count == offsets.length) {
+				offsets = Arrays.copyOf(offsets, count << 1);
+				blocks = Arrays.copyOf(blocks, count << 1);
+			}
+			offsets[count] = offset;
+			blocks[count] = block;
+			this.count = count + 1;
+			live++;
+			used += bytes;
+			return block;
+		}
+
+		synchronized MemoryBlock find(int offset) {
+			int index = Arrays.binarySearch(offsets, 0, count, offset);
+			if (index < 0) {
+				index = -index - 2;
+				if (index < 0) {
+					return null;
+				}
+			}
+			MemoryBlock block = blocks[index];
+			if (block != null && offset - offsets[index] < block.getData().length()) {
+				return block;
+			}
+			return null;
+		}
+
+		synchronized int free(int offset) {
+			int index = Arrays.binarySearch(offsets, 0, count, offset);
+			MemoryBlock block;
+			if (index < 0 || (block = blocks[index]) == null) {
+				return NOT_FOUND;
+			}
+			blocks[index] = null;
+			used -= block.getData().length();
+			return --live == 0 && retired ? RELEASE : FREED;
+		}
+
+		synchronized boolean retire() {
+			retired = true;
+			return live == 0;
+		}
+	}
+
+	private static final class Statistics implements MemoryAllocatorStatistics {
+		private final long freeSpace;
+		private final long usedSpace;
+		private final long maxSpace;
+		private final long totalSpace;
+
+		Statistics(long freeSpace, long usedSpace, long maxSpace, long totalSpace) {
+			this.freeSpace = freeSpace;
+			this.usedSpace = usedSpace;
+			this.maxSpace = maxSpace;
+			this.totalSpace = totalSpace;
+		}
+
+		@Override
+		public long freeSpace() {
+			return freeSpace;
+		}
+
+		@Override
+		public long usedSpace() {
+			return usedSpace;
+		}
+
+		@Override
+		public long maxSpace() {
+			return maxSpace;
+		}
+
+		@Override
+		public long totalSpace() {
+			return totalSpace;
+		}
+	}
+}
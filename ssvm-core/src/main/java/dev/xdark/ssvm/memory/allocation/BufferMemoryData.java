@@ -17,6 +17,7 @@
  * for volatile reads/writes and falls back to manual byte-by-byte operations if misaligned.
  *
  * Note: This may lose some volatile semantics if misaligned. Always ensure alignment.
+ * Misaligned compare-and-swap is only atomic with respect to other compare-and-swap calls.
  */
 @RequiredArgsConstructor
 final class BufferMemoryData implements MemoryData {
@@ -170,6 +171,38 @@ public void writeByteVolatile(long offset, byte value) {
 		volatileAccess().putByte(pos, value);
 	}
 
+	@Override
+	public boolean compareAndSwapLong(long offset, long expected, long value) {
+		int pos = checkIndex(offset, 8);
+		if (!isAligned(pos, 8)) {
+			// Fallback: serialize misaligned updates
+			synchronized (this) {
+				if (assembleLong(pos) != expected) {
+					return false;
+				}
+				disassembleLong(pos, value);
+				return true;
+			}
+		}
+		return volatileAccess().compareAndSwapLong(pos, expected, value);
+	}
+
+	@Override
+	public boolean compareAndSwapInt(long offset, int expected, int value) {
+		int pos = checkIndex(offset, 4);
+		if (!isAligned(pos, 4)) {
+			// Fallback: serialize misaligned updates
+			synchronized (this) {
+				if (assembleInt(pos) != expected) {
+					return false;
+				}
+				disassembleInt(pos, value);
+				return true;
+			}
+		}
+		return volatileAccess().compareAndSwapInt(pos, expected, value);
+	}
+
 	@Override
 	public void set(long offset, long bytes, byte value) {
 		ByteBuffer buffer = this.buffer;
@@ -119,4 +119,12 @@ public interface MemoryAllocator {
 	 * that this allocator does not support statistics.
 	 */
 	MemoryAllocatorStatistics liveStatistics();
+
+	/**
+	 * Releases allocation buffers of the current thread.
+	 * Called by the thread manager once a thread exits
+	 * or is detached from the VM.
+	 */
+	default void detachCurrentThread() {
+	}
 }
@@ -139,6 +139,28 @@ public interface MemoryData {
 	 */
 	void writeByteVolatile(long offset, byte value);
 
+	/**
+	 * Atomically sets long at the specific offset
+	 * if it holds the expected value.
+	 *
+	 * @param offset   Data offset.
+	 * @param expected Expected value.
+	 * @param value    New value.
+	 * @return {@code true} if the value was set.
+	 */
+	boolean compareAndSwapLong(long offset, long expected, long value);
+
+	/**
+	 * Atomically sets int at the specific offset
+	 * if it holds the expected value.
+	 *
+	 * @param offset   Data offset.
+	 * @param expected Expected value.
+	 * @param value    New value.
+	 * @return {@code true} if the value was set.
+	 */
+	boolean compareAndSwapInt(long offset, int expected, int value);
+
 	/**
 	 * Fills data region.
 	 *
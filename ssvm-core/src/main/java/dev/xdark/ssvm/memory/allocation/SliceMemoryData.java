@@ -130,6 +130,16 @@ public void writeByteVolatile(long offset, byte value) {
 		backing.writeByteVolatile(offset(offset), value);
 	}
 
+	@Override
+	public boolean compareAndSwapLong(long offset, long expected, long value) {
+		return backing.compareAndSwapLong(offset(offset), expected, value);
+	}
+
+	@Override
+	public boolean compareAndSwapInt(long offset, int expected, int value) {
+		return backing.compareAndSwapInt(offset(offset), expected, value);
+	}
+
 	@Override
 	public void set(long offset, long bytes, byte value) {
 		backing.set(offset(offset), bytes, value);
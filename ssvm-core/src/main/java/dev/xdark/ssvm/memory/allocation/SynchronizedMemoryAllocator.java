@@ -52,6 +52,13 @@ public MemoryBlock findDirectBlock(long address) {
 		}
 	}
 
+	@Override
+	public void detachCurrentThread() {
+		synchronized (mutex) {
+			allocator.detachCurrentThread();
+		}
+	}
+
 	@Override
 	public MemoryBlock allocateHeap(long bytes) {
 		synchronized (mutex) {
@@ -0,0 +1,170 @@
+package dev.xdark.ssvm.memory.management;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.memory.allocation.MemoryData;
+import dev.xdark.ssvm.mirror.member.JavaField;
+import dev.xdark.ssvm.mirror.member.area.ClassArea;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.mirror.type.JavaClass;
+import dev.xdark.ssvm.thread.JavaThread;
+import dev.xdark.ssvm.thread.OSThread;
+import dev.xdark.ssvm.thread.ThreadStorage;
+import dev.xdark.ssvm.value.ArrayValue;
+import dev.xdark.ssvm.value.InstanceValue;
+import dev.xdark.ssvm.value.ObjectValue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Stop-the-world mark-sweep collector
+ * for {@link SimpleMemoryManager}.
+ * <p>
+ * Roots are: pinned objects, class mirrors together with
+ * their static fields and class loaders, class loaders, interned strings,
+ * thread oops and all values stored in thread stacks.
+ * Thread stacks are scanned conservatively, as stack
+ * slots are not typed.
+ *
+ * @author xDark
+ */
+final class MarkSweepCollector {
+
+	private final BitSet marked = new BitSet();
+	private final Deque<ObjectValue> queue = new ArrayDeque<>();
+	private final VirtualMachine vm;
+	private final SimpleMemoryManager memoryManager;
+
+	/**
+	 * @param vm            VM instance.
+	 * @param memoryManager Memory manager to collect garbage for.
+	 */
+	MarkSweepCollector(VirtualMachine vm, SimpleMemoryManager memoryManager) {
+		this.vm = vm;
+		this.memoryManager = memoryManager;
+	}
+
+	/**
+	 * Runs garbage collection.
+	 *
+	 * @param pinned Pinned objects.
+	 * @return amount of freed objects.
+	 */
+	int collect(Collection<ObjectValue> pinned) {
+		try {
+			markRoots(pinned);
+			ObjectValue value;
+			while ((value = queue.poll()) != null) {
+				scan(value);
+			}
+			return sweep();
+		} finally {
+			marked.clear();
+			queue.clear();
+		}
+	}
+
+	private void markRoots(Collection<ObjectValue> pinned) {
+		for (ObjectValue value : pinned) {
+			mark(value);
+		}
+		VirtualMachine vm = this.vm;
+		for (JavaClass jc : vm.getClassStorage().list()) {
+			mark(jc.getClassLoader());
+			InstanceValue oop = jc.getOop();
+			if (oop == null) {
+				continue;
+			}
+			mark(oop);
+			if (jc instanceof InstanceClass) {
+				ClassArea<JavaField> area = ((InstanceClass) jc).staticFieldArea();
+				if (area != null) {
+					scanFields(oop.getData(), area);
+				}
+			}
+		}
+		for (InstanceValue classLoader : vm.getClassLoaders().getAll()) {
+			mark(classLoader);
+		}
+		vm.getStringPool().forEach(this::mark);
+		mark(vm.getSystemThreadGroup());
+		mark(vm.getMainThreadGroup());
+		List<JavaThread> threads = new ArrayList<>(vm.getThreadManager().snapshot());
+		JavaThread current = vm.getThreadManager().currentJavaThread();
+		if (current != null) {
+			threads.add(current);
+		}
+		for (JavaThread thread : threads) {
+			mark(thread.getOop());
+			OSThread osThread = thread.getOsThread();
+			ThreadStorage storage = osThread == null ? null : osThread.getStorage();
+			if (storage != null) {
+				storage.scanValues(address -> mark(memoryManager.getReference(address)));
+			}
+		}
+	}
+
+	private void scan(ObjectValue value) {
+		SimpleMemoryManager memoryManager = this.memoryManager;
+		JavaClass jc = memoryManager.readClass(value);
+		MemoryData data = value.getData();
+		if (jc.isArray()) {
+			if (jc.getComponentType().isPrimitive()) {
+				return;
+			}
+			ArrayValue array = (ArrayValue) value;
+			long offset = memoryManager.arrayBaseOffset(array);
+			long scale = memoryManager.objectSize();
+			for (int i = 0, j = memoryManager.readArrayLength(array); i < j; i++) {
+				mark(memoryManager.getReference(data.readLong(offset + i * scale)));
+			}
+		} else if (jc instanceof InstanceClass) {
+			InstanceClass klass = (InstanceClass) jc;
+			do {
+				ClassArea<JavaField> area = klass.virtualFieldArea();
+				if (area != null) {
+					scanFields(data, area);
+				}
+			} while ((klass = klass.getSuperClass()) != null);
+		}
+	}
+
+	private void scanFields(MemoryData data, ClassArea<JavaField> area) {
+		SimpleMemoryManager memoryManager = this.memoryManager;
+		for (JavaField field : area.list()) {
+			char c = field.getDesc().charAt(0);
+			if (c == 'L' || c == '[') {
+				mark(memoryManager.getReference(data.readLong(field.getOffset())));
+			}
+		}
+	}
+
+	private void mark(ObjectValue value) {
+		if (value != null && !value.isNull()) {
+			int handle = memoryManager.handleOf(value);
+			BitSet marked = this.marked;
+			if (!marked.get(handle)) {
+				marked.set(handle);
+				queue.add(value);
+			}
+		}
+	}
+
+	private int sweep() {
+		SimpleMemoryManager memoryManager = this.memoryManager;
+		BitSet marked = this.marked;
+		int freed = 0;
+		// Handle 0 is always null
+		for (int handle = 1, j = memoryManager.handleCount(); handle < j; handle++) {
+			if (!marked.get(handle) && memoryManager.handle(handle) != null) {
+				memoryManager.free(handle);
+				freed++;
+			}
+		}
+		return freed;
+	}
+}
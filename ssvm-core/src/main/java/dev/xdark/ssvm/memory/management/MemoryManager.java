@@ -206,4 +206,43 @@ public interface MemoryManager extends ReferenceMap {
 	 * @param value Object to write data into.
 	 */
 	void writeDefaults(ObjectValue value);
+
+	/**
+	 * Pins the object, so that it is not
+	 * collected until unpinned.
+	 * Pins are counted, host code must pin objects
+	 * it keeps across safepoints.
+	 *
+	 * @param value Object to pin.
+	 */
+	void pin(ObjectValue value);
+
+	/**
+	 * Unpins the object.
+	 *
+	 * @param value Object to unpin.
+	 */
+	void unpin(ObjectValue value);
+
+	/**
+	 * Runs stop-the-world garbage collection.
+	 * Must only be called when no host code holds
+	 * unpinned references.
+	 * <p>
+	 * Host references are not roots, only pinned objects are.
+	 * Execution engine collects at safepoints, which
+	 * include every call made from host code into the VM, so
+	 * objects returned to host code, such as invocation results or
+	 * {@link dev.xdark.ssvm.execution.VMException#getOop() exception oops},
+	 * must be pinned if they are kept across VM calls.
+	 *
+	 * @return amount of freed objects.
+	 */
+	int collect();
+
+	/**
+	 * @return {@code true} if memory manager requests
+	 * garbage collection at the next safepoint.
+	 */
+	boolean isCollectionRequested();
 }
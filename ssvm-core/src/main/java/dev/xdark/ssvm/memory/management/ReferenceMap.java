@@ -10,4 +10,11 @@
 public interface ReferenceMap {
 
 	ObjectValue getReference(long address);
+
+	/**
+	 * @param value Value to get reference for.
+	 * @return reference value that can be stored in memory
+	 * and resolved back with {@link #getReference(long)}.
+	 */
+	long getReferenceValue(ObjectValue value);
 }
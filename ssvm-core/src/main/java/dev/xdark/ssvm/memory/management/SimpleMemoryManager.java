@@ -3,7 +3,6 @@
 import dev.xdark.ssvm.LanguageSpecification;
 import dev.xdark.ssvm.VirtualMachine;
 import dev.xdark.ssvm.execution.PanicException;
-import dev.xdark.ssvm.memory.allocation.MemoryAddress;
 import dev.xdark.ssvm.memory.allocation.MemoryAllocator;
 import dev.xdark.ssvm.memory.allocation.MemoryBlock;
 import dev.xdark.ssvm.memory.allocation.MemoryData;
@@ -12,7 +11,6 @@
 import dev.xdark.ssvm.mirror.type.JavaClass;
 import dev.xdark.ssvm.synchronizer.Mutex;
 import dev.xdark.ssvm.synchronizer.ObjectSynchronizer;
-import dev.xdark.ssvm.threadlocal.ThreadLocalStorage;
 import dev.xdark.ssvm.util.Assertions;
 import dev.xdark.ssvm.value.ArrayValue;
 import dev.xdark.ssvm.value.InstanceValue;
@@ -23,9 +21,15 @@
 import dev.xdark.ssvm.value.SimpleInstanceValue;
 import dev.xdark.ssvm.value.SimpleJavaValue;
 
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 /**
  * Simple and dumb implementation of a memory manager.
@@ -33,23 +37,53 @@
  * @author xDark
  */
 public class SimpleMemoryManager implements MemoryManager {
+	// References are stored as indices into the handle table.
+	// Upper bits of a reference hold a tag, so that handles
+	// can be told apart from raw addresses.
+	private static final long HANDLE_TAG = 0x5356_4D00_0000_0000L;
+	private static final long HANDLE_TAG_MASK = 0xFFFF_FFFF_0000_0000L;
+	private static final long HANDLE_OFFSET = 8L;
+	private final Collection<ObjectValue> objectsView = new AbstractCollection<ObjectValue>() {
+		@Override
+		public Iterator<ObjectValue> iterator() {
+			return new HandleIterator();
+		}
 
-	private final Map<MemoryAddress, ObjectValue> objects = new HashMap<>();
+		@Override
+		public int size() {
+			return liveObjects;
+		}
+	};
+	private final Map<ObjectValue, Integer> pinned = new IdentityHashMap<>();
+	private final MarkSweepCollector collector;
 	private final VirtualMachine vm;
 	private final NullValue nullValue;
 	private final int objectHeaderSize;
 	private final int arrayHeaderSize;
 	private final int arrayLengthOffset;
+	// Handle table is read without a lock
+	private volatile ObjectValue[] handles = new ObjectValue[1024];
+	private int[] freeHandles = new int[64];
+	private int freeHandleCount;
+	private int handleCount;
+	private int liveObjects;
+	private long collectionThreshold;
+	private long allocatedBytes;
+	private volatile boolean collectionRequested;
 
 	public SimpleMemoryManager(VirtualMachine vm) {
 		this.vm = vm;
+		collector = new MarkSweepCollector(vm, this);
 		MemoryAllocator allocator = vm.getMemoryAllocator();
 		MemoryBlock emptyHeapBlock = allocator.emptyHeapBlock();
 		NullValue value = new NullValue(emptyHeapBlock);
-		objects.put(MemoryAddress.of(emptyHeapBlock.getAddress()), value);
+		// Null is always stored as 0
+		handles[0] = value;
+		handleCount = 1;
+		liveObjects = 1;
 		nullValue = value;
 		// TODO rework object headers.
-		int addressSize = 4 + 4; // 4 bytes for lock, 4 bytes for class id
+		int addressSize = 4 + 4 + 4; // 4 bytes for class id, 4 bytes for lock, 4 bytes for handle
 		objectHeaderSize = addressSize;
 		arrayHeaderSize = addressSize + 4;
 		arrayLengthOffset = addressSize;
@@ -65,20 +99,53 @@ public Mutex getMutex(ObjectValue reference) {
 		Assertions.check(!reference.isNull(), "null reference");
 		MemoryData data = reference.getMemory().getData();
 		ObjectSynchronizer synchronizer = vm.getObjectSynchronizer();
-		Mutex mutex;
-		int id = data.readInt(4L);
+		int id = data.readIntVolatile(4L);
 		if (id == -1) {
-			mutex = synchronizer.acquire();
-			data.writeInt(4L, mutex.id());
-		} else {
-			mutex = synchronizer.get(id);
+			synchronized (reference) {
+				// Only one thread may assign the mutex
+				id = data.readInt(4L);
+				if (id == -1) {
+					Mutex mutex = synchronizer.acquire();
+					data.writeIntVolatile(4L, mutex.id());
+					return mutex;
+				}
+			}
 		}
-		return mutex;
+		return synchronizer.get(id);
 	}
 
 	@Override
 	public ObjectValue getReference(long address) {
-		return objects.get(tlcAddress(address));
+		if (address == 0L) {
+			return nullValue;
+		}
+		if ((address & HANDLE_TAG_MASK) == HANDLE_TAG) {
+			int handle = (int) address;
+			ObjectValue[] handles = this.handles;
+			return handle >= 0 && handle < handles.length ? handles[handle] : null;
+		}
+		// Raw address of the object
+		MemoryBlock block = vm.getMemoryAllocator().findHeapBlock(address);
+		if (block == null || block.getAddress() != address || block.getData().length() < objectHeaderSize) {
+			return null;
+		}
+		int handle = block.getData().readInt(HANDLE_OFFSET);
+		ObjectValue[] handles = this.handles;
+		if (handle > 0 && handle < handles.length) {
+			ObjectValue value = handles[handle];
+			if (value != null && value.getMemory() == block) {
+				return value;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public long getReferenceValue(ObjectValue value) {
+		if (value.isNull()) {
+			return 0L;
+		}
+		return HANDLE_TAG | value.getData().readInt(HANDLE_OFFSET);
 	}
 
 	@Override
@@ -89,7 +156,7 @@ public InstanceValue newInstance(InstanceClass javaClass) {
 		}
 		setClass(memory, javaClass);
 		SimpleInstanceValue value = new SimpleInstanceValue(this, memory);
-		objects.put(MemoryAddress.of(memory.getAddress()), value);
+		register(value);
 		return value;
 	}
 
@@ -98,7 +165,7 @@ public <V> JavaValue<V> newJavaInstance(InstanceClass javaClass, V value) {
 		MemoryBlock memory = allocateInstanceMemory(javaClass);
 		setClass(memory, javaClass);
 		SimpleJavaValue<V> wrapper = new SimpleJavaValue<>(this, memory, value);
-		objects.put(MemoryAddress.of(memory.getAddress()), wrapper);
+		register(wrapper);
 		return wrapper;
 	}
 
@@ -108,7 +175,7 @@ public void newJavaLangClass(InstanceClass javaClass) {
 		InstanceValue wrapper = new SimpleInstanceValue(this, memory);
 		javaClass.setOop(wrapper);
 		setClass(memory, javaClass);
-		objects.put(MemoryAddress.of(memory.getAddress()), wrapper);
+		register(wrapper);
 	}
 
 	@Override
@@ -117,7 +184,7 @@ public ArrayValue newArray(ArrayClass javaClass, int length) {
 		setClass(memory, javaClass);
 		SimpleArrayValue value = new SimpleArrayValue(this, memory);
 		memory.getData().writeInt(arrayLengthOffset, length);
-		objects.put(MemoryAddress.of(memory.getAddress()), value);
+		register(value);
 		return value;
 	}
 
@@ -142,14 +209,14 @@ public int readArrayLength(ArrayValue array) {
 
 	@Override
 	public void writeValue(ObjectValue object, long offset, ObjectValue value) {
-		object.getMemory().getData().writeLong(offset, value.getMemory().getAddress());
+		object.getMemory().getData().writeLong(offset, getReferenceValue(value));
 	}
 
 	@Override
 	public ObjectValue getAndWriteValue(ObjectValue object, long offset, ObjectValue value) {
 		MemoryData data = object.getMemory().getData();
-		ObjectValue old = objects.get(tlcAddress(data.readLong(offset)));
-		data.writeLong(offset, value.getMemory().getAddress());
+		ObjectValue old = getReference(data.readLong(offset));
+		data.writeLong(offset, getReferenceValue(value));
 		return old;
 	}
 
@@ -159,7 +226,7 @@ public InstanceValue newClassOop(JavaClass javaClass) {
 		MemoryBlock memory = allocateClassMemory(javaLangClass, javaClass);
 		setClass(memory, javaLangClass);
 		InstanceValue wrapper = new SimpleInstanceValue(this, memory);
-		objects.put(MemoryAddress.of(memory.getAddress()), wrapper);
+		register(wrapper);
 		return wrapper;
 	}
 
@@ -211,7 +278,7 @@ public int objectSize() {
 
 	@Override
 	public Collection<ObjectValue> listObjects() {
-		return objects.values();
+		return objectsView;
 	}
 
 	@Override
@@ -225,6 +292,117 @@ public void writeDefaults(ObjectValue value) {
 		data.set(arrayLengthOffset, data.length() - arrayLengthOffset, (byte) 0);
 	}
 
+	@Override
+	public void pin(ObjectValue value) {
+		if (!value.isNull()) {
+			synchronized (pinned) {
+				pinned.merge(value, 1, Integer::sum);
+			}
+		}
+	}
+
+	@Override
+	public void unpin(ObjectValue value) {
+		synchronized (pinned) {
+			pinned.computeIfPresent(value, (__, count) -> count == 1 ? null : count - 1);
+		}
+	}
+
+	@Override
+	public synchronized int collect() {
+		List<ObjectValue> pinned;
+		synchronized (this.pinned) {
+			pinned = new ArrayList<>(this.pinned.keySet());
+		}
+		int freed = collector.collect(pinned);
+		allocatedBytes = 0L;
+		collectionRequested = false;
+		return freed;
+	}
+
+	@Override
+	public boolean isCollectionRequested() {
+		return collectionRequested;
+	}
+
+	/**
+	 * Sets amount of bytes that may be allocated before
+	 * garbage collection is requested.
+	 * Automatic collection is disabled by default.
+	 * Once it is enabled, host code must follow the pinning
+	 * contract of {@link #collect()}.
+	 *
+	 * @param collectionThreshold Amount of bytes, or {@code 0},
+	 *                            to disable automatic collection.
+	 */
+	public void setCollectionThreshold(long collectionThreshold) {
+		this.collectionThreshold = collectionThreshold;
+	}
+
+	/**
+	 * @return amount of handles in use,
+	 * including free ones.
+	 */
+	int handleCount() {
+		return handleCount;
+	}
+
+	/**
+	 * @param handle Object handle.
+	 * @return object or {@code null},
+	 * if handle is free.
+	 */
+	ObjectValue handle(int handle) {
+		return handles[handle];
+	}
+
+	/**
+	 * @param value Object to get handle for.
+	 * @return object handle.
+	 */
+	int handleOf(ObjectValue value) {
+		return value.isNull() ? 0 : value.getData().readInt(HANDLE_OFFSET);
+	}
+
+	/**
+	 * Frees the object and its handle.
+	 *
+	 * @param handle Object handle.
+	 */
+	synchronized void free(int handle) {
+		ObjectValue value = handles[handle];
+		handles[handle] = null;
+		int[] freeHandles = this.freeHandles;
+		int freeHandleCount = this.freeHandleCount;
+		if (freeHandleCount == freeHandles.length) {
+			this.freeHandles = freeHandles = Arrays.copyOf(freeHandles, freeHandleCount << 1);
+		}
+		freeHandles[freeHandleCount] = handle;
+		this.freeHandleCount = freeHandleCount + 1;
+		liveObjects--;
+		if (!vm.getMemoryAllocator().freeHeap(value.getMemory().getAddress())) {
+			throw new PanicException("Failed to free object memory");
+		}
+	}
+
+	private synchronized void register(ObjectValue value) {
+		ObjectValue[] handles = this.handles;
+		int handle;
+		int freeHandleCount = this.freeHandleCount;
+		if (freeHandleCount != 0) {
+			handle = freeHandles[this.freeHandleCount = freeHandleCount - 1];
+		} else {
+			handle = handleCount++;
+			if (handle == handles.length) {
+				handles = Arrays.copyOf(handles, handle << 1);
+			}
+		}
+		handles[handle] = value;
+		this.handles = handles;
+		liveObjects++;
+		value.getData().writeInt(HANDLE_OFFSET, handle);
+	}
+
 	private MemoryBlock allocateInstanceMemory(InstanceClass javaClass) {
 		long objectSize = objectHeaderSize + javaClass.getOccupiedInstanceSpace();
 		return touch(vm.getMemoryAllocator().allocateHeap(objectSize));
@@ -244,7 +422,12 @@ private MemoryBlock touch(MemoryBlock block) {
 		if (block == null) {
 			return null; // out of memory
 		}
-		block.getData().writeInt(4L, -1);
+		MemoryData data = block.getData();
+		data.writeInt(4L, -1);
+		long collectionThreshold = this.collectionThreshold;
+		if (collectionThreshold != 0L && (allocatedBytes += data.length()) >= collectionThreshold) {
+			collectionRequested = true;
+		}
 		return block;
 	}
 
@@ -252,7 +435,34 @@ private void setClass(MemoryBlock memory, JavaClass jc) {
 		memory.getData().writeInt(0L, jc.getId());
 	}
 
-	private static MemoryAddress tlcAddress(long addr) {
-		return ThreadLocalStorage.get().memoryAddress(addr);
+	private final class HandleIterator implements Iterator<ObjectValue> {
+		private int index;
+
+		HandleIterator() {
+			advance();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return index < handleCount;
+		}
+
+		@Override
+		public ObjectValue next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			ObjectValue value = handles[index++];
+			advance();
+			return value;
+		}
+
+		private void advance() {
+			ObjectValue[] handles = SimpleMemoryManager.this.handles;
+			int handleCount = SimpleMemoryManager.this.handleCount;
+			while (index < handleCount && handles[index] == null) {
+				index++;
+			}
+		}
 	}
 }
@@ -4,11 +4,9 @@
 import dev.xdark.ssvm.operation.VMOperations;
 import dev.xdark.ssvm.value.InstanceValue;
 
-import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
@@ -18,8 +16,7 @@
  */
 public class SimpleStringPool implements StringPool {
 
-	private final Map<String, InstanceValue> pool = new HashMap<>();
-	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<String, InstanceValue> pool = new ConcurrentHashMap<>();
 	private final VirtualMachine vm;
 	private final Function<? super String, ? extends InstanceValue> pooler;
 
@@ -30,13 +27,12 @@ public SimpleStringPool(VirtualMachine vm) {
 
 	@Override
 	public InstanceValue intern(String value) {
-		Lock lock = this.lock.writeLock();
-		lock.lock();
-		try {
-			return pool.computeIfAbsent(value, pooler);
-		} finally {
-			lock.unlock();
+		Map<String, InstanceValue> pool = this.pool;
+		InstanceValue interned = pool.get(value);
+		if (interned == null) {
+			interned = pool.computeIfAbsent(value, pooler);
 		}
+		return interned;
 	}
 
 	@Override
@@ -46,12 +42,11 @@ public InstanceValue intern(InstanceValue value) {
 
 	@Override
 	public InstanceValue getIfPresent(String str) {
-		Lock lock = this.lock.readLock();
-		lock.lock();
-		try {
-			return pool.get(str);
-		} finally {
-			lock.unlock();
-		}
+		return pool.get(str);
+	}
+
+	@Override
+	public void forEach(Consumer<? super InstanceValue> action) {
+		pool.values().forEach(action);
 	}
 }
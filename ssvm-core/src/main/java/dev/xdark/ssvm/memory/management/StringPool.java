@@ -3,6 +3,8 @@
 import dev.xdark.ssvm.value.InstanceValue;
 import dev.xdark.ssvm.value.ObjectValue;
 
+import java.util.function.Consumer;
+
 /**
  * String pool. Only used for {@link String#intern()}.
  *
@@ -34,4 +36,11 @@ public interface StringPool {
 	 * if not found.
 	 */
 	InstanceValue getIfPresent(String str);
+
+	/**
+	 * Reports all interned strings.
+	 *
+	 * @param action Action to perform on each string.
+	 */
+	void forEach(Consumer<? super InstanceValue> action);
 }
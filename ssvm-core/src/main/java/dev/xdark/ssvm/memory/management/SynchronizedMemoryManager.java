@@ -56,6 +56,11 @@ public ObjectValue getReference(long address) {
 		}
 	}
 
+	@Override
+	public long getReferenceValue(ObjectValue value) {
+		return memoryManager.getReferenceValue(value);
+	}
+
 	@Override
 	public InstanceValue newInstance(InstanceClass javaClass) {
 		synchronized (mutex) {
@@ -171,4 +176,30 @@ public Collection<ObjectValue> listObjects() {
 	public void writeDefaults(ObjectValue value) {
 		memoryManager.writeDefaults(value);
 	}
+
+	@Override
+	public void pin(ObjectValue value) {
+		synchronized (mutex) {
+			memoryManager.pin(value);
+		}
+	}
+
+	@Override
+	public void unpin(ObjectValue value) {
+		synchronized (mutex) {
+			memoryManager.unpin(value);
+		}
+	}
+
+	@Override
+	public int collect() {
+		synchronized (mutex) {
+			return memoryManager.collect();
+		}
+	}
+
+	@Override
+	public boolean isCollectionRequested() {
+		return memoryManager.isCollectionRequested();
+	}
 }
@@ -3,6 +3,7 @@
 import dev.xdark.ssvm.util.CloseableLock;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.locks.Lock;
@@ -11,6 +12,7 @@
 
 /**
  * Simple metadata storage.
+ * Lookups do not take a lock.
  *
  * @author xDark
  */
@@ -20,6 +22,7 @@
 	private final List<V> view = Collections.unmodifiableList(values);
 	private final ReadWriteLock lock = new ReentrantReadWriteLock();
 	private final CloseableLock unlocker;
+	private volatile Object[] table = new Object[16];
 
 	public SimpleMetadataStorage() {
 		Lock lock = this.lock.writeLock();
@@ -34,6 +37,13 @@ public int register(V value) {
 			List<V> values = this.values;
 			int id = values.size();
 			values.add(value);
+			Object[] table = this.table;
+			if (id == table.length) {
+				table = Arrays.copyOf(table, id << 1);
+			}
+			table[id] = value;
+			// Publish the value
+			this.table = table;
 			return afterRegistration(value, id);
 		} finally {
 			lock.unlock();
@@ -41,21 +51,13 @@ public int register(V value) {
 	}
 
 	@Override
+	@SuppressWarnings("unchecked")
 	public V lookup(int id) {
-		if (id < 0) {
+		Object[] table = this.table;
+		if (id < 0 || id >= table.length) {
 			return null;
 		}
-		Lock lock = this.lock.readLock();
-		lock.lock();
-		try {
-			List<V> values = this.values;
-			if (id >= values.size()) {
-				return null;
-			}
-			return values.get(id);
-		} finally {
-			lock.unlock();
-		}
+		return (V) table[id];
 	}
 
 	@Override
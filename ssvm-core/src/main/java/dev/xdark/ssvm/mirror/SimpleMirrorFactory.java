@@ -74,6 +74,6 @@ public JavaMethod newMethod(InstanceClass owner, MethodNode node, int slot) {
 
 	@Override
 	public JavaMethod newPolymorphicMethod(JavaMethod method, String desc) {
-		return new SimpleJavaMethod(method.getOwner(), method.getNode(), desc, method.getSlot());
+		return new SimpleJavaMethod(method, desc);
 	}
 }
@@ -1,5 +1,7 @@
 package dev.xdark.ssvm.mirror.member;
 
+import dev.xdark.ssvm.api.MethodInvoker;
+import dev.xdark.ssvm.execution.CompactCode;
 import dev.xdark.ssvm.execution.VMTryCatchBlock;
 import dev.xdark.ssvm.mirror.type.JavaClass;
 import org.objectweb.asm.Type;
@@ -124,4 +126,31 @@ default String getSignature() {
 	 * @return a list of try/catch blocks.
 	 */
 	List<VMTryCatchBlock> getTryCatchBlocks();
+
+	/**
+	 * Returns pre-decoded method instructions.
+	 * Instructions are decoded on first call,
+	 * and re-decoded if the instruction list changes.
+	 *
+	 * @return pre-decoded method instructions.
+	 */
+	CompactCode getCompactCode();
+
+	/**
+	 * Signature polymorphic methods share
+	 * the invoker with the declared method.
+	 *
+	 * @return invoker of the method, or {@code null},
+	 * if there is none.
+	 * @see dev.xdark.ssvm.api.VMInterface#getInvoker(JavaMethod)
+	 */
+	MethodInvoker getInvoker();
+
+	/**
+	 * Sets invoker of the method.
+	 *
+	 * @param invoker Method invoker.
+	 * @see dev.xdark.ssvm.api.VMInterface#setInvoker(JavaMethod, MethodInvoker)
+	 */
+	void setInvoker(MethodInvoker invoker);
 }
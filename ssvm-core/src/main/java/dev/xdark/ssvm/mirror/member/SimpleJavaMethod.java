@@ -2,7 +2,9 @@
 
 import dev.xdark.jlinker.MemberInfo;
 import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.api.MethodInvoker;
 import dev.xdark.ssvm.asm.Modifier;
+import dev.xdark.ssvm.execution.CompactCode;
 import dev.xdark.ssvm.execution.VMTryCatchBlock;
 import dev.xdark.ssvm.mirror.type.InstanceClass;
 import dev.xdark.ssvm.mirror.type.JavaClass;
@@ -45,6 +47,9 @@ public final class SimpleJavaMethod implements JavaMethod {
 	private Boolean hidden;
 	private Boolean isConstructor;
 	private List<VMTryCatchBlock> tryCatchBlocks;
+	private volatile CompactCode compactCode;
+	private final JavaMethod polymorphicBase;
+	private volatile MethodInvoker invoker;
 	private MemberIdentifier identifier;
 	private MemberInfo<JavaMethod> linkerInfo; // Delayed allocation until linker is capable of linking polymorphic methods.
 
@@ -59,6 +64,20 @@ public SimpleJavaMethod(InstanceClass owner, MethodNode node, String desc, int s
 		this.node = node;
 		this.desc = desc;
 		this.slot = slot;
+		polymorphicBase = null;
+	}
+
+	/**
+	 * @param method Polymorphic method.
+	 * @param desc   Descriptor of the call site.
+	 */
+	public SimpleJavaMethod(JavaMethod method, String desc) {
+		owner = method.getOwner();
+		node = method.getNode();
+		this.desc = desc;
+		slot = method.getSlot();
+		// Invoker is shared with the declared method
+		polymorphicBase = method;
 	}
 
 	@Override
@@ -225,6 +244,39 @@ public List<VMTryCatchBlock> getTryCatchBlocks() {
 		return tryCatchBlocks;
 	}
 
+	@Override
+	public CompactCode getCompactCode() {
+		CompactCode compactCode = this.compactCode;
+		if (compactCode == null || !compactCode.isCurrent(node.instructions)) {
+			synchronized (this) {
+				compactCode = this.compactCode;
+				if (compactCode == null || !compactCode.isCurrent(node.instructions)) {
+					// Threads must share the code, rewritten
+					// instructions are published into it
+					compactCode = CompactCode.decode(node);
+					this.compactCode = compactCode;
+				}
+			}
+		}
+		return compactCode;
+	}
+
+	@Override
+	public MethodInvoker getInvoker() {
+		JavaMethod polymorphicBase = this.polymorphicBase;
+		return polymorphicBase == null ? invoker : polymorphicBase.getInvoker();
+	}
+
+	@Override
+	public void setInvoker(MethodInvoker invoker) {
+		JavaMethod polymorphicBase = this.polymorphicBase;
+		if (polymorphicBase == null) {
+			this.invoker = invoker;
+		} else {
+			polymorphicBase.setInvoker(invoker);
+		}
+	}
+
 	@Override
 	public TypeSafeMap getMetadata() {
 		return metadata;
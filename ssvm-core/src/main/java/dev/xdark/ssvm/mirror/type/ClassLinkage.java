@@ -38,6 +38,16 @@ public interface ClassLinkage {
 	 */
 	void setMethodArea(ClassArea<JavaMethod> methodArea);
 
+	/**
+	 * @param virtualTable Virtual method table to set.
+	 */
+	void setVirtualTable(JavaMethod[] virtualTable);
+
+	/**
+	 * @param interfaceTable Interface method table to set.
+	 */
+	void setInterfaceTable(InterfaceTable interfaceTable);
+
 	/**
 	 * @param occupiedInstanceSpace How many bytes each instance of this class occupies.
 	 */
@@ -110,6 +110,22 @@ public interface InstanceClass extends JavaClass {
 	 */
 	ClassArea<JavaField> staticFieldArea();
 
+	/**
+	 * Returns virtual method table.
+	 * Slots of the super class table are preserved,
+	 * overriding methods replace inherited ones.
+	 * For interfaces, this is the list of declared
+	 * interface methods.
+	 *
+	 * @return Virtual method table.
+	 */
+	JavaMethod[] getVirtualTable();
+
+	/**
+	 * @return Interface method table.
+	 */
+	InterfaceTable getInterfaceTable();
+
 	/**
 	 * @return The amount of bytes requires to
 	 * allocate an object of this type.
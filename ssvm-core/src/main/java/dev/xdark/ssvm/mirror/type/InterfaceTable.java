@@ -0,0 +1,53 @@
+package dev.xdark.ssvm.mirror.type;
+
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+
+/**
+ * Interface method table of a class.
+ * <p>
+ * For each interface implemented by the class,
+ * holds implementations of interface methods, laid out
+ * in the order of {@link InstanceClass#getVirtualTable()}
+ * of the interface.
+ *
+ * @author xDark
+ */
+public final class InterfaceTable {
+
+	private static final InterfaceTable EMPTY = new InterfaceTable(new InstanceClass[0], new JavaMethod[0][]);
+	private final InstanceClass[] interfaces;
+	private final JavaMethod[][] methods;
+
+	/**
+	 * @param interfaces Implemented interfaces.
+	 * @param methods    Implementations of interface methods,
+	 *                   {@code null} entries are allowed, if there is
+	 *                   no single implementation.
+	 */
+	public InterfaceTable(InstanceClass[] interfaces, JavaMethod[][] methods) {
+		this.interfaces = interfaces;
+		this.methods = methods;
+	}
+
+	/**
+	 * @param itf Interface to get implementations for.
+	 * @return implementations of interface methods or {@code null},
+	 * if class does not implement the interface.
+	 */
+	public JavaMethod[] get(InstanceClass itf) {
+		InstanceClass[] interfaces = this.interfaces;
+		for (int i = 0; i < interfaces.length; i++) {
+			if (interfaces[i] == itf) {
+				return methods[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return empty interface table.
+	 */
+	public static InterfaceTable empty() {
+		return EMPTY;
+	}
+}
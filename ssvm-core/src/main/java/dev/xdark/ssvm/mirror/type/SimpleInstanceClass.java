@@ -61,6 +61,8 @@ public class SimpleInstanceClass implements InstanceClass {
 	private ClassArea<JavaMethod> methodArea;
 	private ClassArea<JavaField> virtualFieldArea;
 	private ClassArea<JavaField> staticFieldArea;
+	private JavaMethod[] virtualTable;
+	private InterfaceTable interfaceTable;
 	private long occupiedInstanceSpace;
 	private long occupiedStaticSpace;
 
@@ -316,6 +318,16 @@ public ClassArea<JavaField> staticFieldArea() {
 		return staticFieldArea;
 	}
 
+	@Override
+	public JavaMethod[] getVirtualTable() {
+		return virtualTable;
+	}
+
+	@Override
+	public InterfaceTable getInterfaceTable() {
+		return interfaceTable;
+	}
+
 	@Override
 	public long getOccupiedInstanceSpace() {
 		return occupiedInstanceSpace;
@@ -479,6 +491,16 @@ public void setMethodArea(ClassArea<JavaMethod> methodArea) {
 				SimpleInstanceClass.this.methodArea = methodArea;
 			}
 
+			@Override
+			public void setVirtualTable(JavaMethod[] virtualTable) {
+				SimpleInstanceClass.this.virtualTable = virtualTable;
+			}
+
+			@Override
+			public void setInterfaceTable(InterfaceTable interfaceTable) {
+				SimpleInstanceClass.this.interfaceTable = interfaceTable;
+			}
+
 			@Override
 			public void setOccupiedInstanceSpace(long occupiedInstanceSpace) {
 				SimpleInstanceClass.this.occupiedInstanceSpace = occupiedInstanceSpace;
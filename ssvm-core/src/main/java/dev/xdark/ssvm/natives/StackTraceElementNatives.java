@@ -2,10 +2,14 @@
 
 import dev.xdark.ssvm.VirtualMachine;
 import dev.xdark.ssvm.api.VMInterface;
+import dev.xdark.ssvm.classloading.ClassStorage;
 import dev.xdark.ssvm.execution.Locals;
 import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.memory.management.MemoryManager;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
 import dev.xdark.ssvm.mirror.type.InstanceClass;
 import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.thread.backtrace.CompactBacktrace;
 import dev.xdark.ssvm.value.ArrayValue;
 import dev.xdark.ssvm.value.InstanceValue;
 import lombok.experimental.UtilityClass;
@@ -29,11 +33,12 @@ public void init(VirtualMachine vm) {
 			Locals locals = ctx.getLocals();
 			ArrayValue arr = ops.checkNotNull(locals.loadReference(0));
 			InstanceValue ex = ops.checkNotNull(locals.loadReference(1));
-			ArrayValue initialized = ops.checkNotNull(ops.getReference(ex, "backtrace", "Ljava/lang/Object;"));
-
-			int x = 0;
-			for (int i = initialized.getLength(); i != 0; ) {
-				arr.setReference(x++, initialized.getReference(--i));
+			ArrayValue backtrace = ops.checkNotNull(ops.getReference(ex, "backtrace", "Ljava/lang/Object;"));
+			ClassStorage classStorage = vm.getClassStorage();
+			MemoryManager memoryManager = vm.getMemoryManager();
+			for (int i = 0, j = Math.min(memoryManager.readArrayLength(arr), CompactBacktrace.depth(memoryManager, backtrace)); i < j; i++) {
+				JavaMethod method = CompactBacktrace.method(memoryManager, classStorage, backtrace, i);
+				ops.arrayStoreReference(arr, i, ops.newStackTraceElement(method, CompactBacktrace.lineNumber(memoryManager, backtrace, i)));
 			}
 			return Result.ABORT;
 		});
@@ -39,6 +39,7 @@ public void init(VirtualMachine vm) {
 			vm.getThreadManager().interrupt(ctx.getLocals().loadReference(0));
 			return Result.ABORT;
 		});
+		vmi.setInvoker(thread, "clearInterruptEvent", "()V", MethodInvoker.noop());
 		vmi.setInvoker(thread, "setPriority0", "(I)V", ctx -> {
 			Locals locals = ctx.getLocals();
 			vm.getThreadManager().setPriority(locals.loadReference(0), locals.loadInt(1));
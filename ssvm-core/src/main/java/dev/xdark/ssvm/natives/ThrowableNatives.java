@@ -2,23 +2,21 @@
 
 import dev.xdark.ssvm.VirtualMachine;
 import dev.xdark.ssvm.api.VMInterface;
-import dev.xdark.ssvm.asm.Modifier;
-import dev.xdark.ssvm.execution.ExecutionContext;
 import dev.xdark.ssvm.execution.Locals;
 import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.memory.management.MemoryManager;
 import dev.xdark.ssvm.mirror.member.JavaField;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
 import dev.xdark.ssvm.mirror.type.InstanceClass;
 import dev.xdark.ssvm.operation.VMOperations;
 import dev.xdark.ssvm.symbol.Symbols;
 import dev.xdark.ssvm.thread.backtrace.Backtrace;
+import dev.xdark.ssvm.thread.backtrace.CompactBacktrace;
 import dev.xdark.ssvm.value.ArrayValue;
 import dev.xdark.ssvm.value.InstanceValue;
 import dev.xdark.ssvm.value.ObjectValue;
 import lombok.experimental.UtilityClass;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Initializes java/lang/Throwable.
  *
@@ -39,20 +37,13 @@ public void init(VirtualMachine vm) {
 			VMOperations ops = vm.getOperations();
 			Backtrace vmBacktrace = vm.currentOSThread().getBacktrace();
 			// HotSpot allocates internal oop containing all the data,
-			// see BacktraceBuilder. We don't need that, allocate StackTraceElement[]
-			// immediately.
-			List<InstanceValue> bt = new ArrayList<>(vmBacktrace.depth());
-			for (ExecutionContext<?> frame : vmBacktrace) {
-				if (Modifier.isHiddenFrame(frame.getMethod().getModifiers())) {
-					continue;
-				}
-				bt.add(ops.newStackTraceElement(frame));
-			}
-			ArrayValue stacktrace = ops.toVMReferences(bt.toArray(new ObjectValue[0]));
-			vm.getOperations().putReference(exception, "backtrace", "Ljava/lang/Object;", stacktrace);
+			// see BacktraceBuilder. Do the same, StackTraceElement's
+			// are only created when requested.
+			int[] frames = CompactBacktrace.capture(vmBacktrace);
+			ops.putReference(exception, "backtrace", "Ljava/lang/Object;", ops.toVMInts(frames));
 			JavaField depth = symbols.java_lang_Throwable().getField("depth", "I");
 			if (depth != null) {
-				exception.getData().writeInt(depth.getOffset(), bt.size());
+				exception.getData().writeInt(depth.getOffset(), CompactBacktrace.depth(frames));
 			}
 			ctx.setResult(exception);
 			return Result.ABORT;
@@ -60,7 +51,7 @@ public void init(VirtualMachine vm) {
 		vmi.setInvoker(throwable, "getStackTraceDepth", "()I", ctx -> {
 			VMOperations ops = vm.getOperations();
 			ArrayValue bt = ops.checkNotNull(ops.getReference((ObjectValue) ctx.getLocals().loadReference(0), "backtrace", "Ljava/lang/Object;"));
-			ctx.setResult(bt.getLength());
+			ctx.setResult(CompactBacktrace.depth(vm.getMemoryManager(), bt));
 			return Result.ABORT;
 		});
 		vmi.setInvoker(throwable, "getStackTraceElement", "(I)Ljava/lang/StackTraceElement;", ctx -> {
@@ -69,10 +60,10 @@ public void init(VirtualMachine vm) {
 			VMOperations ops = vm.getOperations();
 			ArrayValue bt = ops.checkNotNull(ops.getReference(_this, "backtrace", "Ljava/lang/Object;"));
 			int idx = locals.loadInt(1);
-			int len = bt.getLength();
-			ops.arrayRangeCheck(idx, len);
-			ObjectValue element = bt.getReference(len - idx - 1);
-			ctx.setResult(element);
+			MemoryManager memoryManager = vm.getMemoryManager();
+			ops.arrayRangeCheck(idx, CompactBacktrace.depth(memoryManager, bt));
+			JavaMethod method = CompactBacktrace.method(memoryManager, vm.getClassStorage(), bt, idx);
+			ctx.setResult(ops.newStackTraceElement(method, CompactBacktrace.lineNumber(memoryManager, bt, idx)));
 			return Result.ABORT;
 		});
 	}
@@ -174,12 +174,7 @@ private static void init(VirtualMachine vm, InstanceClass unsafe, UnsafeHelper u
 			long offset = locals.loadLong(2);
 			int expected = locals.loadInt(4);
 			int x = locals.loadInt(5);
-			MemoryData data = obj.getData();
-			boolean result = data.readInt(offset) == expected;
-			if (result) {
-				data.writeInt(offset, x);
-			}
-			ctx.setResult(result ? 1 : 0);
+			ctx.setResult(obj.getData().compareAndSwapInt(offset, expected, x) ? 1 : 0);
 			return Result.ABORT;
 		});
 		MethodInvoker getObjectVolatile = ctx -> {
@@ -205,11 +200,8 @@ private static void init(VirtualMachine vm, InstanceClass unsafe, UnsafeHelper u
 			ObjectValue expected = locals.loadReference(4);
 			ObjectValue x = locals.loadReference(5);
 			MemoryManager memoryManager = vm.getMemoryManager();
-			ObjectValue oldValue = memoryManager.readReference(obj, offset);
-			boolean result = oldValue == expected;
-			if (result) {
-				memoryManager.writeValue(obj, offset, x);
-			}
+			// References are stored as their handles
+			boolean result = obj.getData().compareAndSwapLong(offset, memoryManager.getReferenceValue(expected), memoryManager.getReferenceValue(x));
 			ctx.setResult(result ? 1 : 0);
 			return Result.ABORT;
 		};
@@ -227,19 +219,14 @@ private static void init(VirtualMachine vm, InstanceClass unsafe, UnsafeHelper u
 			long offset = locals.loadLong(2);
 			long expected = locals.loadLong(4);
 			long x = locals.loadLong(6);
-			MemoryData data = value.getData();
-			boolean result = data.readLong(offset) == expected;
-			if (result) {
-				data.writeLong(offset, x);
-			}
-			ctx.setResult(result ? 1 : 0);
+			ctx.setResult(value.getData().compareAndSwapLong(offset, expected, x) ? 1 : 0);
 			return Result.ABORT;
 		});
 		MethodInvoker putObjectVolatile = ctx -> {
 			Locals locals = ctx.getLocals();
 			long offset = locals.loadLong(2);
 			MemoryData buffer = getDataNonNull(locals.loadReference(1), offset);
-			buffer.writeLongVolatile(0L, locals.loadReference(4).getMemory().getAddress());
+			buffer.writeLongVolatile(0L, vm.getMemoryManager().getReferenceValue(locals.loadReference(4)));
 			return Result.ABORT;
 		};
 		for (String str : new String[]{"putReferenceVolatile", "putObjectVolatile"}) {
@@ -378,6 +365,7 @@ private static void init(VirtualMachine vm, InstanceClass unsafe, UnsafeHelper u
 						String utf = ((CpString) cp.get(tmp.get(i).getIndex())).getString().getText();
 						List<LdcInsnNode> ldcs = strings.get(utf);
 						if (ldcs != null) {
+							vm.getMemoryManager().pin(v);
 							for (LdcInsnNode ldc : ldcs) {
 								ldc.cst = v;
 							}
@@ -400,7 +388,7 @@ private static void init(VirtualMachine vm, InstanceClass unsafe, UnsafeHelper u
 			Locals locals = ctx.getLocals();
 			long offset = locals.loadLong(2);
 			MemoryData data = getDataNonNull(locals.loadReference(1), offset);
-			data.writeLong(0L, locals.loadReference(4).getMemory().getAddress());
+			data.writeLong(0L, vm.getMemoryManager().getReferenceValue(locals.loadReference(4)));
 			return Result.ABORT;
 		};
 		for (String str : new String[]{"putReference", "putObject"}) {
@@ -408,6 +396,18 @@ private static void init(VirtualMachine vm, InstanceClass unsafe, UnsafeHelper u
 				break;
 			}
 		}
+		vmi.setInvoker(unsafe, "park", "(ZJ)V", ctx -> {
+			Locals locals = ctx.getLocals();
+			vm.getThreadManager().park(locals.loadInt(1) != 0, locals.loadLong(2));
+			return Result.ABORT;
+		});
+		vmi.setInvoker(unsafe, "unpark", "(Ljava/lang/Object;)V", ctx -> {
+			ObjectValue thread = ctx.getLocals().loadReference(1);
+			if (!thread.isNull()) {
+				vm.getThreadManager().unpark((InstanceValue) thread);
+			}
+			return Result.ABORT;
+		});
 		vmi.setInvoker(unsafe, "allocateInstance", "(Ljava/lang/Class;)Ljava/lang/Object;", ctx -> {
 			Locals locals = ctx.getLocals();
 			VMOperations ops = vm.getOperations();
@@ -549,6 +549,13 @@ private static void init(VirtualMachine vm, InstanceClass unsafe, UnsafeHelper u
 			buffer.writeInt(0L, locals.loadInt(4));
 			return Result.ABORT;
 		});
+		vmi.setInvoker(unsafe, "putIntVolatile", "(Ljava/lang/Object;JI)V", ctx -> {
+			Locals locals = ctx.getLocals();
+			long offset = locals.loadLong(2);
+			MemoryData buffer = getData(vm.getMemoryAllocator(), locals.loadReference(1), offset);
+			buffer.writeIntVolatile(0L, locals.loadInt(4));
+			return Result.ABORT;
+		});
 		vmi.setInvoker(unsafe, "getFloat", "(J)F", ctx -> {
 			Locals locals = ctx.getLocals();
 			long address = locals.loadLong(1);
@@ -27,6 +27,7 @@
 import dev.xdark.ssvm.mirror.type.ClassLinkage;
 import dev.xdark.ssvm.mirror.type.InitializationState;
 import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.mirror.type.InterfaceTable;
 import dev.xdark.ssvm.mirror.type.JavaClass;
 import dev.xdark.ssvm.symbol.Primitives;
 import dev.xdark.ssvm.symbol.Symbols;
@@ -50,7 +51,9 @@
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Default implementation.
@@ -181,6 +184,8 @@ public void link(@NotNull InstanceClass instanceClass) {
 			} else {
 				linkage.setInterfaces(Collections.emptyList());
 			}
+			linkage.setVirtualTable(makeVirtualTable(instanceClass));
+			linkage.setInterfaceTable(makeInterfaceTable(instanceClass));
 			if (jlc.getOop() != null) {
 				// VM might be still starting up
 				// All classes without mirrors will be fixed later
@@ -444,6 +449,139 @@ private long safeSizeOf(String desc) {
 		return memoryManager.objectSize();
 	}
 
+	private static JavaMethod[] makeVirtualTable(InstanceClass instanceClass) {
+		List<JavaMethod> methods = instanceClass.methodArea().list();
+		if (instanceClass.isInterface()) {
+			return methods.stream().filter(DefaultClassOperations::isVirtual).toArray(JavaMethod[]::new);
+		}
+		InstanceClass superClass = instanceClass.getSuperClass();
+		JavaMethod[] inherited = superClass == null ? new JavaMethod[0] : superClass.getVirtualTable();
+		List<JavaMethod> table = new ArrayList<>(Arrays.asList(inherited));
+		for (JavaMethod method : methods) {
+			if (!isVirtual(method)) {
+				continue;
+			}
+			boolean overrides = false;
+			for (int i = 0; i < inherited.length; i++) {
+				JavaMethod candidate = inherited[i];
+				if (method.getName().equals(candidate.getName()) && method.getDesc().equals(candidate.getDesc()) && canOverride(candidate, instanceClass)) {
+					table.set(i, method);
+					overrides = true;
+				}
+			}
+			if (!overrides) {
+				table.add(method);
+			}
+		}
+		return table.toArray(new JavaMethod[0]);
+	}
+
+	private static InterfaceTable makeInterfaceTable(InstanceClass instanceClass) {
+		if (instanceClass.isInterface()) {
+			return InterfaceTable.empty();
+		}
+		Set<InstanceClass> interfaces = new LinkedHashSet<>();
+		for (InstanceClass jc = instanceClass; jc != null; jc = jc.getSuperClass()) {
+			collectInterfaces(jc, interfaces);
+		}
+		if (interfaces.isEmpty()) {
+			return InterfaceTable.empty();
+		}
+		InstanceClass[] classes = interfaces.toArray(new InstanceClass[0]);
+		JavaMethod[][] tables = new JavaMethod[classes.length][];
+		for (int i = 0; i < classes.length; i++) {
+			JavaMethod[] layout = classes[i].getVirtualTable();
+			JavaMethod[] table = new JavaMethod[layout.length];
+			for (int j = 0; j < layout.length; j++) {
+				table[j] = selectInterfaceMethod(instanceClass, layout[j], classes);
+			}
+			tables[i] = table;
+		}
+		return new InterfaceTable(classes, tables);
+	}
+
+	private static void collectInterfaces(InstanceClass jc, Set<InstanceClass> interfaces) {
+		for (InstanceClass itf : jc.getInterfaces()) {
+			if (interfaces.add(itf)) {
+				collectInterfaces(itf, interfaces);
+			}
+		}
+	}
+
+	// Selects interface method implementation as per JVMS 5.4.6,
+	// returns null if there is no single non-abstract candidate,
+	// in which case runtime resolver reports the error.
+	private static JavaMethod selectInterfaceMethod(InstanceClass instanceClass, JavaMethod method, InstanceClass[] interfaces) {
+		MemberIdentifier identifier = MemberIdentifier.of(method.getName(), method.getDesc());
+		for (InstanceClass jc = instanceClass; jc != null; jc = jc.getSuperClass()) {
+			JavaMethod candidate = jc.methodArea().get(identifier);
+			if (candidate == null) {
+				continue;
+			}
+			int access = candidate.getModifiers();
+			if ((access & Opcodes.ACC_PRIVATE) != 0) {
+				continue;
+			}
+			if ((access & (Opcodes.ACC_STATIC | Opcodes.ACC_ABSTRACT)) != 0 || (access & Opcodes.ACC_PUBLIC) == 0) {
+				return null;
+			}
+			return candidate;
+		}
+		JavaMethod selected = null;
+		search:
+		for (InstanceClass itf : interfaces) {
+			JavaMethod candidate = itf.methodArea().get(identifier);
+			if (candidate == null || !isVirtual(candidate)) {
+				continue;
+			}
+			for (InstanceClass other : interfaces) {
+				if (other != itf && isSubInterface(other, itf)) {
+					JavaMethod more = other.methodArea().get(identifier);
+					if (more != null && isVirtual(more)) {
+						// Not maximally-specific
+						continue search;
+					}
+				}
+			}
+			if ((candidate.getModifiers() & Opcodes.ACC_ABSTRACT) == 0) {
+				if (selected != null) {
+					return null;
+				}
+				selected = candidate;
+			}
+		}
+		return selected;
+	}
+
+	private static boolean isSubInterface(InstanceClass itf, InstanceClass parent) {
+		for (InstanceClass jc : itf.getInterfaces()) {
+			if (jc == parent || isSubInterface(jc, parent)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isVirtual(JavaMethod method) {
+		return (method.getModifiers() & (Opcodes.ACC_STATIC | Opcodes.ACC_PRIVATE)) == 0 && method.getName().charAt(0) != '<';
+	}
+
+	private static boolean canOverride(JavaMethod method, InstanceClass instanceClass) {
+		int access = method.getModifiers();
+		if ((access & (Opcodes.ACC_PUBLIC | Opcodes.ACC_PROTECTED)) != 0) {
+			return true;
+		}
+		// Package-private methods are only overridden within the same runtime package
+		InstanceClass owner = method.getOwner();
+		return owner.getClassLoader() == instanceClass.getClassLoader() && packageName(owner).equals(packageName(instanceClass));
+	}
+
+	private static String packageName(InstanceClass instanceClass) {
+		String name = instanceClass.getInternalName();
+		int idx = name.lastIndexOf('/');
+		return idx == -1 ? "" : name.substring(0, idx);
+	}
+
 	private void throwClassException(VMException ex) {
 		InstanceValue oop = ex.getOop();
 		Symbols symbols = this.symbols;
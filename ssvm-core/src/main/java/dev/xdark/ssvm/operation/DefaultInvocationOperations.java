@@ -12,22 +12,32 @@
 import dev.xdark.ssvm.value.sink.ValueSink;
 import lombok.RequiredArgsConstructor;
 
+import java.util.Arrays;
+
 /**
  * Default implementation.
+ * Execution requests and result sinks
+ * are pooled per thread and nesting level,
+ * so that invocations do not allocate.
  *
  * @author xDark
  */
 @RequiredArgsConstructor
 public final class DefaultInvocationOperations implements InvocationOperations {
 
+	private final ThreadLocal<InvocationPool> pool = ThreadLocal.withInitial(InvocationPool::new);
 	private final ExecutionEngine executionEngine;
 	private final ThreadManager threadManager;
 
 	@Override
 	public <R extends ValueSink> R invoke(JavaMethod method, Locals locals, R sink) {
-		SimpleExecutionRequest<R> request = new SimpleExecutionRequest<>();
-		request.init(method, threadManager.currentThreadStorage().newStack(method), locals, sink);
-		executionEngine.execute(request);
+		InvocationPool pool = this.pool.get();
+		Invocation invocation = pool.enter();
+		try {
+			execute(invocation, method, locals, sink);
+		} finally {
+			pool.exit();
+		}
 		return sink;
 	}
 
@@ -38,12 +48,27 @@ public void invokeVoid(JavaMethod method, Locals locals) {
 
 	@Override
 	public ObjectValue invokeReference(JavaMethod method, Locals locals) {
-		return invoke(method, locals, new ReflectionSink()).referenceValue;
+		InvocationPool pool = this.pool.get();
+		Invocation invocation = pool.enter();
+		try {
+			ReflectionSink sink = execute(invocation, method, locals, invocation.resetSink());
+			ObjectValue value = sink.referenceValue;
+			sink.referenceValue = null;
+			return value;
+		} finally {
+			pool.exit();
+		}
 	}
 
 	@Override
 	public long invokeLong(JavaMethod method, Locals locals) {
-		return invoke(method, locals, new ReflectionSink()).longValue;
+		InvocationPool pool = this.pool.get();
+		Invocation invocation = pool.enter();
+		try {
+			return execute(invocation, method, locals, invocation.resetSink()).longValue;
+		} finally {
+			pool.exit();
+		}
 	}
 
 	@Override
@@ -53,7 +78,13 @@ public double invokeDouble(JavaMethod method, Locals locals) {
 
 	@Override
 	public int invokeInt(JavaMethod method, Locals locals) {
-		return invoke(method, locals, new ReflectionSink()).intValue;
+		InvocationPool pool = this.pool.get();
+		Invocation invocation = pool.enter();
+		try {
+			return execute(invocation, method, locals, invocation.resetSink()).intValue;
+		} finally {
+			pool.exit();
+		}
 	}
 
 	@Override
@@ -81,6 +112,58 @@ public boolean invokeBoolean(JavaMethod method, Locals locals) {
 		return invokeInt(method, locals) != 0;
 	}
 
+	private <R extends ValueSink> R execute(Invocation invocation, JavaMethod method, Locals locals, R sink) {
+		SimpleExecutionRequest<R> request = invocation.request(method, threadManager.currentThreadStorage().newStack(method), locals, sink);
+		try {
+			executionEngine.execute(request);
+		} finally {
+			request.init(null, null, null, null);
+		}
+		return sink;
+	}
+
+	private static final class InvocationPool {
+		private Invocation[] invocations = new Invocation[8];
+		private int depth;
+
+		Invocation enter() {
+			Invocation[] invocations = this.invocations;
+			int depth = this.depth;
+			if (depth == invocations.length) {
+				this.invocations = invocations = Arrays.copyOf(invocations, depth << 1);
+			}
+			Invocation invocation = invocations[depth];
+			if (invocation == null) {
+				invocation = new Invocation();
+				invocations[depth] = invocation;
+			}
+			this.depth = depth + 1;
+			return invocation;
+		}
+
+		void exit() {
+			depth--;
+		}
+	}
+
+	private static final class Invocation {
+		private final SimpleExecutionRequest<ValueSink> request = new SimpleExecutionRequest<>();
+		private final ReflectionSink sink = new ReflectionSink();
+
+		ReflectionSink resetSink() {
+			ReflectionSink sink = this.sink;
+			sink.reset();
+			return sink;
+		}
+
+		@SuppressWarnings("unchecked")
+		<R extends ValueSink> SimpleExecutionRequest<R> request(JavaMethod method, Stack stack, Locals locals, R sink) {
+			SimpleExecutionRequest<R> request = (SimpleExecutionRequest<R>) (SimpleExecutionRequest<?>) this.request;
+			request.init(method, stack, locals, sink);
+			return request;
+		}
+	}
+
 	private static final class SimpleExecutionRequest<R extends ValueSink> implements ExecutionRequest<R> {
 		private JavaMethod method;
 		private Stack stack;
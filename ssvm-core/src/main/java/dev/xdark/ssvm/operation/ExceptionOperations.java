@@ -2,6 +2,7 @@
 
 import dev.xdark.ssvm.execution.ExecutionContext;
 import dev.xdark.ssvm.execution.WrappedVMException;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
 import dev.xdark.ssvm.mirror.type.InstanceClass;
 import dev.xdark.ssvm.value.InstanceValue;
 import dev.xdark.ssvm.value.ObjectValue;
@@ -13,11 +14,20 @@
  */
 public interface ExceptionOperations {
 
+	/**
+	 * @param method     Method of the frame.
+	 * @param lineNumber Line number of the frame.
+	 * @return VM oop of {@link StackTraceElement}.
+	 */
+	InstanceValue newStackTraceElement(JavaMethod method, int lineNumber);
+
 	/**
 	 * @param frame Stack frame.
 	 * @return VM oop of {@link StackTraceElement}.
 	 */
-	InstanceValue newStackTraceElement(ExecutionContext<?> frame);
+	default InstanceValue newStackTraceElement(ExecutionContext<?> frame) {
+		return newStackTraceElement(frame.getMethod(), frame.getLineNumber());
+	}
 
 	/**
 	 * Throws exception.
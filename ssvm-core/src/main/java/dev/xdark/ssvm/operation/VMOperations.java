@@ -74,7 +74,7 @@ public VMOperations(VirtualMachine vm) {
 		allocationOperations = new DefaultAllocationOperations(memoryManager, symbols, vm.getPrimitives(), this);
 		conversionOperations = new DefaultConversionOperations(symbols, memoryManager, this);
 		arrayOperations = new DefaultArrayOperations(symbols, this);
-		exceptionOperations = new DefaultExceptionOperations(memoryManager, threadManager, symbols, this);
+		exceptionOperations = new DefaultExceptionOperations(memoryManager, threadManager, symbols, vm.getClassStorage(), this);
 		fieldOperations = new DefaultFieldOperations(memoryManager, linkResolver, this);
 		invocationOperations = new DefaultInvocationOperations(vm.getExecutionEngine(), threadManager);
 		primitiveOperations = new DefaultPrimitiveOperations(symbols, threadManager, linkResolver, runtimeResolver, this);
@@ -59,6 +59,8 @@ public interface Symbols {
 
 	InstanceClass java_lang_OutOfMemoryError();
 
+	InstanceClass java_lang_StackOverflowError();
+
 	InstanceClass java_lang_NegativeArraySizeException();
 
 	InstanceClass java_lang_IllegalArgumentException();
@@ -0,0 +1,97 @@
+package dev.xdark.ssvm.thread;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.VMException;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.value.InstanceValue;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Routines shared by {@link ThreadManager} implementations.
+ *
+ * @author xDark
+ */
+@UtilityClass
+public class JavaThreads {
+
+	/**
+	 * Default thread stack size, in bytes.
+	 */
+	public final long DEFAULT_STACK_SIZE = 1024L * 1024L;
+
+	/**
+	 * Max amount of frames for the stack of the given size.
+	 *
+	 * @param stackSize Stack size, in bytes.
+	 * @return max amount of frames.
+	 */
+	public int maxFrames(long stackSize) {
+		// 1024 frames for the default stack size
+		return (int) Math.min(stackSize / 1024L, Integer.MAX_VALUE - 64);
+	}
+
+	/**
+	 * Throws {@link StackOverflowError} in the VM.
+	 *
+	 * @param vm VM instance.
+	 */
+	public void stackOverflow(VirtualMachine vm) {
+		vm.getOperations().throwException(vm.getSymbols().java_lang_StackOverflowError());
+	}
+
+	/**
+	 * Runs body of the started thread.
+	 * Uncaught exception is passed to the
+	 * uncaught exception handler of the thread.
+	 * Must be called on the thread itself.
+	 *
+	 * @param vm     VM instance.
+	 * @param thread Thread to run.
+	 */
+	public void run(VirtualMachine vm, JavaThread thread) {
+		VMOperations ops = vm.getOperations();
+		InstanceValue oop = thread.getOop();
+		ThreadStorage storage = thread.getOsThread().getStorage();
+		try {
+			JavaMethod run = vm.getLinkResolver().resolveVirtualMethod(vm.getMemoryManager().readClass(oop), "run", "()V");
+			Locals locals = storage.newLocals(run);
+			locals.setReference(0, oop);
+			ops.invokeVoid(run, locals);
+		} catch (VMException ex) {
+			JavaMethod dispatch = vm.getSymbols().java_lang_Thread().getMethod("dispatchUncaughtException", "(Ljava/lang/Throwable;)V");
+			if (dispatch != null) {
+				Locals locals = storage.newLocals(dispatch);
+				locals.setReference(0, oop);
+				locals.setReference(1, ex.getOop());
+				try {
+					ops.invokeVoid(dispatch, locals);
+				} catch (VMException ignored) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Calls {@code Thread#exit} of the thread
+	 * that is about to terminate.
+	 * Must be called on the thread itself.
+	 *
+	 * @param vm     VM instance.
+	 * @param thread Thread to exit.
+	 */
+	public void exit(VirtualMachine vm, JavaThread thread) {
+		InstanceClass jc = vm.getSymbols().java_lang_Thread();
+		JavaMethod exit = jc.getMethod("exit", "()V");
+		if (exit != null) {
+			Locals locals = thread.getOsThread().getStorage().newLocals(exit);
+			locals.setReference(0, thread.getOop());
+			try {
+				vm.getOperations().invokeVoid(exit, locals);
+			} catch (VMException ignored) {
+			}
+		}
+	}
+}
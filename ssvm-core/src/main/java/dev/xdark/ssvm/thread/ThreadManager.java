@@ -13,6 +13,14 @@
  */
 public interface ThreadManager {
 
+	/**
+	 * @return {@code true} if started threads
+	 * run in parallel on host threads.
+	 */
+	default boolean isParallel() {
+		return false;
+	}
+
 	/**
 	 * Starts the thread, assigns new OS thread to
 	 * the {@code oop} instance.
@@ -134,6 +142,25 @@ default Backtrace currentBacktrace() {
 	 */
 	void yield();
 
+	/**
+	 * Parks current thread, unless the permit is available.
+	 *
+	 * @param absolute Whether the time is an absolute deadline.
+	 * @param time     Deadline in milliseconds since the epoch, if {@code absolute}
+	 *                 is {@code true}. Otherwise, relative time in nanoseconds,
+	 *                 or {@literal 0} to park indefinitely.
+	 * @see java.util.concurrent.locks.LockSupport
+	 */
+	void park(boolean absolute, long time);
+
+	/**
+	 * Makes the permit available for the thread.
+	 *
+	 * @param oop Thread to unpark.
+	 * @see java.util.concurrent.locks.LockSupport
+	 */
+	void unpark(InstanceValue oop);
+
 	/**
 	 * Creates main thread.
 	 * After that call control will be passed into the VM and thread will be
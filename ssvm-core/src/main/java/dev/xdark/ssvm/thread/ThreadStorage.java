@@ -4,6 +4,8 @@
 import dev.xdark.ssvm.execution.Stack;
 import dev.xdark.ssvm.mirror.member.JavaMethod;
 
+import java.util.function.LongConsumer;
+
 /**
  * Thread storage.
  *
@@ -11,6 +13,22 @@
  */
 public interface ThreadStorage {
 
+	/**
+	 * Number of value slots kept in reserve past the stack limit.
+	 * <p>
+	 * Overflow handlers report stack overflow by creating
+	 * and throwing {@link StackOverflowError}, which runs VM code itself.
+	 * Thread storages and backtraces therefore keep a reserve
+	 * that only the handler may use. Once the reserve
+	 * is exhausted too, the VM panics.
+	 */
+	int RESERVED_SLOTS = 8 * 1024;
+	/**
+	 * Number of frames kept in reserve past the frame limit,
+	 * see {@link #RESERVED_SLOTS}.
+	 */
+	int RESERVED_FRAMES = 32;
+
 	/**
 	 * Creates new stack.
 	 *
@@ -47,6 +65,34 @@ default Locals newLocals(JavaMethod method) {
 		return newLocals(method.getMaxLocals());
 	}
 
+	/**
+	 * Creates new locals, and moves method
+	 * arguments from the top of the stack into them.
+	 * Implementations may map the locals directly onto
+	 * the stack slots occupied by arguments, in which case
+	 * the locals may be overwritten by the result of the method
+	 * once it is pushed back onto the stack.
+	 *
+	 * @param method Method to create locals for.
+	 * @param stack  Caller stack.
+	 * @return new locals.
+	 */
+	default Locals newLocals(JavaMethod method, Stack stack) {
+		Locals locals = newLocals(method);
+		stack.sinkInto(locals, method.getMaxArgs());
+		return locals;
+	}
+
+	/**
+	 * Reports all values that are currently
+	 * stored in the stacks and locals of the thread.
+	 * Values are not typed, the caller must check whether
+	 * the value is a reference on its own.
+	 *
+	 * @param consumer Value consumer.
+	 */
+	void scanValues(LongConsumer consumer);
+
 	/**
 	 * Deallocates thread memory.
 	 */
@@ -0,0 +1,19 @@
+package dev.xdark.ssvm.thread;
+
+import dev.xdark.ssvm.VirtualMachine;
+
+/**
+ * Creates storage for new threads.
+ *
+ * @author xDark
+ */
+@FunctionalInterface
+public interface ThreadStorageFactory {
+
+	/**
+	 * @param vm        VM instance.
+	 * @param stackSize Thread stack size, in bytes.
+	 * @return new thread storage.
+	 */
+	ThreadStorage create(VirtualMachine vm, long stackSize);
+}
@@ -0,0 +1,138 @@
+package dev.xdark.ssvm.thread.array;
+
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.util.SafeCloseable;
+import dev.xdark.ssvm.value.ObjectValue;
+
+import java.util.Arrays;
+
+/**
+ * Locals implementation that uses Java arrays.
+ *
+ * @author xDark
+ */
+final class ArrayLocals implements Locals, SafeCloseable {
+	private final ArrayThreadStorage storage;
+	private final long[] values;
+	private final ObjectValue[] references;
+	private int offset;
+	private int size;
+	int previous;
+	// Caller stack that arguments are shared with
+	ArrayStack caller;
+
+	/**
+	 * @param storage Thread storage.
+	 */
+	ArrayLocals(ArrayThreadStorage storage) {
+		this.storage = storage;
+		values = storage.values;
+		references = storage.references;
+	}
+
+	@Override
+	public void setReference(int index, ObjectValue value) {
+		references[offset + index] = value;
+	}
+
+	@Override
+	public void setLong(int index, long value) {
+		index += offset;
+		values[index] = value;
+		references[index] = null;
+	}
+
+	@Override
+	public void setDouble(int index, double value) {
+		setLong(index, Double.doubleToRawLongBits(value));
+	}
+
+	@Override
+	public void setInt(int index, int value) {
+		setLong(index, value);
+	}
+
+	@Override
+	public void setFloat(int index, float value) {
+		setLong(index, Float.floatToRawIntBits(value));
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <V extends ObjectValue> V loadReference(int index) {
+		ObjectValue value = references[offset + index];
+		if (value == null) {
+			// Slot was never written as a reference
+			return (V) storage.nullValue();
+		}
+		return (V) value;
+	}
+
+	@Override
+	public long loadLong(int index) {
+		return values[offset + index];
+	}
+
+	@Override
+	public double loadDouble(int index) {
+		return Double.longBitsToDouble(loadLong(index));
+	}
+
+	@Override
+	public int loadInt(int index) {
+		return (int) values[offset + index];
+	}
+
+	@Override
+	public float loadFloat(int index) {
+		return Float.intBitsToFloat(loadInt(index));
+	}
+
+	@Override
+	public void copyFrom(Locals locals, int srcOffset, int destOffset, int length) {
+		ArrayLocals from = (ArrayLocals) locals;
+		srcOffset += from.offset;
+		destOffset += offset;
+		System.arraycopy(from.values, srcOffset, values, destOffset, length);
+		System.arraycopy(from.references, srcOffset, references, destOffset, length);
+	}
+
+	@Override
+	public int maxSlots() {
+		return size;
+	}
+
+	@Override
+	public void close() {
+		int from = offset;
+		ArrayStack caller = this.caller;
+		if (caller != null) {
+			// Result of the call may already be
+			// on the caller stack, keep it
+			from = Math.max(from, caller.top());
+			this.caller = null;
+		}
+		// Do not leave stale references for the next frame
+		Arrays.fill(references, from, offset + size, null);
+		storage.reclaim(this);
+	}
+
+	int offset() {
+		return offset;
+	}
+
+	long[] values() {
+		return values;
+	}
+
+	ObjectValue[] references() {
+		return references;
+	}
+
+	void reset(int offset, int size, int previous) {
+		this.offset = offset;
+		this.size = size;
+		this.previous = previous;
+		caller = null;
+	}
+}
@@ -0,0 +1,419 @@
+package dev.xdark.ssvm.thread.array;
+
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.Stack;
+import dev.xdark.ssvm.util.SafeCloseable;
+import dev.xdark.ssvm.value.ObjectValue;
+import dev.xdark.ssvm.value.Value;
+
+import java.util.Arrays;
+
+/**
+ * Stack implementation that uses Java arrays.
+ *
+ * @author xDark
+ */
+final class ArrayStack implements Stack, SafeCloseable {
+	private final ArrayThreadStorage storage;
+	private final long[] values;
+	private final ObjectValue[] references;
+	private int offset;
+	private int size;
+	private int top;
+	int previous;
+
+	/**
+	 * @param storage Thread storage.
+	 */
+	ArrayStack(ArrayThreadStorage storage) {
+		this.storage = storage;
+		values = storage.values;
+		references = storage.references;
+	}
+
+	@Override
+	public void pushLong(long value) {
+		pushWide(value);
+	}
+
+	@Override
+	public void pushDouble(double value) {
+		pushWide(Double.doubleToRawLongBits(value));
+	}
+
+	@Override
+	public void pushInt(int value) {
+		pushNormal(value);
+	}
+
+	@Override
+	public void pushFloat(float value) {
+		pushNormal(Float.floatToRawIntBits(value));
+	}
+
+	@Override
+	public void pushReference(ObjectValue value) {
+		references[top++] = value;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <V extends ObjectValue> V popReference() {
+		int top = --this.top;
+		ObjectValue value = reference(top);
+		// Popped references must not stay reachable
+		references[top] = null;
+		return (V) value;
+	}
+
+	@Override
+	public long popLong() {
+		return values[top -= 2];
+	}
+
+	@Override
+	public double popDouble() {
+		return Double.longBitsToDouble(popLong());
+	}
+
+	@Override
+	public int popInt() {
+		return (int) values[--top];
+	}
+
+	@Override
+	public float popFloat() {
+		return Float.intBitsToFloat(popInt());
+	}
+
+	@Override
+	public char popChar() {
+		return (char) popInt();
+	}
+
+	@Override
+	public short popShort() {
+		return (short) popInt();
+	}
+
+	@Override
+	public byte popByte() {
+		return (byte) popInt();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <V extends ObjectValue> V peekReference() {
+		return (V) reference(top - 1);
+	}
+
+	@Override
+	public long peekLong() {
+		return values[top - 2];
+	}
+
+	@Override
+	public long peekLong(int topOffset) {
+		return values[top - 2 - topOffset];
+	}
+
+	@Override
+	public double peekDouble() {
+		return Double.longBitsToDouble(peekLong());
+	}
+
+	@Override
+	public double peekDouble(int topOffset) {
+		return Double.longBitsToDouble(peekLong(topOffset));
+	}
+
+	@Override
+	public int peekInt() {
+		return (int) values[top - 1];
+	}
+
+	@Override
+	public int peekInt(int topOffset) {
+		return (int) values[top - 1 - topOffset];
+	}
+
+	@Override
+	public float peekFloat() {
+		return Float.intBitsToFloat(peekInt());
+	}
+
+	@Override
+	public float peekFloat(int topOffset) {
+		return Float.intBitsToFloat(peekInt(topOffset));
+	}
+
+	@Override
+	public char peekChar() {
+		return (char) peekInt();
+	}
+
+	@Override
+	public char peekChar(int topOffset) {
+		return (char) peekInt(topOffset);
+	}
+
+	@Override
+	public short peekShort() {
+		return (short) peekInt();
+	}
+
+	@Override
+	public short peekShort(int topOffset) {
+		return (short) peekInt(topOffset);
+	}
+
+	@Override
+	public byte peekByte() {
+		return (byte) peekInt();
+	}
+
+	@Override
+	public byte peekByte(int topOffset) {
+		return (byte) peekInt(topOffset);
+	}
+
+	@Override
+	public void swap() {
+		int top = this.top;
+		long[] values = this.values;
+		ObjectValue[] references = this.references;
+		long value = values[top - 1];
+		ObjectValue reference = references[top - 1];
+		values[top - 1] = values[top - 2];
+		references[top - 1] = references[top - 2];
+		values[top - 2] = value;
+		references[top - 2] = reference;
+	}
+
+	@Override
+	public void dup() {
+		move(-1, 0);
+		top++;
+	}
+
+	@Override
+	public void dupx1() {
+		move(-1, 0);
+		move(-2, -1);
+		move(0, -2);
+		top++;
+	}
+
+	@Override
+	public void dupx2() {
+		move(-1, 0);
+		move(-2, -1);
+		move(-3, -2);
+		move(0, -3);
+		top++;
+	}
+
+	@Override
+	public void dup2() {
+		move(-2, 0);
+		move(-1, 1);
+		top += 2;
+	}
+
+	@Override
+	public void dup2x1() {
+		move(-1, 1);
+		move(-2, 0);
+		move(-3, -1);
+		move(1, -2);
+		move(0, -3);
+		top += 2;
+	}
+
+	@Override
+	public void dup2x2() {
+		move(-1, 1);
+		move(-2, 0);
+		move(-3, -1);
+		move(-4, -2);
+		move(1, -3);
+		move(0, -4);
+		top += 2;
+	}
+
+	@Override
+	public void pushGeneric(Value value) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void pop() {
+		references[--top] = null;
+	}
+
+	@Override
+	public void clear() {
+		int offset = this.offset;
+		Arrays.fill(references, offset, top, null);
+		top = offset;
+	}
+
+	@Override
+	public int position() {
+		return top - offset;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return top == offset;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <V extends ObjectValue> V getReferenceAt(int index) {
+		return (V) reference(offset + index);
+	}
+
+	@Override
+	public long getLongAt(int index) {
+		return values[offset + index];
+	}
+
+	@Override
+	public double getDoubleAt(int index) {
+		return Double.longBitsToDouble(getLongAt(index));
+	}
+
+	@Override
+	public int getIntAt(int index) {
+		return (int) values[offset + index];
+	}
+
+	@Override
+	public float getFloatAt(int index) {
+		return Float.intBitsToFloat(getIntAt(index));
+	}
+
+	@Override
+	public char getCharAt(int index) {
+		return (char) getIntAt(index);
+	}
+
+	@Override
+	public short getShortAt(int index) {
+		return (short) getIntAt(index);
+	}
+
+	@Override
+	public byte getByteAt(int index) {
+		return (byte) getIntAt(index);
+	}
+
+	@Override
+	public void sinkInto(Locals locals, int count) {
+		sinkInto(locals, 0, count);
+	}
+
+	@Override
+	public void sinkInto(Locals locals, int dst, int count) {
+		if (count == 0) {
+			return;
+		}
+		ArrayLocals arrayLocals = (ArrayLocals) locals;
+		int top = this.top - count;
+		int to = arrayLocals.offset() + dst;
+		System.arraycopy(values, top, arrayLocals.values(), to, count);
+		ObjectValue[] references = this.references;
+		System.arraycopy(references, top, arrayLocals.references(), to, count);
+		Arrays.fill(references, top, top + count, null);
+		this.top = top;
+	}
+
+	@Override
+	public void acceptReference(ObjectValue value) {
+		pushReference(value);
+	}
+
+	@Override
+	public void acceptLong(long value) {
+		pushLong(value);
+	}
+
+	@Override
+	public void acceptDouble(double value) {
+		pushDouble(value);
+	}
+
+	@Override
+	public void acceptInt(int value) {
+		pushInt(value);
+	}
+
+	@Override
+	public void acceptFloat(float value) {
+		pushFloat(value);
+	}
+
+	@Override
+	public void close() {
+		// Slots above the top are already cleared
+		Arrays.fill(references, offset, top, null);
+		storage.reclaim(this);
+	}
+
+	private ObjectValue reference(int index) {
+		ObjectValue value = references[index];
+		if (value == null) {
+			// Slot was never written as a reference
+			return storage.nullValue();
+		}
+		return value;
+	}
+
+	private void pushNormal(long value) {
+		int top = this.top;
+		values[top] = value;
+		references[top] = null;
+		this.top = top + 1;
+	}
+
+	private void pushWide(long value) {
+		int top = this.top;
+		values[top] = value;
+		ObjectValue[] references = this.references;
+		references[top] = null;
+		references[top + 1] = null;
+		this.top = top + 2;
+	}
+
+	private void move(int from, int to) {
+		int top = this.top;
+		values[top + to] = values[top + from];
+		references[top + to] = references[top + from];
+	}
+
+	/**
+	 * Pops values without reading them.
+	 *
+	 * @param count Amount of slots to pop.
+	 * @return index of the first popped slot.
+	 */
+	int drop(int count) {
+		return top -= count;
+	}
+
+	int top() {
+		return top;
+	}
+
+	boolean isTopOf(ArrayThreadStorage ts) {
+		return storage == ts && offset + size == ts.pointer;
+	}
+
+	void reset(int offset, int size, int previous) {
+		this.offset = offset;
+		this.size = size;
+		this.previous = previous;
+		top = offset;
+	}
+}
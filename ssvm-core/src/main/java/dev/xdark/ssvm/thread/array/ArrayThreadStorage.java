@@ -0,0 +1,195 @@
+package dev.xdark.ssvm.thread.array;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.execution.EmptyLocals;
+import dev.xdark.ssvm.execution.EmptyStack;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.PanicException;
+import dev.xdark.ssvm.execution.Stack;
+import dev.xdark.ssvm.memory.management.MemoryManager;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.thread.JavaThreads;
+import dev.xdark.ssvm.thread.ThreadStorage;
+import dev.xdark.ssvm.util.BoundedQueue;
+import dev.xdark.ssvm.value.ObjectValue;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.function.LongConsumer;
+
+/**
+ * Thread storage that keeps values in Java arrays
+ * instead of the VM heap.
+ * <p>
+ * Every slot is backed by an element of a {@code long[]}
+ * for primitives and an element of a parallel {@code ObjectValue[]}
+ * for references, so references are stored as is, without
+ * going through the reference map.
+ * Values must be read with the same type they were written with.
+ * Reference slots are cleared when they are popped or released,
+ * so that {@link #scanValues(LongConsumer)} only reports live references.
+ *
+ * @author xDark
+ */
+public final class ArrayThreadStorage implements ThreadStorage {
+	private static final int VALUE_SCALE = 8;
+	private final Queue<ArrayStack> stacks = new BoundedQueue<>(new ArrayDeque<>(), 128);
+	private final Queue<ArrayLocals> locals = new BoundedQueue<>(new ArrayDeque<>(), 128);
+	private final MemoryManager manager;
+	private final Runnable overflowHandler;
+	private final int limit;
+	final long[] values;
+	final ObjectValue[] references;
+	int pointer;
+	private boolean overflowing;
+
+	/**
+	 * @param manager         Memory manager.
+	 * @param capacity        Max amount of slots.
+	 * @param overflowHandler Called when the storage runs out of slots,
+	 *                        expected to throw an exception. If {@code null},
+	 *                        the VM panics instead.
+	 */
+	public ArrayThreadStorage(MemoryManager manager, int capacity, Runnable overflowHandler) {
+		this.manager = manager;
+		this.overflowHandler = overflowHandler;
+		values = new long[capacity];
+		references = new ObjectValue[capacity];
+		limit = overflowHandler == null ? capacity : Math.max(capacity - RESERVED_SLOTS, 0);
+	}
+
+	/**
+	 * @param manager  Memory manager.
+	 * @param capacity Max amount of slots.
+	 */
+	public ArrayThreadStorage(MemoryManager manager, int capacity) {
+		this(manager, capacity, null);
+	}
+
+	/**
+	 * Reports overflow with {@link StackOverflowError}.
+	 *
+	 * @param vm        VM instance.
+	 * @param stackSize Stack size, in bytes.
+	 * @return new thread storage.
+	 */
+	public static ArrayThreadStorage create(VirtualMachine vm, long stackSize) {
+		int capacity = (int) Math.min(stackSize / VALUE_SCALE + RESERVED_SLOTS, Integer.MAX_VALUE - 8);
+		return new ArrayThreadStorage(vm.getMemoryManager(), capacity, () -> JavaThreads.stackOverflow(vm));
+	}
+
+	@Override
+	public Stack newStack(int size) {
+		if (size == 0) {
+			return EmptyStack.INSTANCE;
+		}
+		ArrayStack stack = stacks.poll();
+		if (stack == null) {
+			stack = new ArrayStack(this);
+		}
+		int offset = pointer;
+		stack.reset(offset, size, allocate(offset, size));
+		return stack;
+	}
+
+	@Override
+	public Locals newLocals(int size) {
+		if (size == 0) {
+			return EmptyLocals.INSTANCE;
+		}
+		return makeLocals(pointer, size);
+	}
+
+	@Override
+	public Locals newLocals(JavaMethod method, Stack stack) {
+		if (stack instanceof ArrayStack) {
+			ArrayStack arrayStack = (ArrayStack) stack;
+			// Overlap with the caller stack, if nothing
+			// was allocated after it
+			if (arrayStack.isTopOf(this)) {
+				int maxArgs = method.getMaxArgs();
+				int size = Math.max(method.getMaxLocals(), maxArgs);
+				if (size != 0) {
+					ArrayLocals locals = makeLocals(arrayStack.drop(maxArgs), size);
+					locals.caller = arrayStack;
+					return locals;
+				}
+			}
+		}
+		return ThreadStorage.super.newLocals(method, stack);
+	}
+
+	@Override
+	public void scanValues(LongConsumer consumer) {
+		MemoryManager manager = this.manager;
+		ObjectValue[] references = this.references;
+		for (int i = 0, j = pointer; i < j; i++) {
+			ObjectValue value = references[i];
+			if (value != null && !value.isNull()) {
+				consumer.accept(manager.getReferenceValue(value));
+			}
+		}
+	}
+
+	@Override
+	public void free() {
+		Arrays.fill(references, null);
+		pointer = 0;
+	}
+
+	ObjectValue nullValue() {
+		return manager.nullValue();
+	}
+
+	void reclaim(ArrayStack stack) {
+		pointer = stack.previous;
+		stacks.offer(stack);
+	}
+
+	void reclaim(ArrayLocals locals) {
+		pointer = locals.previous;
+		this.locals.offer(locals);
+	}
+
+	private ArrayLocals makeLocals(int offset, int size) {
+		ArrayLocals locals = this.locals.poll();
+		if (locals == null) {
+			locals = new ArrayLocals(this);
+		}
+		locals.reset(offset, size, allocate(offset, size));
+		return locals;
+	}
+
+	/**
+	 * @param offset Offset of the first slot.
+	 * @param size   Amount of slots.
+	 * @return storage pointer before the allocation.
+	 */
+	private int allocate(int offset, int size) {
+		int pointer = this.pointer;
+		int end = offset + size;
+		if (end > limit || end < 0) {
+			stackOverflow(end);
+		}
+		this.pointer = Math.max(pointer, end);
+		return pointer;
+	}
+
+	private void stackOverflow(int end) {
+		Runnable overflowHandler = this.overflowHandler;
+		if (overflowHandler == null || end > values.length || end < 0) {
+			throw new PanicException("Thread storage overflow");
+		}
+		if (!overflowing) {
+			// Let the handler use reserved slots
+			overflowing = true;
+			try {
+				overflowHandler.run();
+			} finally {
+				overflowing = false;
+			}
+			throw new PanicException("Stack overflow was not reported");
+		}
+	}
+}
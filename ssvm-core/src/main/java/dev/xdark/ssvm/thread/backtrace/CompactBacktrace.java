@@ -0,0 +1,96 @@
+package dev.xdark.ssvm.thread.backtrace;
+
+import dev.xdark.ssvm.LanguageSpecification;
+import dev.xdark.ssvm.asm.Modifier;
+import dev.xdark.ssvm.classloading.ClassStorage;
+import dev.xdark.ssvm.execution.ExecutionContext;
+import dev.xdark.ssvm.memory.management.MemoryManager;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.value.ArrayValue;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Compact form of the throwable backtrace,
+ * stored in {@code Throwable.backtrace}.
+ * <p>
+ * Each frame is stored as three ints: id of the method owner,
+ * slot of the method and the line number.
+ * Frames are ordered from the top of the stack.
+ * {@link StackTraceElement}'s are only created when requested.
+ *
+ * @author xDark
+ */
+@UtilityClass
+public class CompactBacktrace {
+
+	private static final int FRAME_SIZE = 3;
+
+	/**
+	 * @param backtrace Thread backtrace.
+	 * @return compact backtrace, without hidden frames.
+	 */
+	public int[] capture(Backtrace backtrace) {
+		int[] frames = new int[backtrace.depth() * FRAME_SIZE];
+		int offset = frames.length;
+		for (ExecutionContext<?> frame : backtrace) {
+			JavaMethod method = frame.getMethod();
+			if (Modifier.isHiddenFrame(method.getModifiers())) {
+				continue;
+			}
+			frames[--offset] = frame.getLineNumber();
+			frames[--offset] = method.getSlot();
+			frames[--offset] = method.getOwner().getId();
+		}
+		if (offset != 0) {
+			int[] copy = new int[frames.length - offset];
+			System.arraycopy(frames, offset, copy, 0, copy.length);
+			frames = copy;
+		}
+		return frames;
+	}
+
+	/**
+	 * @param backtrace Compact backtrace.
+	 * @return amount of frames.
+	 */
+	public int depth(int[] backtrace) {
+		return backtrace.length / FRAME_SIZE;
+	}
+
+	/**
+	 * @param memoryManager Memory manager.
+	 * @param backtrace     Compact backtrace.
+	 * @return amount of frames.
+	 */
+	public int depth(MemoryManager memoryManager, ArrayValue backtrace) {
+		return memoryManager.readArrayLength(backtrace) / FRAME_SIZE;
+	}
+
+	/**
+	 * @param memoryManager Memory manager.
+	 * @param classStorage  Class storage to look owners up in.
+	 * @param backtrace     Compact backtrace.
+	 * @param index         Frame index.
+	 * @return method of the frame.
+	 */
+	public JavaMethod method(MemoryManager memoryManager, ClassStorage classStorage, ArrayValue backtrace, int index) {
+		int offset = index * FRAME_SIZE;
+		InstanceClass owner = (InstanceClass) classStorage.lookup(read(memoryManager, backtrace, offset));
+		return owner.getMethodBySlot(read(memoryManager, backtrace, offset + 1));
+	}
+
+	/**
+	 * @param memoryManager Memory manager.
+	 * @param backtrace     Compact backtrace.
+	 * @param index         Frame index.
+	 * @return line number of the frame.
+	 */
+	public int lineNumber(MemoryManager memoryManager, ArrayValue backtrace, int index) {
+		return read(memoryManager, backtrace, index * FRAME_SIZE + 2);
+	}
+
+	private int read(MemoryManager memoryManager, ArrayValue backtrace, int index) {
+		return backtrace.getData().readInt(memoryManager.arrayBaseOffset(backtrace) + index * LanguageSpecification.INT_SIZE);
+	}
+}
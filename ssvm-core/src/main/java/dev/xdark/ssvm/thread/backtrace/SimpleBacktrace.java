@@ -2,12 +2,13 @@
 
 import dev.xdark.ssvm.execution.ExecutionContext;
 import dev.xdark.ssvm.execution.ExecutionRequest;
+import dev.xdark.ssvm.execution.PanicException;
+import dev.xdark.ssvm.thread.ThreadStorage;
 import dev.xdark.ssvm.util.CloseableUtil;
 import dev.xdark.ssvm.value.sink.ValueSink;
 
 import java.util.Arrays;
 import java.util.Iterator;
-import java.util.List;
 
 /**
  * Simple backtrace.
@@ -16,25 +17,44 @@
  */
 public final class SimpleBacktrace implements Backtrace {
 
-	private static final int RESERVED_FRAMES = 12;
-	private final List<ExecutionContext<?>> frames;
+	private final int maxFrames;
+	private final Runnable overflowHandler;
+	private ExecutionContext<?>[] frames;
+	private boolean overflowing;
 	private int frame;
 
-	public SimpleBacktrace(int frameCount) {
-		frames = Arrays.asList(new ExecutionContext[Math.max(frameCount, RESERVED_FRAMES + 4)]);
+	/**
+	 * @param maxFrames       Max amount of frames.
+	 * @param overflowHandler Called when a frame is pushed past the limit,
+	 *                        expected to throw an exception. If {@code null},
+	 *                        the VM panics instead.
+	 */
+	public SimpleBacktrace(int maxFrames, Runnable overflowHandler) {
+		this.maxFrames = maxFrames = Math.max(maxFrames, 4);
+		this.overflowHandler = overflowHandler;
+		frames = new ExecutionContext[Math.min(maxFrames, 16)];
+	}
+
+	public SimpleBacktrace(int maxFrames) {
+		this(maxFrames, null);
 	}
 
 	@Override
 	public <R extends ValueSink> ExecutionContext<R> push(ExecutionRequest<R> request) {
 		int frameIndex = this.frame;
-		List<ExecutionContext<?>> frames = this.frames;
-		if (frameIndex == frames.size() - RESERVED_FRAMES) {
-			// TODO stack overflow
+		if (frameIndex >= maxFrames) {
+			stackOverflow(frameIndex);
 		}
-		SimpleExecutionContext<R> ctx = (SimpleExecutionContext<R>) frames.get(frameIndex);
+		ExecutionContext<?>[] frames = this.frames;
+		if (frameIndex == frames.length) {
+			// Frames are allocated on demand, so that
+			// threads with shallow stacks stay cheap
+			this.frames = frames = Arrays.copyOf(frames, Math.min(frameIndex << 1, maxFrames + ThreadStorage.RESERVED_FRAMES));
+		}
+		SimpleExecutionContext<R> ctx = (SimpleExecutionContext<R>) frames[frameIndex];
 		if (ctx == null) {
 			ctx = new SimpleExecutionContext<>();
-			frames.set(frameIndex, ctx);
+			frames[frameIndex] = ctx;
 		}
 		ctx.init(request.getMethod(), request.getStack(), request.getLocals(), request.getResultSink());
 		this.frame = frameIndex + 1;
@@ -44,7 +64,7 @@ public <R extends ValueSink> ExecutionContext<R> push(ExecutionRequest<R> reques
 	@Override
 	public ExecutionContext<?> peek() {
 		int frame = this.frame;
-		return frame == 0 ? null : frames.get(frame - 1);
+		return frame == 0 ? null : frames[frame - 1];
 	}
 
 	@Override
@@ -53,12 +73,12 @@ public ExecutionContext<?> at(int index) {
 			throw new IllegalArgumentException("Out of bounds");
 		}
 		index = frame - index;
-		return index < 0 ? null : frames.get(index);
+		return index < 0 ? null : frames[index];
 	}
 
 	@Override
 	public void pop() {
-		CloseableUtil.close(frames.get(--frame));
+		CloseableUtil.close(frames[--frame]);
 	}
 
 	@Override
@@ -68,6 +88,23 @@ public int depth() {
 
 	@Override
 	public Iterator<ExecutionContext<?>> iterator() {
-		return frames.subList(0, frame).iterator();
+		return Arrays.asList(frames).subList(0, frame).iterator();
+	}
+
+	private void stackOverflow(int frameIndex) {
+		Runnable overflowHandler = this.overflowHandler;
+		if (overflowHandler == null || frameIndex >= maxFrames + ThreadStorage.RESERVED_FRAMES) {
+			throw new PanicException("Backtrace overflow");
+		}
+		if (!overflowing) {
+			// Let the handler use reserved frames
+			overflowing = true;
+			try {
+				overflowHandler.run();
+			} finally {
+				overflowing = false;
+			}
+			throw new PanicException("Stack overflow was not reported");
+		}
 	}
 }
@@ -27,7 +27,7 @@ final class HeapLocals implements Locals, SafeCloseable {
 
 	@Override
 	public void setReference(int index, ObjectValue value) {
-		region().writeLong(index * 8L, value.getMemory().getAddress());
+		region().writeLong(index * 8L, referenceMap.getReferenceValue(value));
 	}
 
 	@Override
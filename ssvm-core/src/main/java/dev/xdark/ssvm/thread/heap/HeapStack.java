@@ -52,7 +52,7 @@ public void pushFloat(float value) {
 
 	@Override
 	public void pushReference(ObjectValue value) {
-		pushNormal(value.getMemory().getAddress());
+		pushNormal(referenceMap.getReferenceValue(value));
 	}
 
 	@Override
@@ -396,6 +396,22 @@ private MemoryData region() {
 		return threadMemoryData.data();
 	}
 
+	/**
+	 * Pops values without reading them.
+	 *
+	 * @param count Amount of slots to pop.
+	 * @return offset of the first popped slot.
+	 */
+	long drop(int count) {
+		long pointer = this.pointer - count * 8L;
+		this.pointer = pointer;
+		return pointer;
+	}
+
+	ThreadMemoryData threadMemoryData() {
+		return threadMemoryData;
+	}
+
 	void reset(ThreadMemoryData data) {
 		threadMemoryData = data;
 		pointer = 0L;
@@ -1,5 +1,6 @@
 package dev.xdark.ssvm.thread.heap;
 
+import dev.xdark.ssvm.VirtualMachine;
 import dev.xdark.ssvm.execution.EmptyLocals;
 import dev.xdark.ssvm.execution.EmptyStack;
 import dev.xdark.ssvm.execution.Locals;
@@ -10,27 +11,87 @@
 import dev.xdark.ssvm.memory.allocation.MemoryData;
 import dev.xdark.ssvm.memory.allocation.SliceMemoryData;
 import dev.xdark.ssvm.memory.management.MemoryManager;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.thread.JavaThreads;
 import dev.xdark.ssvm.thread.ThreadMemoryData;
 import dev.xdark.ssvm.thread.ThreadStorage;
 import dev.xdark.ssvm.util.BoundedQueue;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
+import java.util.function.LongConsumer;
 
+/**
+ * Thread storage that uses VM heap memory.
+ * <p>
+ * Memory is allocated in segments, the first one is allocated
+ * upfront and the next ones on demand, until the stack size is reached.
+ * Segments are kept until the thread storage is freed.
+ *
+ * @author xDark
+ */
 public final class HeapThreadStorage implements ThreadStorage {
 	private static final int VALUE_SCALE = 8;
+	private static final long DEFAULT_SEGMENT_SIZE = 16L * 1024L;
+	private static final long RESERVED_SIZE = (long) RESERVED_SLOTS * VALUE_SCALE;
 	private final Queue<HeapComponent> queue = new BoundedQueue<>(new ArrayDeque<>(), 128);
+	private final List<Segment> segments = new ArrayList<>();
 	private final MemoryManager manager;
 	private final MemoryAllocator allocator;
-	private final MemoryBlock block;
-	private final MemoryData memory;
+	private final long segmentSize;
+	private final long maxSize;
+	private final Runnable overflowHandler;
+	private Segment segment;
+	private int index;
 	private long pointer;
+	private long allocated;
+	private boolean overflowing;
 
+	/**
+	 * @param manager         Memory manager.
+	 * @param allocator       Memory allocator.
+	 * @param segmentSize     Min size of a segment, in bytes.
+	 * @param maxSize         Max size of all segments, in bytes.
+	 * @param overflowHandler Called when the storage runs out of memory,
+	 *                        expected to throw an exception. If {@code null},
+	 *                        the VM panics instead.
+	 */
+	public HeapThreadStorage(MemoryManager manager, MemoryAllocator allocator, long segmentSize, long maxSize, Runnable overflowHandler) {
+		this.manager = manager;
+		this.allocator = allocator;
+		this.segmentSize = segmentSize = Math.min(segmentSize, maxSize);
+		this.maxSize = maxSize;
+		this.overflowHandler = overflowHandler;
+		addSegment(allocator.allocateHeap(segmentSize));
+	}
+
+	/**
+	 * Creates thread storage that never grows.
+	 *
+	 * @param manager   Memory manager.
+	 * @param allocator Memory allocator.
+	 * @param block     Memory block to use.
+	 */
 	public HeapThreadStorage(MemoryManager manager, MemoryAllocator allocator, MemoryBlock block) {
 		this.manager = manager;
 		this.allocator = allocator;
-		this.block = block;
-		memory = block.getData();
+		segmentSize = maxSize = block.getData().length();
+		overflowHandler = null;
+		addSegment(block);
+	}
+
+	/**
+	 * Allocates thread storage in the VM heap.
+	 * Reports overflow with {@link StackOverflowError}.
+	 *
+	 * @param vm        VM instance.
+	 * @param stackSize Stack size, in bytes.
+	 * @return new thread storage.
+	 */
+	public static HeapThreadStorage create(VirtualMachine vm, long stackSize) {
+		return new HeapThreadStorage(vm.getMemoryManager(), vm.getMemoryAllocator(), DEFAULT_SEGMENT_SIZE, stackSize, () -> JavaThreads.stackOverflow(vm));
 	}
 
 	@Override
@@ -53,22 +114,133 @@ public Locals newLocals(int size) {
 		return hc.makeLocals(size);
 	}
 
+	@Override
+	public Locals newLocals(JavaMethod method, Stack stack) {
+		if (stack instanceof HeapStack) {
+			HeapStack heapStack = (HeapStack) stack;
+			ThreadMemoryData data = heapStack.threadMemoryData();
+			// Overlap with the caller stack, if nothing
+			// was allocated after it
+			if (data instanceof ThreadMemoryDataImpl && ((ThreadMemoryDataImpl) data).isTopOf(this)) {
+				int maxArgs = method.getMaxArgs();
+				long size = Math.max(method.getMaxLocals(), maxArgs) * (long) VALUE_SCALE;
+				long offset = ((ThreadMemoryDataImpl) data).offset + (heapStack.position() - maxArgs) * (long) VALUE_SCALE;
+				if (size != 0L && offset + size <= segment.size) {
+					heapStack.drop(maxArgs);
+					HeapComponent hc = pollComponent();
+					doAllocate(hc, offset, size);
+					return hc.makeLocals(size);
+				}
+			}
+		}
+		return ThreadStorage.super.newLocals(method, stack);
+	}
+
+	@Override
+	public void scanValues(LongConsumer consumer) {
+		List<Segment> segments = this.segments;
+		for (int i = 0, j = index; i <= j; i++) {
+			Segment segment = segments.get(i);
+			MemoryData memory = segment.data;
+			for (long offset = 0L, pointer = i == j ? this.pointer : segment.used; offset < pointer; offset += VALUE_SCALE) {
+				consumer.accept(memory.readLong(offset));
+			}
+		}
+	}
+
 	@Override
 	public void free() {
-		if (!allocator.freeHeap(block.getAddress())) {
-			throw new PanicException("Failed to free thread block");
+		for (Segment segment : segments) {
+			freeSegment(segment);
 		}
+		segments.clear();
 	}
 
 	private void doAllocate(HeapComponent component, long size) {
+		int index = this.index;
 		long pointer = this.pointer;
-		this.pointer = pointer + size;
+		if (pointer + size > segment.size) {
+			nextSegment(size);
+		}
+		doAllocate(component, this.pointer, size);
+		component.previousIndex = index;
+		component.previous = pointer;
+	}
+
+	private void doAllocate(HeapComponent component, long offset, long size) {
+		long pointer = this.pointer;
+		int index = this.index;
+		component.index = index;
+		component.previousIndex = index;
+		component.previous = pointer;
+		component.offset = offset;
+		this.pointer = Math.max(pointer, offset + size);
 		SliceMemoryData slice = component.slice;
 		if (slice == null) {
 			slice = new SliceMemoryData();
 			component.slice = slice;
 		}
-		slice.init(memory, pointer, size);
+		slice.init(segment.data, offset, size);
+	}
+
+	private void nextSegment(long size) {
+		List<Segment> segments = this.segments;
+		int next = index + 1;
+		Segment segment = next < segments.size() ? segments.get(next) : null;
+		if (segment == null || segment.size < size) {
+			long segmentSize = Math.max(this.segmentSize, size);
+			long allocated = this.allocated + segmentSize;
+			if (segment != null) {
+				allocated -= segment.size;
+			}
+			if (allocated > maxSize) {
+				stackOverflow(allocated);
+			}
+			Segment replacement = new Segment(allocator.allocateHeap(segmentSize));
+			if (segment == null) {
+				segments.add(replacement);
+			} else {
+				// Too small for the allocation
+				freeSegment(segment);
+				segments.set(next, replacement);
+			}
+			this.allocated = allocated;
+			segment = replacement;
+		}
+		this.segment.used = pointer;
+		this.segment = segment;
+		index = next;
+		pointer = 0L;
+	}
+
+	private void addSegment(MemoryBlock block) {
+		Segment segment = new Segment(block);
+		segments.add(segment);
+		allocated = segment.size;
+		this.segment = segment;
+	}
+
+	private void freeSegment(Segment segment) {
+		if (!allocator.freeHeap(segment.block.getAddress())) {
+			throw new PanicException("Failed to free thread block");
+		}
+	}
+
+	private void stackOverflow(long allocated) {
+		Runnable overflowHandler = this.overflowHandler;
+		if (overflowHandler == null || allocated > maxSize + RESERVED_SIZE) {
+			throw new PanicException("Thread storage overflow");
+		}
+		if (!overflowing) {
+			// Let the handler use reserved memory
+			overflowing = true;
+			try {
+				overflowHandler.run();
+			} finally {
+				overflowing = false;
+			}
+			throw new PanicException("Stack overflow was not reported");
+		}
 	}
 
 	private HeapComponent pollComponent() {
@@ -81,6 +253,10 @@ private HeapComponent pollComponent() {
 
 	private final class HeapComponent {
 		SliceMemoryData slice;
+		int index;
+		long offset;
+		int previousIndex;
+		long previous;
 		HeapStack stack;
 		HeapLocals locals;
 		ThreadMemoryDataImpl threadData;
@@ -116,7 +292,11 @@ ThreadMemoryData makeThreadData(long size) {
 				this.threadData = threadData;
 			}
 			threadData.data = slice;
+			threadData.index = index;
+			threadData.offset = offset;
 			threadData.size = size;
+			threadData.previousIndex = previousIndex;
+			threadData.previous = previous;
 			return threadData;
 		}
 	}
@@ -124,7 +304,13 @@ ThreadMemoryData makeThreadData(long size) {
 	private final class ThreadMemoryDataImpl implements ThreadMemoryData {
 		final HeapComponent attachment;
 		MemoryData data;
+		// Segment of the allocation
+		int index;
+		long offset;
 		long size;
+		// Storage position before the allocation
+		int previousIndex;
+		long previous;
 
 		ThreadMemoryDataImpl(HeapComponent attachment) {
 			this.attachment = attachment;
@@ -138,8 +324,31 @@ public MemoryData data() {
 		@Override
 		public void reclaim() {
 			HeapThreadStorage ts = HeapThreadStorage.this;
-			ts.pointer = ts.pointer - size;
+			int previousIndex = this.previousIndex;
+			if (ts.index != previousIndex) {
+				ts.segment = ts.segments.get(previousIndex);
+				ts.index = previousIndex;
+			}
+			ts.pointer = previous;
 			ts.queue.offer(attachment);
 		}
+
+		boolean isTopOf(HeapThreadStorage ts) {
+			return HeapThreadStorage.this == ts && index == ts.index && offset + size == ts.pointer;
+		}
+	}
+
+	private static final class Segment {
+		final MemoryBlock block;
+		final MemoryData data;
+		final long size;
+		// Used memory, if the segment is not the last one in use
+		long used;
+
+		Segment(MemoryBlock block) {
+			this.block = block;
+			data = block.getData();
+			size = data.length();
+		}
 	}
 }
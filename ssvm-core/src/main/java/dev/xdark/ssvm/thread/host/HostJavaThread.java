@@ -0,0 +1,32 @@
+package dev.xdark.ssvm.thread.host;
+
+import dev.xdark.ssvm.thread.JavaThread;
+import dev.xdark.ssvm.thread.OSThread;
+import dev.xdark.ssvm.value.InstanceValue;
+
+/**
+ * Java thread backed by a host thread.
+ *
+ * @author xDark
+ */
+final class HostJavaThread implements JavaThread {
+	private final InstanceValue oop;
+	final HostOSThread osThread;
+	volatile Thread host;
+	volatile boolean interrupted;
+
+	HostJavaThread(InstanceValue oop, HostOSThread osThread) {
+		this.oop = oop;
+		this.osThread = osThread;
+	}
+
+	@Override
+	public InstanceValue getOop() {
+		return oop;
+	}
+
+	@Override
+	public OSThread getOsThread() {
+		return osThread;
+	}
+}
@@ -0,0 +1,432 @@
+package dev.xdark.ssvm.thread.host;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.io.Handle;
+import dev.xdark.ssvm.jvmti.ThreadState;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.thread.JavaThread;
+import dev.xdark.ssvm.thread.JavaThreads;
+import dev.xdark.ssvm.thread.OSThread;
+import dev.xdark.ssvm.thread.ThreadManager;
+import dev.xdark.ssvm.thread.ThreadStorage;
+import dev.xdark.ssvm.thread.ThreadStorageFactory;
+import dev.xdark.ssvm.thread.backtrace.Backtrace;
+import dev.xdark.ssvm.thread.backtrace.SimpleBacktrace;
+import dev.xdark.ssvm.thread.heap.HeapThreadStorage;
+import dev.xdark.ssvm.util.Assertions;
+import dev.xdark.ssvm.value.InstanceValue;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Thread manager that runs every started thread
+ * on its own host thread, in parallel.
+ * <p>
+ * Must be used together with a synchronizer that blocks
+ * host threads, such as {@link dev.xdark.ssvm.synchronizer.java.LockObjectSynchronizer},
+ * which is the default one for this thread manager.
+ *
+ * @author xDark
+ */
+public final class HostThreadManager implements ThreadManager {
+	// Mapping between eetop and Java thread
+	private final Map<Handle, HostJavaThread> javaThreads = new ConcurrentHashMap<>();
+	// All threads so far
+	private final List<HostJavaThread> allThreads = new LinkedList<>();
+	private final ThreadLocal<HostJavaThread> currentThread = new ThreadLocal<>();
+	private final Object threadLock = new Object[0];
+	private final VirtualMachine vm;
+	private final ThreadFactory threadFactory;
+	private final ThreadStorageFactory storageFactory;
+	private final long stackSize;
+
+	/**
+	 * @param vm             VM instance.
+	 * @param threadFactory  Factory for host threads.
+	 * @param storageFactory Factory for thread storages.
+	 * @param stackSize      Default stack size of threads, in bytes,
+	 *                       like Java's {@code -Xss} flag.
+	 */
+	public HostThreadManager(VirtualMachine vm, ThreadFactory threadFactory, ThreadStorageFactory storageFactory, long stackSize) {
+		this.vm = vm;
+		this.threadFactory = threadFactory;
+		this.storageFactory = storageFactory;
+		this.stackSize = stackSize;
+	}
+
+	/**
+	 * @param vm             VM instance.
+	 * @param threadFactory  Factory for host threads.
+	 * @param storageFactory Factory for thread storages.
+	 */
+	public HostThreadManager(VirtualMachine vm, ThreadFactory threadFactory, ThreadStorageFactory storageFactory) {
+		this(vm, threadFactory, storageFactory, JavaThreads.DEFAULT_STACK_SIZE);
+	}
+
+	/**
+	 * @param vm            VM instance.
+	 * @param threadFactory Factory for host threads.
+	 */
+	public HostThreadManager(VirtualMachine vm, ThreadFactory threadFactory) {
+		this(vm, threadFactory, HeapThreadStorage::create);
+	}
+
+	/**
+	 * Creates thread manager that
+	 * runs threads on daemon platform threads.
+	 *
+	 * @param vm VM instance.
+	 */
+	public HostThreadManager(VirtualMachine vm) {
+		this(vm, r -> {
+			Thread thread = new Thread(r);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * @return factory of host virtual threads,
+	 * or {@code null}, if host does not support them.
+	 */
+	public static ThreadFactory virtualThreadFactory() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException ignored) {
+			return null;
+		}
+	}
+
+	@Override
+	public boolean isParallel() {
+		return true;
+	}
+
+	@Override
+	public void startThread(InstanceValue oop) {
+		VMOperations ops = vm.getOperations();
+		HostOSThread osThread = newOsThread(ops.getLong(oop, "stackSize"));
+		syncThread(osThread, oop);
+		HostJavaThread javaThread = new HostJavaThread(oop, osThread);
+		Thread host = threadFactory.newThread(() -> run(javaThread));
+		host.setName(osThread.getName());
+		javaThread.host = host;
+		setThreadEeetop(javaThread);
+		synchronized (threadLock) {
+			allThreads.add(javaThread);
+		}
+		host.start();
+	}
+
+	@Override
+	public void suspendThread(InstanceValue oop) {
+		vm.getOperations().throwException(vm.getSymbols().java_lang_UnsatisfiedLinkError());
+	}
+
+	@Override
+	public void resumeThread(InstanceValue oop) {
+		vm.getOperations().throwException(vm.getSymbols().java_lang_UnsatisfiedLinkError());
+	}
+
+	@Override
+	public void setPriority(InstanceValue oop, int priority) {
+		HostJavaThread th = forThread(oop);
+		if (th != null) {
+			th.getOsThread().setPriority(priority);
+		}
+	}
+
+	@Override
+	public void interrupt(InstanceValue oop) {
+		HostJavaThread th = forThread(oop);
+		if (!dead(th)) {
+			th.interrupted = true;
+			// Wake up thread from sleep, wait or park
+			Thread host = th.host;
+			if (host != null) {
+				host.interrupt();
+			}
+		}
+	}
+
+	@Override
+	public void setName(InstanceValue oop, String name) {
+		HostJavaThread th = forThread(oop);
+		if (th != null) {
+			th.getOsThread().setName(name);
+		}
+	}
+
+	@Override
+	public void stop(InstanceValue oop, InstanceValue exception) {
+		vm.getOperations().throwException(vm.getSymbols().java_lang_UnsatisfiedLinkError());
+	}
+
+	@Override
+	public JavaThread currentJavaThread() {
+		return currentThread.get();
+	}
+
+	@Override
+	public OSThread currentOsThread() {
+		HostJavaThread th = currentThread.get();
+		return th == null ? null : th.osThread;
+	}
+
+	@Override
+	public void attachCurrentThread() {
+		if (currentThread.get() != null) {
+			return;
+		}
+		Thread th = Thread.currentThread();
+		HostOSThread osThread = newOsThread(0L);
+		InstanceValue oop = vm.getMemoryManager().newInstance(vm.getSymbols().java_lang_Thread());
+		HostJavaThread javaThread = new HostJavaThread(oop, osThread);
+		javaThread.host = th;
+		currentThread.set(javaThread);
+		setThreadEeetop(javaThread);
+		VMOperations ops = vm.getOperations();
+		ops.putReference(oop, "name", "Ljava/lang/String;", ops.newUtf8(th.getName()));
+		ops.putInt(oop, "priority", th.getPriority());
+		syncThread(osThread, oop);
+		// Attached threads run in parallel with others,
+		// safepoint checks must see them
+		synchronized (threadLock) {
+			allThreads.add(javaThread);
+		}
+	}
+
+	@Override
+	public void detachCurrentThread() {
+		HostJavaThread th = currentThread.get();
+		if (th != null) {
+			currentThread.remove();
+			synchronized (threadLock) {
+				allThreads.remove(th);
+			}
+			javaThreads.values().remove(th);
+			th.osThread.free();
+			vm.getMemoryAllocator().detachCurrentThread();
+		}
+	}
+
+	@Override
+	public boolean isInterrupted(InstanceValue oop, boolean clear) {
+		HostJavaThread th = forThread(oop);
+		if (dead(th)) {
+			return false;
+		}
+		boolean flag = th.interrupted;
+		if (clear) {
+			th.interrupted = false;
+		}
+		return flag;
+	}
+
+	@Override
+	public List<JavaThread> snapshot() {
+		synchronized (threadLock) {
+			return new ArrayList<>(allThreads);
+		}
+	}
+
+	@Override
+	public void sleep(long millis) {
+		if (millis == 0L) {
+			return;
+		}
+		HostJavaThread th = currentThread.get();
+		Assertions.check(!dead(th), "thread is not alive");
+		OSThread osThread = th.getOsThread();
+		osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_TIMED_WAITING);
+		try {
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+			clearHostInterrupt();
+			long remaining;
+			while (!th.interrupted && (remaining = deadline - System.nanoTime()) > 0L) {
+				try {
+					TimeUnit.NANOSECONDS.sleep(remaining);
+				} catch (InterruptedException ignored) {
+					// Flag is checked by the loop
+				}
+			}
+		} finally {
+			osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_RUNNABLE);
+		}
+		if (th.interrupted) {
+			th.interrupted = false;
+			vm.getOperations().throwException(vm.getSymbols().java_lang_InterruptedException(), "sleep interrupted");
+		}
+	}
+
+	@Override
+	public void yield() {
+		Thread.yield();
+	}
+
+	@Override
+	public void park(boolean absolute, long time) {
+		HostJavaThread th = currentThread.get();
+		Assertions.check(!dead(th), "thread is not alive");
+		clearHostInterrupt();
+		if (th.interrupted) {
+			return;
+		}
+		OSThread osThread = th.getOsThread();
+		if (absolute) {
+			osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_TIMED_WAITING);
+			try {
+				LockSupport.parkUntil(time);
+			} finally {
+				osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_RUNNABLE);
+			}
+		} else if (time >= 0L) {
+			osThread.setThreadState(time == 0L ? ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_WAITING : ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_TIMED_WAITING);
+			try {
+				if (time == 0L) {
+					LockSupport.park();
+				} else {
+					LockSupport.parkNanos(time);
+				}
+			} finally {
+				osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_RUNNABLE);
+			}
+		}
+	}
+
+	@Override
+	public void unpark(InstanceValue oop) {
+		HostJavaThread th = forThread(oop);
+		if (!dead(th)) {
+			Thread host = th.host;
+			if (host != null) {
+				LockSupport.unpark(host);
+			}
+		}
+	}
+
+	@Override
+	public JavaThread createMainThread() {
+		HostJavaThread javaThread = currentThread.get();
+		InstanceValue oop;
+		if (javaThread == null) {
+			oop = vm.getMemoryManager().newInstance(vm.getSymbols().java_lang_Thread());
+			javaThread = new HostJavaThread(oop, newOsThread(0L));
+			javaThread.host = Thread.currentThread();
+			currentThread.set(javaThread);
+		} else {
+			oop = javaThread.getOop();
+			javaThreads.values().remove(javaThread);
+		}
+		VMOperations ops = vm.getOperations();
+		ops.putReference(oop, "name", "Ljava/lang/String;", ops.newUtf8("main"));
+		ops.putInt(oop, "priority", Thread.currentThread().getPriority());
+		syncThread(javaThread.osThread, oop);
+		setThreadEeetop(javaThread);
+		synchronized (threadLock) {
+			if (!allThreads.contains(javaThread)) {
+				allThreads.add(javaThread);
+			}
+		}
+		return javaThread;
+	}
+
+	@Override
+	public JavaThread getThread(InstanceValue oop) {
+		// Fast check
+		HostJavaThread currentThread = this.currentThread.get();
+		if (currentThread != null && oop == currentThread.getOop()) {
+			return currentThread;
+		}
+		return forThread(oop);
+	}
+
+	private void run(HostJavaThread thread) {
+		currentThread.set(thread);
+		try {
+			JavaThreads.run(vm, thread);
+		} finally {
+			try {
+				terminate(thread);
+			} finally {
+				currentThread.remove();
+			}
+		}
+	}
+
+	private void terminate(HostJavaThread thread) {
+		VMOperations ops = vm.getOperations();
+		InstanceValue oop = thread.getOop();
+		JavaThreads.exit(vm, thread);
+		// Wake up threads in Thread#join
+		ops.monitorEnter(oop);
+		try {
+			thread.getOsThread().setThreadState(ThreadState.JVMTI_THREAD_STATE_TERMINATED);
+			javaThreads.remove(Handle.of(ops.getLong(oop, "eetop")));
+			synchronized (threadLock) {
+				allThreads.remove(thread);
+			}
+			ops.putLong(oop, "eetop", 0L);
+			vm.getMemoryManager().getMutex(oop).doNotifyAll();
+		} finally {
+			ops.monitorExit(oop);
+		}
+		thread.host = null;
+		thread.osThread.free();
+		vm.getMemoryAllocator().detachCurrentThread();
+	}
+
+	private HostOSThread newOsThread(long stackSize) {
+		if (stackSize <= 0L) {
+			stackSize = this.stackSize;
+		}
+		VirtualMachine vm = this.vm;
+		Backtrace backtrace = new SimpleBacktrace(JavaThreads.maxFrames(stackSize), () -> JavaThreads.stackOverflow(vm));
+		ThreadStorage storage = storageFactory.create(vm, stackSize);
+		return new HostOSThread(backtrace, storage);
+	}
+
+	private void setThreadEeetop(HostJavaThread th) {
+		Map<Handle, HostJavaThread> javaThreads = this.javaThreads;
+		ThreadLocalRandom rng = ThreadLocalRandom.current();
+		Handle handle;
+		do {
+			handle = Handle.of(rng.nextLong());
+		} while (handle.get() == 0L || javaThreads.putIfAbsent(handle, th) != null);
+		vm.getOperations().putLong(th.getOop(), "eetop", handle.get());
+	}
+
+	private void syncThread(OSThread thread, InstanceValue oop) {
+		VMOperations ops = vm.getOperations();
+		thread.setName(ops.readUtf8(ops.getReference(oop, "name", "Ljava/lang/String;")));
+		thread.setPriority(ops.getInt(oop, "priority"));
+		thread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_RUNNABLE);
+	}
+
+	private HostJavaThread forThread(InstanceValue oop) {
+		long eetop = vm.getOperations().getLong(oop, "eetop");
+		if (eetop == 0L) {
+			return null;
+		}
+		return javaThreads.get(Handle.threadLocal(eetop));
+	}
+
+	private static void clearHostInterrupt() {
+		// Interrupt status is tracked by the VM thread,
+		// host status only wakes up blocked thread
+		Thread.interrupted();
+	}
+
+	private static boolean dead(JavaThread th) {
+		return th == null || th.getOsThread().getThreadState() == ThreadState.JVMTI_THREAD_STATE_TERMINATED;
+	}
+}
@@ -0,0 +1,254 @@
+package dev.xdark.ssvm.thread.virtual;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Cooperative scheduler for virtual threads.
+ * <p>
+ * Every started thread is backed by a carrier thread,
+ * but only the thread that holds control runs VM code.
+ * Control is passed explicitly when the running
+ * thread yields, parks or exits.
+ * Foreign threads never take control from the running thread,
+ * they only take it when nobody holds it.
+ * <p>
+ * <b>Limitation:</b> carriers are not pooled, every guest thread
+ * keeps its own host thread, with its own host stack, until it exits.
+ * Interpreted frames live on the host stack of the carrier, so
+ * a guest thread cannot be moved to another carrier without
+ * continuations. Programs that start many threads at once
+ * need as many host threads.
+ *
+ * @author xDark
+ */
+final class Scheduler {
+	private final Object lock = new Object();
+	private final Deque<VirtualJavaThread> runQueue = new ArrayDeque<>();
+	private final List<VirtualJavaThread> sleeping = new ArrayList<>();
+	private VirtualJavaThread running;
+
+	/**
+	 * Starts new thread.
+	 * The thread will not run until
+	 * control is passed to it.
+	 *
+	 * @param self   Current thread.
+	 * @param thread Thread to start.
+	 * @param task   Thread body.
+	 */
+	void start(VirtualJavaThread self, VirtualJavaThread thread, Runnable task) {
+		Thread carrier = new Thread(() -> {
+			synchronized (lock) {
+				awaitTurn(thread);
+			}
+			try {
+				task.run();
+			} finally {
+				exit();
+			}
+		}, thread.getOsThread().getName());
+		carrier.setDaemon(true);
+		synchronized (lock) {
+			if (running == null) {
+				running = self;
+			}
+			runQueue.add(thread);
+		}
+		carrier.start();
+	}
+
+	/**
+	 * Passes control to the next runnable thread, if any.
+	 *
+	 * @param self Current thread.
+	 */
+	void yield(VirtualJavaThread self) {
+		synchronized (lock) {
+			wakeSleepers(System.nanoTime());
+			if (!acquire(self)) {
+				// Another thread holds control,
+				// there is nothing to pass
+				return;
+			}
+			Deque<VirtualJavaThread> runQueue = this.runQueue;
+			if (!runQueue.isEmpty()) {
+				runQueue.add(self);
+				switchTo(self, runQueue.poll());
+			}
+		}
+	}
+
+	/**
+	 * Parks current thread until it is unparked,
+	 * or the deadline is reached.
+	 * May return spuriously.
+	 *
+	 * @param self     Current thread.
+	 * @param deadline Deadline, as in {@link System#nanoTime()},
+	 *                 or {@literal 0}, if there is none.
+	 */
+	void park(VirtualJavaThread self, long deadline) {
+		synchronized (lock) {
+			if (self.permit) {
+				self.permit = false;
+				return;
+			}
+			self.parked = true;
+			if (!acquire(self)) {
+				// Foreign thread that does not hold control,
+				// block without passing it
+				self.waiting = true;
+				try {
+					awaitUnpark(self, deadline);
+				} finally {
+					self.waiting = false;
+				}
+				return;
+			}
+			if (deadline != 0L) {
+				self.deadline = deadline;
+				sleeping.add(self);
+			}
+			switchTo(self, next());
+		}
+	}
+
+	/**
+	 * Makes parked thread runnable.
+	 * If the thread is not parked,
+	 * next call to {@link #park(VirtualJavaThread, long)} returns immediately.
+	 *
+	 * @param thread Thread to unpark.
+	 */
+	void unpark(VirtualJavaThread thread) {
+		synchronized (lock) {
+			if (thread.parked) {
+				thread.parked = false;
+				if (!thread.waiting) {
+					sleeping.remove(thread);
+					runQueue.add(thread);
+				}
+				lock.notifyAll();
+			} else {
+				thread.permit = true;
+			}
+		}
+	}
+
+	/**
+	 * @param millis Timeout in milliseconds.
+	 * @return deadline for {@link #park(VirtualJavaThread, long)}.
+	 */
+	static long deadline(long millis) {
+		if (millis >= Long.MAX_VALUE / 1_000_000L) {
+			return 0L;
+		}
+		long deadline = System.nanoTime() + millis * 1_000_000L;
+		return deadline == 0L ? 1L : deadline;
+	}
+
+	private void exit() {
+		synchronized (lock) {
+			if (runQueue.isEmpty() && sleeping.isEmpty()) {
+				running = null;
+			} else {
+				running = next();
+				lock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Takes control if nobody holds it.
+	 *
+	 * @param self Current thread.
+	 * @return {@code true} if current thread holds control.
+	 */
+	private boolean acquire(VirtualJavaThread self) {
+		VirtualJavaThread running = this.running;
+		if (running == null) {
+			this.running = running = self;
+		}
+		return running == self;
+	}
+
+	private void awaitUnpark(VirtualJavaThread self, long deadline) {
+		while (self.parked) {
+			if (deadline == 0L) {
+				await(0L);
+			} else {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0L) {
+					self.parked = false;
+					break;
+				}
+				await(Math.max(1L, (remaining + 999_999L) / 1_000_000L));
+			}
+		}
+	}
+
+	private void switchTo(VirtualJavaThread self, VirtualJavaThread next) {
+		if (next != self) {
+			running = next;
+			lock.notifyAll();
+			awaitTurn(self);
+		}
+	}
+
+	private void awaitTurn(VirtualJavaThread self) {
+		while (running != self) {
+			// Thread that was unparked by a foreign thread
+			// after everyone else exited
+			if (running == null && runQueue.peek() == self) {
+				runQueue.poll();
+				running = self;
+				break;
+			}
+			await(0L);
+		}
+	}
+
+	private VirtualJavaThread next() {
+		Deque<VirtualJavaThread> runQueue = this.runQueue;
+		while (true) {
+			long now = System.nanoTime();
+			long wait = wakeSleepers(now);
+			VirtualJavaThread next = runQueue.poll();
+			if (next != null) {
+				return next;
+			}
+			// Nothing to run, wait for the first sleeper
+			// or for a foreign thread to unpark someone
+			await(wait == Long.MAX_VALUE ? 0L : Math.max(1L, (wait + 999_999L) / 1_000_000L));
+		}
+	}
+
+	private long wakeSleepers(long now) {
+		long wait = Long.MAX_VALUE;
+		Iterator<VirtualJavaThread> iterator = sleeping.iterator();
+		while (iterator.hasNext()) {
+			VirtualJavaThread thread = iterator.next();
+			long remaining = thread.deadline - now;
+			if (remaining <= 0L) {
+				iterator.remove();
+				thread.parked = false;
+				runQueue.add(thread);
+			} else if (remaining < wait) {
+				wait = remaining;
+			}
+		}
+		return wait;
+	}
+
+	private void await(long millis) {
+		try {
+			lock.wait(millis);
+		} catch (InterruptedException ignored) {
+			// Carrier threads are not interrupted by the VM
+		}
+	}
+}
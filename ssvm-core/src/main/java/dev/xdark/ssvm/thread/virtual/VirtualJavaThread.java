@@ -12,12 +12,15 @@
 final class VirtualJavaThread implements JavaThread {
 	private final InstanceValue oop;
 	final VirtualOSThread osThread;
-	boolean attached;
 	Thread foreign;
 	// Scheduler state
-	boolean interrupted;
-	InstanceValue exception; // Thread#stop0/interrupt
-	long timeout;
+	volatile boolean interrupted;
+	InstanceValue exception; // Thread#stop0
+	boolean parked;
+	boolean waiting; // parked without holding control
+	boolean permit;
+	volatile boolean unsafePermit; // Unsafe#park
+	long deadline;
 
 	VirtualJavaThread(InstanceValue oop, VirtualOSThread osThread) {
 		this.oop = oop;
@@ -0,0 +1,169 @@
+package dev.xdark.ssvm.thread.virtual;
+
+import dev.xdark.ssvm.jvmti.ThreadState;
+import dev.xdark.ssvm.synchronizer.Mutex;
+import dev.xdark.ssvm.thread.OSThread;
+import dev.xdark.ssvm.util.Assertions;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Mutex that parks contending and waiting threads
+ * in the {@link Scheduler}.
+ *
+ * @author xDark
+ */
+final class VirtualMutex implements Mutex {
+
+	int id;
+	private final VirtualThreadManager threadManager;
+	private final Scheduler scheduler;
+	private final Deque<VirtualJavaThread> entryQueue = new ArrayDeque<>();
+	private final Deque<VirtualJavaThread> waitSet = new ArrayDeque<>();
+	private VirtualJavaThread owner;
+	private int count;
+
+	VirtualMutex(VirtualThreadManager threadManager) {
+		this.threadManager = threadManager;
+		scheduler = threadManager.scheduler();
+	}
+
+	@Override
+	public int id() {
+		return id;
+	}
+
+	@Override
+	public void lock() {
+		lock(currentThread(), 1);
+	}
+
+	@Override
+	public boolean tryUnlock() {
+		VirtualJavaThread next;
+		synchronized (this) {
+			if (owner == null || owner != threadManager.currentThread()) {
+				return false;
+			}
+			if (--count != 0) {
+				return true;
+			}
+			owner = null;
+			next = entryQueue.poll();
+		}
+		if (next != null) {
+			scheduler.unpark(next);
+		}
+		return true;
+	}
+
+	@Override
+	public void doWait(long timeoutMillis) throws InterruptedException {
+		VirtualJavaThread self = currentThread();
+		if (self.interrupted) {
+			self.interrupted = false;
+			throw new InterruptedException();
+		}
+		int count;
+		VirtualJavaThread next;
+		synchronized (this) {
+			count = this.count;
+			owner = null;
+			this.count = 0;
+			waitSet.add(self);
+			next = entryQueue.poll();
+		}
+		if (next != null) {
+			scheduler.unpark(next);
+		}
+		long deadline = Scheduler.deadline(timeoutMillis);
+		OSThread osThread = self.getOsThread();
+		osThread.setThreadState(deadline == 0L ? ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_WAITING : ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_TIMED_WAITING);
+		try {
+			while (true) {
+				scheduler.park(self, deadline);
+				synchronized (this) {
+					if (!waitSet.contains(self)) {
+						// Notified
+						break;
+					}
+					if (self.interrupted || deadline != 0L && deadline - System.nanoTime() <= 0L) {
+						waitSet.remove(self);
+						break;
+					}
+				}
+			}
+		} finally {
+			lock(self, count);
+			osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_RUNNABLE);
+		}
+		if (self.interrupted) {
+			self.interrupted = false;
+			throw new InterruptedException();
+		}
+	}
+
+	@Override
+	public void doNotify() {
+		VirtualJavaThread next;
+		synchronized (this) {
+			next = waitSet.poll();
+		}
+		if (next != null) {
+			scheduler.unpark(next);
+		}
+	}
+
+	@Override
+	public void doNotifyAll() {
+		VirtualJavaThread[] threads;
+		synchronized (this) {
+			threads = waitSet.toArray(new VirtualJavaThread[0]);
+			waitSet.clear();
+		}
+		for (VirtualJavaThread thread : threads) {
+			scheduler.unpark(thread);
+		}
+	}
+
+	@Override
+	public boolean isHeldByCurrentThread() {
+		VirtualJavaThread owner = this.owner;
+		return owner != null && owner == threadManager.currentThread();
+	}
+
+	private void lock(VirtualJavaThread self, int count) {
+		OSThread osThread = self.getOsThread();
+		ThreadState state = osThread.getThreadState();
+		try {
+			while (true) {
+				synchronized (this) {
+					VirtualJavaThread owner = this.owner;
+					if (owner == null) {
+						this.owner = self;
+						this.count = count;
+						return;
+					}
+					if (owner == self) {
+						this.count += count;
+						return;
+					}
+					if (!entryQueue.contains(self)) {
+						entryQueue.add(self);
+					}
+				}
+				osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_BLOCKED);
+				scheduler.park(self, 0L);
+			}
+		} finally {
+			osThread.setThreadState(state);
+		}
+	}
+
+	private VirtualJavaThread currentThread() {
+		VirtualJavaThread thread = threadManager.currentThread();
+		Assertions.check(thread != null, "not a VM thread");
+		return thread;
+	}
+}
@@ -0,0 +1,57 @@
+package dev.xdark.ssvm.thread.virtual;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.execution.PanicException;
+import dev.xdark.ssvm.metadata.MetadataStorage;
+import dev.xdark.ssvm.metadata.SimpleMetadataStorage;
+import dev.xdark.ssvm.synchronizer.Mutex;
+import dev.xdark.ssvm.synchronizer.ObjectSynchronizer;
+import dev.xdark.ssvm.thread.ThreadManager;
+
+/**
+ * Synchronizer that parks threads of {@link VirtualThreadManager}
+ * instead of blocking host threads.
+ *
+ * @author xDark
+ */
+public final class VirtualObjectSynchronizer implements ObjectSynchronizer {
+	private final MetadataStorage<Mutex> mutexStorage = new SimpleMetadataStorage<>();
+	private final VirtualMachine vm;
+	private VirtualThreadManager threadManager;
+
+	/**
+	 * @param vm VM instance.
+	 */
+	public VirtualObjectSynchronizer(VirtualMachine vm) {
+		this.vm = vm;
+	}
+
+	@Override
+	public Mutex acquire() {
+		VirtualMutex mutex = new VirtualMutex(threadManager());
+		mutex.id = mutexStorage.register(mutex);
+		return mutex;
+	}
+
+	@Override
+	public Mutex get(int id) {
+		return mutexStorage.lookup(id);
+	}
+
+	@Override
+	public void free(Mutex mutex) {
+	}
+
+	private VirtualThreadManager threadManager() {
+		VirtualThreadManager threadManager = this.threadManager;
+		if (threadManager == null) {
+			// Synchronizer is created before thread manager
+			ThreadManager manager = vm.getThreadManager();
+			if (!(manager instanceof VirtualThreadManager)) {
+				throw new PanicException("Virtual synchronizer requires virtual thread manager, got " + manager);
+			}
+			this.threadManager = threadManager = (VirtualThreadManager) manager;
+		}
+		return threadManager;
+	}
+}
@@ -3,12 +3,13 @@
 import dev.xdark.ssvm.VirtualMachine;
 import dev.xdark.ssvm.io.Handle;
 import dev.xdark.ssvm.jvmti.ThreadState;
-import dev.xdark.ssvm.memory.allocation.MemoryAllocator;
 import dev.xdark.ssvm.operation.VMOperations;
 import dev.xdark.ssvm.thread.JavaThread;
+import dev.xdark.ssvm.thread.JavaThreads;
 import dev.xdark.ssvm.thread.OSThread;
 import dev.xdark.ssvm.thread.ThreadManager;
 import dev.xdark.ssvm.thread.ThreadStorage;
+import dev.xdark.ssvm.thread.ThreadStorageFactory;
 import dev.xdark.ssvm.thread.backtrace.Backtrace;
 import dev.xdark.ssvm.thread.backtrace.SimpleBacktrace;
 import dev.xdark.ssvm.thread.heap.HeapThreadStorage;
@@ -16,18 +17,25 @@
 import dev.xdark.ssvm.value.InstanceValue;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Virtual thread manager and scheduler.
+ * <p>
+ * Started threads are scheduled cooperatively:
+ * only one of them runs at a time, and control is passed
+ * on {@link #yield()}, which is also called periodically by the interpreter,
+ * and when the thread sleeps, waits or blocks on a monitor.
+ * Must be used together with {@link VirtualObjectSynchronizer}.
+ * <p>
+ * <b>Limitation:</b> although only one thread runs at a time,
+ * every started thread is backed by its own daemon host thread
+ * until it exits, see {@link Scheduler}.
  *
  * @author xDark
  */
@@ -39,21 +47,43 @@ public final class VirtualThreadManager implements ThreadManager {
 	private final Map<Thread, VirtualJavaThread> foreignThreads = new IdentityHashMap<>();
 	// All threads so far
 	private final List<VirtualJavaThread> allThreads = new LinkedList<>();
-	// Threads for scheduling
-	private final Queue<VirtualJavaThread> scheduled = new PriorityQueue<>(Comparator.comparingInt(t -> t.getOsThread().getPriority()));
-	// TODO this is stupid
-	private final List<VirtualJavaThread> asleep = new ArrayList<>();
+	// Started threads, keyed by their carriers
+	private final ThreadLocal<VirtualJavaThread> scheduledThread = new ThreadLocal<>();
+	private final Scheduler scheduler = new Scheduler();
 	private final Object threadLock = new Object[0];
 	private final VirtualMachine vm;
+	private final ThreadStorageFactory storageFactory;
+	private final long stackSize;
 	private VirtualJavaThread currentThread;
 
-	public VirtualThreadManager(VirtualMachine vm) {
+	/**
+	 * @param vm             VM instance.
+	 * @param storageFactory Factory for thread storages.
+	 * @param stackSize      Default stack size of threads, in bytes,
+	 *                       like Java's {@code -Xss} flag.
+	 */
+	public VirtualThreadManager(VirtualMachine vm, ThreadStorageFactory storageFactory, long stackSize) {
 		this.vm = vm;
+		this.storageFactory = storageFactory;
+		this.stackSize = stackSize;
+	}
+
+	/**
+	 * @param vm             VM instance.
+	 * @param storageFactory Factory for thread storages.
+	 */
+	public VirtualThreadManager(VirtualMachine vm, ThreadStorageFactory storageFactory) {
+		this(vm, storageFactory, JavaThreads.DEFAULT_STACK_SIZE);
+	}
+
+	public VirtualThreadManager(VirtualMachine vm) {
+		this(vm, HeapThreadStorage::create);
 	}
 
 	@Override
 	public void startThread(InstanceValue oop) {
-		startThread0(oop, false);
+		VirtualJavaThread thread = startThread0(oop);
+		scheduler.start(currentThread(), thread, () -> run(thread));
 	}
 
 	@Override
@@ -70,18 +100,7 @@ public void resumeThread(InstanceValue oop) {
 	public void setPriority(InstanceValue oop, int priority) {
 		VirtualJavaThread th = forThread(oop);
 		if (th != null) {
-			Queue<VirtualJavaThread> allThreads = this.scheduled;
-			OSThread ost = th.getOsThread();
-			if (ost.getPriority() != priority) {
-				boolean offer = allThreads.remove(th);
-				// Re-insert thread for the scheduler
-				ost.setPriority(priority);
-				if (offer) {
-					// setPriority may've been called
-					// from another thread on a thread that is asleep
-					allThreads.offer(th);
-				}
-			}
+			th.getOsThread().setPriority(priority);
 		}
 	}
 
@@ -92,20 +111,9 @@ public void interrupt(InstanceValue oop) {
 			if (dead(th)) {
 				return;
 			}
-			Thread foreign = th.foreign;
-			if (foreign != null) {
-				foreign.interrupt();
-			} else {
-				if (th.timeout != 0L) {
-					th.timeout = 0L;
-					// Wake up thread from sleep
-					th.exception = vm.getOperations().newException(vm.getSymbols().java_lang_InterruptedException(), "sleep interrupted");
-					asleep.remove(th);
-					scheduled.offer(th);
-				} else {
-					th.interrupted = true;
-				}
-			}
+			th.interrupted = true;
+			// Wake up thread from sleep or wait
+			scheduler.unpark(th);
 		}
 	}
 
@@ -169,6 +177,7 @@ public void detachCurrentThread() {
 		}
 		if (jth != null) {
 			jth.osThread.free();
+			vm.getMemoryAllocator().detachCurrentThread();
 		}
 	}
 
@@ -198,38 +207,75 @@ public void sleep(long millis) {
 		}
 		Assertions.check(!dead(th), "thread is not alive");
 		OSThread osThread = th.getOsThread();
-		if (th.attached) {
-			osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_BLOCKED);
-			// Call to native Thread.sleep
-			th.timeout = millis;
-			try {
-				Thread.sleep(millis);
-			} catch (InterruptedException ex) {
-				// Propagate to VM code
-				th.timeout = 0L;
-				th.interrupted = true;
-				vm.getOperations().throwException(vm.getSymbols().java_lang_InterruptedException(), "sleep interrupted");
-			} finally {
-				osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_RUNNABLE);
+		long deadline = Scheduler.deadline(millis);
+		osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_TIMED_WAITING);
+		try {
+			while (!th.interrupted && (deadline == 0L || deadline - System.nanoTime() > 0L)) {
+				scheduler.park(th, deadline);
+			}
+		} finally {
+			osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_RUNNABLE);
+		}
+		if (th.interrupted) {
+			th.interrupted = false;
+			vm.getOperations().throwException(vm.getSymbols().java_lang_InterruptedException(), "sleep interrupted");
+		}
+	}
+
+	@Override
+	public void yield() {
+		VirtualJavaThread th = currentThread();
+		if (th != null) {
+			scheduler.yield(th);
+		}
+	}
+
+	@Override
+	public void park(boolean absolute, long time) {
+		VirtualJavaThread th = currentThread();
+		Assertions.check(!dead(th), "thread is not alive");
+		if (th.unsafePermit) {
+			th.unsafePermit = false;
+			return;
+		}
+		if (th.interrupted) {
+			return;
+		}
+		long deadline;
+		if (absolute) {
+			long millis = time - System.currentTimeMillis();
+			if (millis <= 0L) {
+				return;
 			}
+			deadline = Scheduler.deadline(millis);
+		} else if (time < 0L) {
+			return;
+		} else if (time == 0L) {
+			deadline = 0L;
 		} else {
-			Assertions.check(th.timeout == 0L, "already sleeping");
-			if (th.interrupted) {
-				th.interrupted = false;
-				vm.getOperations().throwException(vm.getSymbols().java_lang_InterruptedException(), "sleep interrupted");
-			} else {
-				osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_BLOCKED);
-				th.timeout = millis;
-				// Remove form scheduled threads and put to asleep
-				scheduled.remove(th);
-				asleep.add(th);
+			deadline = System.nanoTime() + time;
+			if (deadline == 0L) {
+				deadline = 1L;
 			}
 		}
+		OSThread osThread = th.getOsThread();
+		osThread.setThreadState(deadline == 0L ? ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_WAITING : ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_TIMED_WAITING);
+		try {
+			// Spurious wakeups are allowed
+			scheduler.park(th, deadline);
+		} finally {
+			osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_RUNNABLE);
+		}
+		th.unsafePermit = false;
 	}
 
 	@Override
-	public void yield() {
-		// Do nothing
+	public void unpark(InstanceValue oop) {
+		VirtualJavaThread th = forThread(oop);
+		if (!dead(th)) {
+			th.unsafePermit = true;
+			scheduler.unpark(th);
+		}
 	}
 
 	@Override
@@ -256,7 +302,7 @@ public JavaThread createMainThread() {
 		syncThread(osThread, oop);
 		osThread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_RUNNABLE);
 		setThreadEeetop(javaThread);
-		schedule(javaThread);
+		allThreads.add(javaThread);
 		return javaThread;
 	}
 
@@ -270,37 +316,42 @@ public JavaThread getThread(InstanceValue oop) {
 		return forThread(oop);
 	}
 
-	private VirtualJavaThread currentThread() {
+	/**
+	 * @return scheduler.
+	 */
+	Scheduler scheduler() {
+		return scheduler;
+	}
+
+	/**
+	 * @return current thread or {@code null},
+	 * if current thread is not VM thread or not attached.
+	 */
+	VirtualJavaThread currentThread() {
 		VirtualJavaThread th;
 		synchronized (threadLock) {
 			th = foreignThreads.get(Thread.currentThread());
 		}
 		if (th == null) {
-			th = currentThread;
+			th = scheduledThread.get();
 			if (th == null) {
-				return null;
-			}
-			if (th.attached) {
-				Assertions.check(th.foreign == Thread.currentThread(), "currentThread cache is poisoned");
+				th = currentThread;
 			}
-			return th;
 		}
 		return th;
 	}
 
 	private VirtualOSThread newOsThread(long stackSize) {
-		if (stackSize == 0L) {
-			// Default stack size, 1MB should be enough.
-			// TODO configurable, like Java's -Xss flag.
-			stackSize = 1024L * 1024L;
+		if (stackSize <= 0L) {
+			stackSize = this.stackSize;
 		}
-		Backtrace backtrace = new SimpleBacktrace(1024);
-		MemoryAllocator memoryAllocator = vm.getMemoryAllocator();
-		ThreadStorage storage = new HeapThreadStorage(vm.getMemoryManager(), memoryAllocator, memoryAllocator.allocateHeap(stackSize));
+		VirtualMachine vm = this.vm;
+		Backtrace backtrace = new SimpleBacktrace(JavaThreads.maxFrames(stackSize), () -> JavaThreads.stackOverflow(vm));
+		ThreadStorage storage = storageFactory.create(vm, stackSize);
 		return new VirtualOSThread(backtrace, storage);
 	}
 
-	private VirtualJavaThread startThread0(InstanceValue oop, boolean attached) {
+	private VirtualJavaThread startThread0(InstanceValue oop) {
 		VMOperations ops = vm.getOperations();
 		long stackSize = ops.getLong(oop, "stackSize");
 		VirtualOSThread thread = newOsThread(stackSize);
@@ -308,18 +359,43 @@ private VirtualJavaThread startThread0(InstanceValue oop, boolean attached) {
 		syncThread(thread, oop);
 		thread.setThreadState(ThreadState.JVMTI_JAVA_LANG_THREAD_STATE_RUNNABLE);
 		VirtualJavaThread javaThread = new VirtualJavaThread(oop, thread);
-		javaThread.attached = attached;
 		setThreadEeetop(javaThread);
-		if (!attached) {
-			// Insert into a list of all threads for the scheduler
-			schedule(javaThread);
-		}
+		allThreads.add(javaThread);
 		return javaThread;
 	}
 
-	private void schedule(VirtualJavaThread thread) {
-		allThreads.add(thread);
-		scheduled.offer(thread);
+	private void run(VirtualJavaThread thread) {
+		scheduledThread.set(thread);
+		try {
+			JavaThreads.run(vm, thread);
+		} finally {
+			try {
+				terminate(thread);
+			} finally {
+				scheduledThread.remove();
+			}
+		}
+	}
+
+	private void terminate(VirtualJavaThread thread) {
+		VMOperations ops = vm.getOperations();
+		InstanceValue oop = thread.getOop();
+		JavaThreads.exit(vm, thread);
+		// Wake up threads in Thread#join
+		ops.monitorEnter(oop);
+		try {
+			thread.getOsThread().setThreadState(ThreadState.JVMTI_THREAD_STATE_TERMINATED);
+			synchronized (threadLock) {
+				javaThreads.remove(Handle.of(ops.getLong(oop, "eetop")));
+				allThreads.remove(thread);
+			}
+			ops.putLong(oop, "eetop", 0L);
+			vm.getMemoryManager().getMutex(oop).doNotifyAll();
+		} finally {
+			ops.monitorExit(oop);
+		}
+		thread.osThread.free();
+		vm.getMemoryAllocator().detachCurrentThread();
 	}
 
 	private void setThreadEeetop(VirtualJavaThread th) {
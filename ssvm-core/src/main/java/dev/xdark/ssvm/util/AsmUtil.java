@@ -1,5 +1,7 @@
 package dev.xdark.ssvm.util;
 
+import dev.xdark.ssvm.execution.CompactCode;
+import dev.xdark.ssvm.execution.ExecutionContext;
 import dev.xdark.ssvm.mirror.member.JavaMethod;
 import lombok.experimental.UtilityClass;
 import org.objectweb.asm.Opcodes;
@@ -74,6 +76,34 @@ public boolean isValid(AbstractInsnNode insnNode) {
 		return getIndex(insnNode) != -1;
 	}
 
+	/**
+	 * Instruction list of the method is never modified,
+	 * rewritten instructions are published into {@link CompactCode} slots.
+	 *
+	 * @param ctx  Execution context that executes the instruction.
+	 * @param insn Instruction to check.
+	 * @return {@code true} if the instruction was not rewritten yet.
+	 */
+	public boolean isCurrent(ExecutionContext<?> ctx, AbstractInsnNode insn) {
+		CompactCode code = ctx.getMethod().getCompactCode();
+		return code.insn(code.codeIndex(ctx.getInsnPosition() - 1)) == insn;
+	}
+
+	/**
+	 * Replaces an instruction that is being executed,
+	 * unless it was already replaced.
+	 *
+	 * @param ctx         Execution context that executes the instruction.
+	 * @param insn        Instruction to replace.
+	 * @param replacement New instruction.
+	 * @return {@code true} if the instruction was replaced.
+	 * @see CompactCode#replace(int, AbstractInsnNode, AbstractInsnNode)
+	 */
+	public boolean replace(ExecutionContext<?> ctx, AbstractInsnNode insn, AbstractInsnNode replacement) {
+		CompactCode code = ctx.getMethod().getCompactCode();
+		return code.replace(code.codeIndex(ctx.getInsnPosition() - 1), insn, replacement);
+	}
+
 	/**
 	 * Returns opcode name.
 	 *
@@ -92,6 +92,28 @@ public interface VolatileBufferAccess {
 	 */
 	byte getByte(int offset);
 
+	/**
+	 * Atomically sets long at the specific offset
+	 * if it holds the expected value.
+	 *
+	 * @param offset   Data offset.
+	 * @param expected Expected value.
+	 * @param value    New value.
+	 * @return {@code true} if the value was set.
+	 */
+	boolean compareAndSwapLong(int offset, long expected, long value);
+
+	/**
+	 * Atomically sets int at the specific offset
+	 * if it holds the expected value.
+	 *
+	 * @param offset   Data offset.
+	 * @param expected Expected value.
+	 * @param value    New value.
+	 * @return {@code true} if the value was set.
+	 */
+	boolean compareAndSwapInt(int offset, int expected, int value);
+
 	/**
 	 * Wraps byte buffer.
 	 *
@@ -165,6 +187,16 @@ public short getShort(int offset) {
 		public byte getByte(int offset) {
 			return U.getByteVolatile(array, this.offset + offset);
 		}
+
+		@Override
+		public boolean compareAndSwapLong(int offset, long expected, long value) {
+			return U.compareAndSwapLong(array, this.offset + offset, expected, value);
+		}
+
+		@Override
+		public boolean compareAndSwapInt(int offset, int expected, int value) {
+			return U.compareAndSwapInt(array, this.offset + offset, expected, value);
+		}
 	}
 
 	final class VolatileAddressAccess implements VolatileBufferAccess {
@@ -225,5 +257,15 @@ public short getShort(int offset) {
 		public byte getByte(int offset) {
 			return U.getByteVolatile(null, address + offset);
 		}
+
+		@Override
+		public boolean compareAndSwapLong(int offset, long expected, long value) {
+			return U.compareAndSwapLong(null, address + offset, expected, value);
+		}
+
+		@Override
+		public boolean compareAndSwapInt(int offset, int expected, int value) {
+			return U.compareAndSwapInt(null, address + offset, expected, value);
+		}
 	}
 }
@@ -0,0 +1,85 @@
+package dev.xdark.ssvm;
+
+import dev.xdark.ssvm.execution.CompactCode;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompactCodeTest {
+
+	@Test
+	public void testDecode() {
+		MethodNode mn = new MethodNode(Opcodes.ACC_STATIC, "loop", "(I)V", null, null);
+		InsnList list = mn.instructions;
+		LabelNode start = new LabelNode();
+		LabelNode loop = new LabelNode();
+		list.add(start);
+		list.add(new LineNumberNode(10, start));
+		list.add(loop);
+		list.add(new IincInsnNode(0, -1));
+		list.add(new VarInsnNode(Opcodes.ILOAD, 0));
+		list.add(new JumpInsnNode(Opcodes.IFNE, loop));
+		list.add(new InsnNode(Opcodes.RETURN));
+		CompactCode code = CompactCode.decode(mn);
+		assertEquals(4, code.length());
+		assertEquals(Opcodes.IINC, code.opcode(0));
+		assertEquals(0, code.operand(0) & 0xFFFF);
+		assertEquals(-1, code.operand(0) >> 16);
+		assertEquals(0, code.operand(1));
+		assertEquals(0, code.target(2));
+		assertEquals(-1, code.target(3));
+		assertEquals(10, code.line(3));
+		assertEquals(0, code.codeIndex(list.indexOf(loop)));
+		assertEquals(3, code.position(0));
+		assertTrue(code.isCurrent(list));
+		// Rewrites are published into slots only
+		AbstractInsnNode load = code.insn(1);
+		InsnNode replacement = new InsnNode(Opcodes.ICONST_0);
+		assertTrue(code.replace(1, load, replacement));
+		assertFalse(code.replace(1, load, new InsnNode(Opcodes.ICONST_1)));
+		assertSame(replacement, code.insn(1));
+		assertSame(load, list.get(4));
+		assertSame(replacement, code.toArray()[4]);
+		assertTrue(code.isCurrent(list));
+		list.add(new InsnNode(Opcodes.NOP));
+		assertFalse(code.isCurrent(list));
+	}
+
+	@Test
+	public void testHandlers() {
+		MethodNode mn = new MethodNode(Opcodes.ACC_STATIC, "test", "()V", null, null);
+		InsnList list = mn.instructions;
+		LabelNode start = new LabelNode();
+		LabelNode end = new LabelNode();
+		LabelNode handler = new LabelNode();
+		list.add(start);
+		list.add(new InsnNode(Opcodes.ACONST_NULL));
+		list.add(new InsnNode(Opcodes.ATHROW));
+		list.add(end);
+		list.add(handler);
+		list.add(new InsnNode(Opcodes.POP));
+		list.add(new InsnNode(Opcodes.RETURN));
+		mn.tryCatchBlocks.add(new TryCatchBlockNode(start, end, handler, "java/lang/NullPointerException"));
+		mn.tryCatchBlocks.add(new TryCatchBlockNode(start, handler, handler, null));
+		CompactCode code = CompactCode.decode(mn);
+		assertArrayEquals(new int[]{0, 1}, code.handlers(0));
+		assertArrayEquals(new int[]{0, 1}, code.handlers(1));
+		assertArrayEquals(new int[0], code.handlers(2));
+		assertEquals(list.indexOf(handler), code.handlerPosition(0));
+	}
+}
@@ -0,0 +1,56 @@
+package dev.xdark.ssvm;
+
+import dev.xdark.ssvm.api.InstructionInterceptor;
+import dev.xdark.ssvm.api.VMInterface;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Opcodes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class InstructionInterceptorTest {
+
+	@Test
+	public void testFilteredInterceptor() {
+		VirtualMachine vm = TestUtil.newVirtualMachine();
+		vm.initialize();
+		vm.getThreadManager().attachCurrentThread();
+		VMInterface vmi = vm.getInterface();
+		JavaMethod sum = vm.getSymbols().java_lang_Integer().getMethod("sum", "(II)I");
+		JavaMethod max = vm.getSymbols().java_lang_Integer().getMethod("max", "(II)I");
+		List<Integer> opcodes = new ArrayList<>();
+		List<Integer> all = new ArrayList<>();
+		InstructionInterceptor filtered = vmi.registerInstructionInterceptor((ctx, insn) -> {
+			opcodes.add(insn.getOpcode());
+			return Result.CONTINUE;
+		}, method -> method == sum, Opcodes.IADD, Opcodes.IRETURN);
+		InstructionInterceptor unfiltered = vmi.registerInstructionInterceptor((ctx, insn) -> {
+			all.add(insn.getOpcode());
+			return Result.CONTINUE;
+		}, method -> method == sum);
+		invoke(vm, max, 2);
+		assertEquals(0, opcodes.size());
+		assertEquals(0, all.size());
+		invoke(vm, sum, 3);
+		assertEquals(Arrays.asList(Opcodes.IADD, Opcodes.IRETURN), opcodes);
+		assertEquals(4, all.size());
+		vmi.removeInstructionInterceptor(filtered);
+		vmi.removeInstructionInterceptor(unfiltered);
+		invoke(vm, sum, 3);
+		assertEquals(2, opcodes.size());
+		assertEquals(4, all.size());
+	}
+
+	private static void invoke(VirtualMachine vm, JavaMethod method, int expected) {
+		Locals locals = vm.getThreadStorage().newLocals(method);
+		locals.setInt(0, 1);
+		locals.setInt(1, 2);
+		assertEquals(expected, vm.getOperations().invokeInt(method, locals));
+	}
+}
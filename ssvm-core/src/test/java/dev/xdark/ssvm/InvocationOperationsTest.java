@@ -0,0 +1,89 @@
+package dev.xdark.ssvm;
+
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.value.ObjectValue;
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class InvocationOperationsTest {
+
+	@Test
+	public void testNestedInvocations() {
+		VirtualMachine vm = TestUtil.newVirtualMachine();
+		vm.initialize();
+		vm.getThreadManager().attachCurrentThread();
+		VMOperations ops = vm.getOperations();
+		JavaMethod intSum = vm.getSymbols().java_lang_Integer().getMethod("sum", "(II)I");
+		JavaMethod longSum = vm.getSymbols().java_lang_Long().getMethod("sum", "(JJ)J");
+		JavaMethod toString = vm.getSymbols().java_lang_Integer().getMethod("toString", "(I)Ljava/lang/String;");
+		JavaMethod signum = vm.getSymbols().java_lang_Integer().getMethod("signum", "(I)I");
+		vm.getInterface().setInvoker(signum, ctx -> {
+			// Re-enters invocation operations while the outer call is in progress
+			int value = ctx.getLocals().loadInt(0);
+			ObjectValue string = ops.invokeReference(toString, intLocals(vm, toString, value, 0));
+			int result = ops.invokeInt(intSum, intLocals(vm, intSum, value, 1));
+			Locals locals = vm.getThreadStorage().newLocals(longSum);
+			locals.setLong(0, result);
+			locals.setLong(2, ops.readUtf8(string).length());
+			ctx.setResult((int) ops.invokeLong(longSum, locals));
+			return Result.ABORT;
+		});
+		for (int i = 0; i < 64; i++) {
+			assertEquals(i + 1 + Integer.toString(i).length(), ops.invokeInt(signum, intLocals(vm, signum, i, 0)));
+			assertEquals(Integer.toString(i), ops.readUtf8(ops.invokeReference(toString, intLocals(vm, toString, i, 0))));
+		}
+	}
+
+	@Test
+	public void testNoAllocations() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		// Allocation counters are a HotSpot extension
+		assumeTrue(bean instanceof ThreadMXBean && ((ThreadMXBean) bean).isThreadAllocatedMemorySupported());
+		ThreadMXBean threads = (ThreadMXBean) bean;
+		threads.setThreadAllocatedMemoryEnabled(true);
+		VirtualMachine vm = TestUtil.newVirtualMachine();
+		vm.initialize();
+		vm.getThreadManager().attachCurrentThread();
+		VMOperations ops = vm.getOperations();
+		JavaMethod intSum = vm.getSymbols().java_lang_Integer().getMethod("sum", "(II)I");
+		Locals locals = vm.getThreadStorage().newLocals(intSum);
+		int sum = 0;
+		// Warm up pools
+		for (int i = 0; i < 1024; i++) {
+			locals.setInt(0, i);
+			locals.setInt(1, 1);
+			sum += ops.invokeInt(intSum, locals);
+		}
+		long threadId = Thread.currentThread().getId();
+		int calls = 1024;
+		long before = threads.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < calls; i++) {
+			locals.setInt(0, i);
+			locals.setInt(1, 1);
+			sum += ops.invokeInt(intSum, locals);
+		}
+		long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+		assertEquals(1024 * 1025, sum);
+		// Host runtime may allocate a few bytes once in a while,
+		// a single object per call would be at least 16 bytes per call
+		assertTrue(allocated < calls, "Invocation path allocated " + allocated + " bytes in " + calls + " calls");
+	}
+
+	private static Locals intLocals(VirtualMachine vm, JavaMethod method, int a, int b) {
+		Locals locals = vm.getThreadStorage().newLocals(method);
+		locals.setInt(0, a);
+		if (method.getMaxArgs() > 1) {
+			locals.setInt(1, b);
+		}
+		return locals;
+	}
+}
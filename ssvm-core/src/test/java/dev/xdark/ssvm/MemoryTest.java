@@ -1,18 +1,39 @@
 package dev.xdark.ssvm;
 
 import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.PanicException;
 import dev.xdark.ssvm.execution.Stack;
+import dev.xdark.ssvm.filesystem.FileManager;
+import dev.xdark.ssvm.filesystem.HostFileManager;
+import dev.xdark.ssvm.memory.allocation.ArenaMemoryAllocator;
 import dev.xdark.ssvm.memory.allocation.MemoryAllocator;
+import dev.xdark.ssvm.memory.allocation.MemoryBlock;
 import dev.xdark.ssvm.memory.allocation.NavigableMemoryAllocator;
+import dev.xdark.ssvm.memory.management.MemoryManager;
+import dev.xdark.ssvm.memory.management.SimpleMemoryManager;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.operation.VMOperations;
 import dev.xdark.ssvm.thread.ThreadStorage;
+import dev.xdark.ssvm.thread.array.ArrayThreadStorage;
 import dev.xdark.ssvm.thread.heap.HeapThreadStorage;
+import dev.xdark.ssvm.util.SafeCloseable;
+import dev.xdark.ssvm.value.ObjectValue;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.parallel.Execution;
 import org.junit.jupiter.api.parallel.ExecutionMode;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @Execution(ExecutionMode.SAME_THREAD)
@@ -60,48 +81,212 @@ public void testLocalsCopy() {
 		assertEquals(1, b.maxSlots());
 	}
 
-	/*
-	@Disabled
+	@Test
+	public void testOverlappingFrames() {
+		VirtualMachine vm = TestUtil.newVirtualMachine();
+		vm.initialize();
+		JavaMethod sum = vm.getSymbols().java_lang_Integer().getMethod("sum", "(II)I");
+		MemoryAllocator alloc = new NavigableMemoryAllocator();
+		ThreadStorage storage = new HeapThreadStorage(null, alloc, alloc.allocateHeap(1024L));
+		Stack stack = storage.newStack(4);
+		stack.pushInt(1);
+		stack.pushInt(2);
+		stack.pushInt(3);
+		Locals locals = storage.newLocals(sum, stack);
+		assertEquals(2, locals.loadInt(0));
+		assertEquals(3, locals.loadInt(1));
+		assertEquals(1, stack.popInt());
+		// Arguments are shared with the caller stack
+		stack.pushInt(1);
+		stack.pushInt(4);
+		assertEquals(4, locals.loadInt(0));
+	}
+
+	@Test
+	public void testStorageSegments() {
+		MemoryAllocator alloc = new NavigableMemoryAllocator();
+		ThreadStorage storage = new HeapThreadStorage(null, alloc, 32L, 128L, () -> {
+			throw new IllegalStateException("overflow");
+		});
+		List<SafeCloseable> frames = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			// Each frame takes its own segment
+			Locals locals = storage.newLocals(3);
+			locals.setLong(0, i);
+			frames.add((SafeCloseable) locals);
+		}
+		List<Long> scanned = new ArrayList<>();
+		storage.scanValues(scanned::add);
+		assertEquals(12, scanned.size());
+		assertEquals(Arrays.asList(0L, 1L, 2L, 3L), Arrays.asList(scanned.get(0), scanned.get(3), scanned.get(6), scanned.get(9)));
+		IllegalStateException ex = assertThrows(IllegalStateException.class, () -> storage.newLocals(2));
+		assertEquals("overflow", ex.getMessage());
+		frames.remove(3).close();
+		frames.remove(2).close();
+		// Freed segments are reused
+		Locals locals = storage.newLocals(4);
+		locals.setLong(3, 42L);
+		scanned.clear();
+		storage.scanValues(scanned::add);
+		assertEquals(Arrays.asList(0L, 0L, 0L, 1L, 0L, 0L, 2L, 0L, 0L, 42L), scanned);
+		((SafeCloseable) locals).close();
+		frames.remove(1).close();
+		frames.remove(0).close();
+		scanned.clear();
+		storage.scanValues(scanned::add);
+		assertTrue(scanned.isEmpty());
+		storage.free();
+	}
+
+	@Test
+	public void testArrayStorage() {
+		VirtualMachine vm = TestUtil.newVirtualMachine();
+		vm.initialize();
+		MemoryManager memoryManager = vm.getMemoryManager();
+		JavaMethod sum = vm.getSymbols().java_lang_Integer().getMethod("sum", "(II)I");
+		ArrayThreadStorage storage = new ArrayThreadStorage(memoryManager, 8);
+		Stack stack = storage.newStack(4);
+		ObjectValue value = vm.getOperations().newUtf8("reference");
+		stack.pushReference(value);
+		stack.pushInt(2);
+		stack.pushInt(3);
+		Locals locals = storage.newLocals(sum, stack);
+		assertEquals(2, locals.loadInt(0));
+		assertEquals(3, locals.loadInt(1));
+		// Arguments are shared with the caller stack
+		stack.pushLong(4L);
+		assertEquals(4, locals.loadInt(0));
+		assertEquals(4L, stack.popLong());
+		assertSame(value, stack.peekReference());
+		List<Long> scanned = new ArrayList<>();
+		storage.scanValues(scanned::add);
+		assertEquals(Collections.singletonList(memoryManager.getReferenceValue(value)), scanned);
+		// Slots that were never written as references read as null
+		assertSame(memoryManager.nullValue(), locals.loadReference(1));
+		((SafeCloseable) locals).close();
+		Locals copy = storage.newLocals(2);
+		copy.setReference(1, value);
+		Locals other = storage.newLocals(2);
+		other.copyFrom(copy, 1, 0, 1);
+		assertSame(value, other.loadReference(0));
+		assertEquals(2, other.maxSlots());
+		assertThrows(PanicException.class, () -> storage.newLocals(2));
+		((SafeCloseable) other).close();
+		((SafeCloseable) copy).close();
+		// Released slots must not be reported
+		scanned.clear();
+		storage.scanValues(scanned::add);
+		assertEquals(Collections.singletonList(memoryManager.getReferenceValue(value)), scanned);
+		Locals reused = storage.newLocals(2);
+		assertSame(memoryManager.nullValue(), reused.loadReference(1));
+		((SafeCloseable) reused).close();
+		// Popped slots must not be reported
+		assertSame(value, stack.popReference());
+		scanned.clear();
+		storage.scanValues(scanned::add);
+		assertTrue(scanned.isEmpty());
+		((SafeCloseable) stack).close();
+	}
+
+	@Test
+	public void testReferences() {
+		VirtualMachine vm = TestUtil.newVirtualMachine();
+		vm.initialize();
+		MemoryManager memoryManager = vm.getMemoryManager();
+		ObjectValue value = vm.getOperations().newUtf8("reference");
+		assertSame(value, memoryManager.getReference(memoryManager.getReferenceValue(value)));
+		// Raw addresses must resolve too
+		assertSame(value, memoryManager.getReference(value.getMemory().getAddress()));
+		ObjectValue nullValue = memoryManager.nullValue();
+		assertEquals(0L, memoryManager.getReferenceValue(nullValue));
+		assertSame(nullValue, memoryManager.getReference(0L));
+	}
+
 	@Test
 	public void testGC() {
 		VirtualMachine vm = new VirtualMachine() {
+			@Override
+			protected FileManager createFileManager() {
+				return new HostFileManager();
+			}
+
 			@Override
 			protected MemoryManager createMemoryManager() {
-				return new SimpleMemoryManager(this) {
-					@Override
-					protected GarbageCollector createGarbageCollector() {
-						return new MarkAndSweepGarbageCollector(vm);
-					}
-				};
+				SimpleMemoryManager memoryManager = new SimpleMemoryManager(this);
+				memoryManager.setCollectionThreshold(256L * 1024L);
+				return memoryManager;
 			}
 		};
-		vm.initialize();
-		vm.getInterface().setInvoker(vm.getSymbols().java_lang_System(), "loadLibrary", "(Ljava/lang/String;)V", MethodInvoker.interpreted(ctx -> {
-			if ("zip".equals(vm.getHelper().readUtf8(ctx.getLocals().loadReference(0)))) {
-				invokeGC(vm.getMemoryManager());
-			}
-			return Result.CONTINUE;
-		}));
 		vm.bootstrap();
 		MemoryManager memoryManager = vm.getMemoryManager();
-		invokeGC(memoryManager);
-		invokeGC(memoryManager);
+		// Collection is postponed until VM reaches a safepoint
+		assertTrue(memoryManager.isCollectionRequested());
+		assertEquals("42", toString(vm, 42));
+		assertFalse(memoryManager.isCollectionRequested());
+		VMOperations ops = vm.getOperations();
+		ObjectValue pinned = ops.newUtf8("pinned");
+		memoryManager.pin(pinned);
+		ops.newUtf8("garbage");
+		int allocated = memoryManager.listObjects().size();
+		int freed = memoryManager.collect();
+		assertTrue(freed > 0);
+		assertEquals(allocated - freed, memoryManager.listObjects().size());
+		assertEquals("pinned", ops.readUtf8(pinned));
+		memoryManager.unpin(pinned);
+		// VM must stay usable after collection
+		for (int i = 0; i < 64; i++) {
+			assertEquals(Integer.toString(i), toString(vm, i));
+		}
 	}
 
-	private static void invokeGC(MemoryManager memoryManager) {
-		Collection<ObjectValue> objects = memoryManager.listObjects();
-		System.out.println("allocated objects: " + objects.size());
-		Thread invokeGC = new Thread(() -> {
-			long now = System.currentTimeMillis();
-			memoryManager.getGarbageCollector().invoke();
-			System.out.println("gc took:" + (System.currentTimeMillis() - now));
-		}, "GC Thread");
-		invokeGC.start();
-		try {
-			invokeGC.join();
-		} catch (InterruptedException ignored) {
-		}
-		System.out.println("allocated objects after GC: " + objects.size());
+	@Test
+	public void testArenaAllocator() throws InterruptedException {
+		MemoryAllocator alloc = new ArenaMemoryAllocator();
+		MemoryBlock a = alloc.allocateHeap(24L);
+		MemoryBlock b = alloc.allocateHeap(24L);
+		assertEquals(24L, a.getData().length());
+		assertTrue(b.getAddress() > a.getAddress());
+		assertSame(a, alloc.findHeapBlock(a.getAddress()));
+		assertSame(a, alloc.findHeapBlock(a.getAddress() + 16L));
+		assertSame(b, alloc.findHeapBlock(b.getAddress()));
+		b.getData().writeLong(0L, 42L);
+		assertEquals(0L, a.getData().readLong(16L));
+		MemoryBlock large = alloc.allocateHeap(1L << 20);
+		assertSame(large, alloc.findHeapBlock(large.getAddress() + (1L << 19)));
+		assertTrue(alloc.freeHeap(large.getAddress()));
+		assertNull(alloc.findHeapBlock(large.getAddress()));
+		assertTrue(alloc.freeHeap(a.getAddress()));
+		assertFalse(alloc.freeHeap(a.getAddress()));
+		assertNull(alloc.findHeapBlock(a.getAddress()));
+		assertSame(b, alloc.findHeapBlock(b.getAddress()));
+		MemoryBlock direct = alloc.allocateDirect(16L);
+		direct.getData().writeLong(8L, 42L);
+		assertNull(alloc.findHeapBlock(direct.getAddress()));
+		MemoryBlock reallocated = alloc.reallocateDirect(direct.getAddress(), 32L);
+		assertEquals(42L, reallocated.getData().readLong(8L));
+		assertNull(alloc.findDirectBlock(direct.getAddress()));
+		assertTrue(alloc.freeDirect(reallocated.getAddress()));
+		// Buffer of a detached thread is retired and
+		// released once its blocks are freed
+		long total = alloc.dumpStatistics().totalSpace();
+		MemoryBlock[] owned = new MemoryBlock[1];
+		Thread thread = new Thread(() -> {
+			owned[0] = alloc.allocateHeap(24L);
+			alloc.detachCurrentThread();
+		});
+		thread.start();
+		thread.join();
+		assertTrue(alloc.dumpStatistics().totalSpace() > total);
+		assertTrue(alloc.freeHeap(owned[0].getAddress()));
+		assertEquals(total, alloc.dumpStatistics().totalSpace());
+	}
+
+	private static String toString(VirtualMachine vm, int value) {
+		VMOperations ops = vm.getOperations();
+		InstanceClass jc = vm.getSymbols().java_lang_Integer();
+		JavaMethod method = jc.getMethod("toString", "(I)Ljava/lang/String;");
+		Locals locals = vm.getThreadStorage().newLocals(method);
+		locals.setInt(0, value);
+		return ops.readUtf8(ops.invokeReference(method, locals));
 	}
-	*/
 }
@@ -0,0 +1,62 @@
+package dev.xdark.ssvm;
+
+import dev.xdark.ssvm.api.MethodEnterListener;
+import dev.xdark.ssvm.api.MethodExitListener;
+import dev.xdark.ssvm.api.VMInterface;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.jvmti.JVMTIEnv;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MethodListenerTest {
+
+	@Test
+	public void testListenersSwitch() {
+		VirtualMachine vm = TestUtil.newVirtualMachine();
+		vm.initialize();
+		vm.getThreadManager().attachCurrentThread();
+		VMInterface vmi = vm.getInterface();
+		assertFalse(vmi.hasMethodListeners());
+		assertFalse(vm.hasMethodEvents());
+		AtomicInteger enters = new AtomicInteger();
+		AtomicInteger exits = new AtomicInteger();
+		MethodEnterListener enter = ctx -> enters.incrementAndGet();
+		MethodExitListener exit = ctx -> exits.incrementAndGet();
+		vmi.registerMethodEnterListener(enter);
+		vmi.registerMethodExitListener(exit);
+		assertTrue(vmi.hasMethodListeners());
+		invoke(vm);
+		assertEquals(1, enters.get());
+		assertEquals(1, exits.get());
+		vmi.removeMethodEnterListener(enter);
+		vmi.removeMethodExitListener(exit);
+		assertFalse(vmi.hasMethodListeners());
+		invoke(vm);
+		assertEquals(1, enters.get());
+
+		JVMTIEnv env = vm.newJvmtiEnv();
+		assertFalse(vm.hasMethodEvents());
+		env.setMethodEnter(ctx -> enters.incrementAndGet());
+		assertTrue(vm.hasMethodEvents());
+		invoke(vm);
+		assertEquals(2, enters.get());
+		env.close();
+		assertFalse(vm.hasMethodEvents());
+		invoke(vm);
+		assertEquals(2, enters.get());
+	}
+
+	private static void invoke(VirtualMachine vm) {
+		JavaMethod sum = vm.getSymbols().java_lang_Integer().getMethod("sum", "(II)I");
+		Locals locals = vm.getThreadStorage().newLocals(sum);
+		locals.setInt(0, 1);
+		locals.setInt(1, 2);
+		assertEquals(3, vm.getOperations().invokeInt(sum, locals));
+	}
+}
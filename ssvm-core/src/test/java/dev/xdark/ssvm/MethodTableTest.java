@@ -0,0 +1,46 @@
+package dev.xdark.ssvm;
+
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.mirror.type.InstanceClass;
+import dev.xdark.ssvm.value.InstanceValue;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Opcodes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class MethodTableTest {
+
+	@Test
+	public void testTablesMatchResolver() {
+		VirtualMachine vm = TestUtil.newVirtualMachine();
+		vm.bootstrap();
+		RuntimeResolver resolver = vm.getRuntimeResolver();
+		List<InstanceClass> classes = new ArrayList<>(vm.getClassLoaders().getClassLoaderData(vm.getMemoryManager().nullValue()).list());
+		for (InstanceClass jc : classes) {
+			if (!jc.canAllocateInstance()) {
+				continue;
+			}
+			InstanceValue instance = vm.getMemoryManager().newInstance(jc);
+			for (JavaMethod method : jc.getVirtualTable()) {
+				// Package-private methods may be shadowed by methods from other packages
+				if ((method.getModifiers() & (Opcodes.ACC_PUBLIC | Opcodes.ACC_PROTECTED)) == 0) {
+					continue;
+				}
+				assertSame(resolver.resolveVirtualMethod(instance, method.getName(), method.getDesc()), method, method::toString);
+			}
+			for (InstanceClass itf : jc.getInterfaces()) {
+				JavaMethod[] layout = itf.getVirtualTable();
+				JavaMethod[] table = jc.getInterfaceTable().get(itf);
+				for (int i = 0; i < layout.length; i++) {
+					JavaMethod method = table[i];
+					if (method != null) {
+						assertSame(resolver.resolveInterfaceMethod(instance, method.getName(), method.getDesc()), method, method::toString);
+					}
+				}
+			}
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package dev.xdark.ssvm;
 
+import dev.xdark.ssvm.thread.array.ArrayThreadStorage;
 import dev.xdark.ssvm.thread.heap.HeapStack;
 import dev.xdark.ssvm.execution.Stack;
 import dev.xdark.ssvm.memory.allocation.MemoryData;
@@ -8,7 +9,7 @@
 import org.junit.jupiter.params.provider.MethodSource;
 
 import java.nio.ByteBuffer;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -186,7 +187,7 @@ public void testSwap(Stack stack) {
 
 	private static List<Stack> stacks() {
 		MemoryData memory = MemoryData.buffer(ByteBuffer.allocate(MAX_STACK_SIZE * 8));
-		return Collections.singletonList(new HeapStack(null, new ThreadMemoryData() {
+		return Arrays.asList(new HeapStack(null, new ThreadMemoryData() {
 			@Override
 			public MemoryData data() {
 				return memory;
@@ -196,6 +197,6 @@ public MemoryData data() {
 			public void reclaim() {
 
 			}
-		}));
+		}), new ArrayThreadStorage(null, MAX_STACK_SIZE).newStack(MAX_STACK_SIZE));
 	}
 }
@@ -0,0 +1,53 @@
+package dev.xdark.ssvm;
+
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.VMException;
+import dev.xdark.ssvm.memory.management.MemoryManager;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.value.InstanceValue;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VMExceptionTest {
+
+	@Test
+	public void testLazyCause() {
+		VirtualMachine vm = TestUtil.newVirtualMachine();
+		vm.initialize();
+		vm.getThreadManager().attachCurrentThread();
+		VMOperations ops = vm.getOperations();
+		VMException ex = assertThrows(VMException.class, () -> ops.throwException(vm.getSymbols().java_lang_IllegalStateException(), "boom"));
+		assertEquals(0, ex.getStackTrace().length);
+		// Host exception must reflect the oop at the time of the first call,
+		// which is only possible if it did not exist before
+		InstanceValue oop = ex.getOop();
+		ops.putReference(oop, "detailMessage", "Ljava/lang/String;", ops.newUtf8("changed"));
+		Throwable cause = ex.getCause();
+		assertEquals("changed", cause.getMessage());
+		assertSame(cause, ex.getCause());
+		assertTrue(ex.getMessage().contains("changed"));
+	}
+
+	@Test
+	public void testSurvivesCollection() {
+		VirtualMachine vm = TestUtil.newVirtualMachine();
+		vm.bootstrap();
+		VMOperations ops = vm.getOperations();
+		JavaMethod parseInt = vm.getSymbols().java_lang_Integer().getMethod("parseInt", "(Ljava/lang/String;)I");
+		Locals locals = vm.getThreadStorage().newLocals(parseInt);
+		locals.setReference(0, ops.newUtf8("not a number"));
+		VMException ex = assertThrows(VMException.class, () -> ops.invokeInt(parseInt, locals));
+		// Host exception must be created before the oop is collected
+		MemoryManager memoryManager = vm.getMemoryManager();
+		memoryManager.collect();
+		for (int i = 0; i < 1024; i++) {
+			ops.newUtf8("garbage " + i);
+		}
+		assertTrue(ex.getMessage().contains("not a number"));
+	}
+}
@@ -0,0 +1,158 @@
+package dev.xdark.ssvm.enhanced;
+
+import dev.xdark.ssvm.TestUtil;
+import dev.xdark.ssvm.VMTest;
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.filesystem.FileManager;
+import dev.xdark.ssvm.filesystem.HostFileManager;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.thread.ThreadManager;
+import dev.xdark.ssvm.thread.ThreadStorageFactory;
+import dev.xdark.ssvm.thread.array.ArrayThreadStorage;
+import dev.xdark.ssvm.thread.heap.HeapThreadStorage;
+import dev.xdark.ssvm.thread.virtual.VirtualThreadManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+public class ArrayThreadStorageTest {
+
+	@Test
+	public void doTest() {
+		TestUtil.test(ArrayThreadStorageTest.class, TestUtil.BOOTSTRAP, null, () -> newVirtualMachine(ArrayThreadStorage::create));
+	}
+
+	@Test
+	public void testSameResults() {
+		String[] results = new String[2];
+		ThreadStorageFactory[] factories = {HeapThreadStorage::create, ArrayThreadStorage::create};
+		Class<?>[] types = {HeapThreadStorage.class, ArrayThreadStorage.class};
+		for (int i = 0; i < factories.length; i++) {
+			int index = i;
+			ThreadStorageFactory factory = factories[i];
+			TestUtil.test(ArrayThreadStorageTest.class, TestUtil.BOOTSTRAP, jc -> {
+				VirtualMachine vm = jc.getVM();
+				VMOperations ops = vm.getOperations();
+				assertInstanceOf(types[index], vm.getThreadStorage());
+				JavaMethod work = jc.getMethod("work", "(I)Ljava/lang/String;");
+				Locals locals = vm.getThreadStorage().newLocals(work);
+				locals.setInt(0, 64);
+				results[index] = ops.readUtf8(ops.invokeReference(work, locals));
+			}, () -> newVirtualMachine(factory));
+		}
+		assertEquals(work(64), results[0]);
+		assertEquals(results[0], results[1]);
+	}
+
+	@Test
+	public void testPerformance() {
+		// Not a benchmark. Host JIT favours whichever
+		// storage runs first, so both VMs are set up beforehand
+		// and measured in turns
+		ThreadStorageFactory[] factories = {HeapThreadStorage::create, ArrayThreadStorage::create};
+		VirtualMachine[] vms = new VirtualMachine[factories.length];
+		JavaMethod[] methods = new JavaMethod[factories.length];
+		for (int i = 0; i < factories.length; i++) {
+			int index = i;
+			TestUtil.test(ArrayThreadStorageTest.class, TestUtil.BOOTSTRAP, jc -> {
+				vms[index] = jc.getVM();
+				methods[index] = jc.getMethod("fib", "(I)I");
+			}, () -> newVirtualMachine(factories[index]));
+		}
+		long[] times = new long[factories.length];
+		Arrays.fill(times, Long.MAX_VALUE);
+		for (int round = 0; round < 64; round++) {
+			for (int i = 0; i < vms.length; i++) {
+				VirtualMachine vm = vms[i];
+				JavaMethod fib = methods[i];
+				Locals locals = vm.getThreadStorage().newLocals(fib);
+				locals.setInt(0, 20);
+				long start = System.nanoTime();
+				assertEquals(6765, vm.getOperations().invokeInt(fib, locals));
+				times[i] = Math.min(times[i], System.nanoTime() - start);
+			}
+		}
+		// Timings depend on the host, so they are only reported
+		System.out.println("fib(20), heap: " + times[0] + "ns, array: " + times[1] + "ns");
+	}
+
+	@VMTest
+	private static void testRecursion() {
+		for (int i = 0; i < 16; i++) {
+			if (fib(i) != (i < 2 ? i : fib(i - 1) + fib(i - 2))) {
+				throw new IllegalStateException("fib " + i);
+			}
+		}
+		if (depth(512, new Object(), 512L, 1.0D) != 512) {
+			throw new IllegalStateException("depth");
+		}
+	}
+
+	@VMTest
+	private static void testWork() {
+		if (!work(32).equals(work(32))) {
+			throw new IllegalStateException();
+		}
+	}
+
+	@VMTest
+	private static void testThreads() throws InterruptedException {
+		String[] results = new String[4];
+		Thread[] threads = new Thread[results.length];
+		for (int i = 0; i < threads.length; i++) {
+			int index = i;
+			threads[i] = new Thread(() -> results[index] = work(index + 8));
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+			if (!work(i + 8).equals(results[i])) {
+				throw new IllegalStateException("thread " + i);
+			}
+		}
+	}
+
+	private static int fib(int n) {
+		return n < 2 ? n : fib(n - 1) + fib(n - 2);
+	}
+
+	private static int depth(int n, Object o, long l, double d) {
+		if (o == null || l != n * (long) d) {
+			throw new IllegalStateException();
+		}
+		return n == 1 ? 1 : 1 + depth(n - 1, o, n - 1, 1.0D);
+	}
+
+	private static String work(int n) {
+		List<Object> list = new ArrayList<>();
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < n; i++) {
+			long wide = (long) i << 33;
+			double d = i * 0.5D;
+			list.add(i % 3 == 0 ? null : Integer.toString(i));
+			builder.append(wide >>> 33).append(':').append(d).append(':').append(list.get(i)).append(',');
+		}
+		return builder.toString();
+	}
+
+	private static VirtualMachine newVirtualMachine(ThreadStorageFactory factory) {
+		return new VirtualMachine() {
+			@Override
+			protected FileManager createFileManager() {
+				return new HostFileManager();
+			}
+
+			@Override
+			protected ThreadManager createThreadManager() {
+				return new VirtualThreadManager(this, factory);
+			}
+		};
+	}
+}
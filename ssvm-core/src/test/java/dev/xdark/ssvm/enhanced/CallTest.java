@@ -2,11 +2,22 @@
 
 import dev.xdark.ssvm.TestUtil;
 import dev.xdark.ssvm.VMTest;
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.asm.InlineCache;
+import dev.xdark.ssvm.asm.VMCallInsnNode;
+import dev.xdark.ssvm.execution.CompactCode;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
 import org.junit.jupiter.api.Test;
+import org.objectweb.asm.tree.AbstractInsnNode;
 
 import java.util.Objects;
 import java.util.concurrent.ThreadLocalRandom;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 public class CallTest {
 
 	@Test
@@ -14,6 +25,54 @@ public void doTest() {
 		TestUtil.test(InnerCallTest.class, true);
 	}
 
+	@Test
+	public void testInlineCache() {
+		TestUtil.test(InnerCallTest.class, TestUtil.BOOTSTRAP, jc -> {
+			VirtualMachine vm = jc.getVM();
+			JavaMethod dispatch = jc.getMethod("dispatch", "(I)I");
+			// Monomorphic
+			for (int i = 0; i < 4; i++) {
+				assertEquals(1, dispatch(vm, dispatch, 0));
+			}
+			InlineCache cache = inlineCache(dispatch);
+			assertEquals(1, cache.size());
+			assertEquals(1L, cache.getMisses());
+			assertEquals(3L, cache.getHits());
+			// Bimorphic
+			assertEquals(2, dispatch(vm, dispatch, 1));
+			assertEquals(1, dispatch(vm, dispatch, 0));
+			assertEquals(2, dispatch(vm, dispatch, 1));
+			assertEquals(2, cache.size());
+			assertFalse(cache.isMegamorphic());
+			assertEquals(2L, cache.getMisses());
+			assertEquals(5L, cache.getHits());
+			// Megamorphic call sites are not cached
+			assertEquals(3, dispatch(vm, dispatch, 2));
+			assertTrue(cache.isMegamorphic());
+			assertEquals(0, cache.size());
+			assertEquals(1, dispatch(vm, dispatch, 0));
+			assertEquals(4L, cache.getMisses());
+			assertEquals(5L, cache.getHits());
+		}, TestUtil::newVirtualMachine);
+	}
+
+	private static int dispatch(VirtualMachine vm, JavaMethod method, int kind) {
+		Locals locals = vm.getThreadStorage().newLocals(method);
+		locals.setInt(0, kind);
+		return vm.getOperations().invokeInt(method, locals);
+	}
+
+	private static InlineCache inlineCache(JavaMethod method) {
+		CompactCode code = method.getCompactCode();
+		for (int i = 0; i < code.length(); i++) {
+			AbstractInsnNode insn = code.insn(i);
+			if (insn instanceof VMCallInsnNode && "intValue".equals(((VMCallInsnNode) insn).getDelegate().name)) {
+				return ((VMCallInsnNode) insn).getInlineCache();
+			}
+		}
+		throw new AssertionError("Call site was not linked");
+	}
+
 	private static final class InnerCallTest {
 
 		private static int field1, field2;
@@ -37,6 +96,39 @@ private static void doVirtualCall() {
 			obj.doVirtualCallImpl(field1, field2, field3, field4, field5, field6);
 		}
 
+		@VMTest
+		private static void doPolymorphicCall() {
+			Number[] numbers = {1, 2L, (short) 3, 4L, (byte) 5, 6.0D};
+			int sum = 0;
+			for (int i = 0; i < 4; i++) {
+				for (Number number : numbers) {
+					sum += number.intValue();
+				}
+			}
+			if (sum != 4 * 21) {
+				throw new IllegalStateException();
+			}
+		}
+
+		@VMTest
+		private static void doPolymorphicInterfaceCall() {
+			CharSequence[] sequences = {"a", new StringBuilder("bc"), "def", new StringBuffer("ghij")};
+			int length = 0;
+			for (int i = 0; i < 4; i++) {
+				for (CharSequence sequence : sequences) {
+					length += sequence.length();
+				}
+			}
+			if (length != 4 * 10) {
+				throw new IllegalStateException();
+			}
+		}
+
+		private static int dispatch(int kind) {
+			Number number = kind == 0 ? (Number) Integer.valueOf(1) : kind == 1 ? (Number) Long.valueOf(2L) : Double.valueOf(3.0D);
+			return number.intValue();
+		}
+
 		private static void setFields() {
 			ThreadLocalRandom r = ThreadLocalRandom.current();
 			field1 = r.nextInt();
@@ -0,0 +1,224 @@
+package dev.xdark.ssvm.enhanced;
+
+import dev.xdark.ssvm.TestUtil;
+import dev.xdark.ssvm.VMTest;
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.filesystem.FileManager;
+import dev.xdark.ssvm.filesystem.HostFileManager;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.thread.JavaThread;
+import dev.xdark.ssvm.thread.ThreadManager;
+import dev.xdark.ssvm.thread.host.HostThreadManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HostThreadTest {
+
+	@Test
+	public void doTest() {
+		TestUtil.test(HostThreadTest.class, TestUtil.BOOTSTRAP, null, HostThreadTest::newVirtualMachine);
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testAttachedThreads() {
+		TestUtil.test(Worker.class, TestUtil.BOOTSTRAP, jc -> {
+			VirtualMachine vm = jc.getVM();
+			// Synchronizer must match the thread manager,
+			// qualified name keeps deprecated import out
+			assertInstanceOf(dev.xdark.ssvm.synchronizer.java.LockObjectSynchronizer.class, vm.getObjectSynchronizer());
+			JavaMethod work = jc.getMethod("work", "(I)Ljava/lang/String;");
+			int count = 8;
+			CyclicBarrier barrier = new CyclicBarrier(count);
+			List<Throwable> errors = new CopyOnWriteArrayList<>();
+			Thread[] threads = new Thread[count];
+			for (int i = 0; i < count; i++) {
+				int seed = i;
+				threads[i] = new Thread(() -> {
+					ThreadManager threadManager = vm.getThreadManager();
+					threadManager.attachCurrentThread();
+					JavaThread current = threadManager.currentJavaThread();
+					try {
+						// Safepoint checks must see attached threads
+						assertTrue(threadManager.snapshot().contains(current));
+						// Make all threads link the same instructions at once
+						barrier.await();
+						VMOperations ops = vm.getOperations();
+						Locals locals = vm.getThreadStorage().newLocals(work);
+						locals.setInt(0, seed);
+						assertEquals(Worker.work(seed), ops.readUtf8(ops.invokeReference(work, locals)));
+					} catch (Throwable t) {
+						errors.add(t);
+					} finally {
+						threadManager.detachCurrentThread();
+					}
+					if (threadManager.snapshot().contains(current)) {
+						errors.add(new IllegalStateException("Thread was not detached"));
+					}
+				});
+			}
+			for (Thread thread : threads) {
+				thread.start();
+			}
+			for (Thread thread : threads) {
+				try {
+					thread.join();
+				} catch (InterruptedException ex) {
+					throw new IllegalStateException(ex);
+				}
+			}
+			assertEquals(Collections.emptyList(), errors);
+		}, HostThreadTest::newVirtualMachine);
+	}
+
+	@VMTest
+	private static void testProducerConsumer() throws InterruptedException {
+		BlockingQueue<Integer> queue = new ArrayBlockingQueue<>(4);
+		int[] sum = new int[1];
+		Thread consumer = new Thread(() -> {
+			try {
+				for (int i = 0; i < 64; i++) {
+					sum[0] += queue.take();
+				}
+			} catch (InterruptedException ex) {
+				throw new IllegalStateException(ex);
+			}
+		});
+		consumer.start();
+		for (int i = 0; i < 64; i++) {
+			queue.put(i);
+		}
+		consumer.join();
+		if (sum[0] != 63 * 64 / 2) {
+			throw new IllegalStateException(Integer.toString(sum[0]));
+		}
+	}
+
+	@VMTest
+	private static void testWaitNotify() throws InterruptedException {
+		Object lock = new Object();
+		boolean[] ready = new boolean[1];
+		Thread thread = new Thread(() -> {
+			synchronized (lock) {
+				ready[0] = true;
+				lock.notifyAll();
+			}
+		});
+		synchronized (lock) {
+			thread.start();
+			while (!ready[0]) {
+				lock.wait();
+			}
+		}
+		thread.join();
+		if (thread.isAlive()) {
+			throw new IllegalStateException();
+		}
+	}
+
+	@VMTest
+	private static void testParallelSum() throws InterruptedException {
+		AtomicLong total = new AtomicLong();
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			int from = i * 1000;
+			threads[i] = new Thread(() -> {
+				// All threads race to link the same instructions
+				long sum = 0L;
+				StringBuilder builder = new StringBuilder();
+				for (int j = from; j < from + 1000; j++) {
+					sum += j;
+					builder.setLength(0);
+					builder.append(j);
+				}
+				total.addAndGet(sum);
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (total.get() != 7999L * 8000L / 2L) {
+			throw new IllegalStateException(Long.toString(total.get()));
+		}
+	}
+
+	@VMTest
+	private static void testAtomicCounters() throws InterruptedException {
+		AtomicInteger ints = new AtomicInteger();
+		AtomicLong longs = new AtomicLong();
+		Map<Integer, Integer> map = new ConcurrentHashMap<>();
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(() -> {
+				// Every update must survive concurrent compare-and-set
+				for (int j = 0; j < 2048; j++) {
+					ints.incrementAndGet();
+					longs.addAndGet(2L);
+					map.merge(j & 63, 1, Integer::sum);
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (ints.get() != 16384 || longs.get() != 32768L) {
+			throw new IllegalStateException(ints.get() + " " + longs.get());
+		}
+		for (int i = 0; i < 64; i++) {
+			if (map.get(i) != 256) {
+				throw new IllegalStateException(i + " " + map.get(i));
+			}
+		}
+	}
+
+	private static final class Worker {
+		private static final String PREFIX = "worker-";
+		private static int calls;
+
+		static String work(int seed) {
+			StringBuilder builder = new StringBuilder(PREFIX);
+			long hash = seed;
+			for (int i = 0; i < 256; i++) {
+				hash = hash * 31L + Integer.toString(i).hashCode();
+				calls++;
+			}
+			return builder.append(seed).append(':').append(hash).toString();
+		}
+	}
+
+	private static VirtualMachine newVirtualMachine() {
+		return new VirtualMachine() {
+			@Override
+			protected FileManager createFileManager() {
+				return new HostFileManager();
+			}
+
+			@Override
+			protected ThreadManager createThreadManager() {
+				return new HostThreadManager(this);
+			}
+		};
+	}
+}
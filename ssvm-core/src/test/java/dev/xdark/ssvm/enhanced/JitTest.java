@@ -0,0 +1,182 @@
+package dev.xdark.ssvm.enhanced;
+
+import dev.xdark.ssvm.TestUtil;
+import dev.xdark.ssvm.VMTest;
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.api.InstructionInterceptor;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.execution.VMException;
+import dev.xdark.ssvm.jit.CompiledMethod;
+import dev.xdark.ssvm.jit.JitExecutionEngine;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.operation.VMOperations;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.InsnNode;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JitTest {
+	private static int counter;
+
+	@Test
+	public void doTest() {
+		TestUtil.test(JitTest.class, TestUtil.BOOTSTRAP, null, JitTest::newVirtualMachine);
+	}
+
+	@Test
+	public void testGuards() {
+		TestUtil.test(JitTest.class, TestUtil.BOOTSTRAP, jc -> {
+			VirtualMachine vm = jc.getVM();
+			VMOperations ops = vm.getOperations();
+			JavaMethod sum = jc.getMethod("sum", "(I)J");
+			for (int i = 0; i < 4; i++) {
+				assertEquals(sum(100), ops.invokeLong(sum, locals(vm, sum, 100)));
+			}
+			CompiledMethod compiled = assertInstanceOf(CompiledMethod.class, sum.getInvoker());
+
+			// Interceptors must see instructions of the method
+			AtomicInteger intercepted = new AtomicInteger();
+			InstructionInterceptor interceptor = (ctx, insn) -> {
+				intercepted.incrementAndGet();
+				return Result.CONTINUE;
+			};
+			vm.getInterface().registerInstructionInterceptor(interceptor);
+			assertEquals(sum(10), ops.invokeLong(sum, locals(vm, sum, 10)));
+			assertTrue(intercepted.get() > 0);
+			vm.getInterface().removeInstructionInterceptor(interceptor);
+			assertSame(compiled, sum.getInvoker());
+
+			// Changed code invalidates compiled method
+			sum.getNode().instructions.insert(new InsnNode(Opcodes.NOP));
+			assertEquals(sum(10), ops.invokeLong(sum, locals(vm, sum, 10)));
+			assertFalse(compiled.isValid());
+			assertNull(sum.getInvoker());
+			assertTrue(CompiledMethod.isInvalidated(sum));
+			// Invalidated method must not be compiled again
+			for (int i = 0; i < 8; i++) {
+				assertEquals(sum(10), ops.invokeLong(sum, locals(vm, sum, 10)));
+				assertNull(sum.getInvoker());
+			}
+
+			// Unsupported method is not compiled again
+			JavaMethod allocate = jc.getMethod("allocate", "(I)I");
+			for (int i = 0; i < 8; i++) {
+				assertEquals(i, ops.invokeInt(allocate, locals(vm, allocate, i)));
+			}
+			assertFalse(allocate.getInvoker() instanceof CompiledMethod);
+			assertFalse(CompiledMethod.isCompilable(allocate));
+
+			// Division by zero must raise VM exception
+			JavaMethod divide = jc.getMethod("divide", "(II)I");
+			for (int i = 1; i < 5; i++) {
+				Locals locals = locals(vm, divide, 100);
+				locals.setInt(1, i);
+				assertEquals(100 / i, ops.invokeInt(divide, locals));
+			}
+			assertInstanceOf(CompiledMethod.class, divide.getInvoker());
+			Locals locals = locals(vm, divide, 1);
+			locals.setInt(1, 0);
+			VMException ex = assertThrows(VMException.class, () -> ops.invokeInt(divide, locals));
+			assertSame(vm.getSymbols().java_lang_ArithmeticException(), vm.getMemoryManager().readClass(ex.getOop()));
+		}, JitTest::newVirtualMachine);
+	}
+
+	@VMTest
+	private static void testArithmetic() {
+		for (int i = 0; i < 64; i++) {
+			if (sum(i) != (long) i * (i - 1) / 2) {
+				throw new IllegalStateException("sum " + i);
+			}
+			if (Math.abs(mix(i, i * 0.5D) - (i * 3.0F + i * 0.5D * i)) > 1e-9) {
+				throw new IllegalStateException("mix " + i);
+			}
+			if (classify(i) != (i % 4 == 0 ? 'a' : i % 4 == 1 ? 'b' : i > 40 ? 'z' : 'c')) {
+				throw new IllegalStateException("classify " + i);
+			}
+		}
+	}
+
+	@VMTest
+	private static void testStaticFields() {
+		counter = 0;
+		for (int i = 0; i < 64; i++) {
+			increment(i);
+		}
+		if (counter != 63 * 64 / 2) {
+			throw new IllegalStateException(Integer.toString(counter));
+		}
+	}
+
+	@VMTest
+	private static void testReferences() {
+		Object a = new Object();
+		for (int i = 0; i < 64; i++) {
+			if (pick(a, null, i) != (i % 2 == 0 ? a : null)) {
+				throw new IllegalStateException("pick " + i);
+			}
+		}
+	}
+
+	private static long sum(int n) {
+		long sum = 0L;
+		for (int i = 0; i < n; i++) {
+			sum += i;
+		}
+		return sum;
+	}
+
+	private static double mix(int i, double d) {
+		float f = i * 3.0F;
+		return f + d * i;
+	}
+
+	private static char classify(int i) {
+		switch (i % 4) {
+			case 0:
+				return 'a';
+			case 1:
+				return 'b';
+			default:
+				return i > 40 ? 'z' : 'c';
+		}
+	}
+
+	private static void increment(int value) {
+		counter += value;
+	}
+
+	private static int divide(int a, int b) {
+		return a / b;
+	}
+
+	private static int allocate(int n) {
+		return new int[n].length;
+	}
+
+	private static Object pick(Object a, Object b, int i) {
+		if (b != null) {
+			return b;
+		}
+		return i % 2 == 0 ? a : null;
+	}
+
+	private static Locals locals(VirtualMachine vm, JavaMethod method, int value) {
+		Locals locals = vm.getThreadStorage().newLocals(method);
+		locals.setInt(0, value);
+		return locals;
+	}
+
+	private static VirtualMachine newVirtualMachine() {
+		return TestUtil.withExecutionEngine(vm -> new JitExecutionEngine(vm, 2));
+	}
+}
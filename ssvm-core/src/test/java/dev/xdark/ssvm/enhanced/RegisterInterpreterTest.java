@@ -0,0 +1,202 @@
+package dev.xdark.ssvm.enhanced;
+
+import dev.xdark.ssvm.TestUtil;
+import dev.xdark.ssvm.VMTest;
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.api.InstructionInterceptor;
+import dev.xdark.ssvm.execution.ExecutionEngine;
+import dev.xdark.ssvm.execution.InterpretedInvoker;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.execution.SimpleExecutionEngine;
+import dev.xdark.ssvm.execution.VMException;
+import dev.xdark.ssvm.execution.register.RegisterInvoker;
+import dev.xdark.ssvm.execution.register.RegisterMethod;
+import dev.xdark.ssvm.execution.register.RegisterTranslator;
+import dev.xdark.ssvm.filesystem.FileManager;
+import dev.xdark.ssvm.filesystem.HostFileManager;
+import dev.xdark.ssvm.memory.allocation.MemoryAllocator;
+import dev.xdark.ssvm.memory.allocation.SynchronizedMemoryAllocator;
+import dev.xdark.ssvm.memory.management.MemoryManager;
+import dev.xdark.ssvm.memory.management.SynchronizedMemoryManager;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.operation.VMOperations;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RegisterInterpreterTest {
+
+	@Test
+	public void doTest() {
+		TestUtil.test(RegisterInterpreterTest.class, TestUtil.BOOTSTRAP, null, RegisterInterpreterTest::newVirtualMachine);
+	}
+
+	@Test
+	public void testTranslation() {
+		TestUtil.test(RegisterInterpreterTest.class, TestUtil.BOOTSTRAP, jc -> {
+			VirtualMachine vm = jc.getVM();
+			VMOperations ops = vm.getOperations();
+			assertNull(RegisterTranslator.translate(jc.getMethod("testArithmetic", "()V")));
+			for (String name : new String[]{"mix", "compare", "sum", "fill", "divide", "pick"}) {
+				assertNotNull(RegisterTranslator.translate(jc.methodArea().stream().filter(x -> name.equals(x.getName())).findFirst().get()), name);
+			}
+			JavaMethod sum = jc.getMethod("sum", "([I)J");
+			for (int i = 0; i < 4; i++) {
+				assertEquals(6L, ops.invokeLong(sum, array(vm, sum, 1, 2, 3)));
+			}
+			assertInstanceOf(RegisterMethod.class, sum.getInvoker());
+
+			// Interceptors must see instructions of the method
+			AtomicInteger intercepted = new AtomicInteger();
+			InstructionInterceptor interceptor = (ctx, insn) -> {
+				intercepted.incrementAndGet();
+				return Result.CONTINUE;
+			};
+			vm.getInterface().registerInstructionInterceptor(interceptor);
+			assertEquals(3L, ops.invokeLong(sum, array(vm, sum, 1, 2)));
+			assertTrue(intercepted.get() > 0);
+			vm.getInterface().removeInstructionInterceptor(interceptor);
+
+			// Exceptions must be raised in the VM
+			Locals nullArray = vm.getThreadStorage().newLocals(sum);
+			nullArray.setReference(0, vm.getMemoryManager().nullValue());
+			VMException ex = assertThrows(VMException.class, () -> ops.invokeLong(sum, nullArray));
+			assertSame(vm.getSymbols().java_lang_NullPointerException(), vm.getMemoryManager().readClass(ex.getOop()));
+			JavaMethod divide = jc.getMethod("divide", "(II)I");
+			for (int i = 1; i < 5; i++) {
+				Locals locals = vm.getThreadStorage().newLocals(divide);
+				locals.setInt(0, 100);
+				locals.setInt(1, i);
+				assertEquals(100 / i, ops.invokeInt(divide, locals));
+			}
+			assertInstanceOf(RegisterMethod.class, divide.getInvoker());
+			Locals locals = vm.getThreadStorage().newLocals(divide);
+			locals.setInt(0, 1);
+			locals.setInt(1, 0);
+			ex = assertThrows(VMException.class, () -> ops.invokeInt(divide, locals));
+			assertSame(vm.getSymbols().java_lang_ArithmeticException(), vm.getMemoryManager().readClass(ex.getOop()));
+		}, RegisterInterpreterTest::newVirtualMachine);
+	}
+
+	@VMTest
+	private static void testArithmetic() {
+		for (int i = 0; i < 64; i++) {
+			if (mix(i, i * 0.5D, i * 3L) != (long) ((i * 3.0F + i * 0.5D * i) + (i * 3L << 2) - (i >>> 1) % 7 + (i ^ 0x55) - (byte) (i * 31))) {
+				throw new IllegalStateException("mix " + i);
+			}
+			if (compare(i, 64 - i) != Integer.compare(i, 64 - i) + Double.compare(i * 0.25D, 8.0D) * 2) {
+				throw new IllegalStateException("compare " + i);
+			}
+		}
+	}
+
+	@VMTest
+	private static void testArrays() {
+		for (int i = 0; i < 32; i++) {
+			int[] array = new int[i];
+			for (int j = 0; j < i; j++) {
+				array[j] = j;
+			}
+			if (sum(array) != (long) i * (i - 1) / 2) {
+				throw new IllegalStateException("sum " + i);
+			}
+			long[] wide = new long[2];
+			char[] chars = new char[2];
+			Object[] objects = new Object[2];
+			fill(wide, chars, objects, i);
+			if (wide[0] != i || wide[1] != i + 1 || chars[0] != 'a' + i || chars[1] != chars[0] || objects[0] != objects[1]) {
+				throw new IllegalStateException("fill " + i);
+			}
+		}
+	}
+
+	@VMTest
+	private static void testReferences() {
+		Object a = new Object();
+		for (int i = 0; i < 64; i++) {
+			if (pick(a, null, i) != (i % 2 == 0 ? a : null)) {
+				throw new IllegalStateException("pick " + i);
+			}
+		}
+	}
+
+	private static double mix(int i, double d, long l) {
+		float f = i * 3.0F;
+		double result = f + d * i;
+		result += (l << 2) - (i >>> 1) % 7;
+		result += (i ^ 0x55) - (byte) (i * 31);
+		return (long) result;
+	}
+
+	private static int compare(int a, int b) {
+		int result = a < b ? -1 : a == b ? 0 : 1;
+		double d = a * 0.25D;
+		return result + (d < 8.0D ? -2 : d > 8.0D ? 2 : 0);
+	}
+
+	private static long sum(int[] array) {
+		long sum = 0L;
+		for (int value : array) {
+			sum += value;
+		}
+		return sum;
+	}
+
+	private static void fill(long[] wide, char[] chars, Object[] objects, int i) {
+		long value = i;
+		wide[0] = value++;
+		wide[1] = value;
+		chars[0] = chars[1] = (char) ('a' + i);
+		objects[1] = objects[0] = wide;
+	}
+
+	private static int divide(int a, int b) {
+		return a / b;
+	}
+
+	private static Object pick(Object a, Object b, int i) {
+		if (b != null) {
+			return b;
+		}
+		return i % 2 == 0 ? a : null;
+	}
+
+	private static Locals array(VirtualMachine vm, JavaMethod method, int... values) {
+		Locals locals = vm.getThreadStorage().newLocals(method);
+		locals.setReference(0, vm.getOperations().toVMInts(values));
+		return locals;
+	}
+
+	private static VirtualMachine newVirtualMachine() {
+		return new VirtualMachine() {
+			@Override
+			protected FileManager createFileManager() {
+				return new HostFileManager();
+			}
+
+			@Override
+			protected MemoryAllocator createMemoryAllocator() {
+				return new SynchronizedMemoryAllocator(super.createMemoryAllocator());
+			}
+
+			@Override
+			protected MemoryManager createMemoryManager() {
+				return new SynchronizedMemoryManager(super.createMemoryManager());
+			}
+
+			@Override
+			protected ExecutionEngine createExecutionEngine() {
+				return new SimpleExecutionEngine(this, new RegisterInvoker(new InterpretedInvoker(), 2));
+			}
+		};
+	}
+}
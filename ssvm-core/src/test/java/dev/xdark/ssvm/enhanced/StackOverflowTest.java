@@ -0,0 +1,121 @@
+package dev.xdark.ssvm.enhanced;
+
+import dev.xdark.ssvm.TestUtil;
+import dev.xdark.ssvm.VMTest;
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.filesystem.FileManager;
+import dev.xdark.ssvm.filesystem.HostFileManager;
+import dev.xdark.ssvm.thread.ThreadManager;
+import dev.xdark.ssvm.thread.ThreadStorageFactory;
+import dev.xdark.ssvm.thread.array.ArrayThreadStorage;
+import dev.xdark.ssvm.thread.heap.HeapThreadStorage;
+import dev.xdark.ssvm.thread.virtual.VirtualThreadManager;
+import org.junit.jupiter.api.Test;
+
+public class StackOverflowTest {
+
+	@Test
+	public void doTest() {
+		TestUtil.test(StackOverflowTest.class, TestUtil.BOOTSTRAP, null, () -> newVirtualMachine(HeapThreadStorage::create));
+	}
+
+	@Test
+	public void testArrayStorage() {
+		TestUtil.test(StackOverflowTest.class, TestUtil.BOOTSTRAP, null, () -> newVirtualMachine(ArrayThreadStorage::create));
+	}
+
+	@VMTest
+	private static void testRecursion() {
+		for (int i = 0; i < 4; i++) {
+			int[] counter = new int[1];
+			try {
+				recurse(counter);
+				throw new IllegalStateException("No StackOverflowError");
+			} catch (StackOverflowError ignored) {
+			}
+			if (counter[0] < 64) {
+				throw new IllegalStateException("Too shallow: " + counter[0]);
+			}
+		}
+		// Stack must stay usable
+		if (sum(64) != 64 * 65 / 2) {
+			throw new IllegalStateException();
+		}
+	}
+
+	@VMTest
+	private static void testLargeFrames() {
+		try {
+			recurseWide(0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L);
+			throw new IllegalStateException("No StackOverflowError");
+		} catch (StackOverflowError ignored) {
+		}
+	}
+
+	@VMTest
+	private static void testThreadStackSize() throws InterruptedException {
+		int[] depths = new int[2];
+		long[] stackSizes = {64L * 1024L, 256L * 1024L};
+		for (int i = 0; i < depths.length; i++) {
+			int index = i;
+			Thread thread = new Thread(null, () -> {
+				int[] counter = new int[1];
+				try {
+					recurse(counter);
+				} catch (StackOverflowError ignored) {
+				}
+				depths[index] = counter[0];
+			}, "stack", stackSizes[i]);
+			thread.start();
+			thread.join();
+		}
+		if (depths[0] == 0 || depths[0] >= depths[1]) {
+			throw new IllegalStateException(depths[0] + " " + depths[1]);
+		}
+	}
+
+	@VMTest
+	private static void testManyThreads() throws InterruptedException {
+		Thread[] threads = new Thread[256];
+		int[] results = new int[threads.length];
+		for (int i = 0; i < threads.length; i++) {
+			int index = i;
+			threads[i] = new Thread(() -> results[index] = sum(index));
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+			if (results[i] != i * (i + 1) / 2) {
+				throw new IllegalStateException("thread " + i);
+			}
+		}
+	}
+
+	private static void recurse(int[] counter) {
+		counter[0]++;
+		recurse(counter);
+	}
+
+	private static long recurseWide(long a, long b, long c, long d, long e, long f, long g, long h) {
+		long x = a + b, y = c + d, z = e + f, w = g + h;
+		return recurseWide(x, y, z, w, a, b, c, d) + x + y + z + w;
+	}
+
+	private static int sum(int n) {
+		return n == 0 ? 0 : n + sum(n - 1);
+	}
+
+	private static VirtualMachine newVirtualMachine(ThreadStorageFactory factory) {
+		return new VirtualMachine() {
+			@Override
+			protected FileManager createFileManager() {
+				return new HostFileManager();
+			}
+
+			@Override
+			protected ThreadManager createThreadManager() {
+				return new VirtualThreadManager(this, factory);
+			}
+		};
+	}
+}
@@ -0,0 +1,32 @@
+package dev.xdark.ssvm.enhanced;
+
+import dev.xdark.ssvm.TestUtil;
+import dev.xdark.ssvm.VMTest;
+import org.junit.jupiter.api.Test;
+
+public class StackTraceTest {
+
+	@Test
+	public void doTest() {
+		TestUtil.test(StackTraceTest.class, true);
+	}
+
+	@VMTest
+	private static void testStackTrace() {
+		StackTraceElement[] stackTrace = newThrowable().getStackTrace();
+		if (stackTrace.length < 2) {
+			throw new IllegalStateException();
+		}
+		StackTraceElement top = stackTrace[0];
+		if (!"newThrowable".equals(top.getMethodName()) || !StackTraceTest.class.getName().equals(top.getClassName())) {
+			throw new IllegalStateException(top.toString());
+		}
+		if (!"testStackTrace".equals(stackTrace[1].getMethodName()) || top.getLineNumber() <= 0) {
+			throw new IllegalStateException(stackTrace[1].toString());
+		}
+	}
+
+	private static Throwable newThrowable() {
+		return new Throwable();
+	}
+}
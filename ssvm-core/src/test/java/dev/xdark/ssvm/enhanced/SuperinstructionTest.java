@@ -0,0 +1,209 @@
+package dev.xdark.ssvm.enhanced;
+
+import dev.xdark.ssvm.TestUtil;
+import dev.xdark.ssvm.VMTest;
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.asm.VMFusedInsnNode;
+import dev.xdark.ssvm.asm.VMOpcodes;
+import dev.xdark.ssvm.execution.CompactCode;
+import dev.xdark.ssvm.execution.ExecutionEngine;
+import dev.xdark.ssvm.execution.InterpretedInvoker;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.SimpleExecutionEngine;
+import dev.xdark.ssvm.execution.rewrite.fused.FusingInvoker;
+import dev.xdark.ssvm.execution.rewrite.fused.SequenceProfiler;
+import dev.xdark.ssvm.execution.rewrite.fused.Superinstructions;
+import dev.xdark.ssvm.filesystem.FileManager;
+import dev.xdark.ssvm.filesystem.HostFileManager;
+import dev.xdark.ssvm.memory.allocation.MemoryAllocator;
+import dev.xdark.ssvm.memory.allocation.SynchronizedMemoryAllocator;
+import dev.xdark.ssvm.memory.management.MemoryManager;
+import dev.xdark.ssvm.memory.management.SynchronizedMemoryManager;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.operation.VMOperations;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.tree.AbstractInsnNode;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.objectweb.asm.Opcodes.*;
+
+public class SuperinstructionTest {
+	private int value = 3;
+	private long wide = 5L;
+	private String name = "ssvm";
+
+	@Test
+	public void doTest() {
+		TestUtil.test(SuperinstructionTest.class, TestUtil.BOOTSTRAP, null, SuperinstructionTest::newVirtualMachine);
+	}
+
+	@Test
+	public void testFusion() {
+		TestUtil.test(SuperinstructionTest.class, TestUtil.BOOTSTRAP, jc -> {
+			VirtualMachine vm = jc.getVM();
+			VMOperations ops = vm.getOperations();
+			JavaMethod sum = jc.getMethod("sum", "([I)I");
+			JavaMethod read = jc.getMethod("read", "(Ldev/xdark/ssvm/enhanced/SuperinstructionTest;)J");
+			for (int i = 0; i < 4; i++) {
+				Locals locals = vm.getThreadStorage().newLocals(sum);
+				locals.setReference(0, ops.toVMInts(new int[]{1, 2, 3, 4}));
+				assertEquals(10, ops.invokeInt(sum, locals));
+				JavaMethod readNew = jc.getMethod("readNew", "()J");
+				assertEquals(12L, ops.invokeLong(readNew, vm.getThreadStorage().newLocals(readNew)));
+			}
+			JavaMethod compare = jc.getMethod("compare", "(I)I");
+			assertEquals(0, fusedOpcodes(compare).cardinality());
+			assertTrue(Superinstructions.fuse(compare) > 0);
+			Superinstructions.fuse(read);
+			BitSet opcodes = fusedOpcodes(sum);
+			opcodes.or(fusedOpcodes(read));
+			opcodes.or(fusedOpcodes(compare));
+			for (int opcode : new int[]{VMOpcodes.VM_ALOAD_GETFIELD, VMOpcodes.VM_ILOAD_ILOAD_IADD_ISTORE, VMOpcodes.VM_IINC_GOTO, VMOpcodes.VM_ILOAD_PUSH_IF_ICMP, VMOpcodes.VM_ALOAD_ARRAYLENGTH}) {
+				assertTrue(opcodes.get(opcode), () -> "Missing " + opcode);
+			}
+			// Fused code must still be intercepted one instruction at a time
+			SequenceProfiler profiler = new SequenceProfiler();
+			vm.getInterface().registerInstructionInterceptor(profiler);
+			Locals locals = vm.getThreadStorage().newLocals(sum);
+			locals.setReference(0, ops.toVMInts(new int[]{5, 6, 7}));
+			assertEquals(18, ops.invokeInt(sum, locals));
+			vm.getInterface().removeInstructionInterceptor(profiler);
+			List<SequenceProfiler.Sequence> top = profiler.getTopSequences(64);
+			assertTrue(top.stream().anyMatch(x -> Arrays.equals(x.getOpcodes(), new int[]{ILOAD, ILOAD, IADD, ISTORE}) && x.getCount() == 3), top::toString);
+			assertTrue(top.stream().anyMatch(x -> Arrays.equals(x.getOpcodes(), new int[]{IINC, GOTO}) && x.getCount() == 3), top::toString);
+			for (int i = 1; i < top.size(); i++) {
+				assertTrue(top.get(i - 1).getCount() >= top.get(i).getCount());
+			}
+		}, SuperinstructionTest::newVirtualMachine);
+	}
+
+	@VMTest
+	private static void testLoops() {
+		for (int i = 0; i < 32; i++) {
+			int[] array = new int[i];
+			for (int j = 0; j < i; j++) {
+				array[j] = j;
+			}
+			if (sum(array) != i * (i - 1) / 2) {
+				throw new IllegalStateException("sum " + i);
+			}
+			if (countDown(i) != (i > 3 ? i - 3 : 0)) {
+				throw new IllegalStateException("countDown " + i);
+			}
+		}
+	}
+
+	@VMTest
+	private static void testConditions() {
+		for (int i = -200; i < 200; i++) {
+			int expected = (i == 7 ? 1 : 0) | (i != -1 ? 2 : 0) | (i < 100 ? 4 : 0) | (i >= 0 ? 8 : 0) | (i > 1000 ? 16 : 0) | (i <= -130 ? 32 : 0);
+			if (compare(i) != expected) {
+				throw new IllegalStateException("compare " + i);
+			}
+		}
+	}
+
+	@VMTest
+	private static void testFields() {
+		SuperinstructionTest test = new SuperinstructionTest();
+		for (int i = 0; i < 16; i++) {
+			if (read(test) != 3L + 5L + 4L) {
+				throw new IllegalStateException("read " + i);
+			}
+		}
+		try {
+			read(null);
+			throw new IllegalStateException("read null");
+		} catch (NullPointerException ignored) {
+		}
+	}
+
+	private static int sum(int[] array) {
+		int sum = 0;
+		for (int i = 0; i < array.length; i++) {
+			int value = array[i];
+			sum = sum + value;
+		}
+		return sum;
+	}
+
+	private static int countDown(int n) {
+		int count = 0;
+		for (int i = n; i > 3; i--) {
+			count++;
+		}
+		return count;
+	}
+
+	private static int compare(int i) {
+		int result = 0;
+		if (i == 7) {
+			result |= 1;
+		}
+		if (i != -1) {
+			result |= 2;
+		}
+		if (i < 100) {
+			result |= 4;
+		}
+		if (i >= 0) {
+			result |= 8;
+		}
+		if (i > 1000) {
+			result |= 16;
+		}
+		if (i <= -130) {
+			result |= 32;
+		}
+		return result;
+	}
+
+	private static long read(SuperinstructionTest test) {
+		return test.value + test.wide + test.name.length();
+	}
+
+	private static long readNew() {
+		return read(new SuperinstructionTest());
+	}
+
+	private static BitSet fusedOpcodes(JavaMethod method) {
+		BitSet opcodes = new BitSet();
+		CompactCode code = method.getCompactCode();
+		for (int i = 0; i < code.length(); i++) {
+			AbstractInsnNode insn = code.insn(i);
+			if (insn instanceof VMFusedInsnNode) {
+				opcodes.set(insn.getOpcode());
+			}
+		}
+		return opcodes;
+	}
+
+	private static VirtualMachine newVirtualMachine() {
+		return new VirtualMachine() {
+			@Override
+			protected FileManager createFileManager() {
+				return new HostFileManager();
+			}
+
+			@Override
+			protected MemoryAllocator createMemoryAllocator() {
+				return new SynchronizedMemoryAllocator(super.createMemoryAllocator());
+			}
+
+			@Override
+			protected MemoryManager createMemoryManager() {
+				return new SynchronizedMemoryManager(super.createMemoryManager());
+			}
+
+			@Override
+			protected ExecutionEngine createExecutionEngine() {
+				return new SimpleExecutionEngine(this, new FusingInvoker(new InterpretedInvoker(), 2));
+			}
+		};
+	}
+}
@@ -0,0 +1,143 @@
+package dev.xdark.ssvm.enhanced;
+
+import dev.xdark.ssvm.TestUtil;
+import dev.xdark.ssvm.VMTest;
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.execution.ExecutionEngine;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.execution.Result;
+import dev.xdark.ssvm.execution.Stack;
+import dev.xdark.ssvm.execution.SwitchExecutionEngine;
+import dev.xdark.ssvm.filesystem.FileManager;
+import dev.xdark.ssvm.filesystem.HostFileManager;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Opcodes;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SwitchInterpreterTest {
+	private static volatile boolean started;
+
+	@Test
+	public void doTest() {
+		TestUtil.test(SwitchInterpreterTest.class, TestUtil.BOOTSTRAP, null, SwitchInterpreterTest::newVirtualMachine);
+	}
+
+	@Test
+	public void testOverriddenProcessor() {
+		TestUtil.test(Adder.class, TestUtil.BOOTSTRAP, jc -> {
+			VirtualMachine vm = jc.getVM();
+			vm.getInterface().setProcessor(Opcodes.IADD, (insn, ctx) -> {
+				Stack stack = ctx.getStack();
+				int v2 = stack.popInt();
+				stack.pushInt(stack.popInt() - v2);
+				return Result.CONTINUE;
+			});
+			JavaMethod add = jc.getMethod("add", "(II)I");
+			Locals locals = vm.getThreadStorage().newLocals(add);
+			locals.setInt(0, 1);
+			locals.setInt(1, 2);
+			assertEquals(-1, vm.getOperations().invokeInt(add, locals));
+		}, SwitchInterpreterTest::newVirtualMachine);
+	}
+
+	@VMTest
+	private static void testLoops() {
+		int count = ThreadLocalRandom.current().nextInt(16, 64);
+		long sum = 0L;
+		double dsum = 0.0D;
+		for (int i = 0; i < count; i++) {
+			sum += (long) i << 1;
+			dsum += i * 0.5F;
+		}
+		if (sum != (long) count * (count - 1)) {
+			throw new IllegalStateException();
+		}
+		if (dsum != count * (count - 1) / 4.0D) {
+			throw new IllegalStateException();
+		}
+	}
+
+	@VMTest
+	private static void testConversions() {
+		int v = ThreadLocalRandom.current().nextInt(1 << 16, Integer.MAX_VALUE);
+		if ((byte) v != (byte) (v & 0xFF) || (char) v != (v & 0xFFFF) || (short) v != (short) (v & 0xFFFF)) {
+			throw new IllegalStateException();
+		}
+		if ((int) (long) v != v || (int) (double) v != v || Float.compare(Float.NaN, 1.0F) <= 0) {
+			throw new IllegalStateException();
+		}
+		if (-v + v != 0 || (v >>> 31) != 0 || (v ^ v) != 0 || (v | 0) != v) {
+			throw new IllegalStateException();
+		}
+	}
+
+	@VMTest
+	private static void testExceptionInLoop() {
+		int caught = 0;
+		Object[] values = {"a", null, "b", null};
+		for (Object value : values) {
+			try {
+				value.hashCode();
+			} catch (NullPointerException ex) {
+				caught++;
+			}
+		}
+		if (caught != 2) {
+			throw new IllegalStateException();
+		}
+	}
+
+	@VMTest
+	private static void testSwitch() {
+		int v = ThreadLocalRandom.current().nextInt(0, 3);
+		String s;
+		switch (v) {
+			case 0:
+				s = "zero";
+				break;
+			case 1:
+				s = "one";
+				break;
+			default:
+				s = "two";
+		}
+		if (s.length() < 3) {
+			throw new IllegalStateException();
+		}
+	}
+
+	@VMTest
+	private static void testSpinWait() throws InterruptedException {
+		Thread thread = new Thread(() -> started = true);
+		thread.start();
+		// Spinning thread must let the other one run
+		while (!started) {
+		}
+		thread.join();
+	}
+
+	private static VirtualMachine newVirtualMachine() {
+		return new VirtualMachine() {
+			@Override
+			protected FileManager createFileManager() {
+				return new HostFileManager();
+			}
+
+			@Override
+			protected ExecutionEngine createExecutionEngine() {
+				return new SwitchExecutionEngine(this);
+			}
+		};
+	}
+
+	private static final class Adder {
+
+		private static int add(int a, int b) {
+			return a + b;
+		}
+	}
+}
@@ -2,12 +2,13 @@
 
 import dev.xdark.ssvm.TestUtil;
 import dev.xdark.ssvm.VMTest;
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
 public class ThreadTest {
 
-	@Disabled
 	@Test
 	public void doTest() {
 		TestUtil.test(ThreadTest.class, true);
@@ -27,4 +28,49 @@ private static void testThreadStart() throws InterruptedException {
 		thread.join();
 		System.out.println("thread finished");
 	}
+
+	@VMTest
+	private static void testProducerConsumer() throws InterruptedException {
+		BlockingQueue<Integer> queue = new ArrayBlockingQueue<>(4);
+		int[] sum = new int[1];
+		Thread consumer = new Thread(() -> {
+			try {
+				for (int i = 0; i < 64; i++) {
+					sum[0] += queue.take();
+				}
+			} catch (InterruptedException ex) {
+				throw new IllegalStateException(ex);
+			}
+		});
+		consumer.start();
+		for (int i = 0; i < 64; i++) {
+			queue.put(i);
+		}
+		consumer.join();
+		if (sum[0] != 63 * 64 / 2) {
+			throw new IllegalStateException(Integer.toString(sum[0]));
+		}
+	}
+
+	@VMTest
+	private static void testWaitNotify() throws InterruptedException {
+		Object lock = new Object();
+		boolean[] ready = new boolean[1];
+		Thread thread = new Thread(() -> {
+			synchronized (lock) {
+				ready[0] = true;
+				lock.notifyAll();
+			}
+		});
+		synchronized (lock) {
+			thread.start();
+			while (!ready[0]) {
+				lock.wait();
+			}
+		}
+		thread.join();
+		if (thread.isAlive()) {
+			throw new IllegalStateException();
+		}
+	}
 }
@@ -1,5 +1,6 @@
 package dev.xdark.ssvm;
 
+import dev.xdark.ssvm.execution.ExecutionEngine;
 import dev.xdark.ssvm.execution.Locals;
 import dev.xdark.ssvm.execution.VMException;
 import dev.xdark.ssvm.filesystem.FileManager;
@@ -24,6 +25,7 @@
 import java.lang.reflect.Modifier;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -34,7 +36,11 @@ public class TestUtil {
 	public final int SYSTEM = 2;
 
 	public void test(Class<?> klass, int flag, Consumer<InstanceClass> init) {
-		VirtualMachine vm = newVirtualMachine();
+		test(klass, flag, init, TestUtil::newVirtualMachine);
+	}
+
+	public void test(Class<?> klass, int flag, Consumer<InstanceClass> init, Supplier<VirtualMachine> factory) {
+		VirtualMachine vm = factory.get();
 		if ((flag & BOOTSTRAP) != 0) {
 			vm.bootstrap();
 		} else {
@@ -93,6 +99,10 @@ public void test(Class<?> klass) {
 	}
 
 	public VirtualMachine newVirtualMachine() {
+		return withExecutionEngine(null);
+	}
+
+	public VirtualMachine withExecutionEngine(Function<VirtualMachine, ExecutionEngine> factory) {
 		return new VirtualMachine() {
 			@Override
 			protected FileManager createFileManager() {
@@ -108,6 +118,11 @@ protected MemoryAllocator createMemoryAllocator() {
 			protected MemoryManager createMemoryManager() {
 				return new SynchronizedMemoryManager(super.createMemoryManager());
 			}
+
+			@Override
+			protected ExecutionEngine createExecutionEngine() {
+				return factory == null ? super.createExecutionEngine() : factory.apply(this);
+			}
 		};
 	}
 }
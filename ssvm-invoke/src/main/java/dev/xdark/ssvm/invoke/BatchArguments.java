@@ -0,0 +1,161 @@
+package dev.xdark.ssvm.invoke;
+
+import dev.xdark.ssvm.memory.management.MemoryManager;
+import dev.xdark.ssvm.value.ObjectValue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Columnar arguments of a batch invocation.
+ * Each column holds values of one argument,
+ * columns are added in the order of method arguments.
+ *
+ * @author xDark
+ */
+public final class BatchArguments {
+	private final List<Column> columns = new ArrayList<>();
+	private final List<List<? extends ObjectValue>> referenceColumns = new ArrayList<>();
+	private final int size;
+	private boolean references;
+
+	private BatchArguments(int size) {
+		this.size = size;
+	}
+
+	/**
+	 * Adds {@literal int}, {@literal short}, {@literal char},
+	 * {@literal byte} or {@literal boolean} column.
+	 *
+	 * @param values Argument values.
+	 * @return This arguments.
+	 */
+	public BatchArguments ints(int[] values) {
+		checkSize(values.length);
+		columns.add((invocation, index, row) -> invocation.setInt(index, values[row]));
+		return this;
+	}
+
+	/**
+	 * @param values Argument values.
+	 * @return This arguments.
+	 */
+	public BatchArguments longs(long[] values) {
+		checkSize(values.length);
+		columns.add((invocation, index, row) -> invocation.setLong(index, values[row]));
+		return this;
+	}
+
+	/**
+	 * @param values Argument values.
+	 * @return This arguments.
+	 */
+	public BatchArguments floats(float[] values) {
+		checkSize(values.length);
+		columns.add((invocation, index, row) -> invocation.setFloat(index, values[row]));
+		return this;
+	}
+
+	/**
+	 * @param values Argument values.
+	 * @return This arguments.
+	 */
+	public BatchArguments doubles(double[] values) {
+		checkSize(values.length);
+		columns.add((invocation, index, row) -> invocation.setDouble(index, values[row]));
+		return this;
+	}
+
+	/**
+	 * Reference columns are bound to the VM
+	 * the values were allocated in.
+	 *
+	 * @param values Argument values.
+	 * @return This arguments.
+	 */
+	public BatchArguments references(List<? extends ObjectValue> values) {
+		checkSize(values.size());
+		references = true;
+		referenceColumns.add(values);
+		columns.add((invocation, index, row) -> invocation.setReference(index, values.get(row)));
+		return this;
+	}
+
+	/**
+	 * Adds column where every row has the same value.
+	 * Can be used to pass receiver of an instance method.
+	 *
+	 * @param value Argument value.
+	 * @return This arguments.
+	 */
+	public BatchArguments constant(ObjectValue value) {
+		references = true;
+		referenceColumns.add(Collections.singletonList(value));
+		columns.add((invocation, index, row) -> invocation.setReference(index, value));
+		return this;
+	}
+
+	/**
+	 * @return The amount of rows.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return The amount of columns.
+	 */
+	public int columnCount() {
+		return columns.size();
+	}
+
+	boolean hasReferences() {
+		return references;
+	}
+
+	void pin(MemoryManager memoryManager) {
+		for (List<? extends ObjectValue> column : referenceColumns) {
+			for (ObjectValue value : column) {
+				memoryManager.pin(value);
+			}
+		}
+	}
+
+	void unpin(MemoryManager memoryManager) {
+		for (List<? extends ObjectValue> column : referenceColumns) {
+			for (ObjectValue value : column) {
+				memoryManager.unpin(value);
+			}
+		}
+	}
+
+	void apply(PreparedInvocation invocation, int row) {
+		List<Column> columns = this.columns;
+		for (int i = 0, j = columns.size(); i < j; i++) {
+			columns.get(i).apply(invocation, i, row);
+		}
+	}
+
+	private void checkSize(int size) {
+		if (size != this.size) {
+			throw new IllegalArgumentException("Expected " + this.size + " values, got " + size);
+		}
+	}
+
+	/**
+	 * @param size The amount of rows.
+	 * @return New arguments.
+	 */
+	public static BatchArguments create(int size) {
+		if (size < 0) {
+			throw new IllegalArgumentException("Negative size");
+		}
+		return new BatchArguments(size);
+	}
+
+	private interface Column {
+
+		void apply(PreparedInvocation invocation, int index, int row);
+	}
+}
@@ -0,0 +1,281 @@
+package dev.xdark.ssvm.invoke;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.memory.management.MemoryManager;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.thread.ThreadManager;
+import dev.xdark.ssvm.value.ObjectValue;
+import dev.xdark.ssvm.value.sink.ReflectionSink;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Invocation of one method over a set of arguments.
+ * Calls are made back-to-back on the current thread.
+ * <p>
+ * Reference arguments are pinned for the duration of the batch,
+ * as calls of earlier rows may trigger collection.
+ * Every row is copied into a new frame, see {@link PreparedInvocation}.
+ *
+ * @author xDark
+ */
+public final class BatchInvocation {
+	private final PreparedInvocation invocation;
+	private final BatchArguments arguments;
+
+	BatchInvocation(PreparedInvocation invocation, BatchArguments arguments) {
+		if (arguments.columnCount() != invocation.getArgumentCount()) {
+			throw new IllegalArgumentException("Expected " + invocation.getArgumentCount() + " columns, got " + arguments.columnCount());
+		}
+		this.invocation = invocation;
+		this.arguments = arguments;
+	}
+
+	/**
+	 * Invokes the method for every row.
+	 *
+	 * @param consumer Result consumer.
+	 */
+	public void invoke(BatchResultConsumer consumer) {
+		invoke(0, arguments.size(), consumer);
+	}
+
+	/**
+	 * Invokes the method for every row.
+	 */
+	public void invokeVoid() {
+		PreparedInvocation invocation = this.invocation;
+		BatchArguments arguments = this.arguments;
+		MemoryManager memoryManager = pin();
+		try {
+			for (int row = 0, size = arguments.size(); row < size; row++) {
+				arguments.apply(invocation, row);
+				invocation.invokeVoid();
+			}
+		} finally {
+			arguments.unpin(memoryManager);
+		}
+	}
+
+	/**
+	 * @param results Invocation results.
+	 */
+	public void invokeInt(int[] results) {
+		PreparedInvocation invocation = this.invocation;
+		BatchArguments arguments = this.arguments;
+		MemoryManager memoryManager = pin();
+		try {
+			for (int row = 0, size = checkResults(results.length); row < size; row++) {
+				arguments.apply(invocation, row);
+				results[row] = invocation.invokeInt();
+			}
+		} finally {
+			arguments.unpin(memoryManager);
+		}
+	}
+
+	/**
+	 * @param results Invocation results.
+	 */
+	public void invokeLong(long[] results) {
+		PreparedInvocation invocation = this.invocation;
+		BatchArguments arguments = this.arguments;
+		MemoryManager memoryManager = pin();
+		try {
+			for (int row = 0, size = checkResults(results.length); row < size; row++) {
+				arguments.apply(invocation, row);
+				results[row] = invocation.invokeLong();
+			}
+		} finally {
+			arguments.unpin(memoryManager);
+		}
+	}
+
+	/**
+	 * @param results Invocation results.
+	 */
+	public void invokeFloat(float[] results) {
+		PreparedInvocation invocation = this.invocation;
+		BatchArguments arguments = this.arguments;
+		MemoryManager memoryManager = pin();
+		try {
+			for (int row = 0, size = checkResults(results.length); row < size; row++) {
+				arguments.apply(invocation, row);
+				results[row] = invocation.invokeFloat();
+			}
+		} finally {
+			arguments.unpin(memoryManager);
+		}
+	}
+
+	/**
+	 * @param results Invocation results.
+	 */
+	public void invokeDouble(double[] results) {
+		PreparedInvocation invocation = this.invocation;
+		BatchArguments arguments = this.arguments;
+		MemoryManager memoryManager = pin();
+		try {
+			for (int row = 0, size = checkResults(results.length); row < size; row++) {
+				arguments.apply(invocation, row);
+				results[row] = invocation.invokeDouble();
+			}
+		} finally {
+			arguments.unpin(memoryManager);
+		}
+	}
+
+	/**
+	 * Results are pinned, as host references
+	 * are not GC roots and later rows may trigger collection.
+	 * The caller must unpin every result once it is done with it,
+	 * see {@link #unpin(ObjectValue[])}.
+	 * Use {@link #invoke(BatchResultConsumer)} to avoid pinning.
+	 *
+	 * @param results Invocation results.
+	 */
+	public void invokeReference(ObjectValue[] results) {
+		PreparedInvocation invocation = this.invocation;
+		BatchArguments arguments = this.arguments;
+		int size = checkResults(results.length);
+		MemoryManager memoryManager = pin();
+		int row = 0;
+		try {
+			for (; row < size; row++) {
+				arguments.apply(invocation, row);
+				ObjectValue result = invocation.invokeReference();
+				memoryManager.pin(result);
+				results[row] = result;
+			}
+		} catch (Throwable t) {
+			unpin(memoryManager, results, row);
+			throw t;
+		} finally {
+			arguments.unpin(memoryManager);
+		}
+	}
+
+	/**
+	 * Unpins results of {@link #invokeReference(ObjectValue[])}.
+	 *
+	 * @param results Invocation results.
+	 */
+	public void unpin(ObjectValue[] results) {
+		unpin(invocation.getVM().getMemoryManager(), results, arguments.size());
+	}
+
+	private void invoke(int from, int to, BatchResultConsumer consumer) {
+		PreparedInvocation invocation = this.invocation;
+		BatchArguments arguments = this.arguments;
+		ReflectionSink sink = new ReflectionSink();
+		MemoryManager memoryManager = pin();
+		try {
+			for (int row = from; row < to; row++) {
+				arguments.apply(invocation, row);
+				sink.reset();
+				sink.referenceValue = null;
+				invocation.invoke(sink);
+				consumer.accept(row, sink);
+			}
+		} finally {
+			arguments.unpin(memoryManager);
+		}
+	}
+
+	private MemoryManager pin() {
+		MemoryManager memoryManager = invocation.getVM().getMemoryManager();
+		arguments.pin(memoryManager);
+		return memoryManager;
+	}
+
+	private static void unpin(MemoryManager memoryManager, ObjectValue[] results, int count) {
+		for (int i = 0; i < count; i++) {
+			ObjectValue value = results[i];
+			if (value != null) {
+				memoryManager.unpin(value);
+				results[i] = null;
+			}
+		}
+	}
+
+	private int checkResults(int length) {
+		int size = arguments.size();
+		if (length < size) {
+			throw new IllegalArgumentException("Result buffer is too small, expected " + size + ", got " + length);
+		}
+		return size;
+	}
+
+	/**
+	 * Splits rows between virtual machines,
+	 * and invokes the method in all of them at once.
+	 * Each virtual machine processes its rows on a separate thread,
+	 * so the consumer must be thread-safe.
+	 * Arguments must not contain references, as those
+	 * are bound to a single virtual machine.
+	 *
+	 * @param vms       Virtual machines to use.
+	 * @param resolver  Method resolver, called once for every virtual machine.
+	 * @param arguments Invocation arguments.
+	 * @param consumer  Result consumer.
+	 * @throws IllegalArgumentException If {@code vms} is empty, or arguments contain references.
+	 */
+	public static void invokeParallel(List<VirtualMachine> vms, Function<VirtualMachine, JavaMethod> resolver, BatchArguments arguments, BatchResultConsumer consumer) {
+		if (vms.isEmpty()) {
+			throw new IllegalArgumentException("No virtual machines to invoke in");
+		}
+		if (arguments.hasReferences()) {
+			throw new IllegalArgumentException("Reference arguments cannot be shared between virtual machines");
+		}
+		int count = vms.size();
+		int size = arguments.size();
+		int chunk = (size + count - 1) / count;
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		Thread[] threads = new Thread[count];
+		for (int i = 0; i < count; i++) {
+			VirtualMachine vm = vms.get(i);
+			int from = Math.min(size, i * chunk);
+			int to = Math.min(size, from + chunk);
+			Thread thread = new Thread(() -> {
+				ThreadManager threadManager = vm.getThreadManager();
+				threadManager.attachCurrentThread();
+				try {
+					JavaMethod method = resolver.apply(vm);
+					new BatchInvocation(new PreparedInvocation(vm, method), arguments).invoke(from, to, consumer);
+				} catch (Throwable t) {
+					error.compareAndSet(null, t);
+				} finally {
+					threadManager.detachCurrentThread();
+				}
+			}, "Batch invocation " + i);
+			threads[i] = thread;
+			thread.start();
+		}
+		boolean interrupted = false;
+		for (Thread thread : threads) {
+			while (true) {
+				try {
+					thread.join();
+					break;
+				} catch (InterruptedException ex) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		Throwable t = error.get();
+		if (t instanceof RuntimeException) {
+			throw (RuntimeException) t;
+		}
+		if (t instanceof Error) {
+			throw (Error) t;
+		}
+		if (t != null) {
+			throw new IllegalStateException(t);
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package dev.xdark.ssvm.invoke;
+
+import dev.xdark.ssvm.value.sink.ReflectionSink;
+
+/**
+ * Consumer of batch invocation results.
+ *
+ * @author xDark
+ */
+@FunctionalInterface
+public interface BatchResultConsumer {
+
+	/**
+	 * The sink is reused for the next row,
+	 * and must not be retained.
+	 *
+	 * @param row    Row index.
+	 * @param result Invocation result.
+	 */
+	void accept(int row, ReflectionSink result);
+}
@@ -3,13 +3,8 @@
 import dev.xdark.ssvm.VirtualMachine;
 import dev.xdark.ssvm.execution.Locals;
 import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.operation.VMOperations;
 import dev.xdark.ssvm.value.ObjectValue;
-import dev.xdark.ssvm.value.sink.BlackholeValueSink;
-import dev.xdark.ssvm.value.sink.DoubleValueSink;
-import dev.xdark.ssvm.value.sink.FloatValueSink;
-import dev.xdark.ssvm.value.sink.IntValueSink;
-import dev.xdark.ssvm.value.sink.LongValueSink;
-import dev.xdark.ssvm.value.sink.ReferenceValueSink;
 import dev.xdark.ssvm.value.sink.ValueSink;
 
 /**
@@ -32,12 +27,7 @@ private InvocationUtil(VirtualMachine vm) {
 	 * @return Invocation result.
 	 */
 	public <R extends ValueSink> R invoke(JavaMethod method, R returnSink, Argument... arguments) {
-		Locals locals = vm.getThreadStorage().newLocals(method);
-		int index = 0;
-		for (Argument argument : arguments) {
-			index += argument.store(locals, index);
-		}
-		return vm.getOperations().invoke(method, locals, returnSink);
+		return vm.getOperations().invoke(method, locals(method, arguments), returnSink);
 	}
 
 	/**
@@ -45,7 +35,7 @@ public <R extends ValueSink> R invoke(JavaMethod method, R returnSink, Argument.
 	 * @param arguments Method arguments.
 	 */
 	public void invokeVoid(JavaMethod method, Argument... arguments) {
-		invoke(method, BlackholeValueSink.INSTANCE, arguments);
+		vm.getOperations().invokeVoid(method, locals(method, arguments));
 	}
 
 	/**
@@ -54,7 +44,7 @@ public void invokeVoid(JavaMethod method, Argument... arguments) {
 	 * @return Invocation result.
 	 */
 	public ObjectValue invokeReference(JavaMethod method, Argument... arguments) {
-		return invoke(method, new ReferenceValueSink(), arguments).getValue();
+		return vm.getOperations().invokeReference(method, locals(method, arguments));
 	}
 
 	/**
@@ -65,8 +55,8 @@ public ObjectValue invokeReference(JavaMethod method, Argument... arguments) {
 	public String invokeStringReference(JavaMethod method, Argument... arguments) {
 		if (!method.getDesc().endsWith("Ljava/lang/String;"))
 			throw new IllegalArgumentException("Method does not return 'java.lang.String'");
-		ObjectValue value = invoke(method, new ReferenceValueSink(), arguments).getValue();
-		return vm.getOperations().readUtf8(value);
+		VMOperations ops = vm.getOperations();
+		return ops.readUtf8(ops.invokeReference(method, locals(method, arguments)));
 	}
 
 	/**
@@ -75,7 +65,7 @@ public String invokeStringReference(JavaMethod method, Argument... arguments) {
 	 * @return Invocation result.
 	 */
 	public long invokeLong(JavaMethod method, Argument... arguments) {
-		return invoke(method, new LongValueSink(), arguments).getValue();
+		return vm.getOperations().invokeLong(method, locals(method, arguments));
 	}
 
 	/**
@@ -84,7 +74,7 @@ public long invokeLong(JavaMethod method, Argument... arguments) {
 	 * @return Invocation result.
 	 */
 	public double invokeDouble(JavaMethod method, Argument... arguments) {
-		return invoke(method, new DoubleValueSink(), arguments).getValue();
+		return vm.getOperations().invokeDouble(method, locals(method, arguments));
 	}
 
 	/**
@@ -93,7 +83,7 @@ public double invokeDouble(JavaMethod method, Argument... arguments) {
 	 * @return Invocation result.
 	 */
 	public int invokeInt(JavaMethod method, Argument... arguments) {
-		return invoke(method, new IntValueSink(), arguments).getValue();
+		return vm.getOperations().invokeInt(method, locals(method, arguments));
 	}
 
 	/**
@@ -102,7 +92,33 @@ public int invokeInt(JavaMethod method, Argument... arguments) {
 	 * @return Invocation result.
 	 */
 	public float invokeFloat(JavaMethod method, Argument... arguments) {
-		return invoke(method, new FloatValueSink(), arguments).getValue();
+		return vm.getOperations().invokeFloat(method, locals(method, arguments));
+	}
+
+	/**
+	 * @param method Method to bind.
+	 * @return Invocation of the method, that can be called repeatedly.
+	 */
+	public PreparedInvocation prepare(JavaMethod method) {
+		return new PreparedInvocation(vm, method);
+	}
+
+	/**
+	 * @param method    Method to invoke.
+	 * @param arguments Arguments of every invocation.
+	 * @return Invocation of the method over all arguments.
+	 */
+	public BatchInvocation batch(JavaMethod method, BatchArguments arguments) {
+		return new BatchInvocation(prepare(method), arguments);
+	}
+
+	private Locals locals(JavaMethod method, Argument[] arguments) {
+		Locals locals = vm.getThreadStorage().newLocals(method);
+		int index = 0;
+		for (Argument argument : arguments) {
+			index += argument.store(locals, index);
+		}
+		return locals;
 	}
 
 	/**
@@ -0,0 +1,322 @@
+package dev.xdark.ssvm.invoke;
+
+import dev.xdark.ssvm.VirtualMachine;
+import dev.xdark.ssvm.execution.Locals;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
+import dev.xdark.ssvm.operation.VMOperations;
+import dev.xdark.ssvm.value.ObjectValue;
+import dev.xdark.ssvm.value.sink.ValueSink;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.util.Arrays;
+
+/**
+ * Invocation of a method that is bound once
+ * and then called repeatedly.
+ * Arguments are kept between calls, and are indexed
+ * by their position in the method descriptor.
+ * For instance methods, receiver is the argument {@literal 0}.
+ * <p>
+ * Arguments are kept as an image of the frame slots, grouped
+ * by slot width, and copied into a new frame on every call.
+ * The frame itself cannot be kept, as it is taken from
+ * the thread storage and released when the call returns.
+ * <p>
+ * Reference arguments are not pinned. Host references are
+ * not GC roots, so the caller must
+ * {@link dev.xdark.ssvm.memory.management.MemoryManager#pin(ObjectValue) pin}
+ * the values it sets for as long as they are kept here.
+ * <p>
+ * Instances are not thread-safe.
+ *
+ * @author xDark
+ */
+public final class PreparedInvocation {
+	private final VirtualMachine vm;
+	private final JavaMethod method;
+	private final int[] sorts;
+	// Position of every argument in the image of its width
+	private final int[] positions;
+	private final int[] narrowSlots;
+	private final int[] narrowValues;
+	private final int[] wideSlots;
+	private final long[] wideValues;
+	private final int[] referenceSlots;
+	private final ObjectValue[] references;
+
+	PreparedInvocation(VirtualMachine vm, JavaMethod method) {
+		this.vm = vm;
+		this.method = method;
+		Type[] types = method.getType().getArgumentTypes();
+		int offset = (method.getModifiers() & Opcodes.ACC_STATIC) == 0 ? 1 : 0;
+		int count = types.length + offset;
+		int[] slots = new int[count];
+		int[] sorts = new int[count];
+		int slot = 0;
+		if (offset != 0) {
+			sorts[0] = Type.OBJECT;
+			slot = 1;
+		}
+		for (int i = 0; i < types.length; i++) {
+			Type type = types[i];
+			slots[i + offset] = slot;
+			sorts[i + offset] = sort(type);
+			slot += type.getSize();
+		}
+		int narrow = 0, wide = 0, reference = 0;
+		for (int sort : sorts) {
+			switch (sort) {
+				case Type.INT:
+				case Type.FLOAT:
+					narrow++;
+					break;
+				case Type.LONG:
+				case Type.DOUBLE:
+					wide++;
+					break;
+				default:
+					reference++;
+			}
+		}
+		int[] positions = new int[count];
+		int[] narrowSlots = new int[narrow];
+		int[] wideSlots = new int[wide];
+		int[] referenceSlots = new int[reference];
+		narrow = wide = reference = 0;
+		for (int i = 0; i < count; i++) {
+			switch (sorts[i]) {
+				case Type.INT:
+				case Type.FLOAT:
+					narrowSlots[narrow] = slots[i];
+					positions[i] = narrow++;
+					break;
+				case Type.LONG:
+				case Type.DOUBLE:
+					wideSlots[wide] = slots[i];
+					positions[i] = wide++;
+					break;
+				default:
+					referenceSlots[reference] = slots[i];
+					positions[i] = reference++;
+			}
+		}
+		this.sorts = sorts;
+		this.positions = positions;
+		this.narrowSlots = narrowSlots;
+		this.wideSlots = wideSlots;
+		this.referenceSlots = referenceSlots;
+		narrowValues = new int[narrow];
+		wideValues = new long[wide];
+		ObjectValue[] references = new ObjectValue[reference];
+		Arrays.fill(references, vm.getMemoryManager().nullValue());
+		this.references = references;
+	}
+
+	/**
+	 * @return VM instance.
+	 */
+	public VirtualMachine getVM() {
+		return vm;
+	}
+
+	/**
+	 * @return Bound method.
+	 */
+	public JavaMethod getMethod() {
+		return method;
+	}
+
+	/**
+	 * @return The amount of arguments, including receiver.
+	 */
+	public int getArgumentCount() {
+		return sorts.length;
+	}
+
+	/**
+	 * Sets {@literal int}, {@literal short}, {@literal char},
+	 * {@literal byte} or {@literal boolean} argument.
+	 *
+	 * @param index Argument index.
+	 * @param value Argument value.
+	 * @return This invocation.
+	 */
+	public PreparedInvocation setInt(int index, int value) {
+		check(index, Type.INT);
+		narrowValues[positions[index]] = value;
+		return this;
+	}
+
+	/**
+	 * @param index Argument index.
+	 * @param value Argument value.
+	 * @return This invocation.
+	 */
+	public PreparedInvocation setLong(int index, long value) {
+		check(index, Type.LONG);
+		wideValues[positions[index]] = value;
+		return this;
+	}
+
+	/**
+	 * @param index Argument index.
+	 * @param value Argument value.
+	 * @return This invocation.
+	 */
+	public PreparedInvocation setFloat(int index, float value) {
+		check(index, Type.FLOAT);
+		narrowValues[positions[index]] = Float.floatToRawIntBits(value);
+		return this;
+	}
+
+	/**
+	 * @param index Argument index.
+	 * @param value Argument value.
+	 * @return This invocation.
+	 */
+	public PreparedInvocation setDouble(int index, double value) {
+		check(index, Type.DOUBLE);
+		wideValues[positions[index]] = Double.doubleToRawLongBits(value);
+		return this;
+	}
+
+	/**
+	 * The value is not pinned by this invocation.
+	 *
+	 * @param index Argument index.
+	 * @param value Argument value.
+	 * @return This invocation.
+	 */
+	public PreparedInvocation setReference(int index, ObjectValue value) {
+		check(index, Type.OBJECT);
+		references[positions[index]] = value;
+		return this;
+	}
+
+	/**
+	 * @param returnSink Invocation result sink.
+	 * @return Invocation result.
+	 */
+	public <R extends ValueSink> R invoke(R returnSink) {
+		return vm.getOperations().invoke(method, locals(), returnSink);
+	}
+
+	/**
+	 * Invokes the method.
+	 */
+	public void invokeVoid() {
+		vm.getOperations().invokeVoid(method, locals());
+	}
+
+	/**
+	 * @return Invocation result.
+	 */
+	public ObjectValue invokeReference() {
+		return vm.getOperations().invokeReference(method, locals());
+	}
+
+	/**
+	 * @return Invocation result.
+	 */
+	public String invokeStringReference() {
+		if (!method.getDesc().endsWith("Ljava/lang/String;"))
+			throw new IllegalArgumentException("Method does not return 'java.lang.String'");
+		VMOperations ops = vm.getOperations();
+		return ops.readUtf8(ops.invokeReference(method, locals()));
+	}
+
+	/**
+	 * @return Invocation result.
+	 */
+	public long invokeLong() {
+		return vm.getOperations().invokeLong(method, locals());
+	}
+
+	/**
+	 * @return Invocation result.
+	 */
+	public double invokeDouble() {
+		return vm.getOperations().invokeDouble(method, locals());
+	}
+
+	/**
+	 * @return Invocation result.
+	 */
+	public int invokeInt() {
+		return vm.getOperations().invokeInt(method, locals());
+	}
+
+	/**
+	 * @return Invocation result.
+	 */
+	public float invokeFloat() {
+		return vm.getOperations().invokeFloat(method, locals());
+	}
+
+	/**
+	 * @return Invocation result.
+	 */
+	public boolean invokeBoolean() {
+		return vm.getOperations().invokeBoolean(method, locals());
+	}
+
+	private Locals locals() {
+		Locals locals = vm.getThreadStorage().newLocals(method);
+		// Float and double slots hold raw bits
+		int[] slots = narrowSlots;
+		int[] narrowValues = this.narrowValues;
+		for (int i = 0; i < slots.length; i++) {
+			locals.setInt(slots[i], narrowValues[i]);
+		}
+		slots = wideSlots;
+		long[] wideValues = this.wideValues;
+		for (int i = 0; i < slots.length; i++) {
+			locals.setLong(slots[i], wideValues[i]);
+		}
+		slots = referenceSlots;
+		ObjectValue[] references = this.references;
+		for (int i = 0; i < slots.length; i++) {
+			locals.setReference(slots[i], references[i]);
+		}
+		return locals;
+	}
+
+	private void check(int index, int sort) {
+		if (sorts[index] != sort) {
+			throw new IllegalArgumentException("Argument " + index + " of " + method + " is not of type " + sortName(sort));
+		}
+	}
+
+	private static int sort(Type type) {
+		switch (type.getSort()) {
+			case Type.BOOLEAN:
+			case Type.CHAR:
+			case Type.BYTE:
+			case Type.SHORT:
+			case Type.INT:
+				return Type.INT;
+			case Type.FLOAT:
+			case Type.LONG:
+			case Type.DOUBLE:
+				return type.getSort();
+			default:
+				return Type.OBJECT;
+		}
+	}
+
+	private static String sortName(int sort) {
+		switch (sort) {
+			case Type.INT:
+				return "int";
+			case Type.FLOAT:
+				return "float";
+			case Type.LONG:
+				return "long";
+			case Type.DOUBLE:
+				return "double";
+			default:
+				return "reference";
+		}
+	}
+}
@@ -1,12 +1,24 @@
 package dev.xdark.ssvm;
 
 import dev.xdark.ssvm.invoke.Argument;
+import dev.xdark.ssvm.invoke.BatchArguments;
+import dev.xdark.ssvm.invoke.BatchInvocation;
 import dev.xdark.ssvm.invoke.InvocationUtil;
+import dev.xdark.ssvm.invoke.PreparedInvocation;
+import dev.xdark.ssvm.mirror.member.JavaMethod;
 import dev.xdark.ssvm.mirror.type.InstanceClass;
 import dev.xdark.ssvm.value.ObjectValue;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * Tests for {@link InvocationUtil}
@@ -40,4 +52,118 @@ public void testIntClassMethods() {
 		);
 		assertEquals(value, primitive);
 	}
+
+	@Test
+	public void testPreparedInvocation() {
+		VirtualMachine vm = new VirtualMachine();
+		vm.bootstrap();
+		InvocationUtil util = InvocationUtil.create(vm);
+
+		// Static method, bound once and invoked with different arguments
+		PreparedInvocation sum = util.prepare(vm.getSymbols().java_lang_Long().getMethod("sum", "(JJ)J"));
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i * 3L, sum.setLong(0, i).setLong(1, i * 2L).invokeLong());
+		}
+
+		// Arguments of different width
+		PreparedInvocation scalb = util.prepare(((InstanceClass) vm.findBootstrapClass("java/lang/Math", true)).getMethod("scalb", "(DI)D"));
+		for (int i = 0; i < 8; i++) {
+			assertEquals(Math.scalb(1.5D, i), scalb.setDouble(0, 1.5D).setInt(1, i).invokeDouble());
+		}
+
+		// Instance method, receiver is the first argument
+		InstanceClass java_lang_string = vm.getSymbols().java_lang_String();
+		PreparedInvocation charAt = util.prepare(java_lang_string.getMethod("charAt", "(I)C"));
+		// Reference arguments are kept across calls, so they must be pinned
+		ObjectValue receiver = vm.getOperations().newUtf8("prepared");
+		vm.getMemoryManager().pin(receiver);
+		charAt.setReference(0, receiver);
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 8; i++) {
+			builder.append((char) charAt.setInt(1, i).invokeInt());
+		}
+		assertEquals("prepared", builder.toString());
+		assertThrows(IllegalArgumentException.class, () -> charAt.setLong(1, 0L));
+		vm.getMemoryManager().unpin(receiver);
+	}
+
+	@Test
+	public void testBatchInvocation() {
+		VirtualMachine vm = new VirtualMachine();
+		vm.bootstrap();
+		InvocationUtil util = InvocationUtil.create(vm);
+		int size = 1000;
+		int[] a = new int[size];
+		long[] b = new long[size];
+		for (int i = 0; i < size; i++) {
+			a[i] = i;
+			b[i] = i * 7L;
+		}
+
+		// Results streamed into a buffer
+		JavaMethod max = vm.getSymbols().java_lang_Long().getMethod("max", "(JJ)J");
+		BatchArguments arguments = BatchArguments.create(size).longs(b).longs(new long[size]);
+		long[] results = new long[size];
+		util.batch(max, arguments).invokeLong(results);
+		assertArrayEquals(b, results);
+
+		// Results streamed into a callback, receiver is the same for every row
+		InstanceClass java_lang_string = vm.getSymbols().java_lang_String();
+		ObjectValue string = vm.getOperations().newUtf8("batch");
+		int[] chars = new int[5];
+		util.batch(java_lang_string.getMethod("charAt", "(I)C"), BatchArguments.create(5).constant(string).ints(new int[]{0, 1, 2, 3, 4}))
+			.invoke((row, result) -> chars[row] = result.intValue);
+		assertArrayEquals("batch".chars().toArray(), chars);
+
+		// Reference arguments survive collection during the batch
+		String[] words = {"a", "bb", "ccc", "dddd"};
+		List<ObjectValue> strings = new ArrayList<>();
+		for (String word : words) {
+			strings.add(vm.getOperations().newUtf8(word));
+		}
+		int[] lengths = new int[words.length];
+		util.batch(java_lang_string.getMethod("length", "()I"), BatchArguments.create(words.length).references(strings))
+			.invoke((row, result) -> {
+				lengths[row] = result.intValue;
+				vm.getMemoryManager().collect();
+				for (int i = 0; i < 64; i++) {
+					vm.getOperations().newUtf8("garbage " + i);
+				}
+			});
+		assertArrayEquals(new int[]{1, 2, 3, 4}, lengths);
+
+		// Rows split between two virtual machines
+		VirtualMachine other = new VirtualMachine();
+		other.bootstrap();
+		long[] sums = new long[size];
+		BatchInvocation.invokeParallel(
+			Arrays.asList(vm, other),
+			it -> it.getSymbols().java_lang_Long().getMethod("sum", "(JJ)J"),
+			BatchArguments.create(size).longs(b).longs(Arrays.stream(a).asLongStream().toArray()),
+			(row, result) -> sums[row] = result.longValue
+		);
+		for (int i = 0; i < size; i++) {
+			assertEquals(i * 8L, sums[i]);
+		}
+		assertThrows(IllegalArgumentException.class, () -> BatchInvocation.invokeParallel(
+			Collections.emptyList(),
+			it -> it.getSymbols().java_lang_Long().getMethod("sum", "(JJ)J"),
+			BatchArguments.create(size).longs(b).longs(b),
+			(row, result) -> {
+			}
+		));
+
+		// Reference results stay alive until unpinned
+		InstanceClass java_lang_long = vm.getSymbols().java_lang_Long();
+		BatchInvocation valueOf = util.batch(java_lang_long.getMethod("valueOf", "(J)Ljava/lang/Long;"), BatchArguments.create(size).longs(b));
+		ObjectValue[] wrappers = new ObjectValue[size];
+		valueOf.invokeReference(wrappers);
+		vm.getMemoryManager().collect();
+		JavaMethod longValue = java_lang_long.getMethod("longValue", "()J");
+		for (int i = 0; i < size; i++) {
+			assertEquals(b[i], util.invokeLong(longValue, Argument.reference(wrappers[i])));
+		}
+		valueOf.unpin(wrappers);
+		assertNull(wrappers[0]);
+	}
 }